@@ -97,4 +97,30 @@ for jdk_version in "${JDK_VERSIONS[@]}"; do
       -Dttl.agent.extra.d.options='-Drun-ttl-test-under-agent-with-enable-timer-task=true' \
       ${CI_MORE_END_OPTS:-}
   )
+
+  (
+    cd ttl-agent
+    cu::head_line_echo "test ttl-agent with TTL Agent and Java: $JAVA_HOME"
+
+    cu::blue_echo 'Run agent test under ttl agent, include check for ExecutorService, ForkJoinPool, Timer/TimerTask'
+    mvu::mvn_cmd ${CI_MORE_BEGIN_OPTS:-} \
+      surefire:test -Denforcer.skip \
+      -Penable-ttl-agent-for-test \
+      -Dttl.agent.extra.args='ttl.agent.enable.timer.task:true' \
+      ${CI_MORE_END_OPTS:-}
+
+    cu::blue_echo 'Run agent test under ttl agent, and turn on the disable inheritable for thread pool enhancement'
+    mvu::mvn_cmd ${CI_MORE_BEGIN_OPTS:-} \
+      surefire:test -Denforcer.skip \
+      -Penable-ttl-agent-for-test \
+      -Dttl.agent.extra.args='ttl.agent.disable.inheritable.for.thread.pool:true' \
+      ${CI_MORE_END_OPTS:-}
+
+    cu::blue_echo 'Run agent test under ttl agent, with the asm transform backend'
+    mvu::mvn_cmd ${CI_MORE_BEGIN_OPTS:-} \
+      surefire:test -Denforcer.skip \
+      -Penable-ttl-agent-for-test \
+      -Dttl.agent.extra.args='ttl.agent.transform.backend:asm,ttl.agent.enable.timer.task:true' \
+      ${CI_MORE_END_OPTS:-}
+  )
 done
@@ -0,0 +1,10 @@
+#!/bin/bash
+set -eEuo pipefail
+cd "$(dirname "$(readlink -f "$0")")"
+
+cd ../..
+
+# build the executable benchmark jar, then run JMH benchmarks with the GC profiler;
+# the arguments are passed to JMH, e.g. `TransmitterBenchmark -p ttlCount=1,10`
+./mvnw -pl ttl-benchmarks -am package -DskipTests
+java -jar ttl-benchmarks/target/benchmarks.jar "$@"
@@ -2,19 +2,24 @@ package com.alibaba.ttl3.agent;
 
 import com.alibaba.ttl3.agent.logging.Logger;
 import com.alibaba.ttl3.agent.transformlet.TtlTransformlet;
+import com.alibaba.ttl3.agent.transformlet.internal.AsmForkJoinTtlTransformlet;
+import com.alibaba.ttl3.agent.transformlet.internal.AsmJdkExecutorTtlTransformlet;
+import com.alibaba.ttl3.agent.transformlet.internal.AsmPriorityBlockingQueueTtlTransformlet;
+import com.alibaba.ttl3.agent.transformlet.internal.AsmTimerTaskTtlTransformlet;
 import com.alibaba.ttl3.agent.transformlet.internal.ForkJoinTtlTransformlet;
 import com.alibaba.ttl3.agent.transformlet.internal.JdkExecutorTtlTransformlet;
 import com.alibaba.ttl3.agent.transformlet.internal.PriorityBlockingQueueTtlTransformlet;
 import com.alibaba.ttl3.agent.transformlet.internal.TimerTaskTtlTransformlet;
 import com.alibaba.ttl3.executor.TtlExecutors;
 import edu.umd.cs.findbugs.annotations.NonNull;
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import edu.umd.cs.findbugs.annotations.Nullable;
 
 import java.lang.instrument.ClassFileTransformer;
 import java.lang.instrument.Instrumentation;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * TTL Java Agent.
@@ -108,6 +113,91 @@ import java.util.Map;
  * <li>{@code -javaagent:/path/to/transmittable-thread-local-2.x.y.jar=ttl.agent.log.class.transform:true}</li>
  * </ol>
  *
+ * <h3>Configuration key: the directory of transform cache</h3>
+ * <p>
+ * Enable the on-disk cache of the bytecode transformed by TTL Agent by key {@code ttl.agent.transform.cache.dir},
+ * the transformed bytecode is cached in the directory, and is reused on the next JVM start
+ * if the original class file bytes, the TTL agent jar and the transform configuration are the same.
+ * When no configuration for this key, default is disabled. Since version {@code 3.0.0}.
+ * <p>
+ * The TTL Extension Transformlets are not cached.
+ * <p>
+ * <b><i>Caution:</i></b> the cached bytecode is loaded into the JVM,
+ * so the cache directory must be private: writable only by the user running the JVM.
+ * <p>
+ * Configuration example:
+ *
+ * <ol>
+ * <li>{@code -Dttl.agent.transform.cache.dir=/path/to/cache/dir}</li>
+ * <li>{@code -javaagent:/path/to/transmittable-thread-local-2.x.y.jar=ttl.agent.transform.cache.dir:/path/to/cache/dir}</li>
+ * </ol>
+ *
+ * <h3>Configuration key: the backend of bytecode transform</h3>
+ * <p>
+ * The backend of the TTL built-in transformlets is configured by key {@code ttl.agent.transform.backend}. Since version {@code 3.0.0}.
+ *
+ * <ul>
+ * <li>{@code ttl.agent.transform.backend : javassist}<br>
+ * transform by compiling the source code snippets with {@code Javassist}.
+ * This is <b>default</b>, when no/unrecognized configuration for key {@code ttl.agent.transform.backend}.</li>
+ * <li>{@code ttl.agent.transform.backend : asm}<br>
+ * transform by streaming the class file bytes through the {@code ASM} bytecode visitors and injecting the pre-built bytecode,
+ * cheaper per transformed class, and adds no extra method to the transformed class.</li>
+ * </ul>
+ * <p>
+ * The TTL Extension Transformlets are always {@code Javassist} based.
+ * <p>
+ * Configuration example:
+ *
+ * <ol>
+ * <li>{@code -Dttl.agent.transform.backend=asm}</li>
+ * <li>{@code -javaagent:/path/to/transmittable-thread-local-2.x.y.jar=ttl.agent.transform.backend:asm}</li>
+ * </ol>
+ *
+ * <h3>Configuration key: dump the transform statistics</h3>
+ * <p>
+ * Dump the class transform statistics of TTL Agent(the received/transformed class counts and the cumulative time,
+ * per transformlet inspected/transformed class counts and cumulative time) by key {@code ttl.agent.transform.stats.dump}.
+ * When no configuration for this key, default is do <b>NOT</b> dump. Since version {@code 3.0.0}.
+ *
+ * <ul>
+ * <li>{@code ttl.agent.transform.stats.dump : shutdown}<br>
+ * dump the transform statistics when the JVM shuts down.</li>
+ * <li>{@code ttl.agent.transform.stats.dump : N}(a positive integer)<br>
+ * dump the transform statistics once, {@code N} seconds after the TTL agent is loaded.</li>
+ * </ul>
+ * <p>
+ * The transform statistics are dumped by the TTL Agent logger at level info,
+ * so need {@code ttl.agent.logger : STDOUT}.
+ * The transform statistics are always recorded, and can be read by {@link TtlAgentStatus#getTransformStats()}.
+ * <p>
+ * Configuration example:
+ *
+ * <ol>
+ * <li>{@code -Dttl.agent.transform.stats.dump=shutdown}</li>
+ * <li>{@code -javaagent:/path/to/transmittable-thread-local-2.x.y.jar=ttl.agent.logger:STDOUT,ttl.agent.transform.stats.dump:60}</li>
+ * </ol>
+ *
+ * <h3>Configuration key: the executor classes without transmittance</h3>
+ * <p>
+ * Skip the transmittance of the tasks submitted to the executors of the given classes
+ * by key {@code ttl.agent.no.transmit.executor.class.names}, separate the class names by {@code char |};
+ * e.g. the internal housekeeping thread pools never needing the context and running lots of tasks.
+ * When no configuration for this key, default is transmit for all executors. Since version {@code 3.0.0}.
+ * <p>
+ * The class name is matched against the exact runtime class of the executor
+ * enhanced by ttl agent({@link java.util.concurrent.ThreadPoolExecutor}/{@link java.util.concurrent.ScheduledThreadPoolExecutor}
+ * and their subclasses). The tasks wrapped explicitly(e.g. by {@link com.alibaba.ttl3.TtlRunnable}) are not affected.
+ * <p>
+ * For the executors wrapped by {@link TtlExecutors}, select the transmittance by {@link com.alibaba.ttl3.executor.TransmitPolicy}.
+ * <p>
+ * Configuration example:
+ *
+ * <ol>
+ * <li>{@code -Dttl.agent.no.transmit.executor.class.names=com.foo.HousekeepingThreadPool|com.foo.MetricsThreadPool}</li>
+ * <li>{@code -javaagent:/path/to/transmittable-thread-local-2.x.y.jar=ttl.agent.no.transmit.executor.class.names:com.foo.HousekeepingThreadPool}</li>
+ * </ol>
+ *
  * <h3>Multi key configuration example</h3>
  * <p>
  * For {@code -D property} config, simply specify multiply {@code -D property}, example:<br>
@@ -185,6 +275,49 @@ public final class TtlAgent implements TtlAgentStatus {
      */
     public static final String TTL_AGENT_LOG_CLASS_TRANSFORM_KEY = "ttl.agent.log.class.transform";
 
+    /**
+     * the TTL agent configuration key: the directory of transform cache
+     *
+     * @see TtlAgent
+     */
+    public static final String TTL_AGENT_TRANSFORM_CACHE_DIR_KEY = "ttl.agent.transform.cache.dir";
+
+    /**
+     * the TTL agent configuration key: the backend of bytecode transform
+     *
+     * @see TtlAgent
+     */
+    public static final String TTL_AGENT_TRANSFORM_BACKEND_KEY = "ttl.agent.transform.backend";
+
+    /**
+     * the value of {@link #TTL_AGENT_TRANSFORM_BACKEND_KEY}: transform by {@code Javassist}, the default backend
+     */
+    public static final String TRANSFORM_BACKEND_JAVASSIST = "javassist";
+
+    /**
+     * the value of {@link #TTL_AGENT_TRANSFORM_BACKEND_KEY}: transform by {@code ASM} bytecode visitors
+     */
+    public static final String TRANSFORM_BACKEND_ASM = "asm";
+
+    /**
+     * the TTL agent configuration key: dump the transform statistics
+     *
+     * @see TtlAgent
+     */
+    public static final String TTL_AGENT_TRANSFORM_STATS_DUMP_KEY = "ttl.agent.transform.stats.dump";
+
+    /**
+     * the value of {@link #TTL_AGENT_TRANSFORM_STATS_DUMP_KEY}: dump the transform statistics when the JVM shuts down
+     */
+    public static final String TRANSFORM_STATS_DUMP_AT_SHUTDOWN = "shutdown";
+
+    /**
+     * the TTL agent configuration key: the executor classes without transmittance
+     *
+     * @see TtlAgent
+     */
+    public static final String TTL_AGENT_NO_TRANSMIT_EXECUTOR_CLASS_NAMES_KEY = "ttl.agent.no.transmit.executor.class.names";
+
 
     // ======== TTL Agent internal States ========
 
@@ -192,6 +325,8 @@ public final class TtlAgent implements TtlAgentStatus {
 
     private static volatile boolean ttlAgentLoaded = false;
 
+    private static volatile TtlTransformStats transformStats = new TtlTransformStats();
+
     /**
      * Entrance method of TTL Java Agent.
      *
@@ -210,17 +345,31 @@ public final class TtlAgent implements TtlAgentStatus {
 
             final List<TtlTransformlet> transformletList = new ArrayList<>();
 
-            transformletList.add(new JdkExecutorTtlTransformlet());
-            transformletList.add(new PriorityBlockingQueueTtlTransformlet());
+            if (TRANSFORM_BACKEND_ASM.equals(getTransformBackend())) {
+                transformletList.add(new AsmJdkExecutorTtlTransformlet());
+                transformletList.add(new AsmPriorityBlockingQueueTtlTransformlet());
+
+                transformletList.add(new AsmForkJoinTtlTransformlet());
+
+                if (isEnableTimerTask()) transformletList.add(new AsmTimerTaskTtlTransformlet());
+            } else {
+                transformletList.add(new JdkExecutorTtlTransformlet());
+                transformletList.add(new PriorityBlockingQueueTtlTransformlet());
 
-            transformletList.add(new ForkJoinTtlTransformlet());
+                transformletList.add(new ForkJoinTtlTransformlet());
 
-            if (isEnableTimerTask()) transformletList.add(new TimerTaskTtlTransformlet());
+                if (isEnableTimerTask()) transformletList.add(new TimerTaskTtlTransformlet());
+            }
 
-            final ClassFileTransformer transformer = new TtlTransformer(transformletList, isLogClassTransform());
+            final TtlTransformStats stats = new TtlTransformStats();
+            final ClassFileTransformer transformer = new TtlTransformer(transformletList, isLogClassTransform(),
+                    createTransformCache(transformletList), stats);
+            transformStats = stats;
             inst.addTransformer(transformer, true);
             logger.info("[TtlAgent.premain] add Transformer " + transformer.getClass().getName() + " success");
 
+            scheduleTransformStatsDump(stats);
+
             logger.info("[TtlAgent.premain] end");
 
             ttlAgentLoaded = true;
@@ -236,16 +385,91 @@ public final class TtlAgent implements TtlAgentStatus {
                 + "\n    " + TTL_AGENT_LOGGER_KEY + "=" + getLoggerType()
                 + "\n    " + TTL_AGENT_LOG_CLASS_TRANSFORM_KEY + "=" + isLogClassTransform()
                 + "\n    " + TTL_AGENT_DISABLE_INHERITABLE_FOR_THREAD_POOL_KEY + "=" + isDisableInheritableForThreadPool()
-                + "\n    " + TTL_AGENT_ENABLE_TIMER_TASK_KEY + "=" + isEnableTimerTask();
+                + "\n    " + TTL_AGENT_ENABLE_TIMER_TASK_KEY + "=" + isEnableTimerTask()
+                + "\n    " + TTL_AGENT_TRANSFORM_CACHE_DIR_KEY + "=" + getTransformCacheDir()
+                + "\n    " + TTL_AGENT_TRANSFORM_BACKEND_KEY + "=" + getTransformBackend()
+                + "\n    " + TTL_AGENT_TRANSFORM_STATS_DUMP_KEY + "=" + getTransformStatsDump()
+                + "\n    " + TTL_AGENT_NO_TRANSMIT_EXECUTOR_CLASS_NAMES_KEY + "=" + getNoTransmitExecutorClassNames();
+    }
+
+    @Nullable
+    private static TtlTransformCache createTransformCache(List<TtlTransformlet> transformletList) {
+        final String cacheDir = getTransformCacheDir();
+        if (cacheDir.isEmpty()) return null;
+
+        // the transformed bytecode depends on the agent, the transformlets and the transform options
+        final StringBuilder fingerprint = new StringBuilder(TtlTransformCache.agentFingerprint());
+        for (TtlTransformlet transformlet : transformletList) {
+            fingerprint.append('|').append(transformlet.getClass().getName());
+        }
+        fingerprint.append('|').append(TTL_AGENT_DISABLE_INHERITABLE_FOR_THREAD_POOL_KEY).append('=').append(isDisableInheritableForThreadPool());
+
+        return TtlTransformCache.create(cacheDir, fingerprint.toString());
+    }
+
+    private static void scheduleTransformStatsDump(TtlTransformStats stats) {
+        final String dump = getTransformStatsDump();
+        if (dump.isEmpty()) return;
+
+        final Logger logger = Logger.getLogger(TtlTransformStats.class);
+        final Runnable dumpTask = () -> logger.info(stats.report());
+
+        if (TRANSFORM_STATS_DUMP_AT_SHUTDOWN.equalsIgnoreCase(dump)) {
+            Runtime.getRuntime().addShutdownHook(new Thread(dumpTask, "ttl-agent-transform-stats-dump"));
+            return;
+        }
+
+        final long delaySeconds;
+        try {
+            delaySeconds = Long.parseLong(dump);
+        } catch (NumberFormatException e) {
+            logger.warn("[TtlAgent] unrecognized value of " + TTL_AGENT_TRANSFORM_STATS_DUMP_KEY + ": " + dump + ", ignored");
+            return;
+        }
+        if (delaySeconds <= 0) {
+            logger.warn("[TtlAgent] the value of " + TTL_AGENT_TRANSFORM_STATS_DUMP_KEY + " should be positive: " + dump + ", ignored");
+            return;
+        }
+
+        final Thread thread = new Thread(() -> {
+            try {
+                TimeUnit.SECONDS.sleep(delaySeconds);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            dumpTask.run();
+        }, "ttl-agent-transform-stats-dump");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Only for {@link TtlAgentStatus#getInstance()}(instantiated reflectively),
+     * use the static methods of {@link TtlAgent} instead.
+     */
+    private TtlAgent() {
     }
 
     /**
      * Whether TTL agent is loaded.
      */
+    @Override
     public boolean isTtlAgentLoaded() {
         return ttlAgentLoaded;
     }
 
+    /**
+     * The class transform statistics of TTL agent.
+     *
+     * @see #TTL_AGENT_TRANSFORM_STATS_DUMP_KEY
+     */
+    @NonNull
+    @Override
+    public TransformStats getTransformStats() {
+        return transformStats;
+    }
+
     /**
      * Whether disable inheritable for thread pool is enhanced by ttl agent, check {@link #isTtlAgentLoaded()} first.
      * <p>
@@ -309,6 +533,63 @@ public final class TtlAgent implements TtlAgentStatus {
         return getStringOptionValue(TTL_AGENT_LOGGER_KEY, Logger.STDERR);
     }
 
+    /**
+     * Get the directory of transform cache, empty string if the transform cache is disabled.
+     * <p>
+     * Same as {@code getStringOptionValue(TTL_AGENT_TRANSFORM_CACHE_DIR_KEY, "")}.
+     *
+     * @see TtlAgent
+     * @see #getStringOptionValue(String, String)
+     * @see #TTL_AGENT_TRANSFORM_CACHE_DIR_KEY
+     */
+    @NonNull
+    public static String getTransformCacheDir() {
+        return getStringOptionValue(TTL_AGENT_TRANSFORM_CACHE_DIR_KEY, "");
+    }
+
+    /**
+     * Get the backend of bytecode transform, {@link #TRANSFORM_BACKEND_JAVASSIST} or {@link #TRANSFORM_BACKEND_ASM}.
+     * <p>
+     * The unrecognized configuration is treated as {@link #TRANSFORM_BACKEND_JAVASSIST}.
+     *
+     * @see TtlAgent
+     * @see #getStringOptionValue(String, String)
+     * @see #TTL_AGENT_TRANSFORM_BACKEND_KEY
+     */
+    @NonNull
+    public static String getTransformBackend() {
+        final String backend = getStringOptionValue(TTL_AGENT_TRANSFORM_BACKEND_KEY, TRANSFORM_BACKEND_JAVASSIST);
+        if (TRANSFORM_BACKEND_ASM.equalsIgnoreCase(backend)) return TRANSFORM_BACKEND_ASM;
+        return TRANSFORM_BACKEND_JAVASSIST;
+    }
+
+    /**
+     * Get the dump point of the transform statistics, empty string if do not dump.
+     * <p>
+     * Same as {@code getStringOptionValue(TTL_AGENT_TRANSFORM_STATS_DUMP_KEY, "")}.
+     *
+     * @see TtlAgent
+     * @see #getStringOptionValue(String, String)
+     * @see #TTL_AGENT_TRANSFORM_STATS_DUMP_KEY
+     */
+    @NonNull
+    public static String getTransformStatsDump() {
+        return getStringOptionValue(TTL_AGENT_TRANSFORM_STATS_DUMP_KEY, "");
+    }
+
+    /**
+     * Get the executor class names without transmittance, empty list if transmit for all executors.
+     * <p>
+     * Same as {@code getOptionStringListValues(TTL_AGENT_NO_TRANSMIT_EXECUTOR_CLASS_NAMES_KEY)}.
+     *
+     * @see TtlAgent
+     * @see #TTL_AGENT_NO_TRANSMIT_EXECUTOR_CLASS_NAMES_KEY
+     */
+    @NonNull
+    public static List<String> getNoTransmitExecutorClassNames() {
+        return getOptionStringListValues(TTL_AGENT_NO_TRANSMIT_EXECUTOR_CLASS_NAMES_KEY);
+    }
+
     // ======== Generic Option Getters ========
 
     /**
@@ -365,9 +646,4 @@ public final class TtlAgent implements TtlAgentStatus {
         return TtlAgentHelper.getOptionStringListValues(kvs, key);
     }
 
-
-    @SuppressFBWarnings("CT_CONSTRUCTOR_THROW")
-    private TtlAgent() {
-        throw new InstantiationError("Must not instantiate this class");
-    }
 }
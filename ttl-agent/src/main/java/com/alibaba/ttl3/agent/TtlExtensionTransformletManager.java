@@ -14,8 +14,12 @@ import java.io.InputStreamReader;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.alibaba.ttl3.agent.transformlet.helper.TtlTransformletHelper.getLocationUrlOfClass;
+import static com.alibaba.ttl3.internal.util.Utils.newConcurrentWeakHashMap;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 /**
@@ -30,9 +34,13 @@ final class TtlExtensionTransformletManager {
     }
 
     public String extensionTransformletDoTransform(@NonNull final ClassInfo classInfo) throws NotFoundException, CannotCompileException, IOException {
-        final Map<String, TtlTransformlet> transformlets = classLoader2ExtensionTransformletsIncludeParentCL.get(classInfo.getClassLoader());
-        if (transformlets == null) return null;
+        final ClassLoader classLoader = classInfo.getClassLoader();
+        // bootstrap loader contains NO Ttl Agent Extension Transformlet, see collectExtensionTransformlet
+        if (classLoader == null) return null;
+        // fast path: no Ttl Agent Extension Transformlet is found
+        if (classLoader2ExtensionTransformlets.isEmpty()) return null;
 
+        final Map<String, TtlTransformlet> transformlets = getExtensionTransformletsIncludeParentCL(classLoader);
         for (Map.Entry<String, TtlTransformlet> entry : transformlets.entrySet()) {
             final String className = entry.getKey();
             final TtlTransformlet transformlet = entry.getValue();
@@ -46,16 +54,33 @@ final class TtlExtensionTransformletManager {
         return null;
     }
 
-    // NOTE: use WeakHashMap as a Set collection, value is always null.
-    private final WeakHashMap<ClassLoader, ?> collectedClassLoaderHistory = new WeakHashMap<>(512);
+    // NOTE:
+    // the transform is invoked concurrently by all the threads loading classes,
+    // so all the states of this manager are concurrent maps, and no global lock is used.
+
+    // NOTE: use the concurrent weak map as a Set collection, value is always TRUE.
+    // a classloader is added only after its extension transformlets are merged,
+    // so a thread skipping the collection always sees the merged extension transformlets.
+    private final ConcurrentMap<ClassLoader, Boolean> collectedClassLoaderHistory = newConcurrentWeakHashMap(512);
+
+    // the classloaders being collected by the current thread, to skip the reentrant collection
+    // triggered by loading the extension transformlet classes.
+    // the other threads do not wait for the collection, but collect by themselves;
+    // waiting may deadlock with the class loading lock of the classloader.
+    private final ThreadLocal<Set<ClassLoader>> collectingClassLoaders = ThreadLocal.withInitial(HashSet::new);
 
     // Map: ExtensionTransformlet ClassLoader -> ExtensionTransformlet ClassName -> ExtensionTransformlet instance(not include from parent classloader)
-    private final WeakHashMap<ClassLoader, Map<String, TtlTransformlet>> classLoader2ExtensionTransformlets =
-            new WeakHashMap<>(512);
+    // the value map is immutable, updated by copy-on-write.
+    private final ConcurrentMap<ClassLoader, Map<String, TtlTransformlet>> classLoader2ExtensionTransformlets =
+            newConcurrentWeakHashMap(512);
 
-    // Map: ExtensionTransformlet ClassLoader -> ExtensionTransformlet ClassName -> ExtensionTransformlet instance(include from parent classloader)
-    private final WeakHashMap<ClassLoader, Map<String, TtlTransformlet>> classLoader2ExtensionTransformletsIncludeParentCL =
-            new WeakHashMap<>(512);
+    // the version of classLoader2ExtensionTransformlets, increased on every update;
+    // used to invalidate the cached merged transformlets of classLoader2ExtensionTransformletsIncludeParentCL
+    private final AtomicInteger extensionTransformletsVersion = new AtomicInteger();
+
+    // Map: ClassLoader -> merged ExtensionTransformlets(include from parent classloader), computed lazily per classloader
+    private final ConcurrentMap<ClassLoader, MergedTransformlets> classLoader2ExtensionTransformletsIncludeParentCL =
+            newConcurrentWeakHashMap(512);
 
     public void collectExtensionTransformlet(@NonNull final ClassInfo classInfo) throws IOException {
         final ClassLoader classLoader = classInfo.getClassLoader();
@@ -63,27 +88,35 @@ final class TtlExtensionTransformletManager {
         // which classloader must contains NO Ttl Agent Extension Transformlet, so just safe skip
         if (classLoader == null) return;
 
-        // this classLoader is collected, so skip collection
+        // this classLoader is collected, or being collected by the current thread, so skip collection
         if (collectedClassLoaderHistory.containsKey(classLoader)) return;
-        collectedClassLoaderHistory.put(classLoader, null);
-
-        logger.info("[TtlExtensionTransformletCollector] collecting TTL Extension Transformlets from classloader " + classLoader);
+        final Set<ClassLoader> collecting = collectingClassLoaders.get();
+        if (!collecting.add(classLoader)) return;
 
-        final LinkedHashSet<String> extensionTransformletClassNames = readExtensionTransformletClassNames(classLoader);
+        try {
+            logger.info("[TtlExtensionTransformletCollector] collecting TTL Extension Transformlets from classloader " + classLoader);
 
-        final String foundMsgHead = "[TtlExtensionTransformletCollector] found TTL Extension Transformlet class ";
-        final String failLoadMsgHead = "[TtlExtensionTransformletCollector] fail to load TTL Extension Transformlet ";
-        final Map<ClassLoader, Set<TtlTransformlet>> loadedTransformlet =
-                loadExtensionInstances(classLoader, extensionTransformletClassNames, TtlTransformlet.class, foundMsgHead, failLoadMsgHead);
+            final LinkedHashSet<String> extensionTransformletClassNames = readExtensionTransformletClassNames(classLoader);
+            if (!extensionTransformletClassNames.isEmpty()) {
+                final String foundMsgHead = "[TtlExtensionTransformletCollector] found TTL Extension Transformlet class ";
+                final String failLoadMsgHead = "[TtlExtensionTransformletCollector] fail to load TTL Extension Transformlet ";
+                final Map<ClassLoader, Set<TtlTransformlet>> loadedTransformlet =
+                        loadExtensionInstances(classLoader, extensionTransformletClassNames, TtlTransformlet.class, foundMsgHead, failLoadMsgHead);
 
-        mergeToClassLoader2ExtensionTransformlet(classLoader2ExtensionTransformlets, loadedTransformlet);
+                if (mergeToClassLoader2ExtensionTransformlet(classLoader2ExtensionTransformlets, loadedTransformlet)) {
+                    extensionTransformletsVersion.incrementAndGet();
+                }
+            }
 
-        updateClassLoader2ExtensionTransformletsIncludeParentCL(
-                classLoader2ExtensionTransformlets, classLoader2ExtensionTransformletsIncludeParentCL);
+            // publish the collected mark after the merge
+            collectedClassLoaderHistory.put(classLoader, Boolean.TRUE);
+        } finally {
+            collecting.remove(classLoader);
+        }
     }
 
     // extension transformlet configuration file URL location string -> URL contained extension transformlet class names
-    private final Map<String, LinkedHashSet<String>> redExtensionTransformletFileHistory = new HashMap<>();
+    private final Map<String, LinkedHashSet<String>> redExtensionTransformletFileHistory = new ConcurrentHashMap<>();
 
     private LinkedHashSet<String> readExtensionTransformletClassNames(ClassLoader classLoader) throws IOException {
         final Enumeration<URL> extensionFiles = classLoader.getResources(TTL_AGENT_EXTENSION_TRANSFORMLET_FILE);
@@ -98,33 +131,66 @@ final class TtlExtensionTransformletManager {
         return extensionTransformletClassNames;
     }
 
-    private static void mergeToClassLoader2ExtensionTransformlet(
-            Map<ClassLoader, Map<String, TtlTransformlet>> destination, Map<ClassLoader, Set<TtlTransformlet>> loadedTransformlets
+    /**
+     * @return whether the destination is changed
+     */
+    private static boolean mergeToClassLoader2ExtensionTransformlet(
+            ConcurrentMap<ClassLoader, Map<String, TtlTransformlet>> destination, Map<ClassLoader, Set<TtlTransformlet>> loadedTransformlets
     ) {
+        boolean changed = false;
         for (Map.Entry<ClassLoader, Set<TtlTransformlet>> entry : loadedTransformlets.entrySet()) {
             final ClassLoader classLoader = entry.getKey();
             final Set<TtlTransformlet> transformlets = entry.getValue();
 
-            Map<String, TtlTransformlet> className2Transformlets = destination.computeIfAbsent(classLoader, k -> new HashMap<>());
+            final List<String> addedClassNames = new ArrayList<>();
+            destination.compute(classLoader, (k, className2Transformlets) -> {
+                // the compute function may be retried, so reset the output
+                addedClassNames.clear();
 
-            for (TtlTransformlet t : transformlets) {
-                final String className = t.getClass().getName();
-                if (className2Transformlets.containsKey(className)) continue;
+                final Map<String, TtlTransformlet> merged = className2Transformlets == null
+                        ? new HashMap<>() : new HashMap<>(className2Transformlets);
+                for (TtlTransformlet t : transformlets) {
+                    final String className = t.getClass().getName();
+                    if (merged.containsKey(className)) continue;
 
-                className2Transformlets.put(className, t);
+                    merged.put(className, t);
+                    addedClassNames.add(className);
+                }
+                return Collections.unmodifiableMap(merged);
+            });
+
+            for (String className : addedClassNames) {
                 logger.info("[TtlExtensionTransformletCollector] add TTL Extension Transformlet " + className + " success");
             }
+            if (!addedClassNames.isEmpty()) changed = true;
         }
+        return changed;
     }
 
-    static void updateClassLoader2ExtensionTransformletsIncludeParentCL(
-            Map<ClassLoader, Map<String, TtlTransformlet>> classLoader2ExtensionTransformlets,
-            Map<ClassLoader, Map<String, TtlTransformlet>> classLoader2ExtensionTransformletsIncludeParentCL
-    ) {
-        for (Map.Entry<ClassLoader, Map<String, TtlTransformlet>> entry : classLoader2ExtensionTransformlets.entrySet()) {
-            final ClassLoader classLoader = entry.getKey();
-            final Map<String, TtlTransformlet> merged = childClassLoaderFirstMergeTransformlets(classLoader2ExtensionTransformlets, classLoader);
-            classLoader2ExtensionTransformletsIncludeParentCL.put(classLoader, merged);
+    /**
+     * Get the merged extension transformlets of the classloader and its parent classloaders,
+     * computed incrementally: only recomputed for this classloader when the extension transformlets are changed.
+     */
+    private Map<String, TtlTransformlet> getExtensionTransformletsIncludeParentCL(@NonNull ClassLoader classLoader) {
+        // read the version before the merge, so a concurrent update is never missed
+        final int version = extensionTransformletsVersion.get();
+
+        final MergedTransformlets cached = classLoader2ExtensionTransformletsIncludeParentCL.get(classLoader);
+        if (cached != null && cached.version == version) return cached.transformlets;
+
+        final Map<String, TtlTransformlet> merged = Collections.unmodifiableMap(
+                childClassLoaderFirstMergeTransformlets(classLoader2ExtensionTransformlets, classLoader));
+        classLoader2ExtensionTransformletsIncludeParentCL.put(classLoader, new MergedTransformlets(version, merged));
+        return merged;
+    }
+
+    private static final class MergedTransformlets {
+        final int version;
+        final Map<String, TtlTransformlet> transformlets;
+
+        MergedTransformlets(int version, Map<String, TtlTransformlet> transformlets) {
+            this.version = version;
+            this.transformlets = transformlets;
         }
     }
 
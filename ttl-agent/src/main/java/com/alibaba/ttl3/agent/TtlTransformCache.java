@@ -0,0 +1,339 @@
+package com.alibaba.ttl3.agent;
+
+import com.alibaba.ttl3.agent.logging.Logger;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+import static java.nio.file.attribute.PosixFilePermission.*;
+
+/**
+ * The on-disk cache of the bytecode transformed by the TTL built-in transformlets,
+ * so the same class bytes are not transformed by {@code Javassist} again on the next JVM start.
+ * <p>
+ * The cache entries are stored in a sub-directory of the cache directory, the sub-directory name is the hash
+ * of the fingerprint(agent version/jar, transformlet set and transform options), so the cache entries of
+ * different agent or configuration never collide. A cache entry file is named
+ * {@code <class name>-<hash of the class loader identity and the original class file bytes>.class}, and contains
+ * the SHA-256 digest of the transformed bytecode followed by the transformed bytecode; the digest is verified on read,
+ * a corrupted entry is deleted and transformed again. The class loader identity is the class names of the class loader
+ * and its parents, stable across the JVM starts, so the same class bytes loaded by the different kinds of class loaders
+ * (which may resolve the super classes differently) do not share the cache entry.
+ * <p>
+ * <b><i>Caution:</i></b> the cached bytecode is defined as is, so the cache directory must be private,
+ * writable only by the user running the JVM; the digest detects the corruption, NOT the tampering.
+ * The sub-directory is created with the owner-only permissions on the POSIX file systems.
+ * The cache is disabled if the sub-directory or an entry file is a symbolic link, is not owned by the user
+ * running the JVM, or is writable by the group or others; the entry file is checked before read.
+ * <p>
+ * The cache is bounded: only the entry of the latest class file bytes is kept for a class name,
+ * and no entry is added after the count of entries reaches the max count.
+ * <p>
+ * Only the class names listed in the cache directory at startup(or put later) are hashed and looked up,
+ * so the classes never transformed do not pay the cost of the cache lookup.
+ *
+ * @see TtlAgent#TTL_AGENT_TRANSFORM_CACHE_DIR_KEY
+ */
+final class TtlTransformCache {
+    private static final Logger logger = Logger.getLogger(TtlTransformCache.class);
+
+    /**
+     * the default max count of cache entries.
+     */
+    static final int DEFAULT_MAX_ENTRIES = 4096;
+
+    private static final String CLASS_FILE_SUFFIX = ".class";
+    private static final int DIGEST_LENGTH = 32;
+
+    private final Path directory;
+    @Nullable
+    private final UserPrincipal user;
+    private final int maxEntries;
+    private final Set<String> cachedClassNames = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger entryCount = new AtomicInteger();
+    private volatile boolean fullLogged = false;
+    private volatile boolean disabled = false;
+
+    private TtlTransformCache(Path directory, @Nullable UserPrincipal user, int maxEntries) {
+        this.directory = directory;
+        this.user = user;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Create the transform cache in the cache directory, with the {@link #DEFAULT_MAX_ENTRIES default max count} of entries.
+     *
+     * @param cacheDir    the cache directory
+     * @param fingerprint the fingerprint of the agent and the transform, see {@link #agentFingerprint()}
+     * @return {@code null} if fail to create the cache directory
+     */
+    @Nullable
+    static TtlTransformCache create(@NonNull String cacheDir, @NonNull String fingerprint) {
+        return create(cacheDir, fingerprint, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Create the transform cache in the cache directory.
+     *
+     * @param cacheDir    the cache directory
+     * @param fingerprint the fingerprint of the agent and the transform, see {@link #agentFingerprint()}
+     * @param maxEntries  the max count of cache entries
+     * @return {@code null} if fail to create the cache directory, or the directory is not private
+     * (a symbolic link, not owned by the user running the JVM, or writable by the group or others)
+     */
+    @Nullable
+    static TtlTransformCache create(@NonNull String cacheDir, @NonNull String fingerprint, int maxEntries) {
+        try {
+            final Path directory = Paths.get(cacheDir, toHex(sha256(fingerprint.getBytes(StandardCharsets.UTF_8)), 16));
+            createPrivateDirectories(directory);
+            final UserPrincipal user = jvmUser(directory);
+            if (!isPrivate(directory, user, true)) {
+                logger.error("[TtlTransformCache] transform cache directory " + directory
+                        + " is not a private directory(a symbolic link, not owned by the user running the JVM,"
+                        + " or writable by the group or others), transform cache is disabled");
+                return null;
+            }
+
+            final TtlTransformCache cache = new TtlTransformCache(directory, user, maxEntries);
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + CLASS_FILE_SUFFIX)) {
+                for (Path file : stream) {
+                    final String className = classNameOfEntry(file);
+                    if (className != null) {
+                        cache.cachedClassNames.add(className);
+                        cache.entryCount.incrementAndGet();
+                    }
+                }
+            }
+
+            logger.info("[TtlTransformCache] use transform cache directory " + directory
+                    + ", " + cache.cachedClassNames.size() + " cached classes");
+            return cache;
+        } catch (Exception e) {
+            logger.error("[TtlTransformCache] fail to create transform cache at directory " + cacheDir
+                    + ", transform cache is disabled; cause: " + e, e);
+            return null;
+        }
+    }
+
+    private static void createPrivateDirectories(Path directory) throws IOException {
+        if (Files.isDirectory(directory)) return;
+
+        Files.createDirectories(directory.getParent());
+        try {
+            if (isPosix(directory)) {
+                Files.createDirectory(directory,
+                        PosixFilePermissions.asFileAttribute(EnumSet.of(OWNER_READ, OWNER_WRITE, OWNER_EXECUTE)));
+            } else {
+                Files.createDirectory(directory);
+            }
+        } catch (FileAlreadyExistsException e) {
+            // created by another JVM concurrently
+        }
+    }
+
+    /**
+     * The user running the JVM, {@code null} if the file system does not support the file owner.
+     */
+    @Nullable
+    private static UserPrincipal jvmUser(Path directory) throws IOException {
+        if (!directory.getFileSystem().supportedFileAttributeViews().contains("owner")) return null;
+
+        return directory.getFileSystem().getUserPrincipalLookupService()
+                .lookupPrincipalByName(System.getProperty("user.name"));
+    }
+
+    /**
+     * Whether the directory or the regular file is private: not a symbolic link, owned by the user running the JVM,
+     * and not writable by the group or others.
+     */
+    private static boolean isPrivate(Path path, @Nullable UserPrincipal user, boolean directory) throws IOException {
+        final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class, NOFOLLOW_LINKS);
+        if (directory ? !attributes.isDirectory() : !attributes.isRegularFile()) return false;
+        if (user != null && !user.equals(Files.getOwner(path, NOFOLLOW_LINKS))) return false;
+        if (!isPosix(path)) return true;
+
+        final Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(path, NOFOLLOW_LINKS);
+        return !permissions.contains(GROUP_WRITE) && !permissions.contains(OTHERS_WRITE);
+    }
+
+    private static boolean isPosix(Path path) {
+        return path.getFileSystem().supportedFileAttributeViews().contains("posix");
+    }
+
+    /**
+     * Get the cached transformed bytecode of the class.
+     *
+     * @param loader the class loader of the class, {@code null} if the bootstrap loader
+     * @return {@code null} if not cached, the cache entry is corrupted, or the cache is disabled
+     */
+    @Nullable
+    byte[] get(@NonNull String className, @Nullable ClassLoader loader, @NonNull byte[] classFileBuffer) {
+        if (disabled || !cachedClassNames.contains(className)) return null;
+
+        final Path file = entryFile(className, loader, classFileBuffer);
+        try {
+            if (!isPrivate(file, user, false)) {
+                disabled = true;
+                logger.error("[TtlTransformCache] transform cache " + file + " is not a private file(a symbolic link,"
+                        + " not owned by the user running the JVM, or writable by the group or others),"
+                        + " transform cache is disabled");
+                return null;
+            }
+
+            final byte[] entry = Files.readAllBytes(file);
+            if (entry.length > DIGEST_LENGTH) {
+                final byte[] bytecode = Arrays.copyOfRange(entry, DIGEST_LENGTH, entry.length);
+                if (MessageDigest.isEqual(sha256(bytecode), Arrays.copyOf(entry, DIGEST_LENGTH))) return bytecode;
+            }
+
+            logger.warn("[TtlTransformCache] transform cache " + file + " is corrupted, delete it");
+            if (Files.deleteIfExists(file)) entryCount.decrementAndGet();
+            return null;
+        } catch (NoSuchFileException e) {
+            // the class name is cached, but the original class file bytes are different
+            return null;
+        } catch (Exception e) {
+            logger.warn("[TtlTransformCache] fail to read transform cache " + file + ", just ignored; cause: " + e, e);
+            return null;
+        }
+    }
+
+    /**
+     * Put the transformed bytecode of the class to the cache,
+     * and delete the stale entries of the class(transformed from the different original class file bytes).
+     *
+     * @param loader the class loader of the class, {@code null} if the bootstrap loader
+     */
+    void put(@NonNull String className, @Nullable ClassLoader loader, @NonNull byte[] classFileBuffer, @NonNull byte[] transformedBytecode) {
+        if (disabled) return;
+
+        final boolean classCached = cachedClassNames.contains(className);
+        if (!classCached && entryCount.get() >= maxEntries) {
+            if (!fullLogged) {
+                fullLogged = true;
+                logger.warn("[TtlTransformCache] transform cache " + directory + " is full(" + maxEntries
+                        + " entries), no more entry is added");
+            }
+            return;
+        }
+
+        final Path file = entryFile(className, loader, classFileBuffer);
+        try {
+            final byte[] entry = new byte[DIGEST_LENGTH + transformedBytecode.length];
+            System.arraycopy(sha256(transformedBytecode), 0, entry, 0, DIGEST_LENGTH);
+            System.arraycopy(transformedBytecode, 0, entry, DIGEST_LENGTH, transformedBytecode.length);
+
+            // write to a temp file then rename, so a concurrent reader(another JVM) never sees a partial file
+            final Path tmp = Files.createTempFile(directory, className, ".tmp");
+            try {
+                Files.write(tmp, entry);
+                final boolean exists = Files.exists(file);
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                if (!exists) entryCount.incrementAndGet();
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+            cachedClassNames.add(className);
+
+            if (classCached) deleteStaleEntries(className, file);
+        } catch (Exception e) {
+            logger.warn("[TtlTransformCache] fail to write transform cache " + file + ", just ignored; cause: " + e, e);
+        }
+    }
+
+    private void deleteStaleEntries(String className, Path latest) throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+                file -> !file.equals(latest) && className.equals(classNameOfEntry(file)))) {
+            for (Path file : stream) {
+                if (Files.deleteIfExists(file)) entryCount.decrementAndGet();
+            }
+        }
+    }
+
+    private Path entryFile(String className, @Nullable ClassLoader loader, byte[] classFileBuffer) {
+        final byte[] loaderIdentity = classLoaderIdentity(loader).getBytes(StandardCharsets.UTF_8);
+        final byte[] key = Arrays.copyOf(loaderIdentity, loaderIdentity.length + 1 + classFileBuffer.length);
+        System.arraycopy(classFileBuffer, 0, key, loaderIdentity.length + 1, classFileBuffer.length);
+        return directory.resolve(className + "-" + toHex(sha256(key), 32) + CLASS_FILE_SUFFIX);
+    }
+
+    /**
+     * The identity of the class loader stable across the JVM starts: the class names of the class loader and its parents.
+     */
+    private static String classLoaderIdentity(@Nullable ClassLoader loader) {
+        final StringBuilder sb = new StringBuilder();
+        for (ClassLoader l = loader; l != null; l = l.getParent()) {
+            sb.append(l.getClass().getName()).append('<');
+        }
+        return sb.append("bootstrap").toString();
+    }
+
+    @Nullable
+    private static String classNameOfEntry(Path file) {
+        final String fileName = file.getFileName().toString();
+        if (!fileName.endsWith(CLASS_FILE_SUFFIX)) return null;
+        final int idx = fileName.lastIndexOf('-');
+        return idx > 0 ? fileName.substring(0, idx) : null;
+    }
+    /**
+     * The fingerprint of the agent: the implementation version, the location, size and last modified time of the agent jar.
+     */
+    @NonNull
+    static String agentFingerprint() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(TtlTransformCache.class.getPackage().getImplementationVersion());
+        try {
+            final CodeSource codeSource = TtlTransformCache.class.getProtectionDomain().getCodeSource();
+            if (codeSource != null && codeSource.getLocation() != null) {
+                final File file = new File(codeSource.getLocation().toURI());
+                sb.append('|').append(file.getAbsolutePath())
+                        .append('|').append(file.length())
+                        .append('|').append(file.lastModified());
+            }
+        } catch (Exception e) {
+            logger.warn("[TtlTransformCache] fail to get the location of agent jar, just ignored; cause: " + e, e);
+        }
+        return sb.toString();
+    }
+
+    private static byte[] sha256(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is required to be supported by every Java platform
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes, int maxHexLength) {
+        final char[] digits = "0123456789abcdef".toCharArray();
+        final StringBuilder sb = new StringBuilder(maxHexLength);
+        for (int i = 0; i < bytes.length && sb.length() < maxHexLength; i++) {
+            sb.append(digits[(bytes[i] >> 4) & 0xF]).append(digits[bytes[i] & 0xF]);
+        }
+        return sb.toString();
+    }
+}
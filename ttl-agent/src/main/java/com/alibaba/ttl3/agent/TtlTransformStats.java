@@ -0,0 +1,138 @@
+package com.alibaba.ttl3.agent;
+
+import com.alibaba.ttl3.agent.TtlAgentStatus.TransformStats;
+import com.alibaba.ttl3.agent.TtlAgentStatus.TransformletStats;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The class transform statistics recorded by {@link TtlTransformer}.
+ * <p>
+ * The counters are {@link LongAdder}s, the classes are transformed concurrently by the class loading threads,
+ * and the recording should not contend on a shared counter.
+ *
+ * @see TtlAgentStatus#getTransformStats()
+ * @see TtlAgent#TTL_AGENT_TRANSFORM_STATS_DUMP_KEY
+ */
+final class TtlTransformStats implements TransformStats {
+    private final LongAdder receivedClassCount = new LongAdder();
+    private final LongAdder transformedClassCount = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    /**
+     * register the statistics entry of a transformlet, should be called before the transformer is added.
+     */
+    @NonNull
+    Entry addEntry(@NonNull String transformletClassName) {
+        final Entry entry = new Entry(transformletClassName);
+        entries.add(entry);
+        return entry;
+    }
+
+    void recordReceived(long nanos, boolean transformed) {
+        receivedClassCount.increment();
+        if (transformed) transformedClassCount.increment();
+        totalNanos.add(nanos);
+    }
+
+    @Override
+    public long getReceivedClassCount() {
+        return receivedClassCount.sum();
+    }
+
+    @Override
+    public long getTransformedClassCount() {
+        return transformedClassCount.sum();
+    }
+
+    @Override
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    @NonNull
+    @Override
+    public List<TransformletStats> getTransformletStats() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * The human-readable report of the statistics, for the dump by the agent {@code Logger}.
+     */
+    @NonNull
+    String report() {
+        final StringBuilder sb = new StringBuilder("TTL Agent transform statistics:")
+                .append("\n    received classes: ").append(getReceivedClassCount())
+                .append(", transformed classes: ").append(getTransformedClassCount())
+                .append(", total time: ").append(formatNanos(getTotalNanos()));
+        for (Entry entry : entries) {
+            sb.append("\n    ").append(entry.getTransformletClassName())
+                    .append(": inspected ").append(entry.getInspectedClassCount())
+                    .append(", transformed ").append(entry.getTransformedClassCount())
+                    .append(", transform time ").append(formatNanos(entry.getTransformNanos()))
+                    .append(", toBytecode time ").append(formatNanos(entry.getToBytecodeNanos()));
+        }
+        return sb.toString();
+    }
+
+    private static String formatNanos(long nanos) {
+        return String.format(Locale.ROOT, "%.3fms", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    static final class Entry implements TransformletStats {
+        private final String transformletClassName;
+
+        private final LongAdder inspectedClassCount = new LongAdder();
+        private final LongAdder transformedClassCount = new LongAdder();
+        private final LongAdder transformNanos = new LongAdder();
+        private final LongAdder toBytecodeNanos = new LongAdder();
+
+        private Entry(String transformletClassName) {
+            this.transformletClassName = transformletClassName;
+        }
+
+        void recordInspected(long nanos) {
+            inspectedClassCount.increment();
+            transformNanos.add(nanos);
+        }
+
+        void recordTransformed(long toBytecodeNanos) {
+            transformedClassCount.increment();
+            this.toBytecodeNanos.add(toBytecodeNanos);
+        }
+
+        @NonNull
+        @Override
+        public String getTransformletClassName() {
+            return transformletClassName;
+        }
+
+        @Override
+        public long getInspectedClassCount() {
+            return inspectedClassCount.sum();
+        }
+
+        @Override
+        public long getTransformedClassCount() {
+            return transformedClassCount.sum();
+        }
+
+        @Override
+        public long getTransformNanos() {
+            return transformNanos.sum();
+        }
+
+        @Override
+        public long getToBytecodeNanos() {
+            return toBytecodeNanos.sum();
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.alibaba.ttl3.agent;
 import com.alibaba.ttl3.agent.logging.Logger;
 import com.alibaba.ttl3.agent.transformlet.ClassInfo;
 import com.alibaba.ttl3.agent.transformlet.TtlTransformlet;
+import com.alibaba.ttl3.agent.transformlet.helper.ClassPoolCache;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.Nullable;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -35,17 +36,32 @@ public class TtlTransformer implements ClassFileTransformer {
     private static final byte[] NO_TRANSFORM = null;
 
     private final TtlExtensionTransformletManager extensionTransformletManager;
+    private final ClassPoolCache classPoolCache = new ClassPoolCache();
     private final List<TtlTransformlet> transformletList = new ArrayList<>();
     private final boolean logClassTransform;
+    @Nullable
+    private final TtlTransformCache transformCache;
+    private final TtlTransformStats transformStats;
+    /**
+     * the statistics entries of {@link #transformletList}, with the same index
+     */
+    private final List<TtlTransformStats.Entry> transformletStatsEntries = new ArrayList<>();
+    private final TtlTransformStats.Entry extensionTransformletStatsEntry;
 
-    TtlTransformer(List<? extends TtlTransformlet> transformletList, boolean logClassTransform) {
+    TtlTransformer(List<? extends TtlTransformlet> transformletList, boolean logClassTransform,
+                   @Nullable TtlTransformCache transformCache, @NonNull TtlTransformStats transformStats) {
         extensionTransformletManager = new TtlExtensionTransformletManager();
 
         this.logClassTransform = logClassTransform;
+        this.transformCache = transformCache;
+        this.transformStats = transformStats;
         for (TtlTransformlet ttlTransformlet : transformletList) {
             this.transformletList.add(ttlTransformlet);
+            this.transformletStatsEntries.add(transformStats.addEntry(ttlTransformlet.getClass().getName()));
             logger.info("[TtlTransformer] add Transformlet " + ttlTransformlet.getClass().getName());
         }
+        // the extension transformlets are collected at runtime, record them as a whole
+        this.extensionTransformletStatsEntry = transformStats.addEntry(TtlExtensionTransformletManager.class.getName());
     }
 
     /**
@@ -56,11 +72,13 @@ public class TtlTransformer implements ClassFileTransformer {
     @Override
     public final byte[] transform(@Nullable final ClassLoader loader, @Nullable final String classFile, final Class<?> classBeingRedefined,
                                   final ProtectionDomain protectionDomain, @NonNull final byte[] classFileBuffer) {
-        try {
-            // Lambda has no class file, no need to transform, just return.
-            if (classFile == null) return NO_TRANSFORM;
+        // Lambda has no class file, no need to transform, just return.
+        if (classFile == null) return NO_TRANSFORM;
 
-            final ClassInfo classInfo = new ClassInfo(classFile, classFileBuffer, loader);
+        final long startNanos = System.nanoTime();
+        boolean transformed = false;
+        final ClassInfo classInfo = new ClassInfo(classFile, classFileBuffer, loader, classPoolCache);
+        try {
             if (isClassUnderPackage(classInfo.getClassName(), "com.alibaba.ttl")) return NO_TRANSFORM;
             if (isClassUnderPackage(classInfo.getClassName(), "java.lang")) return NO_TRANSFORM;
 
@@ -71,27 +89,57 @@ public class TtlTransformer implements ClassFileTransformer {
 
             extensionTransformletManager.collectExtensionTransformlet(classInfo);
 
-            for (TtlTransformlet transformlet : transformletList) {
+            if (transformCache != null) {
+                final byte[] cached = transformCache.get(classInfo.getClassName(), loader, classFileBuffer);
+                if (cached != null) {
+                    logger.info("[TtlTransformer] transformed " + classInfo.getClassName()
+                            + " from classloader " + classInfo.getClassLoader() + " by transform cache");
+                    transformed = true;
+                    return cached;
+                }
+            }
+
+            for (int i = 0; i < transformletList.size(); i++) {
+                final TtlTransformlet transformlet = transformletList.get(i);
+                final TtlTransformStats.Entry statsEntry = transformletStatsEntries.get(i);
+
+                long nanos = System.nanoTime();
                 transformlet.doTransform(classInfo);
+                statsEntry.recordInspected(System.nanoTime() - nanos);
                 if (classInfo.isModified()) {
                     logger.info("[TtlTransformer] " + transformlet.getClass().getName() + " transformed " + classInfo.getClassName()
                             + " from classloader " + classInfo.getClassLoader()
                             + " at location " + classInfo.getLocationUrl());
-                    return classInfo.getCtClass().toBytecode();
+                    nanos = System.nanoTime();
+                    final byte[] bytecode = classInfo.toBytecode();
+                    statsEntry.recordTransformed(System.nanoTime() - nanos);
+                    if (transformCache != null) transformCache.put(classInfo.getClassName(), loader, classFileBuffer, bytecode);
+                    transformed = true;
+                    return bytecode;
                 }
             }
 
+            long nanos = System.nanoTime();
             final String transformlet = extensionTransformletManager.extensionTransformletDoTransform(classInfo);
+            extensionTransformletStatsEntry.recordInspected(System.nanoTime() - nanos);
             if (classInfo.isModified()) {
                 logger.info("[TtlTransformer] " + transformlet + " transformed " + classInfo.getClassName()
                         + " from classloader " + classInfo.getClassLoader()
                         + " at location " + classInfo.getLocationUrl());
-                return classInfo.getCtClass().toBytecode();
+                nanos = System.nanoTime();
+                final byte[] bytecode = classInfo.toBytecode();
+                extensionTransformletStatsEntry.recordTransformed(System.nanoTime() - nanos);
+                transformed = true;
+                return bytecode;
             }
         } catch (Throwable t) {
             String msg = "[TtlTransformer] fail to transform class " + classFile + ", cause: " + t.toString();
             logger.error(msg, t);
             throw new IllegalStateException(msg, t);
+        } finally {
+            // the class pool is shared, do not hold the transforming class
+            classInfo.detachCtClass();
+            transformStats.recordReceived(System.nanoTime() - startNanos, transformed);
         }
 
         return NO_TRANSFORM;
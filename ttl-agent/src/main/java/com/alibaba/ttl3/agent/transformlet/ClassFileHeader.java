@@ -0,0 +1,319 @@
+package com.alibaba.ttl3.agent.transformlet;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+
+/**
+ * The lightweight header info(access flags, super class, declared methods) of a class file,
+ * scanned from the raw class file bytes <b>without</b> building the {@code Javassist} object model
+ * or loading/resolving any other class.
+ * <p>
+ * Used by {@link TtlTransformlet} to pre-filter the transforming class cheaply,
+ * before the expensive {@link ClassInfo#getCtClass()}.
+ * <p>
+ * The scanned info is only about the class file self, so a negative check of a class hierarchy
+ * is only available in the limited cases, e.g. a class extending a class of package {@code java.lang}
+ * is never a subclass of {@link java.util.TimerTask}.
+ *
+ * @see ClassInfo#getClassFileHeader()
+ * @see <a href="https://docs.oracle.com/javase/specs/jvms/se21/html/jvms-4.html">The class File Format</a>
+ */
+public final class ClassFileHeader {
+    private static final int ACC_INTERFACE = 0x0200;
+    private static final int ACC_ANNOTATION = 0x2000;
+
+    private final byte[] buf;
+    /**
+     * the offsets of the constant pool entries(the position after the tag byte), indexed by constant pool index.
+     */
+    private final int[] cpOffsets;
+    private final int accessFlags;
+    private final int superClassIndex;
+    /**
+     * the constant pool indexes of the name and the descriptor of declared methods: [name0, desc0, name1, desc1, ...]
+     */
+    private final int[] methodNameAndDescIndexes;
+
+    private ClassFileHeader(byte[] buf, int[] cpOffsets, int accessFlags, int superClassIndex, int[] methodNameAndDescIndexes) {
+        this.buf = buf;
+        this.cpOffsets = cpOffsets;
+        this.accessFlags = accessFlags;
+        this.superClassIndex = superClassIndex;
+        this.methodNameAndDescIndexes = methodNameAndDescIndexes;
+    }
+
+    /**
+     * Scan the header info of the class file.
+     * <p>
+     * The constants referenced by the header info are validated by the scan,
+     * so the methods of the returned header never fail on the malformed class file.
+     *
+     * @return {@code null} if the class file is malformed or unsupported
+     */
+    @Nullable
+    public static ClassFileHeader scan(@NonNull byte[] classFileBuffer) {
+        try {
+            return doScan(classFileBuffer);
+        } catch (RuntimeException e) {
+            // malformed class file, e.g. ArrayIndexOutOfBoundsException; let Javassist report it
+            return null;
+        }
+    }
+
+    @Nullable
+    private static ClassFileHeader doScan(byte[] b) {
+        if (readInt(b, 0) != 0xCAFEBABE) return null;
+
+        final int cpCount = readUnsignedShort(b, 8);
+        final int[] cpOffsets = new int[cpCount];
+        int p = 10;
+        for (int i = 1; i < cpCount; i++) {
+            final int tag = b[p];
+            cpOffsets[i] = p + 1;
+            switch (tag) {
+                case 1: // Utf8
+                    p += 3 + readUnsignedShort(b, p + 1);
+                    break;
+                case 7: // Class
+                case 8: // String
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    p += 3;
+                    break;
+                case 15: // MethodHandle
+                    p += 4;
+                    break;
+                case 3: // Integer
+                case 4: // Float
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    p += 5;
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    p += 9;
+                    i++; // takes two constant pool entries
+                    break;
+                default:
+                    // unknown constant pool tag(newer class file format)
+                    return null;
+            }
+        }
+
+        final int accessFlags = readUnsignedShort(b, p);
+        final int superClassIndex = readUnsignedShort(b, p + 4);
+        p += 6;
+
+        final int interfacesCount = readUnsignedShort(b, p);
+        p += 2 + 2 * interfacesCount;
+
+        // skip fields
+        final int fieldsCount = readUnsignedShort(b, p);
+        p += 2;
+        for (int i = 0; i < fieldsCount; i++) {
+            p = skipMember(b, p);
+        }
+
+        final int methodsCount = readUnsignedShort(b, p);
+        p += 2;
+        final int[] methodNameAndDescIndexes = new int[methodsCount * 2];
+        for (int i = 0; i < methodsCount; i++) {
+            methodNameAndDescIndexes[2 * i] = readUnsignedShort(b, p + 2);
+            methodNameAndDescIndexes[2 * i + 1] = readUnsignedShort(b, p + 4);
+            p = skipMember(b, p);
+        }
+        // the truncated class file
+        if (p > b.length) return null;
+
+        if (superClassIndex != 0 && !isClassEntry(b, cpOffsets, superClassIndex)) return null;
+        for (int index : methodNameAndDescIndexes) {
+            if (!isUtf8Entry(b, cpOffsets, index)) return null;
+        }
+
+        return new ClassFileHeader(b, cpOffsets, accessFlags, superClassIndex, methodNameAndDescIndexes);
+    }
+
+    /**
+     * skip field_info/method_info, return the position after it.
+     */
+    private static int skipMember(byte[] b, int p) {
+        final int attributesCount = readUnsignedShort(b, p + 6);
+        p += 8;
+        for (int i = 0; i < attributesCount; i++) {
+            final int length = readInt(b, p + 2);
+            if (length < 0) throw new IllegalArgumentException("malformed attribute length " + length + " at " + p);
+            p += 6 + length;
+        }
+        return p;
+    }
+
+    private static boolean isUtf8Entry(byte[] b, int[] cpOffsets, int cpIndex) {
+        // the offset of the second entry taken by Long/Double is 0
+        return cpIndex > 0 && cpIndex < cpOffsets.length && cpOffsets[cpIndex] != 0 && b[cpOffsets[cpIndex] - 1] == 1;
+    }
+
+    /**
+     * the Class constant whose name is a well-formed Utf8 constant, the name is decoded by {@link #getSuperClassName()}.
+     */
+    private static boolean isClassEntry(byte[] b, int[] cpOffsets, int cpIndex) {
+        if (cpIndex >= cpOffsets.length || cpOffsets[cpIndex] == 0 || b[cpOffsets[cpIndex] - 1] != 7) return false;
+
+        final int nameIndex = readUnsignedShort(b, cpOffsets[cpIndex]);
+        if (!isUtf8Entry(b, cpOffsets, nameIndex)) return false;
+        final int offset = cpOffsets[nameIndex];
+        return isModifiedUtf8(b, offset + 2, offset + 2 + readUnsignedShort(b, offset));
+    }
+
+    /**
+     * Whether the bytes are well-formed as {@link DataInputStream#readUTF()} decodes.
+     */
+    private static boolean isModifiedUtf8(byte[] b, int start, int end) {
+        for (int i = start; i < end; ) {
+            final int c = b[i] & 0xFF;
+            if (c < 0x80) {
+                i++;
+            } else if ((c & 0xE0) == 0xC0) {
+                if (i + 1 >= end || (b[i + 1] & 0xC0) != 0x80) return false;
+                i += 2;
+            } else if ((c & 0xF0) == 0xE0) {
+                if (i + 2 >= end || (b[i + 1] & 0xC0) != 0x80 || (b[i + 2] & 0xC0) != 0x80) return false;
+                i += 3;
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether the class is an interface or an annotation.
+     */
+    public boolean isInterface() {
+        return (accessFlags & (ACC_INTERFACE | ACC_ANNOTATION)) != 0;
+    }
+
+    /**
+     * The super class name(e.g. {@code java.util.TimerTask}), or {@code null} if the class has no super class,
+     * aka. the class is {@code java.lang.Object} or {@code module-info}.
+     */
+    @Nullable
+    public String getSuperClassName() {
+        if (superClassIndex == 0) return null;
+
+        final int nameIndex = readUnsignedShort(buf, cpOffsets[superClassIndex]);
+        return readUtf8(nameIndex).replace('/', '.');
+    }
+
+    /**
+     * Whether the super class is absent or a class of package {@code java.lang}(e.g. {@code java.lang.Object},
+     * {@code java.lang.Thread}), in which case the class is never a subclass of the classes outside the package
+     * {@code java.lang}, for example {@link java.util.TimerTask} or {@link java.util.concurrent.ThreadPoolExecutor}.
+     */
+    public boolean isSuperClassAbsentOrUnderJavaLang() {
+        if (superClassIndex == 0) return true;
+
+        final int nameIndex = readUnsignedShort(buf, cpOffsets[superClassIndex]);
+        final int offset = cpOffsets[nameIndex];
+        final int length = readUnsignedShort(buf, offset);
+        final String prefix = "java/lang/";
+        if (length <= prefix.length() || !asciiRegionEquals(offset + 2, prefix)) return false;
+        // class directly under package java.lang, not a sub-package
+        for (int i = offset + 2 + prefix.length(), end = offset + 2 + length; i < end; i++) {
+            if (buf[i] == '/') return false;
+        }
+        return true;
+    }
+
+    /**
+     * Whether the class declares the method with the name and the descriptor.
+     *
+     * @param name       method name, e.g. {@code run}
+     * @param descriptor method descriptor, e.g. {@code ()V}
+     */
+    public boolean declaresMethod(@NonNull String name, @NonNull String descriptor) {
+        for (int i = 0; i < methodNameAndDescIndexes.length; i += 2) {
+            if (utf8Equals(methodNameAndDescIndexes[i], name) && utf8Equals(methodNameAndDescIndexes[i + 1], descriptor)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean utf8Equals(int cpIndex, String s) {
+        final int offset = cpOffsets[cpIndex];
+        final int length = readUnsignedShort(buf, offset);
+        if (isAscii(s)) return length == s.length() && asciiRegionEquals(offset + 2, s);
+
+        // compare the encoded bytes, the malformed constant is never decoded
+        final byte[] encoded = toModifiedUtf8(s);
+        if (length != encoded.length) return false;
+        for (int i = 0; i < encoded.length; i++) {
+            if (buf[offset + 2 + i] != encoded[i]) return false;
+        }
+        return true;
+    }
+
+    private boolean asciiRegionEquals(int offset, String s) {
+        for (int i = 0, n = s.length(); i < n; i++) {
+            if (buf[offset + i] != s.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private String readUtf8(int cpIndex) {
+        final int offset = cpOffsets[cpIndex];
+        try {
+            return new DataInputStream(new ByteArrayInputStream(buf, offset, 2 + readUnsignedShort(buf, offset))).readUTF();
+        } catch (IOException e) {
+            throw new IllegalStateException("malformed utf8 constant at index " + cpIndex + ", cause: " + e, e);
+        }
+    }
+
+    private static boolean isAscii(String s) {
+        for (int i = 0, n = s.length(); i < n; i++) {
+            final char c = s.charAt(i);
+            // the char '\u0000' is encoded as 2 bytes in the modified UTF-8
+            if (c == 0 || c >= 0x80) return false;
+        }
+        return true;
+    }
+
+    /**
+     * encode as {@link java.io.DataOutputStream#writeUTF(String)}, without the length prefix.
+     */
+    private static byte[] toModifiedUtf8(String s) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(s.length() * 3);
+        for (int i = 0, n = s.length(); i < n; i++) {
+            final char c = s.charAt(i);
+            if (c != 0 && c < 0x80) {
+                out.write(c);
+            } else if (c < 0x800) {
+                out.write(0xC0 | c >> 6);
+                out.write(0x80 | c & 0x3F);
+            } else {
+                out.write(0xE0 | c >> 12);
+                out.write(0x80 | c >> 6 & 0x3F);
+                out.write(0x80 | c & 0x3F);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static int readUnsignedShort(byte[] b, int p) {
+        return ((b[p] & 0xFF) << 8) | (b[p + 1] & 0xFF);
+    }
+
+    private static int readInt(byte[] b, int p) {
+        return ((b[p] & 0xFF) << 24) | ((b[p + 1] & 0xFF) << 16) | ((b[p + 2] & 0xFF) << 8) | (b[p + 3] & 0xFF);
+    }
+}
@@ -1,18 +1,17 @@
 package com.alibaba.ttl3.agent.transformlet;
 
+import com.alibaba.ttl3.agent.transformlet.helper.ClassPoolCache;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.Nullable;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import javassist.CannotCompileException;
 import javassist.ClassPool;
 import javassist.CtClass;
-import javassist.LoaderClassPath;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.URL;
 
-import static com.alibaba.ttl3.agent.transformlet.helper.TtlTransformletHelper.getLocationUrlOfClass;
-
 /**
  * Class Info for {@link TtlTransformlet}.
  *
@@ -26,6 +25,8 @@ public class ClassInfo {
     private final String className;
     private final byte[] classFileBuffer;
     private final ClassLoader loader;
+    @Nullable
+    private final ClassPoolCache classPoolCache;
 
     // SuppressFBWarnings for classFileBuffer/loader parameter:
     //   [ERROR] new com.alibaba.ttl3.agent.transformlet.ClassInfo(String, byte[], ClassLoader)
@@ -34,10 +35,21 @@ public class ClassInfo {
     public ClassInfo(@NonNull String transformerClassFile,
                      @NonNull @SuppressFBWarnings({"EI_EXPOSE_REP2"}) byte[] classFileBuffer,
                      @Nullable @SuppressFBWarnings({"EI_EXPOSE_REP2"}) ClassLoader loader) {
+        this(transformerClassFile, classFileBuffer, loader, null);
+    }
+
+    /**
+     * @param classPoolCache the cache of the shared class pools, {@code null} to use a new class pool for this class
+     */
+    public ClassInfo(@NonNull String transformerClassFile,
+                     @NonNull @SuppressFBWarnings({"EI_EXPOSE_REP2"}) byte[] classFileBuffer,
+                     @Nullable @SuppressFBWarnings({"EI_EXPOSE_REP2"}) ClassLoader loader,
+                     @Nullable @SuppressFBWarnings({"EI_EXPOSE_REP2"}) ClassPoolCache classPoolCache) {
         this.transformerClassFile = transformerClassFile;
         this.className = toClassName(transformerClassFile);
         this.classFileBuffer = classFileBuffer;
         this.loader = loader;
+        this.classPoolCache = classPoolCache;
     }
 
     @NonNull
@@ -45,12 +57,53 @@ public class ClassInfo {
         return className;
     }
 
+    /**
+     * Get the original class file bytes of the transforming class, do <b>NOT</b> modify the returned bytes.
+     */
+    @NonNull
+    @SuppressFBWarnings({"EI_EXPOSE_REP"})
+    public byte[] getClassFileBuffer() {
+        return classFileBuffer;
+    }
+
+    private boolean classFileHeaderScanned = false;
+    private ClassFileHeader classFileHeader;
+
+    /**
+     * Get the header info scanned from the class file bytes, which is much cheaper than {@link #getCtClass()};
+     * used to pre-filter the transforming class before the {@code Javassist} parsing.
+     *
+     * @return {@code null} if the class file can not be scanned, then the transformlet should fall back to {@link #getCtClass()}
+     */
+    @Nullable
+    public ClassFileHeader getClassFileHeader() {
+        if (!classFileHeaderScanned) {
+            classFileHeader = ClassFileHeader.scan(classFileBuffer);
+            classFileHeaderScanned = true;
+        }
+        return classFileHeader;
+    }
+
     private CtClass ctClass;
+    @Nullable
+    private ClassPool acquiredClassPool;
 
+    /**
+     * Get the location url of the class file, found by the class loader(the system class loader if the bootstrap loader).
+     */
+    @Nullable
     public URL getLocationUrl() throws IOException {
-        return getLocationUrlOfClass(getCtClass());
+        // proxy classes is dynamic, no class file
+        if (className.startsWith("com.sun.proxy.")) return null;
+
+        final ClassLoader classLoader = loader == null ? ClassLoader.getSystemClassLoader() : loader;
+        return classLoader.getResource(transformerClassFile + ".class");
     }
 
+    /**
+     * Get the {@link CtClass} of this class; the shared class pool(if any) is locked by the current thread
+     * until {@link #detachCtClass()}.
+     */
     @NonNull
     @SuppressFBWarnings({"EI_EXPOSE_REP"})
     // [ERROR] Medium: com.alibaba.ttl3.agent.transformlet.ClassInfo.getCtClass()
@@ -59,11 +112,13 @@ public class ClassInfo {
     public CtClass getCtClass() throws IOException {
         if (ctClass != null) return ctClass;
 
-        final ClassPool classPool = new ClassPool(true);
-        if (loader == null) {
-            classPool.appendClassPath(new LoaderClassPath(ClassLoader.getSystemClassLoader()));
+        final ClassPool classPool;
+        if (classPoolCache == null) {
+            classPool = ClassPoolCache.newClassPool(loader);
         } else {
-            classPool.appendClassPath(new LoaderClassPath(loader));
+            // locked until detachCtClass
+            if (acquiredClassPool == null) acquiredClassPool = classPoolCache.acquireClassPool(loader);
+            classPool = acquiredClassPool;
         }
 
         final CtClass clazz = classPool.makeClass(new ByteArrayInputStream(classFileBuffer), false);
@@ -73,7 +128,30 @@ public class ClassInfo {
         return clazz;
     }
 
+    /**
+     * Detach the {@link CtClass} of this class(if created) from its class pool,
+     * so the shared class pool does not hold the transforming class after transform;
+     * and release the shared class pool locked by {@link #getCtClass()}.
+     * <p>
+     * Call this method after the transform is done, {@link #getCtClass()} should NOT be called after this method.
+     *
+     * @see CtClass#detach()
+     * @see ClassPoolCache#releaseClassPool(ClassPool)
+     */
+    public void detachCtClass() {
+        try {
+            if (ctClass != null) ctClass.detach();
+        } finally {
+            if (acquiredClassPool != null) {
+                ClassPoolCache.releaseClassPool(acquiredClassPool);
+                acquiredClassPool = null;
+            }
+        }
+    }
+
     private boolean modified = false;
+    @Nullable
+    private byte[] modifiedClassFileBuffer;
 
     public boolean isModified() {
         return modified;
@@ -83,6 +161,29 @@ public class ClassInfo {
         this.modified = true;
     }
 
+    /**
+     * Set the class file bytes transformed without {@code Javassist}(e.g. by the bytecode visitors),
+     * and mark the class modified.
+     *
+     * @see #toBytecode()
+     */
+    @SuppressFBWarnings({"EI_EXPOSE_REP2"})
+    public void setModifiedClassFileBuffer(@NonNull byte[] modifiedClassFileBuffer) {
+        this.modifiedClassFileBuffer = modifiedClassFileBuffer;
+        this.modified = true;
+    }
+
+    /**
+     * Get the bytecode of the modified class: the bytes set by {@link #setModifiedClassFileBuffer(byte[])},
+     * or the bytecode of the modified {@link #getCtClass() CtClass}.
+     */
+    @NonNull
+    @SuppressFBWarnings({"EI_EXPOSE_REP"})
+    public byte[] toBytecode() throws IOException, CannotCompileException {
+        if (modifiedClassFileBuffer != null) return modifiedClassFileBuffer;
+        return getCtClass().toBytecode();
+    }
+
     @SuppressFBWarnings({"EI_EXPOSE_REP"})
     // [ERROR] Medium: com.alibaba.ttl3.agent.transformlet.ClassInfo.getClassLoader()
     // may expose internal representation
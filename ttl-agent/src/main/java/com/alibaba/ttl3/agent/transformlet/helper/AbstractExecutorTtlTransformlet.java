@@ -1,6 +1,7 @@
 package com.alibaba.ttl3.agent.transformlet.helper;
 
 import com.alibaba.ttl3.agent.logging.Logger;
+import com.alibaba.ttl3.agent.transformlet.ClassFileHeader;
 import com.alibaba.ttl3.agent.transformlet.ClassInfo;
 import com.alibaba.ttl3.agent.transformlet.TtlTransformlet;
 import com.alibaba.ttl3.agent.transformlet.internal.PriorityBlockingQueueTtlTransformlet;
@@ -42,6 +43,10 @@ public abstract class AbstractExecutorTtlTransformlet implements TtlTransformlet
     protected static final String THREAD_FACTORY_CLASS_NAME = "java.util.concurrent.ThreadFactory";
     protected static final String THREAD_POOL_EXECUTOR_CLASS_NAME = "java.util.concurrent.ThreadPoolExecutor";
 
+    private static final String BEFORE_EXECUTE_METHOD_DESCRIPTOR = "(Ljava/lang/Thread;Ljava/lang/Runnable;)V";
+    private static final String AFTER_EXECUTE_METHOD_DESCRIPTOR = "(Ljava/lang/Runnable;Ljava/lang/Throwable;)V";
+    private static final String REMOVE_METHOD_DESCRIPTOR = "(Ljava/lang/Runnable;)Z";
+
     protected final Logger logger = Logger.getLogger(getClass());
 
     protected final Set<String> executorClassNames;
@@ -67,8 +72,8 @@ public abstract class AbstractExecutorTtlTransformlet implements TtlTransformlet
         //      https://github.com/alibaba/transmittable-thread-local/issues/234
         if (isClassAtPackageJavaUtil(classInfo.getClassName())) return;
 
-        final CtClass clazz = classInfo.getCtClass();
         if (executorClassNames.contains(classInfo.getClassName())) {
+            final CtClass clazz = classInfo.getCtClass();
             for (CtMethod method : clazz.getDeclaredMethods()) {
                 updateSubmitMethodsOfExecutorClass_decorateToTtlWrapperAndSetAutoWrapperAttachment(method);
             }
@@ -77,6 +82,16 @@ public abstract class AbstractExecutorTtlTransformlet implements TtlTransformlet
 
             classInfo.setModified();
         } else {
+            // pre-filter by the class file header, skip the Javassist parsing of most classes:
+            // only the executor subclass overriding beforeExecute/afterExecute method is transformed
+            final ClassFileHeader header = classInfo.getClassFileHeader();
+            if (header != null && (header.isInterface() || header.isSuperClassAbsentOrUnderJavaLang()
+                    || !header.declaresMethod("beforeExecute", BEFORE_EXECUTE_METHOD_DESCRIPTOR)
+                    && !header.declaresMethod("afterExecute", AFTER_EXECUTE_METHOD_DESCRIPTOR))) {
+                return;
+            }
+
+            final CtClass clazz = classInfo.getCtClass();
             if (clazz.isPrimitive() || clazz.isArray() || clazz.isInterface() || clazz.isAnnotation()) {
                 return;
             }
@@ -90,14 +105,24 @@ public abstract class AbstractExecutorTtlTransformlet implements TtlTransformlet
     }
 
     /**
-     * @see TtlTransformletHelper#doAutoWrap(Runnable)
-     * @see TtlTransformletHelper#doAutoWrap(Callable)
+     * @see TtlTransformletHelper#doAutoWrap(Runnable, Object)
+     * @see TtlTransformletHelper#doAutoWrap(Callable, Object)
+     * @see TtlTransformletHelper#findQueuedAutoWrapper(Runnable, java.util.concurrent.ThreadPoolExecutor)
      */
     @SuppressFBWarnings("VA_FORMAT_STRING_USES_NEWLINE") // [ERROR] Format string should use %n rather than \n
     private void updateSubmitMethodsOfExecutorClass_decorateToTtlWrapperAndSetAutoWrapperAttachment(@NonNull final CtMethod method) throws NotFoundException, CannotCompileException {
         final int modifiers = method.getModifiers();
         if (!Modifier.isPublic(modifiers) || Modifier.isStatic(modifiers)) return;
 
+        if (isRemoveMethodOfThreadPoolExecutor(method)) {
+            // the task to remove is queued as its auto wrapper
+            final String code = "$1 = com.alibaba.ttl3.agent.transformlet.helper.TtlTransformletHelper.findQueuedAutoWrapper($1, $0);";
+            logger.info("insert code before method " + signatureOfMethod(method) + " of class " +
+                    method.getDeclaringClass().getName() + ":\n" + code);
+            method.insertBefore(code);
+            return;
+        }
+
         CtClass[] parameterTypes = method.getParameterTypes();
         StringBuilder insertCode = new StringBuilder();
         for (int i = 0; i < parameterTypes.length; i++) {
@@ -105,7 +130,7 @@ public abstract class AbstractExecutorTtlTransformlet implements TtlTransformlet
             if (paramTypeNameToDecorateMethodClass.containsKey(paramTypeName)) {
                 String code = String.format(
                         // auto decorate to TTL wrapper
-                        "$%d = helper.transformlet.com.alibaba.ttl3.agent.TtlTransformletHelper.doAutoWrap($%<d);",
+                        "$%d = com.alibaba.ttl3.agent.transformlet.helper.TtlTransformletHelper.doAutoWrap($%<d, $0);",
                         i + 1);
                 logger.info("insert code before method " + signatureOfMethod(method) + " of class " + method.getDeclaringClass().getName() + ":\n" + code);
                 insertCode.append(code);
@@ -118,6 +143,14 @@ public abstract class AbstractExecutorTtlTransformlet implements TtlTransformlet
         }
     }
 
+    /**
+     * @see TtlTransformletHelper#findQueuedAutoWrapper(Runnable, java.util.concurrent.ThreadPoolExecutor)
+     */
+    private static boolean isRemoveMethodOfThreadPoolExecutor(@NonNull final CtMethod method) {
+        return THREAD_POOL_EXECUTOR_CLASS_NAME.equals(method.getDeclaringClass().getName())
+                && "remove".equals(method.getName()) && REMOVE_METHOD_DESCRIPTOR.equals(method.getSignature());
+    }
+
     /**
      * @see com.alibaba.ttl3.executor.TtlExecutors#getDisableInheritableThreadFactory(java.util.concurrent.ThreadFactory)
      */
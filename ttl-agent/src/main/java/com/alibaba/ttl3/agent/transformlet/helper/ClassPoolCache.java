@@ -0,0 +1,174 @@
+package com.alibaba.ttl3.agent.transformlet.helper;
+
+import com.alibaba.ttl3.agent.transformlet.ClassInfo;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.LoaderClassPath;
+
+import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.alibaba.ttl3.internal.util.Utils.newConcurrentWeakHashMap;
+
+/**
+ * The cache of {@code Javassist} {@link ClassPool} per {@link ClassLoader}.
+ * <p>
+ * The class pool is shared by all the transforming classes of the same class loader,
+ * so the super classes(e.g. {@link java.util.concurrent.ThreadPoolExecutor}, {@link java.util.TimerTask})
+ * resolved by {@link CtClass#subclassOf(CtClass)} are read and parsed once, instead of once per transforming class.
+ * <p>
+ * The cache is weakly keyed by the class loader, so it does not prevent the class loader from being unloaded;
+ * the cached {@link CtClass} entries of every class pool are bounded, the least recently used entries are evicted.
+ * <p>
+ * {@link ClassPool} and the {@link CtClass} entries cached by it are <b>NOT</b> thread-safe,
+ * while the classes of the same class loader may be transformed concurrently.
+ * So the shared class pool is locked for the whole transform of one class,
+ * from {@link #acquireClassPool(ClassLoader)} to {@link #releaseClassPool(ClassPool)};
+ * and the least recently used entries are evicted only when the class pool is released by the outermost transform,
+ * so the eviction never detaches a {@link CtClass} still in use.
+ * <p>
+ * The lock is never waited for: the transform holding the lock may load classes(e.g. by {@link LoaderClassPath}),
+ * which may wait for the class loading lock held by the other transforming thread of a class loader
+ * not parallel capable, so waiting for the lock may deadlock. When the shared class pool is locked by another thread,
+ * a non-shared class pool is used for the transform, same as without the cache.
+ * The {@link CtClass} of the transforming class should be detached after transform,
+ * see {@link ClassInfo#detachCtClass()}.
+ *
+ * @see ClassInfo#getCtClass()
+ */
+public final class ClassPoolCache {
+    /**
+     * the default max count of cached {@link CtClass} entries per class pool.
+     */
+    public static final int DEFAULT_MAX_CACHED_CLASSES_PER_POOL = 1024;
+
+    private final int maxCachedClassesPerPool;
+
+    private final ConcurrentMap<ClassLoader, BoundedClassPool> classLoader2ClassPool = newConcurrentWeakHashMap(64);
+
+    public ClassPoolCache() {
+        this(DEFAULT_MAX_CACHED_CLASSES_PER_POOL);
+    }
+
+    public ClassPoolCache(int maxCachedClassesPerPool) {
+        if (maxCachedClassesPerPool <= 0) {
+            throw new IllegalArgumentException("maxCachedClassesPerPool must be positive: " + maxCachedClassesPerPool);
+        }
+        this.maxCachedClassesPerPool = maxCachedClassesPerPool;
+    }
+
+    /**
+     * Get and lock the shared class pool of the class loader, the lock is reentrant;
+     * or a new non-shared class pool if the shared class pool is locked by another thread.
+     * <p>
+     * The class pool must be released by {@link #releaseClassPool(ClassPool)} by the same thread after use.
+     *
+     * @param loader the class loader, {@code null} if the bootstrap loader
+     */
+    @NonNull
+    public ClassPool acquireClassPool(@Nullable ClassLoader loader) {
+        // the bootstrap classes are found by the system class loader
+        final ClassLoader key = loader == null ? ClassLoader.getSystemClassLoader() : loader;
+
+        BoundedClassPool pool = classLoader2ClassPool.get(key);
+        if (pool == null) pool = classLoader2ClassPool.computeIfAbsent(key, k -> newClassPool(k, maxCachedClassesPerPool));
+        if (pool.lock.tryLock()) return pool;
+
+        // do not wait for the lock, see the class doc
+        return newClassPool(loader);
+    }
+
+    /**
+     * Release the class pool acquired by {@link #acquireClassPool(ClassLoader)};
+     * evict the least recently used entries if released by the outermost acquirer.
+     */
+    public static void releaseClassPool(@NonNull ClassPool classPool) {
+        // the non-shared class pool is not locked
+        if (!(classPool instanceof BoundedClassPool)) return;
+
+        final BoundedClassPool pool = (BoundedClassPool) classPool;
+        try {
+            if (pool.lock.getHoldCount() == 1) pool.evictExceededEntries();
+        } finally {
+            pool.lock.unlock();
+        }
+    }
+
+    /**
+     * Create a non-shared class pool of the class loader, the class pool used before the cache is introduced.
+     *
+     * @param loader the class loader, {@code null} if the bootstrap loader
+     */
+    @NonNull
+    public static ClassPool newClassPool(@Nullable ClassLoader loader) {
+        final ClassPool classPool = new ClassPool(true);
+        appendLoaderClassPath(classPool, loader);
+        return classPool;
+    }
+
+    private static BoundedClassPool newClassPool(@NonNull ClassLoader loader, int maxCachedClasses) {
+        final BoundedClassPool classPool = new BoundedClassPool(maxCachedClasses);
+        // the explicit class path instead of the default system path(which depends on the thread context class loader),
+        // the classes of the loader first, then the classes of the system class loader
+        final ClassLoader systemClassLoader = ClassLoader.getSystemClassLoader();
+        classPool.appendClassPath(new LoaderClassPath(loader));
+        if (loader != systemClassLoader) classPool.appendClassPath(new LoaderClassPath(systemClassLoader));
+        return classPool;
+    }
+
+    private static void appendLoaderClassPath(ClassPool classPool, @Nullable ClassLoader loader) {
+        if (loader == null) {
+            classPool.appendClassPath(new LoaderClassPath(ClassLoader.getSystemClassLoader()));
+        } else {
+            classPool.appendClassPath(new LoaderClassPath(loader));
+        }
+    }
+
+    /**
+     * The {@link ClassPool} evicts the least recently used cached {@link CtClass} entries
+     * when the count of cached entries exceeds the max count.
+     * <p>
+     * All the access is guarded by {@link #lock}, see {@link #acquireClassPool(ClassLoader)}.
+     */
+    private static final class BoundedClassPool extends ClassPool {
+        final ReentrantLock lock = new ReentrantLock();
+        private final int maxCachedClasses;
+        // access-ordered, the value is not used
+        private final LinkedHashMap<String, Boolean> cachedClassNames = new LinkedHashMap<>(64, 0.75f, true);
+
+        BoundedClassPool(int maxCachedClasses) {
+            super(false);
+            this.maxCachedClasses = maxCachedClasses;
+        }
+
+        @Override
+        protected CtClass getCached(String classname) {
+            final CtClass clazz = super.getCached(classname);
+            // touch the access order
+            if (clazz != null) cachedClassNames.get(classname);
+            return clazz;
+        }
+
+        @Override
+        protected void cacheCtClass(String classname, CtClass c, boolean dynamic) {
+            super.cacheCtClass(classname, c, dynamic);
+            cachedClassNames.put(classname, Boolean.TRUE);
+        }
+
+        @Override
+        protected CtClass removeCached(String classname) {
+            cachedClassNames.remove(classname);
+            return super.removeCached(classname);
+        }
+
+        void evictExceededEntries() {
+            while (cachedClassNames.size() > maxCachedClasses) {
+                final String eldest = cachedClassNames.keySet().iterator().next();
+                removeCached(eldest);
+            }
+        }
+    }
+}
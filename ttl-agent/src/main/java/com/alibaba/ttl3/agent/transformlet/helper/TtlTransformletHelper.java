@@ -1,7 +1,10 @@
 package com.alibaba.ttl3.agent.transformlet.helper;
 
+import com.alibaba.crr.composite.Backup;
+import com.alibaba.crr.composite.Capture;
 import com.alibaba.ttl3.TtlCallable;
 import com.alibaba.ttl3.TtlRunnable;
+import com.alibaba.ttl3.agent.TtlAgent;
 import com.alibaba.ttl3.agent.logging.Logger;
 import com.alibaba.ttl3.agent.transformlet.TtlTransformlet;
 import com.alibaba.ttl3.spi.TtlEnhanced;
@@ -14,10 +17,16 @@ import java.lang.reflect.Modifier;
 import java.net.URL;
 import java.security.CodeSource;
 import java.security.ProtectionDomain;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadPoolExecutor;
 
 import static com.alibaba.ttl3.spi.TtlAttachmentsDelegate.setAutoWrapperAttachment;
+import static com.alibaba.ttl3.spi.TtlAttachmentsDelegate.unwrapIfIsAutoWrapper;
 import static com.alibaba.ttl3.transmitter.Transmitter.capture;
+import static com.alibaba.ttl3.transmitter.Transmitter.replay;
+import static com.alibaba.ttl3.transmitter.Transmitter.restore;
 
 /**
  * Helper methods for {@link TtlTransformlet} implementation.
@@ -157,6 +166,25 @@ public final class TtlTransformletHelper {
         else return capture();
     }
 
+    /**
+     * Replay the captured of {@link #doCaptureIfNotTtlEnhanced(Object)}.
+     *
+     * @return the backup for {@link #doRestoreIfReplayed(Object)},
+     * {@code null} if the captured is {@code null}(aka. the object is TTL enhanced, no need to replay)
+     */
+    @Nullable
+    public static Object doReplayIfCaptured(@Nullable Object captured) {
+        if (captured == null) return null;
+        else return replay((Capture) captured);
+    }
+
+    /**
+     * Restore the backup of {@link #doReplayIfCaptured(Object)}.
+     */
+    public static void doRestoreIfReplayed(@Nullable Object backup) {
+        if (backup != null) restore((Backup) backup);
+    }
+
 
     // FIXME hard-coded for type Runnable, not generic!
     @Nullable
@@ -184,6 +212,67 @@ public final class TtlTransformletHelper {
         return ret;
     }
 
+    /**
+     * Wrap the task submitted to the executor, skip the executor configured without transmittance.
+     *
+     * @see com.alibaba.ttl3.agent.TtlAgent#getNoTransmitExecutorClassNames()
+     */
+    @Nullable
+    public static Runnable doAutoWrap(@Nullable final Runnable runnable, @NonNull final Object executor) {
+        if (isNoTransmitExecutor(executor)) return runnable;
+        return doAutoWrap(runnable);
+    }
+
+    /**
+     * Wrap the task submitted to the executor, skip the executor configured without transmittance.
+     *
+     * @see com.alibaba.ttl3.agent.TtlAgent#getNoTransmitExecutorClassNames()
+     */
+    @Nullable
+    public static <T> Callable<T> doAutoWrap(@Nullable final Callable<T> callable, @NonNull final Object executor) {
+        if (isNoTransmitExecutor(executor)) return callable;
+        return doAutoWrap(callable);
+    }
+
+    /**
+     * Find the queued auto wrapper of the task, used by the enhanced {@link ThreadPoolExecutor#remove(Runnable)}:
+     * the work queue holds the auto wrappers of the executed tasks instead of the tasks themselves,
+     * and the TTL wrapper does not equal to its wrapped task.
+     *
+     * @return the queued auto wrapper of the task, or the input task if not found
+     */
+    @Nullable
+    public static Runnable findQueuedAutoWrapper(@Nullable final Runnable runnable, @NonNull final ThreadPoolExecutor executor) {
+        if (runnable == null) return null;
+
+        for (Runnable queued : executor.getQueue()) {
+            if (queued != runnable && runnable.equals(unwrapIfIsAutoWrapper(queued))) return queued;
+        }
+        return runnable;
+    }
+
+    /**
+     * Whether the executor is configured without transmittance, by the exact runtime class of the executor.
+     *
+     * @see com.alibaba.ttl3.agent.TtlAgent#getNoTransmitExecutorClassNames()
+     */
+    public static boolean isNoTransmitExecutor(@NonNull Object executor) {
+        return !NoTransmitExecutors.classNames.isEmpty() && NoTransmitExecutors.classes.get(executor.getClass());
+    }
+
+    // the executor classes without transmittance, read from the ttl agent option on first use,
+    // the class name matching is resolved once per executor class.
+    private static final class NoTransmitExecutors {
+        static final Set<String> classNames = new HashSet<>(TtlAgent.getNoTransmitExecutorClassNames());
+
+        static final ClassValue<Boolean> classes = new ClassValue<Boolean>() {
+            @Override
+            protected Boolean computeValue(Class<?> type) {
+                return classNames.contains(type.getName());
+            }
+        };
+    }
+
     // ======== class/package info Helper ========
 
     @NonNull
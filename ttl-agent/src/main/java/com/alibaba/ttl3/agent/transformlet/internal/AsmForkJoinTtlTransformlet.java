@@ -0,0 +1,101 @@
+package com.alibaba.ttl3.agent.transformlet.internal;
+
+import com.alibaba.ttl3.agent.TtlAgent;
+import com.alibaba.ttl3.agent.logging.Logger;
+import com.alibaba.ttl3.agent.transformlet.ClassInfo;
+import com.alibaba.ttl3.agent.transformlet.TtlTransformlet;
+import com.alibaba.ttl3.agent.transformlet.helper.TtlTransformletHelper;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.alibaba.ttl3.agent.transformlet.internal.AsmTransformletHelper.*;
+
+/**
+ * The {@code ASM} version of {@link ForkJoinTtlTransformlet}, for {@link java.util.concurrent.ForkJoinTask}.
+ *
+ * @see ForkJoinTtlTransformlet
+ * @see AsmTransformletHelper
+ * @see java.util.concurrent.ForkJoinPool
+ * @see java.util.concurrent.ForkJoinTask
+ */
+public final class AsmForkJoinTtlTransformlet implements TtlTransformlet {
+    private static final Logger logger = Logger.getLogger(AsmForkJoinTtlTransformlet.class);
+
+    private static final String FORK_JOIN_TASK_CLASS_NAME = "java.util.concurrent.ForkJoinTask";
+    private static final String FORK_JOIN_POOL_CLASS_NAME = "java.util.concurrent.ForkJoinPool";
+    private static final String FORK_JOIN_WORKER_THREAD_FACTORY_DESCRIPTOR = "Ljava/util/concurrent/ForkJoinPool$ForkJoinWorkerThreadFactory;";
+
+    private static final String DO_EXEC_METHOD_NAME = "doExec";
+    private static final String DO_EXEC_METHOD_DESCRIPTOR = "()I";
+
+    private final boolean disableInheritableForThreadPool;
+
+    public AsmForkJoinTtlTransformlet() {
+        this.disableInheritableForThreadPool = TtlAgent.isDisableInheritableForThreadPool();
+    }
+
+    @Override
+    public void doTransform(@NonNull final ClassInfo classInfo) {
+        if (FORK_JOIN_TASK_CLASS_NAME.equals(classInfo.getClassName())) {
+            updateForkJoinTaskClass(classInfo);
+        } else if (disableInheritableForThreadPool && FORK_JOIN_POOL_CLASS_NAME.equals(classInfo.getClassName())) {
+            classInfo.setModifiedClassFileBuffer(transform(classInfo.getClassFileBuffer(), ForkJoinPoolClassVisitor::new));
+        }
+    }
+
+    /**
+     * @see TtlTransformletHelper#doCaptureIfNotTtlEnhanced(Object)
+     * @see TtlTransformletHelper#doReplayIfCaptured(Object)
+     * @see TtlTransformletHelper#doRestoreIfReplayed(Object)
+     */
+    private static void updateForkJoinTaskClass(@NonNull final ClassInfo classInfo) {
+        final byte[] classFileBuffer = classInfo.getClassFileBuffer();
+        final int maxLocals = getMaxLocals(classFileBuffer, DO_EXEC_METHOD_NAME, DO_EXEC_METHOD_DESCRIPTOR);
+        if (maxLocals < 0) {
+            logger.warn("method " + signatureOfMethod(DO_EXEC_METHOD_NAME, DO_EXEC_METHOD_DESCRIPTOR) + " is not found in class "
+                    + classInfo.getClassName() + ", skip transform");
+            return;
+        }
+
+        // if the class is already TTL enhanced(eg: com.alibaba.ttl3.TtlRecursiveTask), the captured field is null,
+        // the replay/restore do nothing
+        classInfo.setModifiedClassFileBuffer(transform(classFileBuffer, cv ->
+                new CaptureReplayRestoreClassVisitor(cv, DO_EXEC_METHOD_NAME, DO_EXEC_METHOD_DESCRIPTOR, maxLocals)));
+        logger.info("add new field " + CAPTURED_FIELD_NAME + " to class " + classInfo.getClassName()
+                + ", and insert bytecode around method " + signatureOfMethod(DO_EXEC_METHOD_NAME, DO_EXEC_METHOD_DESCRIPTOR));
+    }
+
+    /**
+     * @see com.alibaba.ttl3.executor.TtlExecutors#getDisableInheritableForkJoinWorkerThreadFactory(java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory)
+     */
+    private static final class ForkJoinPoolClassVisitor extends ClassVisitor {
+        ForkJoinPoolClassVisitor(ClassVisitor classVisitor) {
+            super(ASM_API, classVisitor);
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            final MethodVisitor mv = super.visitMethod(access, name, descriptor, signature, exceptions);
+            if (mv == null || !"<init>".equals(name)) return mv;
+
+            final List<ParameterDecoration> decorations = new ArrayList<>();
+            final Type[] parameterTypes = Type.getArgumentTypes(descriptor);
+            for (int i = 0; i < parameterTypes.length; i++) {
+                if (FORK_JOIN_WORKER_THREAD_FACTORY_DESCRIPTOR.equals(parameterTypes[i].getDescriptor())) {
+                    decorations.add(new ParameterDecoration(getParameterSlot(access, parameterTypes, i),
+                            "com/alibaba/ttl3/executor/TtlExecutors", "getDisableInheritableForkJoinWorkerThreadFactory",
+                            "(" + FORK_JOIN_WORKER_THREAD_FACTORY_DESCRIPTOR + ")" + FORK_JOIN_WORKER_THREAD_FACTORY_DESCRIPTOR, null));
+                }
+            }
+            if (decorations.isEmpty()) return mv;
+
+            logger.info("insert bytecode before constructor " + signatureOfMethod(name, descriptor) + " of class " + FORK_JOIN_POOL_CLASS_NAME + ": " + decorations);
+            return new ParameterDecoratingMethodVisitor(mv, decorations);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.alibaba.ttl3.agent.transformlet.internal;
+
+import com.alibaba.ttl3.agent.TtlAgent;
+import com.alibaba.ttl3.agent.logging.Logger;
+import com.alibaba.ttl3.agent.transformlet.ClassFileHeader;
+import com.alibaba.ttl3.agent.transformlet.ClassInfo;
+import com.alibaba.ttl3.agent.transformlet.TtlTransformlet;
+import com.alibaba.ttl3.agent.transformlet.helper.TtlTransformletHelper;
+import com.alibaba.ttl3.spi.TtlAttachmentsDelegate;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import static com.alibaba.ttl3.agent.transformlet.helper.TtlTransformletHelper.isClassAtPackageJavaUtil;
+import static com.alibaba.ttl3.agent.transformlet.internal.AsmTransformletHelper.*;
+
+/**
+ * The {@code ASM} version of {@link JdkExecutorTtlTransformlet},
+ * for {@link java.util.concurrent.ThreadPoolExecutor} and {@link java.util.concurrent.ScheduledThreadPoolExecutor}.
+ *
+ * @see JdkExecutorTtlTransformlet
+ * @see com.alibaba.ttl3.agent.transformlet.helper.AbstractExecutorTtlTransformlet
+ * @see AsmTransformletHelper
+ */
+public final class AsmJdkExecutorTtlTransformlet implements TtlTransformlet {
+    private static final Logger logger = Logger.getLogger(AsmJdkExecutorTtlTransformlet.class);
+
+    private static final String THREAD_POOL_EXECUTOR_CLASS_NAME = "java.util.concurrent.ThreadPoolExecutor";
+    private static final Set<String> EXECUTOR_CLASS_NAMES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            THREAD_POOL_EXECUTOR_CLASS_NAME,
+            "java.util.concurrent.ScheduledThreadPoolExecutor"
+    )));
+
+    private static final String RUNNABLE_DESCRIPTOR = "Ljava/lang/Runnable;";
+    private static final String CALLABLE_DESCRIPTOR = "Ljava/util/concurrent/Callable;";
+    private static final String THREAD_FACTORY_DESCRIPTOR = "Ljava/util/concurrent/ThreadFactory;";
+
+    private static final String BEFORE_EXECUTE_METHOD_DESCRIPTOR = "(Ljava/lang/Thread;Ljava/lang/Runnable;)V";
+    private static final String AFTER_EXECUTE_METHOD_DESCRIPTOR = "(Ljava/lang/Runnable;Ljava/lang/Throwable;)V";
+    private static final String REMOVE_METHOD_DESCRIPTOR = "(Ljava/lang/Runnable;)Z";
+
+    private final boolean disableInheritableForThreadPool;
+
+    public AsmJdkExecutorTtlTransformlet() {
+        this.disableInheritableForThreadPool = TtlAgent.isDisableInheritableForThreadPool();
+    }
+
+    @Override
+    public void doTransform(@NonNull final ClassInfo classInfo) {
+        // work-around ClassCircularityError:
+        //      https://github.com/alibaba/transmittable-thread-local/issues/278
+        //      https://github.com/alibaba/transmittable-thread-local/issues/234
+        if (isClassAtPackageJavaUtil(classInfo.getClassName())) return;
+
+        if (EXECUTOR_CLASS_NAMES.contains(classInfo.getClassName())) {
+            classInfo.setModifiedClassFileBuffer(transform(classInfo.getClassFileBuffer(), ExecutorClassVisitor::new));
+        } else {
+            // only the executor subclass overriding beforeExecute/afterExecute method is transformed
+            final ClassFileHeader header = classInfo.getClassFileHeader();
+            if (header == null || header.isInterface() || header.isSuperClassAbsentOrUnderJavaLang()
+                    || !header.declaresMethod("beforeExecute", BEFORE_EXECUTE_METHOD_DESCRIPTOR)
+                    && !header.declaresMethod("afterExecute", AFTER_EXECUTE_METHOD_DESCRIPTOR)) {
+                return;
+            }
+            if (!isSubclassOf(classInfo.getClassLoader(), header, THREAD_POOL_EXECUTOR_CLASS_NAME)) return;
+
+            logger.info("Transforming class " + classInfo.getClassName());
+
+            classInfo.setModifiedClassFileBuffer(transform(classInfo.getClassFileBuffer(), ExecutorSubclassClassVisitor::new));
+        }
+    }
+
+    /**
+     * @see TtlTransformletHelper#doAutoWrap(Runnable, Object)
+     * @see TtlTransformletHelper#doAutoWrap(Callable, Object)
+     * @see TtlTransformletHelper#findQueuedAutoWrapper(Runnable, java.util.concurrent.ThreadPoolExecutor)
+     * @see com.alibaba.ttl3.executor.TtlExecutors#getDisableInheritableThreadFactory(java.util.concurrent.ThreadFactory)
+     */
+    private final class ExecutorClassVisitor extends ClassVisitor {
+        private String className;
+
+        ExecutorClassVisitor(ClassVisitor classVisitor) {
+            super(ASM_API, classVisitor);
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            super.visit(version, access, name, signature, superName, interfaces);
+            this.className = name.replace('/', '.');
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            final MethodVisitor mv = super.visitMethod(access, name, descriptor, signature, exceptions);
+            if (mv == null) return null;
+
+            final List<ParameterDecoration> decorations = new ArrayList<>();
+            final Type[] parameterTypes = Type.getArgumentTypes(descriptor);
+            if ("<init>".equals(name)) {
+                if (!disableInheritableForThreadPool) return mv;
+
+                for (int i = 0; i < parameterTypes.length; i++) {
+                    if (THREAD_FACTORY_DESCRIPTOR.equals(parameterTypes[i].getDescriptor())) {
+                        decorations.add(new ParameterDecoration(getParameterSlot(access, parameterTypes, i),
+                                "com/alibaba/ttl3/executor/TtlExecutors", "getDisableInheritableThreadFactory",
+                                "(" + THREAD_FACTORY_DESCRIPTOR + ")" + THREAD_FACTORY_DESCRIPTOR, null));
+                    }
+                }
+            } else {
+                if ((access & Opcodes.ACC_PUBLIC) == 0 || (access & Opcodes.ACC_STATIC) != 0) return mv;
+
+                if (THREAD_POOL_EXECUTOR_CLASS_NAME.equals(className)
+                        && "remove".equals(name) && REMOVE_METHOD_DESCRIPTOR.equals(descriptor)) {
+                    // the task to remove is queued as its auto wrapper
+                    final ParameterDecoration decoration = new ParameterDecoration(getParameterSlot(access, parameterTypes, 0),
+                            TRANSFORMLET_HELPER_INTERNAL_NAME, "findQueuedAutoWrapper",
+                            "(" + RUNNABLE_DESCRIPTOR + "Ljava/util/concurrent/ThreadPoolExecutor;)" + RUNNABLE_DESCRIPTOR, null, true);
+                    logger.info("insert bytecode before method " + signatureOfMethod(name, descriptor) + " of class " + className + ": " + decoration);
+                    return new ParameterDecoratingMethodVisitor(mv, Collections.singletonList(decoration));
+                }
+
+                for (int i = 0; i < parameterTypes.length; i++) {
+                    final String parameterDescriptor = parameterTypes[i].getDescriptor();
+                    if (RUNNABLE_DESCRIPTOR.equals(parameterDescriptor) || CALLABLE_DESCRIPTOR.equals(parameterDescriptor)) {
+                        // auto decorate to TTL wrapper
+                        decorations.add(new ParameterDecoration(getParameterSlot(access, parameterTypes, i),
+                                TRANSFORMLET_HELPER_INTERNAL_NAME, "doAutoWrap",
+                                "(" + parameterDescriptor + OBJECT_DESCRIPTOR + ")" + parameterDescriptor, null, true));
+                    }
+                }
+            }
+            if (decorations.isEmpty()) return mv;
+
+            logger.info("insert bytecode before method " + signatureOfMethod(name, descriptor) + " of class " + className + ": " + decorations);
+            return new ParameterDecoratingMethodVisitor(mv, decorations);
+        }
+    }
+
+    /**
+     * @see TtlAttachmentsDelegate#unwrapIfIsAutoWrapper(Object)
+     */
+    private static final class ExecutorSubclassClassVisitor extends ClassVisitor {
+        private String className;
+
+        ExecutorSubclassClassVisitor(ClassVisitor classVisitor) {
+            super(ASM_API, classVisitor);
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            super.visit(version, access, name, signature, superName, interfaces);
+            this.className = name.replace('/', '.');
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            final MethodVisitor mv = super.visitMethod(access, name, descriptor, signature, exceptions);
+            if (mv == null || (access & Opcodes.ACC_STATIC) != 0) return mv;
+
+            final int parameterIndex;
+            if ("beforeExecute".equals(name) && BEFORE_EXECUTE_METHOD_DESCRIPTOR.equals(descriptor)) parameterIndex = 1;
+            else if ("afterExecute".equals(name) && AFTER_EXECUTE_METHOD_DESCRIPTOR.equals(descriptor)) parameterIndex = 0;
+            else return mv;
+
+            // unwrap runnable if IsAutoWrapper
+            final ParameterDecoration decoration = new ParameterDecoration(
+                    getParameterSlot(access, Type.getArgumentTypes(descriptor), parameterIndex),
+                    Type.getInternalName(TtlAttachmentsDelegate.class), "unwrapIfIsAutoWrapper",
+                    "(" + OBJECT_DESCRIPTOR + ")" + OBJECT_DESCRIPTOR, "java/lang/Runnable");
+            logger.info("insert bytecode before method " + signatureOfMethod(name, descriptor) + " of class " + className + ": " + decoration);
+            return new ParameterDecoratingMethodVisitor(mv, Collections.singletonList(decoration));
+        }
+    }
+}
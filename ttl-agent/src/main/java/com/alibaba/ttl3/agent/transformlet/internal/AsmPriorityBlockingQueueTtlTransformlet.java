@@ -0,0 +1,105 @@
+package com.alibaba.ttl3.agent.transformlet.internal;
+
+import com.alibaba.ttl3.agent.logging.Logger;
+import com.alibaba.ttl3.agent.transformlet.ClassInfo;
+import com.alibaba.ttl3.agent.transformlet.TtlTransformlet;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.util.Comparator;
+
+import static com.alibaba.ttl3.agent.transformlet.internal.AsmTransformletHelper.*;
+
+/**
+ * The {@code ASM} version of {@link PriorityBlockingQueueTtlTransformlet},
+ * for {@link java.util.concurrent.PriorityBlockingQueue PriorityBlockingQueue}.
+ *
+ * @see PriorityBlockingQueueTtlTransformlet
+ * @see PriorityBlockingQueueTtlTransformlet#overwriteComparatorField$by$ttl(Comparator)
+ * @see AsmTransformletHelper
+ */
+public final class AsmPriorityBlockingQueueTtlTransformlet implements TtlTransformlet {
+    private static final Logger logger = Logger.getLogger(AsmPriorityBlockingQueueTtlTransformlet.class);
+
+    private static final String PRIORITY_BLOCKING_QUEUE_CLASS_NAME = "java.util.concurrent.PriorityBlockingQueue";
+    private static final String PRIORITY_QUEUE_CLASS_NAME = "java.util.PriorityQueue";
+    private static final String COMPARATOR_FIELD_NAME = "comparator";
+    private static final String COMPARATOR_DESCRIPTOR = "Ljava/util/Comparator;";
+
+    @Override
+    public void doTransform(@NonNull ClassInfo classInfo) {
+        final String className = classInfo.getClassName();
+
+        if (PRIORITY_BLOCKING_QUEUE_CLASS_NAME.equals(className)) {
+            if (!haveComparatorField(classInfo.getClassFileBuffer())) {
+                // In Java 6, PriorityBlockingQueue implementation do not have field comparator,
+                // need transform more fundamental class PriorityQueue
+                logger.info(PRIORITY_BLOCKING_QUEUE_CLASS_NAME + " do not have field " + COMPARATOR_FIELD_NAME +
+                        ", transform " + PRIORITY_QUEUE_CLASS_NAME + " instead.");
+                return;
+            }
+            modifyConstructors(classInfo);
+        }
+
+        if (PRIORITY_QUEUE_CLASS_NAME.equals(className)) {
+            final byte[] priorityBlockingQueueClassFile = readClassFile(classInfo.getClassLoader(), PRIORITY_BLOCKING_QUEUE_CLASS_NAME);
+            if (priorityBlockingQueueClassFile == null || haveComparatorField(priorityBlockingQueueClassFile)) return;
+
+            logger.info(PRIORITY_BLOCKING_QUEUE_CLASS_NAME + " do not have field " + COMPARATOR_FIELD_NAME +
+                    ", so need transform " + PRIORITY_QUEUE_CLASS_NAME);
+            modifyConstructors(classInfo);
+        }
+    }
+
+    private static boolean haveComparatorField(byte[] classFileBuffer) {
+        return COMPARATOR_DESCRIPTOR.equals(getDeclaredFieldDescriptor(classFileBuffer, COMPARATOR_FIELD_NAME));
+    }
+
+    private static void modifyConstructors(@NonNull ClassInfo classInfo) {
+        classInfo.setModifiedClassFileBuffer(transform(classInfo.getClassFileBuffer(), ComparatorOverwritingClassVisitor::new));
+    }
+
+    /**
+     * wrap comparator field before every return of constructors:
+     * {@code this.comparator = PriorityBlockingQueueTtlTransformlet.overwriteComparatorField$by$ttl(this.comparator);}
+     */
+    private static final class ComparatorOverwritingClassVisitor extends ClassVisitor {
+        private String className;
+
+        ComparatorOverwritingClassVisitor(ClassVisitor classVisitor) {
+            super(ASM_API, classVisitor);
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            super.visit(version, access, name, signature, superName, interfaces);
+            this.className = name;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            final MethodVisitor mv = super.visitMethod(access, name, descriptor, signature, exceptions);
+            if (mv == null || !"<init>".equals(name)) return mv;
+
+            logger.info("insert bytecode after constructor " + signatureOfMethod(name, descriptor) + " of class " +
+                    className.replace('/', '.') + ": overwrite field " + COMPARATOR_FIELD_NAME);
+            return new MethodVisitor(ASM_API, mv) {
+                @Override
+                public void visitInsn(int opcode) {
+                    if (opcode == Opcodes.RETURN) {
+                        super.visitVarInsn(Opcodes.ALOAD, 0);
+                        super.visitVarInsn(Opcodes.ALOAD, 0);
+                        super.visitFieldInsn(Opcodes.GETFIELD, className, COMPARATOR_FIELD_NAME, COMPARATOR_DESCRIPTOR);
+                        super.visitMethodInsn(Opcodes.INVOKESTATIC, Type.getInternalName(PriorityBlockingQueueTtlTransformlet.class),
+                                "overwriteComparatorField$by$ttl", "(" + COMPARATOR_DESCRIPTOR + ")" + COMPARATOR_DESCRIPTOR, false);
+                        super.visitFieldInsn(Opcodes.PUTFIELD, className, COMPARATOR_FIELD_NAME, COMPARATOR_DESCRIPTOR);
+                    }
+                    super.visitInsn(opcode);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.alibaba.ttl3.agent.transformlet.internal;
+
+import com.alibaba.ttl3.agent.logging.Logger;
+import com.alibaba.ttl3.agent.transformlet.ClassFileHeader;
+import com.alibaba.ttl3.agent.transformlet.ClassInfo;
+import com.alibaba.ttl3.agent.transformlet.TtlTransformlet;
+import com.alibaba.ttl3.agent.transformlet.helper.TtlTransformletHelper;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import static com.alibaba.ttl3.agent.transformlet.helper.TtlTransformletHelper.isClassAtPackageJavaUtil;
+import static com.alibaba.ttl3.agent.transformlet.internal.AsmTransformletHelper.*;
+
+/**
+ * The {@code ASM} version of {@link TimerTaskTtlTransformlet}, for {@link java.util.TimerTask}.
+ *
+ * @see TimerTaskTtlTransformlet
+ * @see AsmTransformletHelper
+ * @see java.util.TimerTask
+ * @see java.util.Timer
+ */
+public final class AsmTimerTaskTtlTransformlet implements TtlTransformlet {
+    private static final Logger logger = Logger.getLogger(AsmTimerTaskTtlTransformlet.class);
+
+    private static final String TIMER_TASK_CLASS_NAME = "java.util.TimerTask";
+    private static final String RUN_METHOD_NAME = "run";
+    private static final String RUN_METHOD_DESCRIPTOR = "()V";
+
+    @Override
+    public void doTransform(@NonNull final ClassInfo classInfo) {
+        // work-around ClassCircularityError:
+        if (isClassAtPackageJavaUtil(classInfo.getClassName())) return;
+
+        final ClassFileHeader header = classInfo.getClassFileHeader();
+        if (header == null || header.isInterface() || header.isSuperClassAbsentOrUnderJavaLang()
+                || !header.declaresMethod(RUN_METHOD_NAME, RUN_METHOD_DESCRIPTOR)) {
+            return;
+        }
+        if (!isSubclassOf(classInfo.getClassLoader(), header, TIMER_TASK_CLASS_NAME)) return;
+
+        final byte[] classFileBuffer = classInfo.getClassFileBuffer();
+        // abstract run method has no code
+        final int maxLocals = getMaxLocals(classFileBuffer, RUN_METHOD_NAME, RUN_METHOD_DESCRIPTOR);
+        if (maxLocals < 0) return;
+
+        logger.info("Transforming class " + classInfo.getClassName());
+
+        updateTimerTaskClass(classInfo, maxLocals);
+    }
+
+    /**
+     * @see TtlTransformletHelper#doCaptureIfNotTtlEnhanced(Object)
+     * @see TtlTransformletHelper#doReplayIfCaptured(Object)
+     * @see TtlTransformletHelper#doRestoreIfReplayed(Object)
+     */
+    private static void updateTimerTaskClass(@NonNull final ClassInfo classInfo, int runMethodMaxLocals) {
+        classInfo.setModifiedClassFileBuffer(transform(classInfo.getClassFileBuffer(), cv ->
+                new CaptureReplayRestoreClassVisitor(cv, RUN_METHOD_NAME, RUN_METHOD_DESCRIPTOR, runMethodMaxLocals)));
+        logger.info("add new field " + CAPTURED_FIELD_NAME + " to class " + classInfo.getClassName()
+                + ", and insert bytecode around method " + signatureOfMethod(RUN_METHOD_NAME, RUN_METHOD_DESCRIPTOR));
+    }
+}
@@ -0,0 +1,565 @@
+package com.alibaba.ttl3.agent.transformlet.internal;
+
+import com.alibaba.ttl3.agent.transformlet.ClassFileHeader;
+import com.alibaba.ttl3.agent.transformlet.TtlTransformlet;
+import com.alibaba.ttl3.agent.transformlet.helper.TtlTransformletHelper;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import org.objectweb.asm.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Helper methods and bytecode visitors for the {@code ASM} built-in {@link TtlTransformlet}s.
+ * <p>
+ * The class file bytes are streamed through the {@code ASM} visitors and the pre-built bytecode is injected directly,
+ * without building the {@code Javassist} object model, compiling the source code snippets,
+ * or copying the transformed method to a renamed method.
+ * <p>
+ * Only {@link ClassWriter#COMPUTE_MAXS} is used, because {@link ClassWriter#COMPUTE_FRAMES} needs to resolve
+ * the class hierarchy; the injected bytecode maintains the stack map frames itself.
+ *
+ * @see AsmJdkExecutorTtlTransformlet
+ * @see AsmPriorityBlockingQueueTtlTransformlet
+ * @see AsmForkJoinTtlTransformlet
+ * @see AsmTimerTaskTtlTransformlet
+ */
+final class AsmTransformletHelper {
+    static final int ASM_API = Opcodes.ASM9;
+
+    static final String OBJECT_INTERNAL_NAME = "java/lang/Object";
+    static final String OBJECT_DESCRIPTOR = "Ljava/lang/Object;";
+
+    static final String TRANSFORMLET_HELPER_INTERNAL_NAME = Type.getInternalName(TtlTransformletHelper.class);
+
+    /**
+     * the same field name as the field added by the {@code Javassist} transformlets.
+     */
+    static final String CAPTURED_FIELD_NAME = "captured$field$added$by$ttl";
+
+    private static final int MAX_SUPER_CLASS_DEPTH = 64;
+
+    /**
+     * Stream the class file bytes through the class visitor created by the factory.
+     *
+     * @param visitorFactory create the class visitor, which delegates to the given class writer
+     * @return the transformed class file bytes
+     */
+    @NonNull
+    static byte[] transform(@NonNull byte[] classFileBuffer, @NonNull Function<ClassVisitor, ClassVisitor> visitorFactory) {
+        final ClassReader reader = new ClassReader(classFileBuffer);
+        // pass the reader to the writer, so the unchanged methods are copied as is
+        final ClassWriter writer = new ClassWriter(reader, ClassWriter.COMPUTE_MAXS);
+        // expand frames, so the injected frames and the original frames are all full frames
+        reader.accept(visitorFactory.apply(writer), ClassReader.EXPAND_FRAMES);
+        return writer.toByteArray();
+    }
+
+    /**
+     * Get the {@code max_locals} of the method code.
+     *
+     * @return {@code -1} if the method is not found or has no code
+     */
+    static int getMaxLocals(@NonNull byte[] classFileBuffer, @NonNull String methodName, @NonNull String methodDescriptor) {
+        final int[] maxLocals = {-1};
+        new ClassReader(classFileBuffer).accept(new ClassVisitor(ASM_API) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                if (!methodName.equals(name) || !methodDescriptor.equals(descriptor)) return null;
+
+                return new MethodVisitor(ASM_API) {
+                    @Override
+                    public void visitMaxs(int maxStack, int maxLocal) {
+                        maxLocals[0] = maxLocal;
+                    }
+                };
+            }
+        }, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        return maxLocals[0];
+    }
+
+    /**
+     * Get the descriptor of the field declared by the class.
+     *
+     * @return {@code null} if the class does not declare the field
+     */
+    @Nullable
+    static String getDeclaredFieldDescriptor(@NonNull byte[] classFileBuffer, @NonNull String fieldName) {
+        final String[] fieldDescriptor = {null};
+        new ClassReader(classFileBuffer).accept(new ClassVisitor(ASM_API) {
+            @Override
+            public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+                if (fieldName.equals(name)) fieldDescriptor[0] = descriptor;
+                return null;
+            }
+        }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        return fieldDescriptor[0];
+    }
+
+    /**
+     * Read the class file bytes as resource from the class loader, without loading the class.
+     *
+     * @param loader    the class loader, {@code null} if the bootstrap loader
+     * @param className the class name, e.g. {@code java.util.TimerTask}
+     * @return {@code null} if the class file is not found
+     */
+    @Nullable
+    @SuppressFBWarnings("PZLA_PREFER_ZERO_LENGTH_ARRAYS")
+    static byte[] readClassFile(@Nullable ClassLoader loader, @NonNull String className) {
+        // the bootstrap classes are found by the system class loader
+        final ClassLoader classLoader = loader == null ? ClassLoader.getSystemClassLoader() : loader;
+        try (InputStream in = classLoader.getResourceAsStream(className.replace('.', '/') + ".class")) {
+            if (in == null) return null;
+
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Whether the class is a subclass of the super class, by scanning the class file headers
+     * of the super classes read from the class loader, without loading the classes.
+     *
+     * @param superClassName the super class name, e.g. {@code java.util.TimerTask}
+     */
+    static boolean isSubclassOf(@Nullable ClassLoader loader, @NonNull ClassFileHeader header, @NonNull String superClassName) {
+        ClassFileHeader current = header;
+        for (int i = 0; i < MAX_SUPER_CLASS_DEPTH; i++) {
+            final String name = current.getSuperClassName();
+            if (name == null) return false;
+            if (name.equals(superClassName)) return true;
+            if (current.isSuperClassAbsentOrUnderJavaLang()) return false;
+
+            final byte[] superClassFile = readClassFile(loader, name);
+            if (superClassFile == null) return false;
+            current = ClassFileHeader.scan(superClassFile);
+            if (current == null) return false;
+        }
+        return false;
+    }
+
+    /**
+     * Output string like {@code execute(Ljava/lang/Runnable;)V}.
+     */
+    @NonNull
+    static String signatureOfMethod(@NonNull String name, @NonNull String descriptor) {
+        return name + descriptor;
+    }
+
+    /**
+     * Get the local variable index of the method parameter.
+     */
+    static int getParameterSlot(int access, @NonNull Type[] parameterTypes, int parameterIndex) {
+        int slot = (access & Opcodes.ACC_STATIC) != 0 ? 0 : 1;
+        for (int i = 0; i < parameterIndex; i++) {
+            slot += parameterTypes[i].getSize();
+        }
+        return slot;
+    }
+
+    /**
+     * The decoration of a method parameter, aka. the bytecode of {@code $n = owner.method($n);},
+     * or {@code $n = owner.method($n, this);} if pass {@code this}.
+     */
+    static final class ParameterDecoration {
+        final int slot;
+        final String owner;
+        final String methodName;
+        final String methodDescriptor;
+        @Nullable
+        final String castType;
+        final boolean passThis;
+
+        /**
+         * @param castType the internal name of the parameter type, if the return type of the decorate method
+         *                 is not the parameter type; otherwise {@code null}
+         */
+        ParameterDecoration(int slot, String owner, String methodName, String methodDescriptor, @Nullable String castType) {
+            this(slot, owner, methodName, methodDescriptor, castType, false);
+        }
+
+        /**
+         * @param castType the internal name of the parameter type, if the return type of the decorate method
+         *                 is not the parameter type; otherwise {@code null}
+         * @param passThis pass {@code this} as the second argument of the decorate method, only for the instance method
+         */
+        ParameterDecoration(int slot, String owner, String methodName, String methodDescriptor, @Nullable String castType,
+                            boolean passThis) {
+            this.slot = slot;
+            this.owner = owner;
+            this.methodName = methodName;
+            this.methodDescriptor = methodDescriptor;
+            this.castType = castType;
+            this.passThis = passThis;
+        }
+
+        @Override
+        public String toString() {
+            return "$" + slot + " = " + owner.replace('/', '.') + "." + methodName + "($" + slot + (passThis ? ", $0);" : ");");
+        }
+    }
+
+    /**
+     * Insert the parameter decorations at the beginning of the method,
+     * the same as {@code CtBehavior#insertBefore} of the {@code Javassist} transformlets,
+     * except that the decorations of constructor are inserted before the {@code super()/this()} call,
+     * which is valid since the decorations do not touch {@code this}.
+     */
+    static final class ParameterDecoratingMethodVisitor extends MethodVisitor {
+        private final List<ParameterDecoration> decorations;
+
+        ParameterDecoratingMethodVisitor(MethodVisitor methodVisitor, List<ParameterDecoration> decorations) {
+            super(ASM_API, methodVisitor);
+            this.decorations = new ArrayList<>(decorations);
+        }
+
+        @Override
+        public void visitCode() {
+            super.visitCode();
+
+            for (ParameterDecoration decoration : decorations) {
+                super.visitVarInsn(Opcodes.ALOAD, decoration.slot);
+                if (decoration.passThis) super.visitVarInsn(Opcodes.ALOAD, 0);
+                super.visitMethodInsn(Opcodes.INVOKESTATIC, decoration.owner, decoration.methodName, decoration.methodDescriptor, false);
+                if (decoration.castType != null) super.visitTypeInsn(Opcodes.CHECKCAST, decoration.castType);
+                super.visitVarInsn(Opcodes.ASTORE, decoration.slot);
+            }
+        }
+    }
+
+    /**
+     * Weave the task class(e.g. {@link java.util.TimerTask}, {@link java.util.concurrent.ForkJoinTask}):
+     * <ol>
+     * <li>add the field {@value #CAPTURED_FIELD_NAME}, initialized by
+     * {@link TtlTransformletHelper#doCaptureIfNotTtlEnhanced(Object)} after the {@code super()} call of the constructors</li>
+     * <li>wrap the code of the task method by {@link TtlTransformletHelper#doReplayIfCaptured(Object)}
+     * and {@link TtlTransformletHelper#doRestoreIfReplayed(Object)} in {@code try-finally}, in place</li>
+     * </ol>
+     */
+    static final class CaptureReplayRestoreClassVisitor extends ClassVisitor {
+        private final String taskMethodName;
+        private final String taskMethodDescriptor;
+        private final int taskMethodMaxLocals;
+
+        private String className;
+        private String superName;
+        private boolean hasFrames;
+
+        /**
+         * @param taskMethodMaxLocals the {@code max_locals} of the task method, see {@link #getMaxLocals(byte[], String, String)}
+         */
+        CaptureReplayRestoreClassVisitor(ClassVisitor classVisitor, String taskMethodName, String taskMethodDescriptor, int taskMethodMaxLocals) {
+            super(ASM_API, classVisitor);
+            this.taskMethodName = taskMethodName;
+            this.taskMethodDescriptor = taskMethodDescriptor;
+            this.taskMethodMaxLocals = taskMethodMaxLocals;
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            super.visit(version, access, name, signature, superName, interfaces);
+            this.className = name;
+            this.superName = superName;
+            // the StackMapTable attribute is since class file version 50(Java 6)
+            this.hasFrames = (version & 0xFFFF) >= Opcodes.V1_6;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            final MethodVisitor mv = super.visitMethod(access, name, descriptor, signature, exceptions);
+            if (mv == null) return null;
+
+            if ("<init>".equals(name)) {
+                return new CapturedFieldInitializingMethodVisitor(mv, className, superName);
+            }
+            if (taskMethodName.equals(name) && taskMethodDescriptor.equals(descriptor) && (access & Opcodes.ACC_STATIC) == 0) {
+                return new ReplayRestoreMethodVisitor(mv, className, taskMethodMaxLocals, hasFrames);
+            }
+            return mv;
+        }
+
+        @Override
+        public void visitEnd() {
+            final FieldVisitor fv = super.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, CAPTURED_FIELD_NAME, OBJECT_DESCRIPTOR, null, null);
+            if (fv != null) fv.visitEnd();
+
+            super.visitEnd();
+        }
+    }
+
+    /**
+     * Initialize the captured field after the {@code super()} call of the constructor;
+     * the constructor delegating to {@code this()} is skipped, the field is initialized by the delegated constructor.
+     */
+    private static final class CapturedFieldInitializingMethodVisitor extends MethodVisitor {
+        private final String className;
+        private final String superName;
+
+        /**
+         * the count of the {@code new} instructions whose constructor is not called yet,
+         * used to find the {@code super()/this()} call, e.g. {@code super(new Foo())}
+         */
+        private int uninitializedNewCount = 0;
+        private boolean superOrThisCalled = false;
+
+        CapturedFieldInitializingMethodVisitor(MethodVisitor methodVisitor, String className, String superName) {
+            super(ASM_API, methodVisitor);
+            this.className = className;
+            this.superName = superName;
+        }
+
+        @Override
+        public void visitTypeInsn(int opcode, String type) {
+            super.visitTypeInsn(opcode, type);
+            if (opcode == Opcodes.NEW) uninitializedNewCount++;
+        }
+
+        @Override
+        public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+            super.visitMethodInsn(opcode, owner, name, descriptor, isInterface);
+            if (superOrThisCalled || opcode != Opcodes.INVOKESPECIAL || !"<init>".equals(name)) return;
+
+            if (uninitializedNewCount > 0) {
+                uninitializedNewCount--;
+                return;
+            }
+            superOrThisCalled = true;
+            if (!owner.equals(superName)) return;
+
+            // this.captured$field$added$by$ttl = TtlTransformletHelper.doCaptureIfNotTtlEnhanced(this);
+            super.visitVarInsn(Opcodes.ALOAD, 0);
+            super.visitVarInsn(Opcodes.ALOAD, 0);
+            super.visitMethodInsn(Opcodes.INVOKESTATIC, TRANSFORMLET_HELPER_INTERNAL_NAME,
+                    "doCaptureIfNotTtlEnhanced", "(Ljava/lang/Object;)Ljava/lang/Object;", false);
+            super.visitFieldInsn(Opcodes.PUTFIELD, className, CAPTURED_FIELD_NAME, OBJECT_DESCRIPTOR);
+        }
+    }
+
+    /**
+     * Wrap the method code in place:
+     *
+     * <pre>{@code
+     * Object backup = TtlTransformletHelper.doReplayIfCaptured(this.captured$field$added$by$ttl);
+     * try {
+     *     // the original code, TtlTransformletHelper.doRestoreIfReplayed(backup) is inserted before every return
+     * } catch (Throwable t) {
+     *     TtlTransformletHelper.doRestoreIfReplayed(backup);
+     *     throw t;
+     * }
+     * }</pre>
+     * <p>
+     * The catch-all handler covers the original code only: the try range is closed before every inserted restore
+     * and reopened after the return, one try-catch entry per segment, as {@code javac} does for {@code finally};
+     * so the exception thrown by the inserted restore is not caught and the backup is not restored again.
+     * <p>
+     * The local variable {@code backup} is allocated after the original local variables,
+     * and appended to every original stack map frame.
+     */
+    private static final class ReplayRestoreMethodVisitor extends MethodVisitor {
+        private final String className;
+        private final int backupSlot;
+        private final boolean hasFrames;
+
+        /**
+         * the start/end label pairs of the segments covered by the catch-all handler
+         */
+        private final List<Label> segments = new ArrayList<>();
+        private Label segmentStart;
+        /**
+         * the empty range is rejected by the class file verification, so the segment without instruction is skipped
+         */
+        private boolean segmentHasInsn;
+        private final Label handler = new Label();
+
+        ReplayRestoreMethodVisitor(MethodVisitor methodVisitor, String className, int originalMaxLocals, boolean hasFrames) {
+            super(ASM_API, methodVisitor);
+            this.className = className;
+            this.backupSlot = originalMaxLocals;
+            this.hasFrames = hasFrames;
+        }
+
+        @Override
+        public void visitCode() {
+            super.visitCode();
+
+            super.visitVarInsn(Opcodes.ALOAD, 0);
+            super.visitFieldInsn(Opcodes.GETFIELD, className, CAPTURED_FIELD_NAME, OBJECT_DESCRIPTOR);
+            super.visitMethodInsn(Opcodes.INVOKESTATIC, TRANSFORMLET_HELPER_INTERNAL_NAME,
+                    "doReplayIfCaptured", "(Ljava/lang/Object;)Ljava/lang/Object;", false);
+            super.visitVarInsn(Opcodes.ASTORE, backupSlot);
+            openSegment();
+        }
+
+        @Override
+        public void visitFrame(int type, int numLocal, Object[] local, int numStack, Object[] stack) {
+            if (type != Opcodes.F_NEW) {
+                throw new IllegalStateException("only expanded frames are supported, read the class with ClassReader.EXPAND_FRAMES");
+            }
+            final Object[] locals = appendBackupLocal(numLocal, local);
+            super.visitFrame(Opcodes.F_NEW, locals.length, locals, numStack, stack);
+        }
+
+        @Override
+        public void visitInsn(int opcode) {
+            if (opcode >= Opcodes.IRETURN && opcode <= Opcodes.RETURN) {
+                closeSegment();
+                // the return value(if any) stays on the operand stack
+                emitRestore();
+                super.visitInsn(opcode);
+                openSegment();
+                return;
+            }
+            segmentHasInsn = true;
+            super.visitInsn(opcode);
+        }
+
+        @Override
+        public void visitIntInsn(int opcode, int operand) {
+            segmentHasInsn = true;
+            super.visitIntInsn(opcode, operand);
+        }
+
+        @Override
+        public void visitVarInsn(int opcode, int varIndex) {
+            segmentHasInsn = true;
+            super.visitVarInsn(opcode, varIndex);
+        }
+
+        @Override
+        public void visitTypeInsn(int opcode, String type) {
+            segmentHasInsn = true;
+            super.visitTypeInsn(opcode, type);
+        }
+
+        @Override
+        public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+            segmentHasInsn = true;
+            super.visitFieldInsn(opcode, owner, name, descriptor);
+        }
+
+        @Override
+        public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+            segmentHasInsn = true;
+            super.visitMethodInsn(opcode, owner, name, descriptor, isInterface);
+        }
+
+        @Override
+        public void visitInvokeDynamicInsn(String name, String descriptor, Handle bootstrapMethodHandle, Object... bootstrapMethodArguments) {
+            segmentHasInsn = true;
+            super.visitInvokeDynamicInsn(name, descriptor, bootstrapMethodHandle, bootstrapMethodArguments);
+        }
+
+        @Override
+        public void visitJumpInsn(int opcode, Label label) {
+            segmentHasInsn = true;
+            super.visitJumpInsn(opcode, label);
+        }
+
+        @Override
+        public void visitLdcInsn(Object value) {
+            segmentHasInsn = true;
+            super.visitLdcInsn(value);
+        }
+
+        @Override
+        public void visitIincInsn(int varIndex, int increment) {
+            segmentHasInsn = true;
+            super.visitIincInsn(varIndex, increment);
+        }
+
+        @Override
+        public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
+            segmentHasInsn = true;
+            super.visitTableSwitchInsn(min, max, dflt, labels);
+        }
+
+        @Override
+        public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+            segmentHasInsn = true;
+            super.visitLookupSwitchInsn(dflt, keys, labels);
+        }
+
+        @Override
+        public void visitMultiANewArrayInsn(String descriptor, int numDimensions) {
+            segmentHasInsn = true;
+            super.visitMultiANewArrayInsn(descriptor, numDimensions);
+        }
+
+        @Override
+        public void visitMaxs(int maxStack, int maxLocals) {
+            closeSegment();
+            if (!segments.isEmpty()) {
+                // the catch-all handler is visited after the handlers of the original code,
+                // so the original handlers take precedence
+                super.visitLabel(handler);
+                if (hasFrames) {
+                    final Object[] locals = appendBackupLocal(0, new Object[0]);
+                    super.visitFrame(Opcodes.F_NEW, locals.length, locals, 1, new Object[]{"java/lang/Throwable"});
+                }
+                emitRestore();
+                super.visitInsn(Opcodes.ATHROW);
+                for (int i = 0; i < segments.size(); i += 2) {
+                    super.visitTryCatchBlock(segments.get(i), segments.get(i + 1), handler, null);
+                }
+            }
+
+            super.visitMaxs(maxStack, maxLocals);
+        }
+
+        private void openSegment() {
+            segmentStart = new Label();
+            segmentHasInsn = false;
+            super.visitLabel(segmentStart);
+        }
+
+        private void closeSegment() {
+            if (!segmentHasInsn) return;
+
+            final Label segmentEnd = new Label();
+            super.visitLabel(segmentEnd);
+            segments.add(segmentStart);
+            segments.add(segmentEnd);
+        }
+
+        private void emitRestore() {
+            super.visitVarInsn(Opcodes.ALOAD, backupSlot);
+            super.visitMethodInsn(Opcodes.INVOKESTATIC, TRANSFORMLET_HELPER_INTERNAL_NAME,
+                    "doRestoreIfReplayed", "(Ljava/lang/Object;)V", false);
+        }
+
+        /**
+         * pad the locals with {@code TOP} to the backup slot, then append the backup local.
+         */
+        private Object[] appendBackupLocal(int numLocal, Object[] local) {
+            final List<Object> locals = new ArrayList<>(numLocal + 8);
+            int slots = 0;
+            for (int i = 0; i < numLocal; i++) {
+                locals.add(local[i]);
+                slots += Opcodes.LONG.equals(local[i]) || Opcodes.DOUBLE.equals(local[i]) ? 2 : 1;
+            }
+            for (; slots < backupSlot; slots++) {
+                locals.add(Opcodes.TOP);
+            }
+            locals.add(OBJECT_INTERNAL_NAME);
+            return locals.toArray();
+        }
+    }
+
+    @SuppressFBWarnings("CT_CONSTRUCTOR_THROW")
+    private AsmTransformletHelper() {
+        throw new InstantiationError("Must not instantiate this class");
+    }
+}
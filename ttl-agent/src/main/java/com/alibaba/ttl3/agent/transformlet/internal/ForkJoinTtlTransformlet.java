@@ -47,6 +47,8 @@ public final class ForkJoinTtlTransformlet implements TtlTransformlet {
 
     /**
      * @see TtlTransformletHelper#doCaptureIfNotTtlEnhanced(Object)
+     * @see TtlTransformletHelper#doReplayIfCaptured(Object)
+     * @see TtlTransformletHelper#doRestoreIfReplayed(Object)
      */
     private void updateForkJoinTaskClass(@NonNull final CtClass clazz) throws CannotCompileException, NotFoundException {
         final String className = clazz.getName();
@@ -63,9 +65,9 @@ public final class ForkJoinTtlTransformlet implements TtlTransformlet {
         final String beforeCode = "if (this instanceof " + TtlEnhanced.class.getName() + ") {\n" + // if the class is already TTL enhanced(eg: com.alibaba.ttl3.TtlRecursiveTask)
                 "    return " + doExec_renamed_method_name + "($$);\n" +                           // return directly/do nothing
                 "}\n" +
-                "Object backup = com.alibaba.ttl3.transmitter.Transmitter.replay(" + capturedFieldName + ");";
+                "Object backup = com.alibaba.ttl3.agent.transformlet.helper.TtlTransformletHelper.doReplayIfCaptured(" + capturedFieldName + ");";
 
-        final String finallyCode = "com.alibaba.ttl3.transmitter.Transmitter.restore(backup);";
+        final String finallyCode = "com.alibaba.ttl3.agent.transformlet.helper.TtlTransformletHelper.doRestoreIfReplayed(backup);";
 
         final String code = addTryFinallyToMethod(doExecMethod, doExec_renamed_method_name, beforeCode, finallyCode);
         logger.info("insert code around method " + signatureOfMethod(doExecMethod) + " of class " + clazz.getName() + ": " + code);
@@ -78,7 +80,7 @@ public final class ForkJoinTtlTransformlet implements TtlTransformlet {
             for (int i = 0; i < parameterTypes.length; i++) {
                 final String paramTypeName = parameterTypes[i].getName();
                 if (FORK_JOIN_WORKER_THREAD_FACTORY_CLASS_NAME.equals(paramTypeName)) {
-                    String code = String.format("$%d = com.alibaba.ttl3.executor.TtlForkJoinPoolHelper.getDisableInheritableForkJoinWorkerThreadFactory($%<d);", i + 1);
+                    String code = String.format("$%d = com.alibaba.ttl3.executor.TtlExecutors.getDisableInheritableForkJoinWorkerThreadFactory($%<d);", i + 1);
                     insertCode.append(code);
                 }
             }
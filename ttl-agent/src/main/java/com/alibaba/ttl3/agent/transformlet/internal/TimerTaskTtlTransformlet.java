@@ -1,6 +1,7 @@
 package com.alibaba.ttl3.agent.transformlet.internal;
 
 import com.alibaba.ttl3.agent.logging.Logger;
+import com.alibaba.ttl3.agent.transformlet.ClassFileHeader;
 import com.alibaba.ttl3.agent.transformlet.ClassInfo;
 import com.alibaba.ttl3.agent.transformlet.TtlTransformlet;
 import com.alibaba.ttl3.agent.transformlet.helper.TtlTransformletHelper;
@@ -24,6 +25,7 @@ public final class TimerTaskTtlTransformlet implements TtlTransformlet {
 
     private static final String TIMER_TASK_CLASS_NAME = "java.util.TimerTask";
     private static final String RUN_METHOD_NAME = "run";
+    private static final String RUN_METHOD_DESCRIPTOR = "()V";
 
     @Override
     public void doTransform(@NonNull final ClassInfo classInfo) throws IOException, NotFoundException, CannotCompileException {
@@ -34,6 +36,13 @@ public final class TimerTaskTtlTransformlet implements TtlTransformlet {
         //
         // if (TIMER_TASK_CLASS_NAME.equals(classInfo.getClassName())) return; // No need transform TimerTask class
 
+        // pre-filter by the class file header, skip the Javassist parsing of most classes
+        final ClassFileHeader header = classInfo.getClassFileHeader();
+        if (header != null && (header.isInterface() || header.isSuperClassAbsentOrUnderJavaLang()
+                || !header.declaresMethod(RUN_METHOD_NAME, RUN_METHOD_DESCRIPTOR))) {
+            return;
+        }
+
         final CtClass clazz = classInfo.getCtClass();
 
         if (clazz.isPrimitive() || clazz.isArray() || clazz.isInterface() || clazz.isAnnotation()) {
@@ -56,6 +65,8 @@ public final class TimerTaskTtlTransformlet implements TtlTransformlet {
 
     /**
      * @see TtlTransformletHelper#doCaptureIfNotTtlEnhanced(Object)
+     * @see TtlTransformletHelper#doReplayIfCaptured(Object)
+     * @see TtlTransformletHelper#doRestoreIfReplayed(Object)
      */
     private void updateTimerTaskClass(@NonNull final CtClass clazz) throws CannotCompileException, NotFoundException {
         final String className = clazz.getName();
@@ -68,8 +79,8 @@ public final class TimerTaskTtlTransformlet implements TtlTransformlet {
 
         final CtMethod runMethod = clazz.getDeclaredMethod(RUN_METHOD_NAME, new CtClass[0]);
 
-        final String beforeCode = "Object backup = com.alibaba.ttl3.transmitter.Transmitter.replay(" + capturedFieldName + ");";
-        final String finallyCode = "com.alibaba.ttl3.transmitter.Transmitter.restore(backup);";
+        final String beforeCode = "Object backup = com.alibaba.ttl3.agent.transformlet.helper.TtlTransformletHelper.doReplayIfCaptured(" + capturedFieldName + ");";
+        final String finallyCode = "com.alibaba.ttl3.agent.transformlet.helper.TtlTransformletHelper.doRestoreIfReplayed(backup);";
 
         final String code = addTryFinallyToMethod(runMethod, beforeCode, finallyCode);
         logger.info("insert code around method " + signatureOfMethod(runMethod) + " of class " + clazz.getName() + ": " + code);
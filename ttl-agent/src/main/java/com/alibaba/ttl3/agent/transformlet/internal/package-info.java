@@ -1,10 +1,16 @@
 /**
  * TTL built-in {@code Transformlet} implementations.
+ * <p>
+ * The {@code Asm*} transformlets are the {@code ASM} bytecode visitor versions of the {@code Javassist} transformlets,
+ * enabled by the TTL agent configuration {@code ttl.agent.transform.backend:asm}.
  *
  * @author Jerry Lee (oldratlee at gmail dot com)
  * @see com.alibaba.ttl3.agent.transformlet.internal.JdkExecutorTtlTransformlet
  * @see com.alibaba.ttl3.agent.transformlet.internal.ForkJoinTtlTransformlet
  * @see com.alibaba.ttl3.agent.transformlet.internal.TimerTaskTtlTransformlet
+ * @see com.alibaba.ttl3.agent.transformlet.internal.AsmJdkExecutorTtlTransformlet
+ * @see com.alibaba.ttl3.agent.transformlet.internal.AsmForkJoinTtlTransformlet
+ * @see com.alibaba.ttl3.agent.transformlet.internal.AsmTimerTaskTtlTransformlet
  * @see com.alibaba.ttl3.agent.transformlet.TtlTransformlet
  */
 package com.alibaba.ttl3.agent.transformlet.internal;
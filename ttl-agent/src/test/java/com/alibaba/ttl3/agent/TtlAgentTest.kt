@@ -0,0 +1,158 @@
+package com.alibaba.ttl3.agent
+
+import com.alibaba.ttl3.TransmittableThreadLocal
+import com.alibaba.ttl3.TtlTimerTask
+import com.alibaba.ttl3.executor.TtlExecutors
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.booleans.shouldBeFalse
+import io.kotest.matchers.booleans.shouldBeTrue
+import io.kotest.matchers.collections.shouldContain
+import io.kotest.matchers.longs.shouldBeGreaterThan
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeInstanceOf
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import java.util.*
+import java.util.concurrent.*
+
+/**
+ * Check the enhancement of TTL agent, run under TTL agent only, with both the `javassist` and `asm` transform backends.
+ *
+ * Run by maven profile `enable-ttl-agent-for-test`,
+ * select the backend by `-Dttl.agent.extra.args=ttl.agent.transform.backend:asm`.
+ */
+class TtlAgentTest : FunSpec({
+    val underTtlAgent = TtlAgentStatus.getInstance().isTtlAgentLoaded
+    val ttl = TransmittableThreadLocal<String>()
+
+    afterTest {
+        ttl.remove()
+    }
+
+    test("transform statistics of the loaded TTL agent").config(enabled = underTtlAgent) {
+        val status = TtlAgentStatus.getInstance()
+        status.shouldBeInstanceOf<TtlAgent>()
+        TtlAgentStatus.getInstance() shouldBeSameInstanceAs status
+
+        // ThreadPoolExecutor is transformed on startup
+        Executors.newFixedThreadPool(1).shutdown()
+        val stats = status.transformStats
+        stats.receivedClassCount shouldBeGreaterThan 0
+        stats.transformedClassCount shouldBeGreaterThan 0
+        stats.totalNanos shouldBeGreaterThan 0
+
+        val executorStats = stats.transformletStats.single { it.transformletClassName.endsWith("JdkExecutorTtlTransformlet") }
+        executorStats.inspectedClassCount shouldBeGreaterThan 0
+        // the transformed classes are loaded from the transform cache, not recorded by the transformlet
+        if (TtlAgent.getTransformCacheDir().isEmpty()) executorStats.transformedClassCount shouldBeGreaterThan 0
+        stats.transformletStats.map { it.transformletClassName } shouldContain "com.alibaba.ttl3.agent.TtlExtensionTransformletManager"
+    }
+
+    test("transmit by ThreadPoolExecutor").config(enabled = underTtlAgent) {
+        val executor = Executors.newFixedThreadPool(1)
+        try {
+            // start the worker thread before the value is set, the value is not inherited
+            executor.submit { }.get()
+
+            ttl.set("parent")
+            executor.submit(Callable { ttl.get() }).get() shouldBe "parent"
+
+            val executed = FutureTask { ttl.get() }
+            executor.execute(executed)
+            executed.get() shouldBe "parent"
+        } finally {
+            executor.shutdown()
+        }
+    }
+
+    test("transmit by ScheduledThreadPoolExecutor").config(enabled = underTtlAgent) {
+        val executor = Executors.newScheduledThreadPool(1)
+        try {
+            executor.submit { }.get()
+
+            ttl.set("parent")
+            executor.schedule(Callable { ttl.get() }, 1, TimeUnit.MILLISECONDS).get() shouldBe "parent"
+        } finally {
+            executor.shutdown()
+        }
+    }
+
+    test("remove the executed task from ThreadPoolExecutor").config(enabled = underTtlAgent) {
+        val executor = Executors.newFixedThreadPool(1) as ThreadPoolExecutor
+        try {
+            val latch = CountDownLatch(1)
+            executor.execute { latch.await() }
+
+            val task = Runnable { }
+            executor.execute(task)
+            executor.remove(task).shouldBeTrue()
+            executor.remove(task).shouldBeFalse()
+            executor.queue.isEmpty().shouldBeTrue()
+
+            latch.countDown()
+        } finally {
+            executor.shutdown()
+        }
+    }
+
+    test("transmit by ForkJoinPool").config(enabled = underTtlAgent) {
+        val pool = ForkJoinPool(1)
+        try {
+            pool.submit { }.get()
+
+            ttl.set("parent")
+            pool.submit(Callable { ttl.get() }).get() shouldBe "parent"
+        } finally {
+            pool.shutdown()
+        }
+    }
+
+    test("transmit by TimerTask").config(enabled = underTtlAgent && TtlAgent.isEnableTimerTask()) {
+        val timer = Timer(true)
+        try {
+            val started = CompletableFuture<String?>()
+            timer.schedule(object : TimerTask() {
+                override fun run() {
+                    started.complete(ttl.get())
+                }
+            }, 0)
+            started.get()
+
+            ttl.set("parent")
+            val value = CompletableFuture<String?>()
+            timer.schedule(object : TimerTask() {
+                override fun run() {
+                    value.complete(ttl.get())
+                }
+            }, 0)
+            value.get() shouldBe "parent"
+        } finally {
+            timer.cancel()
+        }
+    }
+
+    test("run TtlTimerTask, the agent does not capture the TTL enhanced TimerTask").config(enabled = underTtlAgent && TtlAgent.isEnableTimerTask()) {
+        val timer = Timer(true)
+        try {
+            ttl.set("parent")
+            val value = CompletableFuture<String?>()
+            @Suppress("DEPRECATION")
+            timer.schedule(TtlTimerTask.get(object : TimerTask() {
+                override fun run() {
+                    value.complete(ttl.get())
+                }
+            }), 0)
+            value.get() shouldBe "parent"
+        } finally {
+            timer.cancel()
+        }
+    }
+
+    test("disable inheritable for ForkJoinPool").config(enabled = underTtlAgent) {
+        val pool = ForkJoinPool(1)
+        try {
+            TtlExecutors.isDisableInheritableForkJoinWorkerThreadFactory(pool.factory) shouldBe TtlAgent.isDisableInheritableForThreadPool()
+        } finally {
+            pool.shutdown()
+        }
+    }
+})
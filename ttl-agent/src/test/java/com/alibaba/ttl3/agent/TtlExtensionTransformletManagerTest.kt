@@ -0,0 +1,76 @@
+package com.alibaba.ttl3.agent
+
+import com.alibaba.ttl3.agent.logging.Logger
+import com.alibaba.ttl3.agent.transformlet.ClassInfo
+import com.alibaba.ttl3.agent.transformlet.TtlTransformlet
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.engine.spec.tempfile
+import io.kotest.matchers.booleans.shouldBeTrue
+import io.kotest.matchers.shouldBe
+import java.net.URL
+import java.util.*
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.FutureTask
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.concurrent.thread
+
+/**
+ * Run without TTL agent only, the package-private manager is loaded by the bootstrap class loader under TTL agent.
+ */
+class TtlExtensionTransformletManagerTest : FunSpec({
+    Logger.setLoggerImplTypeIfNotSetYet(Logger.STDOUT)
+    val noTtlAgent = !TtlAgentStatus.getInstance().isTtlAgentLoaded
+
+    test("concurrent transform does not miss the extension transformlets being collected by another thread").config(enabled = noTtlAgent) {
+        val extensionFile = tempfile().apply { writeText(MarkingTransformlet::class.java.name + "\n") }
+        val loader = SlowExtensionClassLoader(extensionFile.toURI().toURL())
+        val manager = TtlExtensionTransformletManager()
+
+        // the first collection is blocked at loading the extension transformlet class
+        val first = FutureTask { manager.collectExtensionTransformlet(ClassInfo("foo/First", ByteArray(0), loader)) }
+        thread { first.run() }
+        loader.firstLoadStarted.await(1, TimeUnit.MINUTES).shouldBeTrue()
+
+        try {
+            val classInfo = ClassInfo("foo/Second", ByteArray(0), loader)
+            manager.collectExtensionTransformlet(classInfo)
+            manager.extensionTransformletDoTransform(classInfo) shouldBe MarkingTransformlet::class.java.name
+            classInfo.isModified.shouldBeTrue()
+        } finally {
+            loader.releaseFirstLoad.countDown()
+        }
+        first.get(1, TimeUnit.MINUTES)
+
+        // collected once by every thread, and no more after the collected mark is published
+        val classInfo = ClassInfo("foo/Third", ByteArray(0), loader)
+        manager.collectExtensionTransformlet(classInfo)
+        loader.loadCount.get() shouldBe 2
+        manager.extensionTransformletDoTransform(classInfo) shouldBe MarkingTransformlet::class.java.name
+    }
+})
+
+class MarkingTransformlet : TtlTransformlet {
+    override fun doTransform(classInfo: ClassInfo) {
+        classInfo.setModified()
+    }
+}
+
+private class SlowExtensionClassLoader(private val extensionFile: URL) :
+    ClassLoader(TtlExtensionTransformletManagerTest::class.java.classLoader) {
+    val firstLoadStarted = CountDownLatch(1)
+    val releaseFirstLoad = CountDownLatch(1)
+    val loadCount = AtomicInteger()
+
+    override fun getResources(name: String): Enumeration<URL> =
+        if (name == "META-INF/ttl.agent.transformlets") Collections.enumeration(listOf(extensionFile))
+        else super.getResources(name)
+
+    override fun loadClass(name: String, resolve: Boolean): Class<*> {
+        if (name == MarkingTransformlet::class.java.name && loadCount.incrementAndGet() == 1) {
+            firstLoadStarted.countDown()
+            releaseFirstLoad.await(1, TimeUnit.MINUTES)
+        }
+        return super.loadClass(name, resolve)
+    }
+}
@@ -0,0 +1,155 @@
+package com.alibaba.ttl3.agent
+
+import com.alibaba.ttl3.agent.logging.Logger
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.engine.spec.tempdir
+import io.kotest.matchers.collections.shouldContainExactly
+import io.kotest.matchers.collections.shouldHaveSize
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.nulls.shouldNotBeNull
+import io.kotest.matchers.shouldBe
+import java.io.File
+import java.net.URLClassLoader
+import java.nio.file.Files
+import java.nio.file.attribute.PosixFilePermissions
+
+/**
+ * Run without TTL agent only, the package-private cache is loaded by the bootstrap class loader under TTL agent.
+ */
+class TtlTransformCacheTest : FunSpec({
+    Logger.setLoggerImplTypeIfNotSetYet(Logger.STDOUT)
+    val noTtlAgent = !TtlAgentStatus.getInstance().isTtlAgentLoaded
+
+    val className = "foo.Bar"
+    val classBytes = byteArrayOf(1, 2, 3)
+    val transformed = byteArrayOf(4, 5, 6, 7)
+    val loader = TtlTransformCacheTest::class.java.classLoader
+
+    fun entryFiles(cacheDir: File): List<File> =
+        cacheDir.walk().filter { it.isFile && it.name.endsWith(".class") }.toList()
+
+    test("hit and miss").config(enabled = noTtlAgent) {
+        val cacheDir = tempdir()
+        val cache = TtlTransformCache.create(cacheDir.path, "fingerprint").shouldNotBeNull()
+
+        cache.get(className, loader, classBytes).shouldBeNull()
+        cache.put(className, loader, classBytes, transformed)
+        cache.get(className, loader, classBytes) shouldBe transformed
+        // the different original class file bytes
+        cache.get(className, loader, byteArrayOf(1, 2)).shouldBeNull()
+        cache.get("foo.Other", loader, classBytes).shouldBeNull()
+
+        // reused on the next start
+        TtlTransformCache.create(cacheDir.path, "fingerprint").shouldNotBeNull()
+            .get(className, loader, classBytes) shouldBe transformed
+    }
+
+    test("fingerprint change misses").config(enabled = noTtlAgent) {
+        val cacheDir = tempdir()
+        TtlTransformCache.create(cacheDir.path, "fingerprint").shouldNotBeNull().put(className, loader, classBytes, transformed)
+
+        TtlTransformCache.create(cacheDir.path, "other fingerprint").shouldNotBeNull()
+            .get(className, loader, classBytes).shouldBeNull()
+    }
+
+    test("corrupted entry is not returned, and deleted").config(enabled = noTtlAgent) {
+        val cacheDir = tempdir()
+        val cache = TtlTransformCache.create(cacheDir.path, "fingerprint").shouldNotBeNull()
+        cache.put(className, loader, classBytes, transformed)
+
+        val entry = entryFiles(cacheDir).single()
+        val bytes = entry.readBytes()
+        bytes[bytes.size - 1] = 42
+        entry.writeBytes(bytes)
+
+        cache.get(className, loader, classBytes).shouldBeNull()
+        entry.exists() shouldBe false
+
+        // truncated entry
+        cache.put(className, loader, classBytes, transformed)
+        entry.writeBytes(byteArrayOf(1))
+        cache.get(className, loader, classBytes).shouldBeNull()
+        entry.exists() shouldBe false
+    }
+
+    test("the cache is bounded").config(enabled = noTtlAgent) {
+        val cacheDir = tempdir()
+        val cache = TtlTransformCache.create(cacheDir.path, "fingerprint", 2).shouldNotBeNull()
+
+        cache.put("foo.A", loader, classBytes, transformed)
+        cache.put("foo.B", loader, classBytes, transformed)
+        cache.put("foo.C", loader, classBytes, transformed)
+        cache.get("foo.C", loader, classBytes).shouldBeNull()
+        entryFiles(cacheDir) shouldHaveSize 2
+
+        // the entry of the changed class file bytes replaces the stale one
+        val changedClassBytes = byteArrayOf(9)
+        cache.put("foo.A", loader, changedClassBytes, transformed)
+        cache.get("foo.A", loader, changedClassBytes) shouldBe transformed
+        cache.get("foo.A", loader, classBytes).shouldBeNull()
+        entryFiles(cacheDir).map { it.name.substringBefore('-') }.sorted().shouldContainExactly("foo.A", "foo.B")
+    }
+
+    test("the cache directory is private").config(enabled = noTtlAgent && File.separatorChar == '/') {
+        val cacheDir = tempdir()
+        TtlTransformCache.create(cacheDir.path, "fingerprint").shouldNotBeNull()
+        val directory = cacheDir.listFiles()!!.single().toPath()
+        PosixFilePermissions.toString(Files.getPosixFilePermissions(directory)) shouldBe "rwx------"
+
+        Files.setPosixFilePermissions(directory, PosixFilePermissions.fromString("rwxrwxrwx"))
+        TtlTransformCache.create(cacheDir.path, "fingerprint").shouldBeNull()
+    }
+
+    test("the cache directory of symbolic link is not used").config(enabled = noTtlAgent && File.separatorChar == '/') {
+        val cacheDir = tempdir()
+        TtlTransformCache.create(cacheDir.path, "fingerprint").shouldNotBeNull()
+        val directory = cacheDir.listFiles()!!.single().toPath()
+        val target = Files.move(directory, cacheDir.toPath().resolve("target"))
+        Files.createSymbolicLink(directory, target)
+
+        TtlTransformCache.create(cacheDir.path, "fingerprint").shouldBeNull()
+    }
+
+    test("the cache directory not owned by the user running the JVM is not used")
+        .config(enabled = noTtlAgent && File.separatorChar == '/' && System.getProperty("user.name") == "root") {
+        val cacheDir = tempdir()
+        TtlTransformCache.create(cacheDir.path, "fingerprint").shouldNotBeNull()
+        val directory = cacheDir.listFiles()!!.single().toPath()
+        Files.setOwner(directory, directory.fileSystem.userPrincipalLookupService.lookupPrincipalByName("nobody"))
+
+        TtlTransformCache.create(cacheDir.path, "fingerprint").shouldBeNull()
+    }
+
+    test("the cache is disabled if an entry file is not private").config(enabled = noTtlAgent && File.separatorChar == '/') {
+        val cacheDir = tempdir()
+        val cache = TtlTransformCache.create(cacheDir.path, "fingerprint").shouldNotBeNull()
+        cache.put(className, loader, classBytes, transformed)
+        cache.put("foo.Other", loader, classBytes, transformed)
+        val entry = entryFiles(cacheDir).single { it.name.startsWith("$className-") }.toPath()
+
+        Files.setPosixFilePermissions(entry, PosixFilePermissions.fromString("rw-rw-rw-"))
+        cache.get(className, loader, classBytes).shouldBeNull()
+        // the other entries are not used either
+        cache.get("foo.Other", loader, classBytes).shouldBeNull()
+        cache.put("foo.New", loader, classBytes, transformed)
+        entryFiles(cacheDir) shouldHaveSize 2
+
+        // the entry of symbolic link
+        Files.setPosixFilePermissions(entry, PosixFilePermissions.fromString("rw-------"))
+        val linkCache = TtlTransformCache.create(cacheDir.path, "fingerprint").shouldNotBeNull()
+        val target = Files.move(entry, cacheDir.toPath().resolve("target.class"))
+        Files.createSymbolicLink(entry, target)
+        linkCache.get(className, loader, classBytes).shouldBeNull()
+        linkCache.get("foo.Other", loader, classBytes).shouldBeNull()
+    }
+
+    test("the entries of the different class loaders are not shared").config(enabled = noTtlAgent) {
+        val cacheDir = tempdir()
+        val cache = TtlTransformCache.create(cacheDir.path, "fingerprint").shouldNotBeNull()
+        cache.put(className, loader, classBytes, transformed)
+
+        cache.get(className, null, classBytes).shouldBeNull()
+        cache.get(className, URLClassLoader(arrayOf(), loader), classBytes).shouldBeNull()
+        cache.get(className, loader, classBytes) shouldBe transformed
+    }
+})
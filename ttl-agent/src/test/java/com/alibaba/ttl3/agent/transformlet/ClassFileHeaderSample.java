@@ -0,0 +1,40 @@
+package com.alibaba.ttl3.agent.transformlet;
+
+import java.util.TimerTask;
+import java.util.function.LongSupplier;
+
+/**
+ * The class scanned by {@link ClassFileHeader} in {@code ClassFileHeaderTest}, the constant pool covers
+ * the {@code Long/Double} constants taking two entries, the {@code MethodHandle/MethodType/InvokeDynamic}
+ * constants of the lambda, and the non-ASCII names.
+ */
+public abstract class ClassFileHeaderSample extends TimerTask {
+    static long sum(long base) {
+        final LongSupplier supplier = () -> base + 1234567890123L;
+        return supplier.getAsLong() + (long) (3.14159265358979 * base);
+    }
+
+    double 平均值(double... values) {
+        double sum = 0.0001;
+        for (double v : values) sum += v;
+        return sum / values.length;
+    }
+
+    abstract void 运行(String 名字);
+
+    public static class Sub extends ClassFileHeaderSample {
+        @Override
+        public void run() {
+        }
+
+        @Override
+        void 运行(String 名字) {
+        }
+    }
+
+    public static class SubOfSub extends Sub {
+        @Override
+        public void run() {
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.alibaba.ttl3.agent.transformlet
+
+import com.alibaba.ttl3.agent.TtlAgentStatus
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.booleans.shouldBeFalse
+import io.kotest.matchers.booleans.shouldBeTrue
+import io.kotest.matchers.collections.shouldContainAll
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.nulls.shouldNotBeNull
+import io.kotest.matchers.shouldBe
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.ConstantDynamic
+import org.objectweb.asm.Handle
+import org.objectweb.asm.Opcodes
+import org.objectweb.asm.Type
+import java.util.*
+import java.util.concurrent.ThreadPoolExecutor
+import kotlin.random.Random
+
+/**
+ * The tests using `ASM` run without TTL agent only, the `ASM` classes are relocated into the TTL agent jar.
+ */
+class ClassFileHeaderTest : FunSpec({
+    val noTtlAgent = !TtlAgentStatus.getInstance().isTtlAgentLoaded
+
+    test("the header info of the real class files is the same as the reflection").config(enabled = noTtlAgent) {
+        listOf(
+            Any::class.java,
+            Runnable::class.java,
+            java.lang.Deprecated::class.java,
+            AbstractList::class.java,
+            TimerTask::class.java,
+            ThreadPoolExecutor::class.java,
+            Thread::class.java,
+            Math::class.java,
+            java.lang.invoke.MutableCallSite::class.java,
+            ClassFileHeaderSample::class.java,
+            ClassFileHeaderSample.Sub::class.java,
+            ClassFileHeaderSample.SubOfSub::class.java,
+            ClassFileHeaderTest::class.java,
+        ).forEach { checkSameAsReflection(it) }
+    }
+
+    test("the constant pool of the sample class covers Long/Double and MethodHandle/MethodType/InvokeDynamic").config(enabled = noTtlAgent) {
+        constantPoolTagsOf(classFileOf(ClassFileHeaderSample::class.java)).shouldContainAll(5, 6, 15, 16, 18)
+
+        val header = ClassFileHeader.scan(classFileOf(ClassFileHeaderSample::class.java)).shouldNotBeNull()
+        header.declaresMethod("sum", "(J)J").shouldBeTrue()
+        header.declaresMethod("平均值", "([D)D").shouldBeTrue()
+        header.declaresMethod("运行", "(Ljava/lang/String;)V").shouldBeTrue()
+        header.declaresMethod("运行", "()V").shouldBeFalse()
+        header.declaresMethod("运", "(Ljava/lang/String;)V").shouldBeFalse()
+        header.declaresMethod("run", "()V").shouldBeFalse()
+    }
+
+    test("module-info has no super class, and its constant pool covers Module/Package").config(enabled = noTtlAgent) {
+        val moduleInfo = ClassWriter(0).run {
+            visit(Opcodes.V9, Opcodes.ACC_MODULE, "module-info", null, null, null)
+            visitModule("com.example.sample", 0, null).apply {
+                visitRequire("java.base", Opcodes.ACC_MANDATED, null)
+                visitExport("com/example/sample/api", 0)
+                visitOpen("com/example/sample/impl", 0)
+                visitUse("java/lang/Runnable")
+                visitEnd()
+            }
+            visitEnd()
+            toByteArray()
+        }
+        constantPoolTagsOf(moduleInfo).shouldContainAll(19, 20)
+
+        // the module-info of java.base, if run on Java 9+
+        listOfNotNull(moduleInfo, Any::class.java.getResourceAsStream("/module-info.class")?.use { it.readBytes() })
+            .forEach {
+                val header = ClassFileHeader.scan(it).shouldNotBeNull()
+                header.isInterface.shouldBeFalse()
+                header.superClassName.shouldBeNull()
+                header.isSuperClassAbsentOrUnderJavaLang.shouldBeTrue()
+                header.declaresMethod("run", "()V").shouldBeFalse()
+            }
+    }
+
+    test("the Dynamic constant, and the non-ASCII names encoded in modified UTF-8").config(enabled = noTtlAgent) {
+        // the char '\u0000' and the supplementary character are encoded specially in the modified UTF-8
+        val methodName = "a\u0000b😀运行"
+        val classFile = ClassWriter(ClassWriter.COMPUTE_MAXS).run {
+            visit(Opcodes.V11, Opcodes.ACC_PUBLIC, "com/example/sample/Dynamic", null, "java/lang/invoke/MutableCallSite", null)
+            visitMethod(Opcodes.ACC_STATIC, methodName, "()Ljava/lang/Object;", null, null).apply {
+                visitCode()
+                visitLdcInsn(ConstantDynamic("value", "Ljava/lang/Object;", Handle(
+                    Opcodes.H_INVOKESTATIC, "java/lang/invoke/ConstantBootstraps", "nullConstant",
+                    "(Ljava/lang/invoke/MethodHandles\$Lookup;Ljava/lang/String;Ljava/lang/Class;)Ljava/lang/Object;", false
+                )))
+                visitInsn(Opcodes.ARETURN)
+                visitMaxs(0, 0)
+                visitEnd()
+            }
+            visitEnd()
+            toByteArray()
+        }
+        constantPoolTagsOf(classFile).shouldContainAll(15, 17)
+
+        val header = ClassFileHeader.scan(classFile).shouldNotBeNull()
+        header.superClassName shouldBe "java.lang.invoke.MutableCallSite"
+        header.isSuperClassAbsentOrUnderJavaLang.shouldBeFalse()
+        header.declaresMethod(methodName, "()Ljava/lang/Object;").shouldBeTrue()
+        header.declaresMethod("a\u0000b😀运", "()Ljava/lang/Object;").shouldBeFalse()
+        header.declaresMethod("ab😀运行", "()Ljava/lang/Object;").shouldBeFalse()
+        header.declaresMethod("a", "()Ljava/lang/Object;").shouldBeFalse()
+
+        fun headerOfSubclassOf(superClass: String) = ClassWriter(0).run {
+            visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, "com/example/sample/Sub", null, superClass, null)
+            visitEnd()
+            ClassFileHeader.scan(toByteArray()).shouldNotBeNull()
+        }
+        headerOfSubclassOf("java/lang/父类").run {
+            superClassName shouldBe "java.lang.父类"
+            isSuperClassAbsentOrUnderJavaLang.shouldBeTrue()
+        }
+        headerOfSubclassOf("java/lang/子包/父类").run {
+            superClassName shouldBe "java.lang.子包.父类"
+            isSuperClassAbsentOrUnderJavaLang.shouldBeFalse()
+        }
+    }
+
+    test("the truncated or corrupt class file is scanned as null or the same header info, never throws") {
+        val classFile = classFileOf(ClassFileHeaderSample.Sub::class.java)
+        val expected = infoOf(ClassFileHeader.scan(classFile).shouldNotBeNull())
+
+        ClassFileHeader.scan(ByteArray(0)).shouldBeNull()
+        for (length in classFile.indices) {
+            ClassFileHeader.scan(classFile.copyOf(length))?.let { infoOf(it) shouldBe expected }
+        }
+
+        val random = Random(20261018)
+        repeat(10_000) {
+            val corrupt = classFile.copyOf()
+            repeat(1 + random.nextInt(4)) {
+                corrupt[random.nextInt(corrupt.size)] = random.nextInt(256).toByte()
+            }
+            ClassFileHeader.scan(corrupt)?.let { infoOf(it) }
+        }
+    }
+})
+
+private fun checkSameAsReflection(clazz: Class<*>) {
+    val header = ClassFileHeader.scan(classFileOf(clazz)).shouldNotBeNull()
+
+    header.isInterface shouldBe clazz.isInterface
+    // the super class of interface in the class file is java.lang.Object
+    val superClass = if (clazz.isInterface) Any::class.java else clazz.superclass
+    header.superClassName shouldBe superClass?.name
+    header.isSuperClassAbsentOrUnderJavaLang shouldBe
+            (superClass == null || superClass.name.substringBeforeLast('.') == "java.lang")
+
+    clazz.declaredMethods.forEach {
+        header.declaresMethod(it.name, Type.getMethodDescriptor(it)).shouldBeTrue()
+        header.declaresMethod(it.name, "(Lcom/example/NotDeclared;)V").shouldBeFalse()
+    }
+    clazz.declaredConstructors.forEach {
+        header.declaresMethod("<init>", Type.getConstructorDescriptor(it)).shouldBeTrue()
+    }
+    header.declaresMethod("notDeclared", "()V").shouldBeFalse()
+}
+
+private fun infoOf(header: ClassFileHeader): List<Any?> = listOf(
+    header.isInterface,
+    header.superClassName,
+    header.isSuperClassAbsentOrUnderJavaLang,
+    header.declaresMethod("run", "()V"),
+    header.declaresMethod("运行", "(Ljava/lang/String;)V"),
+    header.declaresMethod("平均值", "([D)D"),
+)
+
+private fun classFileOf(clazz: Class<*>): ByteArray =
+    clazz.getResourceAsStream("/${clazz.name.replace('.', '/')}.class")!!.use { it.readBytes() }
+
+private fun constantPoolTagsOf(classFile: ByteArray): Set<Int> {
+    val reader = ClassReader(classFile)
+    // the offset of the second entry taken by Long/Double is 0
+    return (1 until reader.itemCount).map { reader.getItem(it) }.filter { it != 0 }
+        .map { classFile[it - 1].toInt() }.toSet()
+}
@@ -0,0 +1,138 @@
+package com.alibaba.ttl3.agent.transformlet.helper
+
+import com.alibaba.ttl3.agent.TtlAgentStatus
+import com.alibaba.ttl3.agent.logging.Logger
+import com.alibaba.ttl3.agent.transformlet.ClassInfo
+import com.alibaba.ttl3.agent.transformlet.TtlTransformlet
+import com.alibaba.ttl3.agent.transformlet.internal.AsmWovenTimerTask
+import com.alibaba.ttl3.agent.transformlet.internal.JdkExecutorTtlTransformlet
+import com.alibaba.ttl3.agent.transformlet.internal.TimerTaskTtlTransformlet
+import com.alibaba.ttl3.agent.transformlet.internal.UnwrappingThreadPoolExecutor
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.booleans.shouldBeTrue
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import java.net.URL
+import java.util.concurrent.CyclicBarrier
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+/**
+ * Run without TTL agent only, the transformed classes are not defined, the test classes are transformed by TTL agent otherwise.
+ */
+class ClassPoolCacheTest : FunSpec({
+    Logger.setLoggerImplTypeIfNotSetYet(Logger.STDOUT)
+    val noTtlAgent = !TtlAgentStatus.getInstance().isTtlAgentLoaded
+    val loader = ClassPoolCacheTest::class.java.classLoader
+
+    fun transform(transformlet: TtlTransformlet, className: String, classPoolCache: ClassPoolCache?): ByteArray {
+        val classFile = className.replace('.', '/')
+        val bytes = loader.getResourceAsStream("$classFile.class")!!.use { it.readBytes() }
+        val classInfo = ClassInfo(classFile, bytes, loader, classPoolCache)
+        try {
+            transformlet.doTransform(classInfo)
+            classInfo.isModified.shouldBeTrue()
+            return classInfo.toBytecode()
+        } finally {
+            classInfo.detachCtClass()
+        }
+    }
+
+    test("concurrent transforms of the same class loader share the class pool safely").config(enabled = noTtlAgent) {
+        val transforms = listOf(
+            JdkExecutorTtlTransformlet() to UnwrappingThreadPoolExecutor::class.java.name,
+            TimerTaskTtlTransformlet() to AsmWovenTimerTask::class.java.name,
+        )
+        val expected = transforms.map { (transformlet, className) -> transform(transformlet, className, null) }
+
+        // the tiny bound evicts the entries on almost every transform
+        val classPoolCache = ClassPoolCache(2)
+        val threadCount = 8
+        val barrier = CyclicBarrier(threadCount)
+        val executor = Executors.newFixedThreadPool(threadCount)
+        try {
+            val futures = (0 until threadCount).map { t ->
+                executor.submit<List<ByteArray>> {
+                    barrier.await()
+                    (0 until 50).map { i ->
+                        val (transformlet, className) = transforms[(t + i) % transforms.size]
+                        transform(transformlet, className, classPoolCache)
+                    }
+                }
+            }
+            futures.forEachIndexed { t, future ->
+                future.get(1, TimeUnit.MINUTES).forEachIndexed { i, bytecode ->
+                    bytecode.contentEquals(expected[(t + i) % transforms.size]).shouldBeTrue()
+                }
+            }
+        } finally {
+            executor.shutdown()
+        }
+    }
+
+    test("eviction does not detach the class in use").config(enabled = noTtlAgent) {
+        val classPoolCache = ClassPoolCache(1)
+        val className = UnwrappingThreadPoolExecutor::class.java.name
+        val classFile = className.replace('.', '/')
+        val bytes = loader.getResourceAsStream("$classFile.class")!!.use { it.readBytes() }
+        val classInfo = ClassInfo(classFile, bytes, loader, classPoolCache)
+
+        val clazz = classInfo.getCtClass()
+        val classPool = clazz.classPool
+        // exceed the bound while the transforming class is in use, including by a nested transform
+        clazz.subclassOf(classPool.get("java.util.concurrent.ThreadPoolExecutor")).shouldBeTrue()
+        transform(TimerTaskTtlTransformlet(), AsmWovenTimerTask::class.java.name, classPoolCache)
+        classPool.get(className) shouldBeSameInstanceAs clazz
+
+        classInfo.detachCtClass()
+        val other = classPoolCache.acquireClassPool(loader)
+        try {
+            other shouldBeSameInstanceAs classPool
+            (classPool.getOrNull(className) === clazz) shouldBe false
+        } finally {
+            ClassPoolCache.releaseClassPool(other)
+        }
+    }
+
+    test("the contended class pool is not waited for, a non-shared class pool is used").config(enabled = noTtlAgent) {
+        val classPoolCache = ClassPoolCache()
+        val shared = classPoolCache.acquireClassPool(loader)
+        try {
+            // reentrant in the same thread
+            val reentered = classPoolCache.acquireClassPool(loader)
+            reentered shouldBeSameInstanceAs shared
+            ClassPoolCache.releaseClassPool(reentered)
+
+            val executor = Executors.newSingleThreadExecutor()
+            try {
+                executor.submit<Unit> {
+                    val other = classPoolCache.acquireClassPool(loader)
+                    try {
+                        (other === shared) shouldBe false
+                        other.get(ClassPoolCacheTest::class.java.name).name shouldBe ClassPoolCacheTest::class.java.name
+                    } finally {
+                        ClassPoolCache.releaseClassPool(other)
+                    }
+                }.get(1, TimeUnit.MINUTES)
+            } finally {
+                executor.shutdown()
+            }
+        } finally {
+            ClassPoolCache.releaseClassPool(shared)
+        }
+    }
+
+    test("the shared class pool finds the classes by the class loader, then by the system class loader").config(enabled = noTtlAgent) {
+        // find no class file itself
+        val emptyLoader = object : ClassLoader(null) {
+            override fun getResource(name: String?): URL? = null
+        }
+        val classPool = ClassPoolCache().acquireClassPool(emptyLoader)
+        try {
+            classPool.get(ClassPoolCacheTest::class.java.name).name shouldBe ClassPoolCacheTest::class.java.name
+            classPool.get("java.lang.Object").name shouldBe "java.lang.Object"
+        } finally {
+            ClassPoolCache.releaseClassPool(classPool)
+        }
+    }
+})
@@ -0,0 +1,43 @@
+package com.alibaba.ttl3.agent.transformlet.helper
+
+import com.alibaba.ttl3.agent.TtlAgentStatus
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.booleans.shouldBeTrue
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import io.kotest.matchers.types.shouldNotBeSameInstanceAs
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.ThreadPoolExecutor
+
+/**
+ * Run without TTL agent only, the executor tasks are auto wrapped twice by TTL agent otherwise.
+ */
+class TtlTransformletHelperTest : FunSpec({
+    val noTtlAgent = !TtlAgentStatus.getInstance().isTtlAgentLoaded
+
+    test("findQueuedAutoWrapper finds the queued auto wrapper of the task").config(enabled = noTtlAgent) {
+        val executor = Executors.newFixedThreadPool(1) as ThreadPoolExecutor
+        try {
+            val latch = CountDownLatch(1)
+            executor.execute { latch.await() }
+
+            val task = Runnable { }
+            val autoWrapper = TtlTransformletHelper.doAutoWrap(task, executor)!!
+            autoWrapper shouldNotBeSameInstanceAs task
+            executor.execute(autoWrapper)
+
+            TtlTransformletHelper.findQueuedAutoWrapper(task, executor) shouldBeSameInstanceAs autoWrapper
+            TtlTransformletHelper.findQueuedAutoWrapper(autoWrapper, executor) shouldBeSameInstanceAs autoWrapper
+            executor.remove(TtlTransformletHelper.findQueuedAutoWrapper(task, executor)).shouldBeTrue()
+
+            // not queued
+            TtlTransformletHelper.findQueuedAutoWrapper(task, executor) shouldBeSameInstanceAs task
+            TtlTransformletHelper.findQueuedAutoWrapper(null, executor).shouldBeNull()
+
+            latch.countDown()
+        } finally {
+            executor.shutdown()
+        }
+    }
+})
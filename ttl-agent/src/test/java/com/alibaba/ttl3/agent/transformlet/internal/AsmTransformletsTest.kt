@@ -0,0 +1,161 @@
+package com.alibaba.ttl3.agent.transformlet.internal
+
+import com.alibaba.ttl3.TransmittableThreadLocal
+import com.alibaba.ttl3.TtlRunnable
+import com.alibaba.ttl3.agent.TtlAgentStatus
+import com.alibaba.ttl3.agent.logging.Logger
+import com.alibaba.ttl3.agent.transformlet.ClassInfo
+import com.alibaba.ttl3.agent.transformlet.TtlTransformlet
+import com.alibaba.ttl3.agent.transformlet.helper.TtlTransformletHelper
+import com.alibaba.ttl3.transmitter.Transmittee
+import com.alibaba.ttl3.transmitter.TransmitteeRegistry
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.booleans.shouldBeTrue
+import io.kotest.matchers.collections.shouldContainExactly
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import java.util.*
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.FutureTask
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.concurrent.thread
+
+/**
+ * Transform the class file bytes by the `ASM` transformlets, and check the transformed classes
+ * pass the bytecode verification and behave as the `Javassist` transformlets.
+ *
+ * Run without TTL agent only, otherwise the classes defined by the test class loader are transformed again by TTL agent.
+ */
+class AsmTransformletsTest : FunSpec({
+    Logger.setLoggerImplTypeIfNotSetYet(Logger.STDOUT)
+    val noTtlAgent = !TtlAgentStatus.getInstance().isTtlAgentLoaded
+    val ttl = TransmittableThreadLocal<String>()
+
+    afterTest {
+        ttl.remove()
+    }
+
+    test("weave capture/replay/restore into the run method of TimerTask subclass").config(enabled = noTtlAgent) {
+        val loader = TransformingClassLoader(AsmTimerTaskTtlTransformlet(), AsmWovenTimerTask::class.java.name)
+        val taskClass = loader.loadClass(AsmWovenTimerTask::class.java.name)
+        taskClass.classLoader shouldBeSameInstanceAs loader
+
+        val observed = Collections.synchronizedList(ArrayList<String>())
+        ttl.set("parent")
+        val tasks = listOf(AsmWovenTimerTask.MODE_CATCH, AsmWovenTimerTask.MODE_RETURN, AsmWovenTimerTask.MODE_THROW).map {
+            taskClass.getConstructor(TransmittableThreadLocal::class.java, Int::class.java, List::class.java)
+                .newInstance(ttl, it, observed) as TimerTask
+        }
+        // the constructor delegating to this() captures once, by the delegated constructor
+        val delegating = taskClass.getConstructor(TransmittableThreadLocal::class.java, List::class.java)
+            .newInstance(ttl, observed) as TimerTask
+        ttl.set("changed after capture")
+
+        val worker = FutureTask {
+            ttl.set("worker")
+
+            tasks[0].run()
+            ttl.get() shouldBe "worker"
+            tasks[1].run()
+            ttl.get() shouldBe "worker"
+            shouldThrow<IllegalStateException> { tasks[2].run() }
+            ttl.get() shouldBe "worker"
+            delegating.run()
+            ttl.get() shouldBe "worker"
+        }
+        thread { worker.run() }.join()
+        worker.get()
+
+        observed.shouldContainExactly(
+            "parent 10 2.5", "caught",
+            "parent 10 2.5",
+            "parent 10 2.5",
+            "parent 10 2.5", "caught",
+        )
+    }
+
+    test("the exception thrown by the restore before each return is not caught by the woven catch-all handler").config(enabled = noTtlAgent) {
+        val loader = TransformingClassLoader(AsmTimerTaskTtlTransformlet(), AsmWovenTimerTask::class.java.name)
+        val taskClass = loader.loadClass(AsmWovenTimerTask::class.java.name)
+
+        val restoreCount = AtomicInteger()
+        val transmittee = object : Transmittee<String, String> {
+            override fun capture(): String = "captured"
+            override fun replay(captured: String): String = "backup"
+            override fun clear(): String = "backup"
+            override fun restore(backup: String) {
+                restoreCount.incrementAndGet()
+                throw RestoreError()
+            }
+        }
+        TransmitteeRegistry.registerTransmittee(transmittee).shouldBeTrue()
+        try {
+            val observed = Collections.synchronizedList(ArrayList<String>())
+            // the early return, the return at the end, and the thrown exception
+            val tasks = listOf(AsmWovenTimerTask.MODE_RETURN, AsmWovenTimerTask.MODE_CATCH, AsmWovenTimerTask.MODE_THROW).map {
+                taskClass.getConstructor(TransmittableThreadLocal::class.java, Int::class.java, List::class.java)
+                    .newInstance(ttl, it, observed) as TimerTask
+            }
+
+            val worker = FutureTask {
+                tasks.map {
+                    restoreCount.set(0)
+                    shouldThrow<RestoreError> { it.run() }
+                    restoreCount.get()
+                }
+            }
+            thread { worker.run() }.join()
+            worker.get() shouldBe listOf(1, 1, 1)
+        } finally {
+            TransmitteeRegistry.unregisterTransmittee(transmittee)
+        }
+    }
+
+    test("unwrap the auto wrapper in beforeExecute/afterExecute of ThreadPoolExecutor subclass").config(enabled = noTtlAgent) {
+        val loader = TransformingClassLoader(AsmJdkExecutorTtlTransformlet(), UnwrappingThreadPoolExecutor::class.java.name)
+        val seenTasks = Collections.synchronizedList(ArrayList<Runnable>())
+        val executor = loader.loadClass(UnwrappingThreadPoolExecutor::class.java.name)
+            .getConstructor(List::class.java).newInstance(seenTasks) as ExecutorService
+
+        val task = Runnable { }
+        val explicitlyWrapped = TtlRunnable.get { }!!
+        executor.execute(TtlTransformletHelper.doAutoWrap(task))
+        executor.execute(explicitlyWrapped)
+        executor.shutdown()
+        executor.awaitTermination(1, TimeUnit.SECONDS).shouldBeTrue()
+
+        seenTasks.shouldContainExactly(task, task, explicitlyWrapped, explicitlyWrapped)
+    }
+})
+
+/**
+ * The fatal error propagated by the restore of transmittee, the non-fatal exceptions are just logged.
+ */
+private class RestoreError : LinkageError("thrown by restore")
+
+/**
+ * Define the given classes from the class file bytes transformed by the transformlet, delegate the other classes to parent.
+ */
+private class TransformingClassLoader(
+    private val transformlet: TtlTransformlet,
+    private vararg val classNames: String
+) : ClassLoader(AsmTransformletsTest::class.java.classLoader) {
+    override fun loadClass(name: String, resolve: Boolean): Class<*> {
+        if (name !in classNames) return super.loadClass(name, resolve)
+
+        synchronized(getClassLoadingLock(name)) {
+            findLoadedClass(name)?.let { return it }
+
+            val classFile = name.replace('.', '/')
+            val bytes = parent.getResourceAsStream("$classFile.class")!!.use { it.readBytes() }
+            val classInfo = ClassInfo(classFile, bytes, this)
+            transformlet.doTransform(classInfo)
+            classInfo.isModified.shouldBeTrue()
+
+            val bytecode = classInfo.toBytecode()
+            return defineClass(name, bytecode, 0, bytecode.size)
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.alibaba.ttl3.agent.transformlet.internal;
+
+import com.alibaba.ttl3.TransmittableThreadLocal;
+
+import java.util.List;
+import java.util.TimerTask;
+
+/**
+ * The {@link TimerTask} woven by {@link AsmTimerTaskTtlTransformlet} in {@link AsmTransformletsTest},
+ * the {@link #run()} method covers the control flows of the stack map frames maintained by the weaving:
+ * the loop with {@code long/double} locals, the inner try-catch, the early return and the thrown exception.
+ */
+public class AsmWovenTimerTask extends TimerTask {
+    public static final int MODE_CATCH = 0;
+    public static final int MODE_RETURN = 1;
+    public static final int MODE_THROW = 2;
+
+    private final TransmittableThreadLocal<String> ttl;
+    private final int mode;
+    private final List<String> observed;
+
+    public AsmWovenTimerTask(TransmittableThreadLocal<String> ttl, int mode, List<String> observed) {
+        this.ttl = ttl;
+        this.mode = mode;
+        this.observed = observed;
+    }
+
+    public AsmWovenTimerTask(TransmittableThreadLocal<String> ttl, List<String> observed) {
+        this(ttl, MODE_CATCH, observed);
+    }
+
+    @Override
+    public void run() {
+        long sum = 0;
+        double average = 0;
+        for (int i = 1; i <= 4; i++) {
+            sum += i;
+            average = sum / (double) i;
+        }
+        observed.add(ttl.get() + " " + sum + " " + average);
+
+        try {
+            if (mode == MODE_RETURN) return;
+            if (mode == MODE_THROW) throw new IllegalStateException("thrown by task");
+            Integer.parseInt("not a number");
+        } catch (NumberFormatException e) {
+            observed.add("caught");
+        }
+        ttl.set("set by task");
+    }
+}
@@ -0,0 +1,29 @@
+package com.alibaba.ttl3.agent.transformlet.internal;
+
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link ThreadPoolExecutor} subclass transformed by {@link AsmJdkExecutorTtlTransformlet} in {@link AsmTransformletsTest},
+ * record the tasks seen by {@link #beforeExecute(Thread, Runnable)} and {@link #afterExecute(Runnable, Throwable)}.
+ */
+public class UnwrappingThreadPoolExecutor extends ThreadPoolExecutor {
+    private final List<Runnable> seenTasks;
+
+    public UnwrappingThreadPoolExecutor(List<Runnable> seenTasks) {
+        super(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        this.seenTasks = seenTasks;
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        seenTasks.add(r);
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        seenTasks.add(r);
+    }
+}
@@ -0,0 +1,31 @@
+package com.alibaba.ttl3.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * The entry of the executable benchmark jar, run the JMH benchmarks with the GC profiler
+ * to report the allocation rate({@code gc.alloc.rate.norm}) of each benchmark.
+ * <p>
+ * Accepts the same command line options as {@code org.openjdk.jmh.Main}, e.g.
+ * <pre>{@code
+ * java -jar ttl-benchmarks/target/benchmarks.jar TransmitterBenchmark -p ttlCount=1,10
+ * }</pre>
+ */
+public final class BenchmarkMain {
+    public static void main(String[] args) throws Exception {
+        final CommandLineOptions cmdOptions = new CommandLineOptions(args);
+        final Options options = new OptionsBuilder()
+                .parent(cmdOptions)
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+
+    private BenchmarkMain() {
+        throw new InstantiationError("Must not instantiate this class");
+    }
+}
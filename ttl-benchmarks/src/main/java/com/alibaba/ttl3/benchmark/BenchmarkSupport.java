@@ -0,0 +1,78 @@
+package com.alibaba.ttl3.benchmark;
+
+import com.alibaba.ttl3.TransmittableThreadLocal;
+import com.alibaba.ttl3.transmitter.Transmittee;
+import com.alibaba.ttl3.transmitter.TransmitteeRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Util methods to set up the states of benchmarks.
+ */
+final class BenchmarkSupport {
+    /**
+     * Creates {@link TransmittableThreadLocal} instances, and sets value to them in the current thread.
+     */
+    static List<TransmittableThreadLocal<String>> newTtlsWithValue(int count) {
+        final List<TransmittableThreadLocal<String>> ttls = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final TransmittableThreadLocal<String> ttl = new TransmittableThreadLocal<>();
+            ttl.set("value-" + i);
+            ttls.add(ttl);
+        }
+        return ttls;
+    }
+
+    static void removeTtls(List<TransmittableThreadLocal<String>> ttls) {
+        for (TransmittableThreadLocal<String> ttl : ttls) {
+            ttl.remove();
+        }
+    }
+
+    /**
+     * Registers the no-op transmittees, besides the transmittees registered by TTL self.
+     */
+    static List<Transmittee<Object, Object>> registerNoopTransmittees(int count) {
+        final List<Transmittee<Object, Object>> transmittees = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final NoopTransmittee transmittee = new NoopTransmittee();
+            TransmitteeRegistry.registerTransmittee(transmittee);
+            transmittees.add(transmittee);
+        }
+        return transmittees;
+    }
+
+    static void unregisterTransmittees(List<Transmittee<Object, Object>> transmittees) {
+        for (Transmittee<Object, Object> transmittee : transmittees) {
+            TransmitteeRegistry.unregisterTransmittee(transmittee);
+        }
+    }
+
+    private static final class NoopTransmittee implements Transmittee<Object, Object> {
+        private static final Object VALUE = new Object();
+
+        @Override
+        public Object capture() {
+            return VALUE;
+        }
+
+        @Override
+        public Object replay(Object captured) {
+            return VALUE;
+        }
+
+        @Override
+        public Object clear() {
+            return VALUE;
+        }
+
+        @Override
+        public void restore(Object backup) {
+        }
+    }
+
+    private BenchmarkSupport() {
+        throw new InstantiationError("Must not instantiate this class");
+    }
+}
@@ -0,0 +1,85 @@
+package com.alibaba.ttl3.benchmark;
+
+import com.alibaba.crr.composite.Backup;
+import com.alibaba.crr.composite.Capture;
+import com.alibaba.ttl3.transmitter.ThreadLocalTransmitRegistry;
+import com.alibaba.ttl3.transmitter.Transmitter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the transmittance of {@link ThreadLocal}s registered by {@link ThreadLocalTransmitRegistry},
+ * with the count of registered {@link ThreadLocal}s.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ThreadLocalTransmitRegistryBenchmark {
+    @Param({"1", "10", "100"})
+    public int threadLocalCount;
+
+    private final List<ThreadLocal<String>> threadLocals = new ArrayList<>();
+
+    private Capture captured;
+    private Backup clearBackup;
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < threadLocalCount; i++) {
+            final ThreadLocal<String> threadLocal = new ThreadLocal<>();
+            threadLocal.set("value-" + i);
+            ThreadLocalTransmitRegistry.registerThreadLocal(threadLocal, v -> v);
+            threadLocals.add(threadLocal);
+        }
+
+        captured = Transmitter.capture();
+        clearBackup = Transmitter.clear();
+    }
+
+    @TearDown
+    public void tearDown() {
+        Transmitter.restore(clearBackup);
+        for (ThreadLocal<String> threadLocal : threadLocals) {
+            ThreadLocalTransmitRegistry.unregisterThreadLocal(threadLocal);
+            threadLocal.remove();
+        }
+    }
+
+    @Benchmark
+    public Capture capture(CapturingState state) {
+        return Transmitter.capture();
+    }
+
+    /**
+     * replay the captured in the cleared thread(like the worker thread of thread pool), then restore.
+     */
+    @Benchmark
+    public void replayRestore() {
+        final Backup backup = Transmitter.replay(captured);
+        Transmitter.restore(backup);
+    }
+
+    /**
+     * The state that restores the {@link ThreadLocal} values to the thread during the benchmark.
+     */
+    @State(Scope.Thread)
+    public static class CapturingState {
+        private Backup backup;
+
+        @Setup
+        public void setup(ThreadLocalTransmitRegistryBenchmark benchmark) {
+            backup = Transmitter.replay(benchmark.captured);
+        }
+
+        @TearDown
+        public void tearDown() {
+            Transmitter.restore(backup);
+        }
+    }
+}
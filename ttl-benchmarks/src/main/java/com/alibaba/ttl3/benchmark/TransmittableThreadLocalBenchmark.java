@@ -0,0 +1,64 @@
+package com.alibaba.ttl3.benchmark;
+
+import com.alibaba.ttl3.TransmittableThreadLocal;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.alibaba.ttl3.benchmark.BenchmarkSupport.newTtlsWithValue;
+import static com.alibaba.ttl3.benchmark.BenchmarkSupport.removeTtls;
+
+/**
+ * Benchmark of {@link TransmittableThreadLocal#get()}/{@link TransmittableThreadLocal#set(Object)},
+ * with the count of live TTL instances in the thread.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TransmittableThreadLocalBenchmark {
+    @Param({"1", "10", "100"})
+    public int ttlCount;
+
+    private List<TransmittableThreadLocal<String>> ttls;
+    private TransmittableThreadLocal<String> ttl;
+
+    @Setup
+    public void setup() {
+        ttls = newTtlsWithValue(ttlCount);
+        ttl = ttls.get(ttlCount / 2);
+    }
+
+    @TearDown
+    public void tearDown() {
+        removeTtls(ttls);
+    }
+
+    @Benchmark
+    public String get() {
+        return ttl.get();
+    }
+
+    @Benchmark
+    public void set() {
+        ttl.set("value");
+    }
+
+    @Benchmark
+    public String baseline_ThreadLocal_get(ThreadLocalState state) {
+        return state.threadLocal.get();
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadLocalState {
+        final ThreadLocal<String> threadLocal = new ThreadLocal<>();
+
+        @Setup
+        public void setup() {
+            threadLocal.set("value");
+        }
+    }
+}
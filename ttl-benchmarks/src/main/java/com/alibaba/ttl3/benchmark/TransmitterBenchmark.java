@@ -0,0 +1,120 @@
+package com.alibaba.ttl3.benchmark;
+
+import com.alibaba.crr.composite.Backup;
+import com.alibaba.crr.composite.Capture;
+import com.alibaba.ttl3.TransmittableThreadLocal;
+import com.alibaba.ttl3.transmitter.Transmittee;
+import com.alibaba.ttl3.transmitter.Transmitter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.alibaba.ttl3.benchmark.BenchmarkSupport.*;
+
+/**
+ * Benchmark of {@link Transmitter#capture()}/{@link Transmitter#replay(Capture)}/{@link Transmitter#restore(Backup)},
+ * with the count of live TTL instances and the count of registered transmittees.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TransmitterBenchmark {
+    @Param({"1", "10", "100"})
+    public int ttlCount;
+
+    @Param({"0", "4"})
+    public int transmitteeCount;
+
+    private List<TransmittableThreadLocal<String>> ttls;
+    private List<Transmittee<Object, Object>> transmittees;
+
+    /**
+     * the captured of the TTL values, replayed in the thread cleared(like the worker thread of thread pool).
+     */
+    private Capture captured;
+    private Backup clearBackup;
+
+    @Setup
+    public void setup() {
+        transmittees = registerNoopTransmittees(transmitteeCount);
+        ttls = newTtlsWithValue(ttlCount);
+
+        captured = Transmitter.capture();
+        clearBackup = Transmitter.clear();
+    }
+
+    @TearDown
+    public void tearDown() {
+        Transmitter.restore(clearBackup);
+        removeTtls(ttls);
+        unregisterTransmittees(transmittees);
+    }
+
+    /**
+     * replay the captured in the cleared thread, then restore.
+     */
+    @Benchmark
+    public void replayRestore() {
+        final Backup backup = Transmitter.replay(captured);
+        Transmitter.restore(backup);
+    }
+
+    @Benchmark
+    public Backup clearRestore() {
+        final Backup backup = Transmitter.clear();
+        Transmitter.restore(backup);
+        return backup;
+    }
+
+    /**
+     * capture in the thread holding the TTL values, TTL values are unchanged between captures.
+     */
+    @Benchmark
+    public Capture capture(CapturingState state) {
+        return Transmitter.capture();
+    }
+
+    /**
+     * capture in the thread holding the TTL values, a TTL value is changed before every capture.
+     */
+    @Benchmark
+    public Capture setThenCapture(CapturingState state) {
+        state.ttl.set("value");
+        return Transmitter.capture();
+    }
+
+    /**
+     * replay the captured in the thread already holding the captured TTL values, then restore.
+     */
+    @Benchmark
+    public void replayRestore_sameContext(CapturingState state) {
+        final Backup backup = Transmitter.replay(state.captured);
+        Transmitter.restore(backup);
+    }
+
+    /**
+     * The state that restores the TTL values to the thread during the benchmark.
+     */
+    @State(Scope.Thread)
+    public static class CapturingState {
+        TransmittableThreadLocal<String> ttl;
+        Capture captured;
+        private Backup backup;
+
+        @Setup
+        public void setup(TransmitterBenchmark benchmark) {
+            backup = Transmitter.replay(benchmark.captured);
+            ttl = benchmark.ttls.get(0);
+            captured = Transmitter.capture();
+        }
+
+        @TearDown
+        public void tearDown() {
+            Transmitter.restore(backup);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.alibaba.ttl3.benchmark;
+
+import com.alibaba.ttl3.TransmittableThreadLocal;
+import com.alibaba.ttl3.executor.TtlExecutors;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.alibaba.ttl3.benchmark.BenchmarkSupport.newTtlsWithValue;
+import static com.alibaba.ttl3.benchmark.BenchmarkSupport.removeTtls;
+
+/**
+ * Benchmark of the task submission to the executor wrapped by {@link TtlExecutors},
+ * with the count of live TTL instances.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TtlExecutorsBenchmark {
+    @Param({"1", "10", "100"})
+    public int ttlCount;
+
+    private List<TransmittableThreadLocal<String>> ttls;
+    private TransmittableThreadLocal<String> ttl;
+
+    private ExecutorService executorService;
+    private ExecutorService ttlExecutorService;
+
+    @Setup
+    public void setup() {
+        ttls = newTtlsWithValue(ttlCount);
+        ttl = ttls.get(0);
+
+        executorService = Executors.newSingleThreadExecutor();
+        ttlExecutorService = TtlExecutors.getTtlExecutorService(executorService);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        executorService.shutdown();
+        executorService.awaitTermination(1, TimeUnit.MINUTES);
+        removeTtls(ttls);
+    }
+
+    @Benchmark
+    public String submit() throws Exception {
+        return ttlExecutorService.submit(ttl::get).get();
+    }
+
+    /**
+     * baseline: the submission to the unwrapped executor.
+     */
+    @Benchmark
+    public String baseline_submit() throws Exception {
+        return executorService.submit(() -> "value").get();
+    }
+}
@@ -0,0 +1,100 @@
+package com.alibaba.ttl3.benchmark;
+
+import com.alibaba.crr.composite.Backup;
+import com.alibaba.ttl3.TransmittableThreadLocal;
+import com.alibaba.ttl3.TtlRunnable;
+import com.alibaba.ttl3.transmitter.Transmittee;
+import com.alibaba.ttl3.transmitter.Transmitter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.alibaba.ttl3.benchmark.BenchmarkSupport.*;
+
+/**
+ * Benchmark of {@link TtlRunnable#get(Runnable)} and {@link TtlRunnable#run()},
+ * with the count of live TTL instances and the count of registered transmittees.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TtlRunnableBenchmark {
+    @Param({"1", "10", "100"})
+    public int ttlCount;
+
+    @Param({"0", "4"})
+    public int transmitteeCount;
+
+    private List<TransmittableThreadLocal<String>> ttls;
+    private List<Transmittee<Object, Object>> transmittees;
+
+    private final Runnable task = () -> {
+    };
+
+    @Setup
+    public void setup() {
+        transmittees = registerNoopTransmittees(transmitteeCount);
+        ttls = newTtlsWithValue(ttlCount);
+    }
+
+    @TearDown
+    public void tearDown() {
+        removeTtls(ttls);
+        unregisterTransmittees(transmittees);
+    }
+
+    /**
+     * wrap the task in the thread holding the TTL values.
+     */
+    @Benchmark
+    public TtlRunnable get() {
+        return TtlRunnable.get(task);
+    }
+
+    /**
+     * wrap the task and run it in the same thread.
+     */
+    @Benchmark
+    public void getAndRun() {
+        TtlRunnable.get(task).run();
+    }
+
+    /**
+     * run the wrapped task in the cleared thread(like the worker thread of thread pool).
+     */
+    @Benchmark
+    public void run(WorkerState state) {
+        state.ttlRunnable.run();
+    }
+
+    /**
+     * baseline: the unwrapped task.
+     */
+    @Benchmark
+    public void baseline_run(Blackhole bh) {
+        task.run();
+        bh.consume(task);
+    }
+
+    @State(Scope.Thread)
+    public static class WorkerState {
+        TtlRunnable ttlRunnable;
+        private Backup clearBackup;
+
+        @Setup
+        public void setup(TtlRunnableBenchmark benchmark) {
+            ttlRunnable = TtlRunnable.get(benchmark.task);
+            clearBackup = Transmitter.clear();
+        }
+
+        @TearDown
+        public void tearDown() {
+            Transmitter.restore(clearBackup);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.alibaba.crr;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+/**
+ * The metrics recorder of {@link Transmittable} process,
+ * records the duration and the failure of every {@code CRR} operation of every {@link Transmittable}.
+ * <p>
+ * <B><I>NOTE:</I></B><br>
+ * The metrics is opt-in, no timing is done if no metrics recorder is set.
+ * The implementation is called in the critical path of every transmittance,
+ * so should be cheap and thread-safe, and should NOT throw any exception.
+ *
+ * @see Transmittable
+ * @see com.alibaba.crr.composite.CompositeTransmittable#setMetrics(TransmitMetrics)
+ */
+@FunctionalInterface
+public interface TransmitMetrics {
+    /**
+     * Records the {@code CRR} operation of the {@link Transmittable}.
+     *
+     * @param transmittable the transmittable of the operation
+     * @param operation     the {@code CRR} operation
+     * @param durationNanos the duration of the operation in nanoseconds
+     * @param failed        whether the operation threw exception
+     */
+    void record(@NonNull Transmittable<?, ?> transmittable, @NonNull Operation operation, long durationNanos, boolean failed);
+
+    /**
+     * Called after the {@link Transmittable} is unregistered, so the metrics of the transmittable can be released.
+     * Do nothing by default.
+     *
+     * @param transmittable the unregistered transmittable
+     * @see com.alibaba.crr.composite.CompositeTransmittable#unregisterTransmittable(Transmittable)
+     */
+    default void unregistered(@NonNull Transmittable<?, ?> transmittable) {
+    }
+
+    /**
+     * The {@code CRR} operation of {@link Transmittable}.
+     */
+    enum Operation {
+        /**
+         * @see Transmittable#capture()
+         */
+        CAPTURE,
+        /**
+         * @see Transmittable#replay(Object)
+         */
+        REPLAY,
+        /**
+         * @see Transmittable#clear()
+         */
+        CLEAR,
+        /**
+         * @see Transmittable#restore(Object)
+         */
+        RESTORE
+    }
+}
@@ -3,13 +3,13 @@ package com.alibaba.crr.composite;
 import com.alibaba.crr.TransmitCallback;
 import edu.umd.cs.findbugs.annotations.NonNull;
 
-import java.util.HashSet;
-import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.Arrays;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import static com.alibaba.ttl3.internal.util.Utils.indexOf;
 import static com.alibaba.ttl3.internal.util.Utils.propagateIfFatal;
+import static com.alibaba.ttl3.internal.util.Utils.removeAt;
 
 /**
  * Composite TransmitCallback.
@@ -20,10 +20,16 @@ import static com.alibaba.ttl3.internal.util.Utils.propagateIfFatal;
 public final class CompositeTransmitCallback {
     private static final Logger logger = Logger.getLogger(CompositeTransmitCallback.class.getName());
 
-    private final Set<TransmitCallback> registeredTransmitCallbackSet = new CopyOnWriteArraySet<>();
+    private static final TransmitCallback[] EMPTY_CALLBACKS = new TransmitCallback[0];
+
+    // The registered callbacks, an immutable array republished on register/unregister(copy-on-write).
+    // The array read by beforeReplay is passed along as the data of the following callback methods,
+    // so the callbacks of one transmittance are consistent without any copy.
+    private volatile TransmitCallback[] registeredTransmitCallbacks = EMPTY_CALLBACKS;
+    private final Object registerLock = new Object();
 
     Object beforeReplay() {
-        Set<TransmitCallback> callbacks = new HashSet<>(registeredTransmitCallbackSet);
+        final TransmitCallback[] callbacks = registeredTransmitCallbacks;
         for (TransmitCallback cb : callbacks) {
             try {
                 cb.beforeReplay();
@@ -39,8 +45,7 @@ public final class CompositeTransmitCallback {
     }
 
     Object afterReplay(Object data) {
-        @SuppressWarnings("unchecked")
-        Set<TransmitCallback> callbacks = (Set<TransmitCallback>) data;
+        final TransmitCallback[] callbacks = (TransmitCallback[]) data;
         for (TransmitCallback cb : callbacks) {
             try {
                 cb.afterReplay();
@@ -56,8 +61,7 @@ public final class CompositeTransmitCallback {
     }
 
     Object beforeRestore(Object data) {
-        @SuppressWarnings("unchecked")
-        Set<TransmitCallback> callbacks = (Set<TransmitCallback>) data;
+        final TransmitCallback[] callbacks = (TransmitCallback[]) data;
         for (TransmitCallback cb : callbacks) {
             try {
                 cb.beforeRestore();
@@ -73,8 +77,7 @@ public final class CompositeTransmitCallback {
     }
 
     void afterRestore(Object data) {
-        @SuppressWarnings("unchecked")
-        Set<TransmitCallback> callbacks = (Set<TransmitCallback>) data;
+        final TransmitCallback[] callbacks = (TransmitCallback[]) data;
         for (TransmitCallback cb : callbacks) {
             try {
                 cb.afterRestore();
@@ -96,7 +99,15 @@ public final class CompositeTransmitCallback {
      * @see #unregisterCallback(TransmitCallback)
      */
     public boolean registerCallback(@NonNull TransmitCallback callback) {
-        return registeredTransmitCallbackSet.add(callback);
+        synchronized (registerLock) {
+            final TransmitCallback[] callbacks = registeredTransmitCallbacks;
+            if (indexOf(callbacks, callback) >= 0) return false;
+
+            final TransmitCallback[] newCallbacks = Arrays.copyOf(callbacks, callbacks.length + 1);
+            newCallbacks[callbacks.length] = callback;
+            registeredTransmitCallbacks = newCallbacks;
+            return true;
+        }
     }
 
     /**
@@ -106,6 +117,13 @@ public final class CompositeTransmitCallback {
      * @see #registerCallback(TransmitCallback)
      */
     public boolean unregisterCallback(@NonNull TransmitCallback callback) {
-        return registeredTransmitCallbackSet.remove(callback);
+        synchronized (registerLock) {
+            final TransmitCallback[] callbacks = registeredTransmitCallbacks;
+            final int index = indexOf(callbacks, callback);
+            if (index < 0) return false;
+
+            registeredTransmitCallbacks = removeAt(callbacks, index, EMPTY_CALLBACKS);
+            return true;
+        }
     }
 }
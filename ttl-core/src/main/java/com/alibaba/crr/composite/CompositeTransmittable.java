@@ -1,17 +1,19 @@
 package com.alibaba.crr.composite;
 
+import com.alibaba.crr.TransmitMetrics;
+import com.alibaba.crr.TransmitMetrics.Operation;
 import com.alibaba.crr.Transmittable;
 import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import static com.alibaba.ttl3.internal.util.Utils.newHashMap;
+import static com.alibaba.ttl3.internal.util.Utils.indexOf;
 import static com.alibaba.ttl3.internal.util.Utils.propagateIfFatal;
+import static com.alibaba.ttl3.internal.util.Utils.removeAt;
 
 /**
  * {@link CompositeTransmittable} transmit all {@link Transmittable}
@@ -23,16 +25,36 @@ import static com.alibaba.ttl3.internal.util.Utils.propagateIfFatal;
  * <B><I>CAUTION:</I></B><br>
  * This implementation just ignore all exception thrown by
  * {@code CRR} operations of registered {@link Transmittable}.
+ * <p>
+ * The duration and the failure of {@code CRR} operations of every registered {@link Transmittable}
+ * can be recorded by setting the metrics recorder via {@link #setMetrics(TransmitMetrics)}.
  *
  * @author Jerry Lee (oldratlee at gmail dot com)
  */
 public final class CompositeTransmittable implements Transmittable<Capture, Backup> {
     private static final Logger logger = Logger.getLogger(CompositeTransmittable.class.getName());
 
-    private final Set<Transmittable<Object, Object>> registeredTransmittableSet = new CopyOnWriteArraySet<>();
+    @SuppressWarnings("unchecked")
+    private static final Transmittable<Object, Object>[] EMPTY_TRANSMITTABLES = new Transmittable[0];
+
+    // The registered transmittables, an immutable array republished on register/unregister(copy-on-write),
+    // so capture/clear index the array directly, and the captured snapshot shares the array without copy.
+    private volatile Transmittable<Object, Object>[] registeredTransmittables = EMPTY_TRANSMITTABLES;
+    private final Object registerLock = new Object();
 
     private final CompositeTransmitCallback callback;
 
+    // The last backup of the thread, reused as the backup of the following replay/clear in the thread
+    // if the backup values of all transmittables and the callback data are the same as the last backup
+    // (e.g. the worker thread of executor replays tasks repeatedly), so the steady state replay allocates no backup.
+    // The backup is immutable after created, so the reuse is safe even if a backup is restored more than once.
+    // The last backup is referenced weakly, so it does not keep the backup values of the thread reachable
+    // after the backup is restored and the values are dropped by the thread.
+    private final ThreadLocal<WeakReference<Snapshot>> lastBackup = new ThreadLocal<>();
+
+    @Nullable
+    private volatile TransmitMetrics metrics;
+
     public CompositeTransmittable(CompositeTransmitCallback callback) {
         this.callback = callback;
     }
@@ -44,19 +66,74 @@ public final class CompositeTransmittable implements Transmittable<Capture, Back
      */
     @NonNull
     public Capture capture() {
-        final HashMap<Transmittable<Object, Object>, Object> transmit2Value = newHashMap(registeredTransmittableSet.size());
-        for (Transmittable<Object, Object> transmittable : registeredTransmittableSet) {
-            try {
-                transmit2Value.put(transmittable, transmittable.capture());
-            } catch (Throwable t) {
-                propagateIfFatal(t);
-                if (logger.isLoggable(Level.WARNING)) {
-                    logger.log(Level.WARNING, "exception when capture for transmittable " + transmittable +
-                            "(class " + transmittable.getClass().getName() + "), just ignored; cause: " + t, t);
-                }
+        return capture(registeredTransmittables);
+    }
+
+    /**
+     * Capture the given {@link Transmittable}s only, the given transmittables need not be registered.
+     * <p>
+     * The captured values share the given array without copy, so the array must not be modified after passed in;
+     * and reusing the same array for the capture of the same transmittables
+     * enables the backup reuse of the replay in the thread.
+     *
+     * @param transmittables the transmittables to capture
+     * @return the captured values
+     * @see #capture()
+     */
+    @NonNull
+    public Capture capture(@NonNull Transmittable<Object, Object>[] transmittables) {
+        final TransmitMetrics m = metrics;
+        final Object[] captured = new Object[transmittables.length];
+        for (int i = 0; i < transmittables.length; i++) {
+            captured[i] = capture(m, transmittables[i]);
+        }
+        return new Snapshot(transmittables, captured, null);
+    }
+
+    /**
+     * Capture the {@link Transmittable}s of the given captured values again,
+     * and return the given captured values if every transmittable captures the identical value,
+     * e.g. the {@code TransmittableThreadLocal} values not changed since replayed share the same immutable capture;
+     * so the repeated capture of the unchanged values allocates nothing.
+     *
+     * @param captured the captured values from {@link #capture()} or {@link #capture(Transmittable[])}
+     * @return the captured values
+     */
+    @NonNull
+    public Capture recapture(@NonNull Capture captured) {
+        final Snapshot capturedSnapshot = (Snapshot) captured;
+        final Transmittable<Object, Object>[] transmittables = capturedSnapshot.transmittables;
+        final TransmitMetrics m = metrics;
+        Object[] values = null;
+        for (int i = 0; i < transmittables.length; i++) {
+            final Object value = capture(m, transmittables[i]);
+            if (values == null) {
+                if (value == capturedSnapshot.values[i]) continue;
+                // copy the identical values captured before
+                values = Arrays.copyOf(capturedSnapshot.values, transmittables.length);
+            }
+            values[i] = value;
+        }
+        return values == null ? captured : new Snapshot(transmittables, values, null);
+    }
+
+    private static Object capture(@Nullable TransmitMetrics m, Transmittable<Object, Object> transmittable) {
+        final long start = m == null ? 0 : System.nanoTime();
+        boolean failed = false;
+        Object captured;
+        try {
+            captured = transmittable.capture();
+        } catch (Throwable t) {
+            failed = true;
+            captured = NOT_TRANSMITTED;
+            propagateIfFatal(t);
+            if (logger.isLoggable(Level.WARNING)) {
+                logger.log(Level.WARNING, "exception when capture for transmittable " + transmittable +
+                        "(class " + transmittable.getClass().getName() + "), just ignored; cause: " + t, t);
             }
         }
-        return new Snapshot(transmit2Value, null);
+        if (m != null) recordMetrics(m, transmittable, Operation.CAPTURE, start, failed);
+        return captured;
     }
 
     /**
@@ -72,23 +149,39 @@ public final class CompositeTransmittable implements Transmittable<Capture, Back
         final Object data = callback.beforeReplay();
 
         final Snapshot capturedSnapshot = (Snapshot) captured;
-        final HashMap<Transmittable<Object, Object>, Object> transmit2Value = newHashMap(capturedSnapshot.transmit2Value.size());
-        for (Map.Entry<Transmittable<Object, Object>, Object> entry : capturedSnapshot.transmit2Value.entrySet()) {
-            Transmittable<Object, Object> transmittable = entry.getKey();
+        final Transmittable<Object, Object>[] transmittables = capturedSnapshot.transmittables;
+        final TransmitMetrics m = metrics;
+        final Snapshot last = lastBackup();
+        final Object[] lastValues = last != null && last.transmittables == transmittables ? last.values : null;
+        Object[] backup = lastValues != null ? null : new Object[transmittables.length];
+        for (int i = 0; i < transmittables.length; i++) {
+            final Object transmitCaptured = capturedSnapshot.values[i];
+            if (transmitCaptured == NOT_TRANSMITTED) {
+                backup = putBackupValue(backup, lastValues, i, NOT_TRANSMITTED);
+                continue;
+            }
+
+            final Transmittable<Object, Object> transmittable = transmittables[i];
+            final long start = m == null ? 0 : System.nanoTime();
+            boolean failed = false;
+            Object transmitBackup;
             try {
-                Object transmitCaptured = entry.getValue();
-                transmit2Value.put(transmittable, transmittable.replay(transmitCaptured));
+                transmitBackup = transmittable.replay(transmitCaptured);
             } catch (Throwable t) {
+                failed = true;
+                transmitBackup = NOT_TRANSMITTED;
                 propagateIfFatal(t);
                 if (logger.isLoggable(Level.WARNING)) {
                     logger.log(Level.WARNING, "exception when replay for transmittable " + transmittable +
                             "(class " + transmittable.getClass().getName() + "), just ignored; cause: " + t, t);
                 }
             }
+            backup = putBackupValue(backup, lastValues, i, transmitBackup);
+            if (m != null) recordMetrics(m, transmittable, Operation.REPLAY, start, failed);
         }
 
         final Object afterData = callback.afterReplay(data);
-        return new Snapshot(transmit2Value, afterData);
+        return newBackup(transmittables, backup, last, afterData);
     }
 
     /**
@@ -110,21 +203,67 @@ public final class CompositeTransmittable implements Transmittable<Capture, Back
     public Backup clear() {
         final Object data = callback.beforeReplay();
 
-        final HashMap<Transmittable<Object, Object>, Object> transmit2Value = newHashMap(registeredTransmittableSet.size());
-        for (Transmittable<Object, Object> transmittable : registeredTransmittableSet) {
+        final Transmittable<Object, Object>[] transmittables = registeredTransmittables;
+        final TransmitMetrics m = metrics;
+        final Snapshot last = lastBackup();
+        final Object[] lastValues = last != null && last.transmittables == transmittables ? last.values : null;
+        Object[] backup = lastValues != null ? null : new Object[transmittables.length];
+        for (int i = 0; i < transmittables.length; i++) {
+            final Transmittable<Object, Object> transmittable = transmittables[i];
+            final long start = m == null ? 0 : System.nanoTime();
+            boolean failed = false;
+            Object transmitBackup;
             try {
-                transmit2Value.put(transmittable, transmittable.clear());
+                transmitBackup = transmittable.clear();
             } catch (Throwable t) {
+                failed = true;
+                transmitBackup = NOT_TRANSMITTED;
                 propagateIfFatal(t);
                 if (logger.isLoggable(Level.WARNING)) {
                     logger.log(Level.WARNING, "exception when clear for transmittable " + transmittable +
                             "(class " + transmittable.getClass().getName() + "), just ignored; cause: " + t, t);
                 }
             }
+            backup = putBackupValue(backup, lastValues, i, transmitBackup);
+            if (m != null) recordMetrics(m, transmittable, Operation.CLEAR, start, failed);
         }
 
         final Object afterData = callback.afterReplay(data);
-        return new Snapshot(transmit2Value, afterData);
+        return newBackup(transmittables, backup, last, afterData);
+    }
+
+    /**
+     * Put the backup value of the transmittable at the index.
+     * If the backup values is {@code null}(reusing the last backup values of the thread),
+     * the backup values is copied from the last backup values on the first different value.
+     *
+     * @return the backup values, {@code null} if still the same as the last backup values
+     */
+    @Nullable
+    private static Object[] putBackupValue(@Nullable Object[] backup, @Nullable Object[] lastValues, int index, Object value) {
+        if (backup == null) {
+            // lastValues is not null when backup is null
+            if (lastValues[index] == value) return null;
+            backup = lastValues.clone();
+        }
+        backup[index] = value;
+        return backup;
+    }
+
+    private Snapshot newBackup(Transmittable<Object, Object>[] transmittables, @Nullable Object[] backup,
+                               @Nullable Snapshot last, Object data) {
+        // backup is null only if last is not null
+        if (backup == null && last.data == data) return last;
+
+        final Snapshot snapshot = new Snapshot(transmittables, backup == null ? last.values : backup, data);
+        lastBackup.set(new WeakReference<>(snapshot));
+        return snapshot;
+    }
+
+    @Nullable
+    private Snapshot lastBackup() {
+        final WeakReference<Snapshot> ref = lastBackup.get();
+        return ref == null ? null : ref.get();
     }
 
     /**
@@ -138,34 +277,88 @@ public final class CompositeTransmittable implements Transmittable<Capture, Back
         final Snapshot snapshot = (Snapshot) backup;
         final Object data = callback.beforeRestore(snapshot.data);
 
-        for (Map.Entry<Transmittable<Object, Object>, Object> entry : snapshot.transmit2Value.entrySet()) {
-            Transmittable<Object, Object> transmittable = entry.getKey();
+        final Transmittable<Object, Object>[] transmittables = snapshot.transmittables;
+        final TransmitMetrics m = metrics;
+        for (int i = 0; i < transmittables.length; i++) {
+            final Object transmitBackup = snapshot.values[i];
+            if (transmitBackup == NOT_TRANSMITTED) continue;
+
+            final Transmittable<Object, Object> transmittable = transmittables[i];
+            final long start = m == null ? 0 : System.nanoTime();
+            boolean failed = false;
             try {
-                Object transmitBackup = entry.getValue();
                 transmittable.restore(transmitBackup);
             } catch (Throwable t) {
+                failed = true;
                 propagateIfFatal(t);
                 if (logger.isLoggable(Level.WARNING)) {
                     logger.log(Level.WARNING, "exception when restore for transmittable " + transmittable +
                             "(class " + transmittable.getClass().getName() + "), just ignored; cause: " + t, t);
                 }
             }
+            if (m != null) recordMetrics(m, transmittable, Operation.RESTORE, start, failed);
         }
 
         callback.afterRestore(data);
     }
 
-    private static class Snapshot implements Capture, Backup {
-        final HashMap<Transmittable<Object, Object>, Object> transmit2Value;
+    private static void recordMetrics(TransmitMetrics m, Transmittable<Object, Object> transmittable,
+                                      Operation operation, long start, boolean failed) {
+        try {
+            m.record(transmittable, operation, System.nanoTime() - start, failed);
+        } catch (Throwable t) {
+            propagateIfFatal(t);
+            if (logger.isLoggable(Level.WARNING)) {
+                logger.log(Level.WARNING, "exception when record metrics " + m +
+                        "(class " + m.getClass().getName() + "), just ignored; cause: " + t, t);
+            }
+        }
+    }
+
+    /**
+     * The marker of the {@link Transmittable} whose {@code CRR} operation failed,
+     * the following operations of this transmittable are skipped.
+     */
+    private static final Object NOT_TRANSMITTED = new Object();
+
+    /**
+     * The captured/backup values of the {@link Transmittable}s, stored in the flat parallel arrays
+     * (the value at index {@code i} belongs to the transmittable at index {@code i}),
+     * the backup shares the transmittable array of the captured.
+     */
+    private static final class Snapshot implements Capture, Backup {
+        final Transmittable<Object, Object>[] transmittables;
+        final Object[] values;
         final Object data;
 
-        Snapshot(HashMap<Transmittable<Object, Object>, Object> transmit2Value, Object data) {
-            this.transmit2Value = transmit2Value;
+        Snapshot(Transmittable<Object, Object>[] transmittables, Object[] values, Object data) {
+            this.transmittables = transmittables;
+            this.values = values;
             this.data = data;
         }
     }
 
 
+    /**
+     * Set the metrics recorder of the {@code CRR} operations of the registered {@link Transmittable}s,
+     * {@code null} to disable metrics(the default).
+     *
+     * @see #getMetrics()
+     */
+    public void setMetrics(@Nullable TransmitMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Get the metrics recorder, {@code null} if metrics is disabled.
+     *
+     * @see #setMetrics(TransmitMetrics)
+     */
+    @Nullable
+    public TransmitMetrics getMetrics() {
+        return metrics;
+    }
+
     /**
      * Register the Transmittable.
      *
@@ -176,7 +369,15 @@ public final class CompositeTransmittable implements Transmittable<Capture, Back
      */
     @SuppressWarnings("unchecked")
     public <C, B> boolean registerTransmittable(@NonNull Transmittable<C, B> transmittable) {
-        return registeredTransmittableSet.add((Transmittable<Object, Object>) transmittable);
+        synchronized (registerLock) {
+            final Transmittable<Object, Object>[] transmittables = registeredTransmittables;
+            if (indexOf(transmittables, transmittable) >= 0) return false;
+
+            final Transmittable<Object, Object>[] newTransmittables = Arrays.copyOf(transmittables, transmittables.length + 1);
+            newTransmittables[transmittables.length] = (Transmittable<Object, Object>) transmittable;
+            registeredTransmittables = newTransmittables;
+            return true;
+        }
     }
 
     /**
@@ -189,6 +390,36 @@ public final class CompositeTransmittable implements Transmittable<Capture, Back
      */
     @SuppressWarnings("unchecked")
     public <C, B> boolean unregisterTransmittable(@NonNull Transmittable<C, B> transmittable) {
-        return registeredTransmittableSet.remove((Transmittable<Object, Object>) transmittable);
+        synchronized (registerLock) {
+            final Transmittable<Object, Object>[] transmittables = registeredTransmittables;
+            final int index = indexOf(transmittables, transmittable);
+            if (index < 0) return false;
+
+            registeredTransmittables = removeAt(transmittables, index, EMPTY_TRANSMITTABLES);
+        }
+
+        final TransmitMetrics m = metrics;
+        if (m != null) {
+            try {
+                m.unregistered(transmittable);
+            } catch (Throwable t) {
+                propagateIfFatal(t);
+                if (logger.isLoggable(Level.WARNING)) {
+                    logger.log(Level.WARNING, "exception when notify the unregistration to metrics " + m +
+                            "(class " + m.getClass().getName() + "), just ignored; cause: " + t, t);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether the Transmittable is registered.
+     *
+     * @see #registerTransmittable(Transmittable)
+     * @see #unregisterTransmittable(Transmittable)
+     */
+    public boolean isRegisteredTransmittable(@NonNull Transmittable<?, ?> transmittable) {
+        return indexOf(registeredTransmittables, transmittable) >= 0;
     }
 }
@@ -1,20 +1,17 @@
 package com.alibaba.ttl3;
 
 import com.alibaba.ttl3.executor.TtlExecutors;
+import com.alibaba.ttl3.transmitter.ThreadLocalTransmitRegistry;
 import com.alibaba.ttl3.transmitter.Transmittee;
 import com.alibaba.ttl3.transmitter.TransmitteeRegistry;
 import edu.umd.cs.findbugs.annotations.NonNull;
 
 import javax.annotation.ParametersAreNonnullByDefault;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.function.Supplier;
 import java.util.function.UnaryOperator;
 
-import static com.alibaba.ttl3.internal.util.Utils.newHashMap;
-
 /**
  * {@link TransmittableThreadLocal}({@code TTL}) can transmit the value from the thread of submitting task
  * to the thread of executing task even using thread pooling components.
@@ -47,6 +44,12 @@ import static com.alibaba.ttl3.internal.util.Utils.newHashMap;
  *     }
  * }}</pre>
  * <p>
+ * ❸ Or disable inheritable by constructor {@link #TransmittableThreadLocal(boolean, boolean)} for a {@link TransmittableThreadLocal} instance,
+ * or by the system property {@code -Dttl.disable.inheritable=true} for all {@link TransmittableThreadLocal} instances,
+ * e.g. the threads are created by third-party libraries whose thread factories can not be wrapped.
+ * In the global mode, the child thread also does not copy the TTL instances held by the parent thread,
+ * so the child thread creation does not pay the cost of copying the TTL values.
+ * <p>
  * More discussion about "disable the <b>inheritable</b> ability"
  * see <a href="https://github.com/alibaba/transmittable-thread-local/issues/100">
  * issue #100: disable Inheritable when it's not necessary and buggy</a>.
@@ -66,7 +69,19 @@ import static com.alibaba.ttl3.internal.util.Utils.newHashMap;
  * @see TtlExecutors#getDisableInheritableForkJoinWorkerThreadFactory(java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory)
  */
 public class TransmittableThreadLocal<T> extends InheritableThreadLocal<T> {
+    /**
+     * The system property key of disabling inheritable for all {@link TransmittableThreadLocal} instances.
+     *
+     * @see #TransmittableThreadLocal(boolean, boolean)
+     */
+    public static final String DISABLE_INHERITABLE_KEY = "ttl.disable.inheritable";
+
+    private static final boolean disableInheritableGlobally = Boolean.getBoolean(DISABLE_INHERITABLE_KEY);
+
     private final boolean disableIgnoreNullValueSemantics;
+    private final boolean disableInheritable;
+    private final TtlHolder.Slot slot = TtlHolder.allocateSlot(this);
+    private final boolean transmitteeValueIdentity = !transmitteeValueOverridden.get(getClass());
 
     /**
      * Default constructor. Create a {@link TransmittableThreadLocal} instance with "Ignore-Null-Value Semantics".
@@ -108,7 +123,29 @@ public class TransmittableThreadLocal<T> extends InheritableThreadLocal<T> {
      * @see #TransmittableThreadLocal()
      */
     public TransmittableThreadLocal(boolean disableIgnoreNullValueSemantics) {
+        this(disableIgnoreNullValueSemantics, false);
+    }
+
+    /**
+     * Constructor, create a {@link TransmittableThreadLocal} instance
+     * with parameter {@code disableIgnoreNullValueSemantics} to control "Ignore-Null-Value Semantics",
+     * and parameter {@code disableInheritable} to control the <b>inheritable</b> ability.
+     * <p>
+     * If inheritable is disabled, the value is NOT inherited by the child thread,
+     * the child value({@link #childValue(Object)}) is the initial value({@link #initialValue()});
+     * the transmittance by {@link TtlRunnable}/{@link TtlCallable} is not affected.
+     * <p>
+     * Inheritable can also be disabled for all {@link TransmittableThreadLocal} instances
+     * by the system property {@code -Dttl.disable.inheritable=true}({@link #DISABLE_INHERITABLE_KEY}).
+     *
+     * @param disableIgnoreNullValueSemantics disable "Ignore-Null-Value Semantics"
+     * @param disableInheritable              disable the inheritable ability
+     * @see #TransmittableThreadLocal(boolean)
+     * @see #DISABLE_INHERITABLE_KEY
+     */
+    public TransmittableThreadLocal(boolean disableIgnoreNullValueSemantics, boolean disableInheritable) {
         this.disableIgnoreNullValueSemantics = disableIgnoreNullValueSemantics;
+        this.disableInheritable = disableInheritable || disableInheritableGlobally;
     }
 
     /**
@@ -209,6 +246,7 @@ public class TransmittableThreadLocal<T> extends InheritableThreadLocal<T> {
 
         @Override
         protected T childValue(T parentValue) {
+            if (isInheritableDisabled()) return initialValue();
             if (generatorForChildValue != null) return generatorForChildValue.apply(parentValue);
             else return super.childValue(parentValue);
         }
@@ -218,6 +256,11 @@ public class TransmittableThreadLocal<T> extends InheritableThreadLocal<T> {
             if (generatorForTransmitteeValue != null) return generatorForTransmitteeValue.apply(parentValue);
             else return super.transmitteeValue(parentValue);
         }
+
+        @Override
+        boolean isTransmitteeValueIdentity() {
+            return generatorForTransmitteeValue == null;
+        }
     }
 
     /**
@@ -227,19 +270,32 @@ public class TransmittableThreadLocal<T> extends InheritableThreadLocal<T> {
      * thread before the child is started.
      * <p>
      * <b>Note</b>:<br>
-     * This method is overridden, and merely call {@link #transmitteeValue(Object)}.
+     * This method is overridden, and merely call {@link #transmitteeValue(Object)},
+     * or returns the initial value({@link #initialValue()}) if inheritable is disabled.
      * In most cases, the logic of determining the child value({@link #childValue(Object)})
      * and the transmittee value({@link #transmitteeValue(Object)}) should be the same,
      * so it's NOT recommended to override this method in subclass.
      *
      * @param parentValue the parent thread's value
      * @return the child thread's initial value
+     * @see #TransmittableThreadLocal(boolean, boolean)
      */
     @Override
     protected T childValue(T parentValue) {
+        if (disableInheritable) return initialValue();
         return transmitteeValue(parentValue);
     }
 
+    /**
+     * Whether the inheritable ability is disabled, by the instance or globally.
+     *
+     * @see #TransmittableThreadLocal(boolean, boolean)
+     * @see #DISABLE_INHERITABLE_KEY
+     */
+    public final boolean isInheritableDisabled() {
+        return disableInheritable;
+    }
+
     /**
      * Computes the value for this transmittable thread-local variable
      * as a function of the source thread's value at the time the task
@@ -277,7 +333,8 @@ public class TransmittableThreadLocal<T> extends InheritableThreadLocal<T> {
             remove();
         } else {
             super.set(value);
-            addThisToHolder();
+            // always notify the holder, the value of this TTL is changed
+            holder.get().add(slot);
         }
     }
 
@@ -298,106 +355,302 @@ public class TransmittableThreadLocal<T> extends InheritableThreadLocal<T> {
         return transmitteeValue(get());
     }
 
+    /**
+     * Whether the transmittee value is the value itself, aka. method {@link #transmitteeValue(Object)} is not overridden.
+     * <p>
+     * Only the TTL values of this kind can be shared by the captures of the same TTL values.
+     */
+    boolean isTransmitteeValueIdentity() {
+        return transmitteeValueIdentity;
+    }
+
+    /**
+     * Whether the captured values of the current thread can be shared by the tasks wrapped at once,
+     * aka. all the transmittee values of TTL and registered {@link ThreadLocal} are the values themselves.
+     *
+     * @see #isTransmitteeValueIdentity()
+     * @see ThreadLocalTransmitRegistry#isCopyingGeneratorRegistered()
+     */
+    static boolean isCaptureShareable() {
+        if (ThreadLocalTransmitRegistry.isCopyingGeneratorRegistered()) return false;
+
+        final TtlHolder h = holder.get();
+        if (h.size() == 0 || h.snapshot != null) return true;
+        for (int i = 0, n = h.capacity(); i < n; i++) {
+            final TransmittableThreadLocal<Object> threadLocal = h.ttlAt(i);
+            if (threadLocal != null && !threadLocal.isTransmitteeValueIdentity()) return false;
+        }
+        return true;
+    }
+
+    private static final ClassValue<Boolean> transmitteeValueOverridden = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            for (Class<?> c = type; c != null && c != TransmittableThreadLocal.class; c = c.getSuperclass()) {
+                try {
+                    c.getDeclaredMethod("transmitteeValue", Object.class);
+                    return true;
+                } catch (NoSuchMethodException e) {
+                    // not overridden in this class, check super class
+                }
+            }
+            return false;
+        }
+    };
+
     // Note about the holder:
     // 1. holder self is a InheritableThreadLocal(a *ThreadLocal*).
-    // 2. The type of value in the holder is WeakHashMap<TransmittableThreadLocal<Object>, ?>.
-    //    2.1 but the WeakHashMap is used as a *Set*:
-    //        the value of WeakHashMap is *always* null, and never used.
-    //    2.2 WeakHashMap support *null* value.
-    private static final InheritableThreadLocal<WeakHashMap<TransmittableThreadLocal<Object>, ?>> holder =
-            new InheritableThreadLocal<WeakHashMap<TransmittableThreadLocal<Object>, ?>>() {
-                @Override
-                protected WeakHashMap<TransmittableThreadLocal<Object>, ?> initialValue() {
-                    return new WeakHashMap<>();
-                }
+    // 2. The type of value in the holder is TtlHolder,
+    //    a slot-indexed array of the TTL instances that have value in the thread,
+    //    see the javadoc of TtlHolder.
+    private static final InheritableThreadLocal<TtlHolder> holder = new InheritableThreadLocal<TtlHolder>() {
+        @Override
+        protected TtlHolder initialValue() {
+            return new TtlHolder();
+        }
 
-                @Override
-                protected WeakHashMap<TransmittableThreadLocal<Object>, ?> childValue(WeakHashMap<TransmittableThreadLocal<Object>, ?> parentValue) {
-                    return new WeakHashMap<>(parentValue);
-                }
-            };
+        @Override
+        protected TtlHolder childValue(TtlHolder parentValue) {
+            // the child thread holds no TTL instance if inheritable is disabled globally
+            if (disableInheritableGlobally) return new TtlHolder();
+            return new TtlHolder(parentValue);
+        }
+    };
 
-    @SuppressWarnings("unchecked")
     private void addThisToHolder() {
-        if (!holder.get().containsKey(this)) {
-            holder.get().put((TransmittableThreadLocal<Object>) this, null); // WeakHashMap supports null value.
-        }
+        final TtlHolder h = holder.get();
+        if (!h.contains(slot)) h.add(slot);
     }
 
     private void removeThisFromHolder() {
-        holder.get().remove(this);
+        holder.get().remove(slot);
     }
 
 
-    private static class TtlTransmittee implements Transmittee<HashMap<TransmittableThreadLocal<Object>, Object>, HashMap<TransmittableThreadLocal<Object>, Object>> {
+    // Note about the captured/backup of TtlTransmittee:
+    // 1. The TTL values are stored in a flat array of TTL slot and value pairs:
+    //    [slot0, value0, slot1, value1, ...], so capture costs only one array allocation.
+    //    The slot weakly references its TTL, so the snapshot cached by a long-lived thread
+    //    never keeps the TTL instances dropped by user code reachable.
+    // 2. The pairs are ordered by the slot index of TTL(the iteration order of holder),
+    //    so the membership check of replay/restore is a merge of two ordered sequences,
+    //    instead of hash lookups.
+    // 3. The captured array is immutable, and cached as the snapshot of holder
+    //    if all the transmittee values are the values themselves(see isTransmitteeValueIdentity);
+    //    so capture is an O(1) reference grab until the TTL values of the thread change,
+    //    e.g. the fan-out code submitting many tasks captures the TTL values only once.
+    // 4. The snapshot is also exactly the backup of replay(the TTL values of the thread before replay),
+    //    and the restore makes the backup the snapshot again;
+    //    so the worker thread holding TTL values(e.g. inherited) replays tasks repeatedly without allocating backup.
+    private static class TtlTransmittee implements Transmittee<Object[], Object[]> {
+        private static final Object[] EMPTY_TTL_VALUES = new Object[0];
+
         @NonNull
         @Override
-        public HashMap<TransmittableThreadLocal<Object>, Object> capture() {
-            final HashMap<TransmittableThreadLocal<Object>, Object> ttl2Value = newHashMap(holder.get().size());
-            for (TransmittableThreadLocal<Object> threadLocal : holder.get().keySet()) {
-                ttl2Value.put(threadLocal, threadLocal.getTransmitteeValue());
+        public Object[] capture() {
+            final TtlHolder h = holder.get();
+            if (h.size() == 0) return EMPTY_TTL_VALUES;
+
+            final Object[] snapshot = h.snapshot;
+            if (snapshot != null) return snapshot;
+
+            final Object[] ttlValues = new Object[h.size() << 1];
+            int len = 0;
+            boolean shareable = true;
+            for (int i = 0, n = h.capacity(); i < n; i++) {
+                final TransmittableThreadLocal<Object> threadLocal = h.ttlAt(i);
+                if (threadLocal == null) continue;
+
+                ttlValues[len++] = threadLocal.slot;
+                ttlValues[len++] = threadLocal.getTransmitteeValue();
+                shareable &= threadLocal.isTransmitteeValueIdentity();
             }
-            return ttl2Value;
+
+            final Object[] captured = trimTtlValues(ttlValues, len);
+            if (shareable) h.snapshot = captured;
+            return captured;
         }
 
         @NonNull
         @Override
-        public HashMap<TransmittableThreadLocal<Object>, Object> replay(@NonNull HashMap<TransmittableThreadLocal<Object>, Object> captured) {
-            final HashMap<TransmittableThreadLocal<Object>, Object> backup = newHashMap(holder.get().size());
+        public Object[] replay(@NonNull Object[] captured) {
+            final TtlHolder h = holder.get();
+            // fast path: the thread already holds the captured TTL values,
+            // the captured is also the backup, and the restore is a no-op if TTL values are not changed after replay
+            if (captured == h.snapshot || captured.length == 0 && h.size() == 0) return captured;
+
+            // reuse the immutable snapshot as the backup if available
+            final Object[] snapshot = h.snapshot;
+            final Object[] backup = snapshot != null || h.size() == 0 ? EMPTY_TTL_VALUES : new Object[h.size() << 1];
+            int len = 0;
 
-            for (final Iterator<TransmittableThreadLocal<Object>> iterator = holder.get().keySet().iterator(); iterator.hasNext(); ) {
-                TransmittableThreadLocal<Object> threadLocal = iterator.next();
+            for (int i = 0, n = h.size() == 0 ? 0 : h.capacity(), c = 0; i < n; i++) {
+                final TransmittableThreadLocal<Object> threadLocal = h.ttlAt(i);
+                if (threadLocal == null) continue;
 
                 // backup
-                backup.put(threadLocal, threadLocal.get());
+                if (snapshot == null) {
+                    backup[len++] = threadLocal.slot;
+                    backup[len++] = threadLocal.get();
+                }
 
                 // clear the TTL values that is not in captured
                 // avoid the extra TTL values after replay when run task
-                if (!captured.containsKey(threadLocal)) {
-                    iterator.remove();
+                c = seekSlot(captured, c, i);
+                if (c >= captured.length || captured[c] != threadLocal.slot) {
+                    h.removeAt(i);
                     threadLocal.superRemove();
                 }
             }
 
             // set TTL values to captured
-            setTtlValuesTo(captured);
+            setTtlValuesTo(h, captured);
 
-            return backup;
+            return snapshot != null ? snapshot : trimTtlValues(backup, len);
         }
 
         @NonNull
         @Override
-        public HashMap<TransmittableThreadLocal<Object>, Object> clear() {
-            return replay(newHashMap(0));
+        public Object[] clear() {
+            return replay(EMPTY_TTL_VALUES);
         }
 
         @Override
-        public void restore(@NonNull HashMap<TransmittableThreadLocal<Object>, Object> backup) {
-            for (final Iterator<TransmittableThreadLocal<Object>> iterator = holder.get().keySet().iterator(); iterator.hasNext(); ) {
-                TransmittableThreadLocal<Object> threadLocal = iterator.next();
+        public void restore(@NonNull Object[] backup) {
+            final TtlHolder h = holder.get();
+            // fast path: TTL values are not changed after replay
+            if (backup == h.snapshot || backup.length == 0 && h.size() == 0) return;
+
+            for (int i = 0, n = h.size() == 0 ? 0 : h.capacity(), b = 0; i < n; i++) {
+                final TransmittableThreadLocal<Object> threadLocal = h.ttlAt(i);
+                if (threadLocal == null) continue;
 
                 // clear the TTL values that is not in backup
                 // avoid the extra TTL values after restore
-                if (!backup.containsKey(threadLocal)) {
-                    iterator.remove();
+                b = seekSlot(backup, b, i);
+                if (b >= backup.length || backup[b] != threadLocal.slot) {
+                    h.removeAt(i);
                     threadLocal.superRemove();
                 }
             }
 
             // restore TTL values
-            setTtlValuesTo(backup);
+            setTtlValuesTo(h, backup);
         }
 
-        private static void setTtlValuesTo(@NonNull HashMap<TransmittableThreadLocal<Object>, Object> ttlValues) {
-            for (Map.Entry<TransmittableThreadLocal<Object>, Object> entry : ttlValues.entrySet()) {
-                TransmittableThreadLocal<Object> threadLocal = entry.getKey();
-                threadLocal.set(entry.getValue());
+        /**
+         * Returns the position of the first pair whose slot index is not less than the given slot index,
+         * starting from the given position.
+         */
+        private static int seekSlot(Object[] ttlValues, int from, int slotIndex) {
+            int p = from;
+            while (p < ttlValues.length && ((TtlHolder.Slot) ttlValues[p]).index < slotIndex) {
+                p += 2;
             }
+            return p;
+        }
+
+        private static Object[] trimTtlValues(Object[] ttlValues, int len) {
+            if (len == 0) return EMPTY_TTL_VALUES;
+            return len == ttlValues.length ? ttlValues : Arrays.copyOf(ttlValues, len);
+        }
+
+        /**
+         * Sets the TTL values, the TTL values of the thread is exactly the input TTL values after this method;
+         * so the input TTL values become the snapshot of holder if shareable.
+         * The values of the TTLs collected after capture are skipped, nobody can read them.
+         */
+        private static void setTtlValuesTo(TtlHolder h, @NonNull Object[] ttlValues) {
+            boolean shareable = true;
+            for (int i = 0; i < ttlValues.length; i += 2) {
+                final TransmittableThreadLocal<Object> threadLocal = ((TtlHolder.Slot) ttlValues[i]).get();
+                if (threadLocal == null) {
+                    shareable = false;
+                    continue;
+                }
+                threadLocal.set(ttlValues[i + 1]);
+                shareable &= threadLocal.isTransmitteeValueIdentity();
+            }
+            if (shareable && ttlValues.length > 0) h.snapshot = ttlValues;
         }
     }
 
     private static final TtlTransmittee ttlTransmittee = new TtlTransmittee();
 
+    /**
+     * The {@link Transmittee} of {@link TransmittableThreadLocal} values, registered by default.
+     * <p>
+     * For the hot code transmitting only the {@link TransmittableThreadLocal} values,
+     * the {@code CRR} operations of this transmittee bypass the composite dispatch of
+     * {@link com.alibaba.ttl3.transmitter.Transmitter Transmitter},
+     * aka. the other registered transmittees and the transmit callbacks/metrics.
+     * <p>
+     * <b><i>Note:</i></b> the capture/backup data is opaque,
+     * only pass the capture/backup data returned by this transmittee back to this transmittee.
+     *
+     * @see com.alibaba.ttl3.transmitter.Transmitter
+     */
+    @NonNull
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static Transmittee<Object, Object> getTtlTransmittee() {
+        return (Transmittee) ttlTransmittee;
+    }
+
+    /**
+     * The {@link Transmittee} of the values of the given {@link TransmittableThreadLocal}s only,
+     * for the hot code needing only a few of the {@link TransmittableThreadLocal}s of the thread,
+     * e.g. as a transmittee of {@link com.alibaba.ttl3.transmitter.CapturePlan CapturePlan}.
+     * <p>
+     * The capture costs only the lookups of the given {@link TransmittableThreadLocal}s,
+     * instead of the iteration of all the {@link TransmittableThreadLocal} values of the thread.
+     * Same as the transmittee of all {@link TransmittableThreadLocal} values, the replay sets the captured values
+     * and clears the other {@link TransmittableThreadLocal} values of the thread, the restore brings them back.
+     * <p>
+     * <b><i>Note:</i></b> the capture/backup data is opaque,
+     * only pass the capture/backup data returned by this transmittee back to this transmittee.
+     *
+     * @param ttls the {@link TransmittableThreadLocal}s to transmit
+     * @see #getTtlTransmittee()
+     * @see com.alibaba.ttl3.transmitter.CapturePlan
+     */
+    @NonNull
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static Transmittee<Object, Object> getTtlTransmittee(@NonNull TransmittableThreadLocal<?>... ttls) {
+        return (Transmittee) new TtlSubsetTransmittee(ttls);
+    }
+
+    // The transmittee of the given TTLs only, the TTLs are deduplicated and ordered by slot index on creation,
+    // so the captured array keeps the TTL value pairs ordered by slot index as required by TtlTransmittee.
+    private static final class TtlSubsetTransmittee extends TtlTransmittee {
+        private final TransmittableThreadLocal<Object>[] ttls;
+
+        @SuppressWarnings("unchecked")
+        TtlSubsetTransmittee(TransmittableThreadLocal<?>[] ttls) {
+            this.ttls = (TransmittableThreadLocal<Object>[]) Arrays.stream(ttls)
+                    .distinct()
+                    .sorted(Comparator.comparingInt(ttl -> ttl.slot.index))
+                    .toArray(TransmittableThreadLocal[]::new);
+        }
+
+        @NonNull
+        @Override
+        public Object[] capture() {
+            final TtlHolder h = holder.get();
+            if (h.size() == 0) return TtlTransmittee.EMPTY_TTL_VALUES;
+
+            Object[] ttlValues = null;
+            int len = 0;
+            for (TransmittableThreadLocal<Object> threadLocal : ttls) {
+                if (!h.contains(threadLocal.slot)) continue;
+
+                if (ttlValues == null) ttlValues = new Object[ttls.length << 1];
+                ttlValues[len++] = threadLocal.slot;
+                ttlValues[len++] = threadLocal.getTransmitteeValue();
+            }
+            return ttlValues == null ? TtlTransmittee.EMPTY_TTL_VALUES : TtlTransmittee.trimTtlValues(ttlValues, len);
+        }
+    }
+
     static {
         TransmitteeRegistry.registerTransmittee(ttlTransmittee);
     }
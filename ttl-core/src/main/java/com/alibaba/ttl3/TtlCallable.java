@@ -6,6 +6,7 @@ import com.alibaba.ttl3.spi.TtlAttachments;
 import com.alibaba.ttl3.spi.TtlAttachmentsDelegate;
 import com.alibaba.ttl3.spi.TtlEnhanced;
 import com.alibaba.ttl3.spi.TtlWrapper;
+import com.alibaba.ttl3.transmitter.CapturePlan;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.Nullable;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -16,7 +17,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import static com.alibaba.ttl3.transmitter.Transmitter.*;
 
@@ -40,12 +41,16 @@ import static com.alibaba.ttl3.transmitter.Transmitter.*;
  * @see java.util.concurrent.ExecutorCompletionService
  */
 public final class TtlCallable<V> implements Callable<V>, TtlWrapper<Callable<V>>, TtlEnhanced, TtlAttachments {
-    private final AtomicReference<Capture> capturedRef;
+    private volatile Capture captured;
     private final Callable<V> callable;
     private final boolean releaseTtlValueReferenceAfterCall;
 
-    private TtlCallable(@NonNull Callable<V> callable, boolean releaseTtlValueReferenceAfterCall) {
-        this.capturedRef = new AtomicReference<>(capture());
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<TtlCallable, Capture> capturedUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(TtlCallable.class, Capture.class, "captured");
+
+    private TtlCallable(@NonNull Callable<V> callable, boolean releaseTtlValueReferenceAfterCall, @NonNull Capture captured) {
+        this.captured = captured;
         this.callable = callable;
         this.releaseTtlValueReferenceAfterCall = releaseTtlValueReferenceAfterCall;
     }
@@ -56,8 +61,8 @@ public final class TtlCallable<V> implements Callable<V>, TtlWrapper<Callable<V>
     @Override
     @SuppressFBWarnings("THROWS_METHOD_THROWS_CLAUSE_BASIC_EXCEPTION")
     public V call() throws Exception {
-        final Capture captured = capturedRef.get();
-        if (captured == null || releaseTtlValueReferenceAfterCall && !capturedRef.compareAndSet(captured, null)) {
+        final Capture captured = this.captured;
+        if (captured == null || releaseTtlValueReferenceAfterCall && !capturedUpdater.compareAndSet(this, captured, null)) {
             throw new IllegalStateException("TTL value reference is released after call!");
         }
 
@@ -136,6 +141,49 @@ public final class TtlCallable<V> implements Callable<V>, TtlWrapper<Callable<V>
     @Nullable
     @Contract(value = "null, _, _ -> null; !null, _, _ -> !null", pure = true)
     public static <T> TtlCallable<T> get(@Nullable Callable<T> callable, boolean releaseTtlValueReferenceAfterCall, boolean idempotent) {
+        return get(callable, releaseTtlValueReferenceAfterCall, idempotent, (Capture) null);
+    }
+
+    /**
+     * Factory method, wrap input {@link Callable} to {@link TtlCallable},
+     * transmit the values named by the {@link CapturePlan} only.
+     *
+     * @param callable input {@link Callable}
+     * @param plan     the capture plan
+     * @return Wrapped {@link Callable}
+     * @see CapturePlan
+     */
+    @Nullable
+    @Contract(value = "null, _ -> null; !null, _ -> !null", pure = true)
+    public static <T> TtlCallable<T> get(@Nullable Callable<T> callable, @NonNull CapturePlan plan) {
+        return get(callable, false, false, plan);
+    }
+
+    /**
+     * Factory method, wrap input {@link Callable} to {@link TtlCallable},
+     * transmit the values named by the {@link CapturePlan} only.
+     *
+     * @param callable                          input {@link Callable}
+     * @param releaseTtlValueReferenceAfterCall release TTL value reference after run, avoid memory leak even if {@link TtlRunnable} is referred.
+     * @param idempotent                        is idempotent or not. {@code true} will cover up bugs! <b>DO NOT</b> set, only when you know why.
+     * @param plan                              the capture plan
+     * @return Wrapped {@link Callable}
+     * @see CapturePlan
+     */
+    @Nullable
+    @Contract(value = "null, _, _, _ -> null; !null, _, _, _ -> !null", pure = true)
+    public static <T> TtlCallable<T> get(@Nullable Callable<T> callable, boolean releaseTtlValueReferenceAfterCall, boolean idempotent,
+                                         @NonNull CapturePlan plan) {
+        if (callable == null || callable instanceof TtlEnhanced) return get(callable, releaseTtlValueReferenceAfterCall, idempotent);
+        return new TtlCallable<>(callable, releaseTtlValueReferenceAfterCall, capture(plan));
+    }
+
+    /**
+     * @param captured the captured values shared by the wrapped tasks, {@code null} to capture for this task
+     */
+    @Nullable
+    private static <T> TtlCallable<T> get(@Nullable Callable<T> callable, boolean releaseTtlValueReferenceAfterCall, boolean idempotent,
+                                          @Nullable Capture captured) {
         if (callable == null) return null;
 
         if (callable instanceof TtlEnhanced) {
@@ -143,7 +191,7 @@ public final class TtlCallable<V> implements Callable<V>, TtlWrapper<Callable<V>
             if (idempotent) return (TtlCallable<T>) callable;
             else throw new IllegalStateException("Already TtlCallable!");
         }
-        return new TtlCallable<>(callable, releaseTtlValueReferenceAfterCall);
+        return new TtlCallable<>(callable, releaseTtlValueReferenceAfterCall, captured == null ? capture() : captured);
     }
 
     /**
@@ -171,6 +219,12 @@ public final class TtlCallable<V> implements Callable<V>, TtlWrapper<Callable<V>
 
     /**
      * wrap input {@link Callable} Collection to {@link TtlCallable} Collection.
+     * <p>
+     * The TTL values are captured only once, and the immutable captured values are shared by all the wrapped tasks
+     * if no transmittee value is a copy, aka. {@link TransmittableThreadLocal#transmitteeValue(Object)} is not overridden
+     * and no copying generator is registered by {@link com.alibaba.ttl3.transmitter.ThreadLocalTransmitRegistry};
+     * otherwise the values are captured for each task,
+     * e.g. the tasks of {@link java.util.concurrent.ExecutorService#invokeAll(Collection) invokeAll}.
      *
      * @param tasks                             task to be wrapped
      * @param releaseTtlValueReferenceAfterCall release TTL value reference after run, avoid memory leak even if {@link TtlRunnable} is referred.
@@ -181,9 +235,37 @@ public final class TtlCallable<V> implements Callable<V>, TtlWrapper<Callable<V>
     public static <T> List<TtlCallable<T>> gets(@Nullable Collection<? extends Callable<T>> tasks, boolean releaseTtlValueReferenceAfterCall, boolean idempotent) {
         if (tasks == null) return Collections.emptyList();
 
-        List<TtlCallable<T>> copy = new ArrayList<>();
+        // the captured values are shared only if no copy is made for each task
+        final Capture captured = TransmittableThreadLocal.isCaptureShareable() ? capture() : null;
+        List<TtlCallable<T>> copy = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            copy.add(TtlCallable.get(task, releaseTtlValueReferenceAfterCall, idempotent, captured));
+        }
+        return copy;
+    }
+
+    /**
+     * wrap input {@link Callable} Collection to {@link TtlCallable} Collection,
+     * transmit the values named by the {@link CapturePlan} only.
+     * <p>
+     * The values are captured only once and shared by all the wrapped tasks on the same condition as {@link #gets(Collection, boolean, boolean)}.
+     *
+     * @param tasks                             task to be wrapped
+     * @param releaseTtlValueReferenceAfterCall release TTL value reference after run, avoid memory leak even if {@link TtlRunnable} is referred.
+     * @param idempotent                        is idempotent or not. {@code true} will cover up bugs! <b>DO NOT</b> set, only when you know why.
+     * @param plan                              the capture plan
+     * @return Wrapped {@link Callable}
+     * @see CapturePlan
+     */
+    @NonNull
+    public static <T> List<TtlCallable<T>> gets(@Nullable Collection<? extends Callable<T>> tasks, boolean releaseTtlValueReferenceAfterCall, boolean idempotent,
+                                                @NonNull CapturePlan plan) {
+        if (tasks == null) return Collections.emptyList();
+
+        final Capture shared = TransmittableThreadLocal.isCaptureShareable() ? capture(plan) : null;
+        List<TtlCallable<T>> copy = new ArrayList<>(tasks.size());
         for (Callable<T> task : tasks) {
-            copy.add(TtlCallable.get(task, releaseTtlValueReferenceAfterCall, idempotent));
+            copy.add(TtlCallable.get(task, releaseTtlValueReferenceAfterCall, idempotent, shared != null ? shared : capture(plan)));
         }
         return copy;
     }
@@ -0,0 +1,308 @@
+package com.alibaba.ttl3;
+
+import com.alibaba.crr.composite.Backup;
+import com.alibaba.crr.composite.Capture;
+import com.alibaba.ttl3.agent.TtlAgentStatus;
+import com.alibaba.ttl3.spi.TtlEnhanced;
+import com.alibaba.ttl3.spi.TtlWrapper;
+import com.alibaba.ttl3.transmitter.Transmitter;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static com.alibaba.ttl3.transmitter.Transmitter.*;
+
+/**
+ * A {@link CompletableFuture} enhanced by {@link TransmittableThreadLocal},
+ * the async stages of the stage chain are executed with the {@link TransmittableThreadLocal} values
+ * captured when the chain is created by {@link #supplyAsync(Supplier)}/{@link #runAsync(Runnable)}.
+ * <p>
+ * The TTL values are captured only <b>once</b> per stage chain, all the dependent stages
+ * (e.g. {@code thenApplyAsync}/{@code thenComposeAsync}/{@code handleAsync}) share the captured values
+ * and the bound executor, so no capture and no {@link TtlRunnable} are needed per stage;
+ * only a tiny runnable replaying the shared captured values is created for each async stage.
+ * <p>
+ * If the captured values can NOT be shared, aka. a transmittee value is a copy
+ * ({@link TransmittableThreadLocal#transmitteeValue(Object)} is overridden,
+ * or a copying generator is registered by {@link com.alibaba.ttl3.transmitter.ThreadLocalTransmitRegistry}),
+ * every async stage transmits its own copy of the values captured at chain creation,
+ * so the parallel branches of the chain never share a copy.
+ * <p>
+ * <b><i>Note:</i></b>
+ * <ul>
+ * <li>the async stages without executor argument are overridden to run by the executor of the stage chain.
+ *     In {@code Java 9+}, the dependent stages are created by the {@code CompletableFuture} hook
+ *     {@link #newIncompleteFuture()}, so every dependent stage is a {@link TtlCompletableFuture}.
+ *     In {@code Java 8}, only the stages returned by the async methods without executor argument
+ *     are {@link TtlCompletableFuture}; the stage chain continues through these methods only.</li>
+ * <li>the async stages with executor argument(e.g. {@code thenApplyAsync(fn, executor)}) are executed
+ *     by the given executor, wrap the executor by {@link com.alibaba.ttl3.executor.TtlExecutors#getTtlExecutor(Executor)}.</li>
+ * <li>skip the capture and the executor binding when ttl agent is loaded,
+ *     the async stages are already enhanced by the agent.</li>
+ * </ul>
+ *
+ * @param <T> The result type returned by this future's {@code join} and {@code get} methods
+ * @see CompletableFuture
+ * @see TtlWrappers
+ * @see com.alibaba.ttl3.executor.TtlExecutors
+ */
+public final class TtlCompletableFuture<T> extends CompletableFuture<T> implements TtlEnhanced {
+    private static final Executor ASYNC_POOL = ForkJoinPool.getCommonPoolParallelism() > 1
+            ? ForkJoinPool.commonPool() : command -> new Thread(command).start();
+
+    private final Executor executor;
+
+    private TtlCompletableFuture(@NonNull Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Returns a new incomplete {@link TtlCompletableFuture} sharing the captured values and the executor
+     * of this stage chain.
+     * <p>
+     * This method overrides the {@code CompletableFuture#newIncompleteFuture()} of {@code Java 9+}.
+     */
+    @NonNull
+    public <U> CompletableFuture<U> newIncompleteFuture() {
+        return new TtlCompletableFuture<>(executor);
+    }
+
+    /**
+     * Returns the executor of this stage chain, used by the async stages without executor argument.
+     * <p>
+     * This method overrides the {@code CompletableFuture#defaultExecutor()} of {@code Java 9+}.
+     */
+    @NonNull
+    public Executor defaultExecutor() {
+        return executor;
+    }
+
+    // the async stages without executor argument run by the executor of the stage chain,
+    // override explicitly instead of relying on the defaultExecutor hook, which is absent in Java 8.
+
+    @Override
+    public <U> CompletableFuture<U> thenApplyAsync(Function<? super T, ? extends U> fn) {
+        return chain(thenApplyAsync(fn, executor));
+    }
+
+    @Override
+    public CompletableFuture<Void> thenAcceptAsync(Consumer<? super T> action) {
+        return chain(thenAcceptAsync(action, executor));
+    }
+
+    @Override
+    public CompletableFuture<Void> thenRunAsync(Runnable action) {
+        return chain(thenRunAsync(action, executor));
+    }
+
+    @Override
+    public <U, V> CompletableFuture<V> thenCombineAsync(CompletionStage<? extends U> other,
+                                                       BiFunction<? super T, ? super U, ? extends V> fn) {
+        return chain(thenCombineAsync(other, fn, executor));
+    }
+
+    @Override
+    public <U> CompletableFuture<Void> thenAcceptBothAsync(CompletionStage<? extends U> other,
+                                                          BiConsumer<? super T, ? super U> action) {
+        return chain(thenAcceptBothAsync(other, action, executor));
+    }
+
+    @Override
+    public CompletableFuture<Void> runAfterBothAsync(CompletionStage<?> other, Runnable action) {
+        return chain(runAfterBothAsync(other, action, executor));
+    }
+
+    @Override
+    public <U> CompletableFuture<U> applyToEitherAsync(CompletionStage<? extends T> other, Function<? super T, U> fn) {
+        return chain(applyToEitherAsync(other, fn, executor));
+    }
+
+    @Override
+    public CompletableFuture<Void> acceptEitherAsync(CompletionStage<? extends T> other, Consumer<? super T> action) {
+        return chain(acceptEitherAsync(other, action, executor));
+    }
+
+    @Override
+    public CompletableFuture<Void> runAfterEitherAsync(CompletionStage<?> other, Runnable action) {
+        return chain(runAfterEitherAsync(other, action, executor));
+    }
+
+    @Override
+    public <U> CompletableFuture<U> thenComposeAsync(Function<? super T, ? extends CompletionStage<U>> fn) {
+        return chain(thenComposeAsync(fn, executor));
+    }
+
+    @Override
+    public CompletableFuture<T> whenCompleteAsync(BiConsumer<? super T, ? super Throwable> action) {
+        return chain(whenCompleteAsync(action, executor));
+    }
+
+    @Override
+    public <U> CompletableFuture<U> handleAsync(BiFunction<? super T, Throwable, ? extends U> fn) {
+        return chain(handleAsync(fn, executor));
+    }
+
+    /**
+     * Keeps the dependent stage in the stage chain.
+     * <p>
+     * In {@code Java 9+} the dependent stage is already a {@link TtlCompletableFuture} created by {@link #newIncompleteFuture()};
+     * in {@code Java 8} relay the result of the dependent stage to a new {@link TtlCompletableFuture}.
+     */
+    private <U> CompletableFuture<U> chain(CompletableFuture<U> stage) {
+        if (stage instanceof TtlCompletableFuture) return stage;
+
+        final TtlCompletableFuture<U> future = new TtlCompletableFuture<>(executor);
+        stage.whenComplete((v, ex) -> {
+            if (ex == null) future.complete(v);
+            else future.completeExceptionally(ex);
+        });
+        return future;
+    }
+
+    /**
+     * Returns a new {@link TtlCompletableFuture} that is asynchronously completed by a task running in
+     * the {@link ForkJoinPool#commonPool()} with the value obtained by calling the given Supplier.
+     *
+     * @see CompletableFuture#supplyAsync(Supplier)
+     */
+    @NonNull
+    public static <U> TtlCompletableFuture<U> supplyAsync(@NonNull Supplier<U> supplier) {
+        return supplyAsync(supplier, ASYNC_POOL);
+    }
+
+    /**
+     * Returns a new {@link TtlCompletableFuture} that is asynchronously completed by a task running in
+     * the given executor with the value obtained by calling the given Supplier.
+     * <p>
+     * The dependent async stages without executor argument are executed by the given executor too.
+     *
+     * @see CompletableFuture#supplyAsync(Supplier, Executor)
+     */
+    @NonNull
+    public static <U> TtlCompletableFuture<U> supplyAsync(@NonNull Supplier<U> supplier, @NonNull Executor executor) {
+        if (supplier == null) throw new NullPointerException("supplier is null");
+        final TtlCompletableFuture<U> future = new TtlCompletableFuture<>(bind(executor));
+        future.executor.execute(() -> {
+            if (future.isDone()) return;
+            try {
+                future.complete(supplier.get());
+            } catch (Throwable ex) {
+                future.completeExceptionally(ex instanceof CompletionException ? ex : new CompletionException(ex));
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Returns a new {@link TtlCompletableFuture} that is asynchronously completed by a task running in
+     * the {@link ForkJoinPool#commonPool()} after it runs the given action.
+     *
+     * @see CompletableFuture#runAsync(Runnable)
+     */
+    @NonNull
+    public static TtlCompletableFuture<Void> runAsync(@NonNull Runnable runnable) {
+        return runAsync(runnable, ASYNC_POOL);
+    }
+
+    /**
+     * Returns a new {@link TtlCompletableFuture} that is asynchronously completed by a task running in
+     * the given executor after it runs the given action.
+     * <p>
+     * The dependent async stages without executor argument are executed by the given executor too.
+     *
+     * @see CompletableFuture#runAsync(Runnable, Executor)
+     */
+    @NonNull
+    public static TtlCompletableFuture<Void> runAsync(@NonNull Runnable runnable, @NonNull Executor executor) {
+        if (runnable == null) throw new NullPointerException("runnable is null");
+        return supplyAsync(() -> {
+            runnable.run();
+            return null;
+        }, executor);
+    }
+
+    /**
+     * capture once, and bind the captured values to the executor of the stage chain.
+     */
+    @NonNull
+    private static Executor bind(@NonNull Executor executor) {
+        if (executor == null) throw new NullPointerException("executor is null");
+        if (TtlAgentStatus.getInstance().isTtlAgentLoaded()) return executor;
+        return new CapturedExecutor(executor, capture(), TransmittableThreadLocal.isCaptureShareable());
+    }
+
+    /**
+     * The executor replaying the captured values of the stage chain around every async stage.
+     */
+    private static final class CapturedExecutor implements Executor, TtlWrapper<Executor>, TtlEnhanced {
+        private final Executor executor;
+        private final Capture captured;
+        private final boolean shareable;
+
+        CapturedExecutor(@NonNull Executor executor, @NonNull Capture captured, boolean shareable) {
+            this.executor = executor;
+            this.captured = captured;
+            this.shareable = shareable;
+        }
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            executor.execute(new CapturedCommand(command, this));
+        }
+
+        /**
+         * The captured values transmitted to an async stage; a copy of the captured values for every stage
+         * if the captured values can not be shared, so the captured values of chain are never exposed to the stages.
+         */
+        @NonNull
+        Capture capturedForStage() {
+            if (shareable) return captured;
+            return runSupplierWithCaptured(captured, Transmitter::capture);
+        }
+
+        @NonNull
+        @Override
+        public Executor unwrap() {
+            return executor;
+        }
+
+        @Override
+        public String toString() {
+            return this.getClass().getName() + " - " + executor;
+        }
+    }
+
+    /**
+     * The async stage command running with the captured values of the stage chain.
+     * <p>
+     * the only object created per async stage, holds no captured values itself.
+     */
+    private static final class CapturedCommand implements Runnable {
+        private final Runnable command;
+        private final CapturedExecutor capturedExecutor;
+
+        CapturedCommand(@NonNull Runnable command, @NonNull CapturedExecutor capturedExecutor) {
+            this.command = command;
+            this.capturedExecutor = capturedExecutor;
+        }
+
+        @Override
+        public void run() {
+            final Backup backup = replay(capturedExecutor.capturedForStage());
+            try {
+                command.run();
+            } finally {
+                restore(backup);
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.alibaba.ttl3;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+
+/**
+ * The per-thread holder of the {@link TransmittableThreadLocal} instances that have value in the thread.
+ * <p>
+ * Every {@link TransmittableThreadLocal} instance is assigned a stable integer {@link Slot slot} on construction,
+ * the holder is a plain array indexed by the slot index, so the membership check
+ * (the hot path of {@link TransmittableThreadLocal#get()}) is a single array load and identity comparison.
+ * <p>
+ * The slot of a garbage collected {@link TransmittableThreadLocal} instance is recycled
+ * and reassigned to a later created instance; since the holder stores the {@link Slot} object
+ * (not only the index), a stale entry of a recycled slot never matches the new instance,
+ * and is expunged lazily.
+ * <p>
+ * The holder also caches the immutable {@link #snapshot} of the TTL values of the thread,
+ * any change of the TTL values of the thread(including the expunge of stale entries) resets the snapshot.
+ * The snapshot refers to the {@link Slot}s instead of the {@link TransmittableThreadLocal} instances,
+ * so the cached snapshot never keeps the collected {@link TransmittableThreadLocal} instances reachable.
+ */
+final class TtlHolder {
+    ////////////////////////////////////////////////////////////////////////////////
+    // slot allocation
+    ////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * The slot of a {@link TransmittableThreadLocal} instance, weakly reference its owner.
+     */
+    static final class Slot extends WeakReference<TransmittableThreadLocal<Object>> {
+        final int index;
+
+        @SuppressWarnings("unchecked")
+        private Slot(TransmittableThreadLocal<?> owner, int index) {
+            super((TransmittableThreadLocal<Object>) owner, collectedSlotQueue);
+            this.index = index;
+        }
+    }
+
+    private static final Object slotAllocationLock = new Object();
+    private static final ReferenceQueue<TransmittableThreadLocal<Object>> collectedSlotQueue = new ReferenceQueue<>();
+
+    // Keep the allocated slots strongly reachable until their owners are collected,
+    // otherwise the slot would be collected together with its owner and never be enqueued for recycling.
+    private static Slot[] allocatedSlots = new Slot[16];
+    private static int[] freeIndexes = new int[16];
+    private static int freeIndexCount = 0;
+    private static int nextIndex = 0;
+
+    static Slot allocateSlot(TransmittableThreadLocal<?> owner) {
+        synchronized (slotAllocationLock) {
+            recycleCollectedSlots();
+
+            final int index = freeIndexCount > 0 ? freeIndexes[--freeIndexCount] : nextIndex++;
+            final Slot slot = new Slot(owner, index);
+            if (index >= allocatedSlots.length) {
+                allocatedSlots = Arrays.copyOf(allocatedSlots, newCapacity(allocatedSlots.length, index));
+            }
+            allocatedSlots[index] = slot;
+            return slot;
+        }
+    }
+
+    // guarded by slotAllocationLock
+    private static void recycleCollectedSlots() {
+        for (Reference<?> ref; (ref = collectedSlotQueue.poll()) != null; ) {
+            final int index = ((Slot) ref).index;
+            if (allocatedSlots[index] != ref) continue;
+
+            allocatedSlots[index] = null;
+            if (freeIndexCount == freeIndexes.length) {
+                freeIndexes = Arrays.copyOf(freeIndexes, freeIndexes.length << 1);
+            }
+            freeIndexes[freeIndexCount++] = index;
+        }
+    }
+
+    private static int newCapacity(int oldCapacity, int index) {
+        return Math.max(index + 1, oldCapacity << 1);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////
+    // per-thread holder
+    ////////////////////////////////////////////////////////////////////////////////
+
+    private static final Slot[] EMPTY_SLOTS = new Slot[0];
+
+    private Slot[] slots;
+    private int size;
+
+    /**
+     * The cached immutable snapshot of the TTL values of this thread, {@code null} if not available.
+     * <p>
+     * The content is owned by the {@code TtlTransmittee} of {@link TransmittableThreadLocal},
+     * and is reset by {@link #add(Slot)}/{@link #remove(Slot)}/{@link #removeAt(int)}
+     * and the expunge of {@link #ttlAt(int)}.
+     */
+    @Nullable
+    Object[] snapshot;
+
+    TtlHolder() {
+        this.slots = EMPTY_SLOTS;
+    }
+
+    /**
+     * copy constructor, used by the inheritance of child thread.
+     */
+    TtlHolder(TtlHolder parent) {
+        this.slots = parent.size == 0 ? EMPTY_SLOTS : parent.slots.clone();
+        this.size = parent.size;
+    }
+
+    boolean contains(Slot slot) {
+        final int index = slot.index;
+        final Slot[] s = slots;
+        return index < s.length && s[index] == slot;
+    }
+
+    /**
+     * Adds the slot to the holder, or marks the value of the slot changed if already added.
+     */
+    void add(Slot slot) {
+        snapshot = null;
+
+        final int index = slot.index;
+        if (index >= slots.length) {
+            slots = Arrays.copyOf(slots, newCapacity(slots.length, index));
+        }
+
+        final Slot old = slots[index];
+        if (old == slot) return;
+        // the old entry(if any) is a stale entry of the recycled slot, already counted in size
+        if (old == null) size++;
+        slots[index] = slot;
+    }
+
+    void remove(Slot slot) {
+        final int index = slot.index;
+        if (index < slots.length && slots[index] == slot) {
+            snapshot = null;
+            slots[index] = null;
+            size--;
+        }
+    }
+
+    /**
+     * the count of entries, may include the stale entries not expunged yet.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * the upper bound(exclusive) of slot index, for iteration by {@link #ttlAt(int)}.
+     */
+    int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * Returns the {@link TransmittableThreadLocal} instance at the slot index,
+     * or {@code null} if the slot is empty; the stale entry is expunged.
+     */
+    @Nullable
+    TransmittableThreadLocal<Object> ttlAt(int index) {
+        final Slot slot = slots[index];
+        if (slot == null) return null;
+
+        final TransmittableThreadLocal<Object> ttl = slot.get();
+        if (ttl == null) {
+            snapshot = null;
+            slots[index] = null;
+            size--;
+        }
+        return ttl;
+    }
+
+    void removeAt(int index) {
+        if (slots[index] != null) {
+            snapshot = null;
+            slots[index] = null;
+            size--;
+        }
+    }
+}
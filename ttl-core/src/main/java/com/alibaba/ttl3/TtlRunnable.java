@@ -6,6 +6,7 @@ import com.alibaba.ttl3.spi.TtlAttachments;
 import com.alibaba.ttl3.spi.TtlAttachmentsDelegate;
 import com.alibaba.ttl3.spi.TtlEnhanced;
 import com.alibaba.ttl3.spi.TtlWrapper;
+import com.alibaba.ttl3.transmitter.CapturePlan;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.Nullable;
 import org.jetbrains.annotations.Contract;
@@ -14,7 +15,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import static com.alibaba.ttl3.transmitter.Transmitter.*;
 
@@ -36,26 +38,41 @@ import static com.alibaba.ttl3.transmitter.Transmitter.*;
  * @see java.util.concurrent.Executors
  */
 public final class TtlRunnable implements Runnable, TtlWrapper<Runnable>, TtlEnhanced, TtlAttachments {
-    private final AtomicReference<Capture> capturedRef;
+    private volatile Capture captured;
     private final Runnable runnable;
     private final boolean releaseTtlValueReferenceAfterRun;
 
-    private TtlRunnable(@NonNull Runnable runnable, boolean releaseTtlValueReferenceAfterRun) {
-        this.capturedRef = new AtomicReference<>(capture());
+    private static final AtomicReferenceFieldUpdater<TtlRunnable, Capture> capturedUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(TtlRunnable.class, Capture.class, "captured");
+
+    private TtlRunnable(@NonNull Runnable runnable, boolean releaseTtlValueReferenceAfterRun, @NonNull Capture captured) {
+        this.captured = captured;
         this.runnable = runnable;
         this.releaseTtlValueReferenceAfterRun = releaseTtlValueReferenceAfterRun;
     }
 
     /**
      * wrap method {@link Runnable#run()}.
+     * <p>
+     * If the wrapped {@link Runnable} is a {@link Future} already done before run
+     * (e.g. a {@link java.util.concurrent.FutureTask} cancelled while queued in the executor),
+     * running it is a no-op, so the replay/restore of the captured values is skipped.
+     * <p>
+     * The captured values of a {@link TtlRunnable} submitted to an {@link java.util.concurrent.ExecutorService}
+     * are released on cancel: the cancelled {@link java.util.concurrent.FutureTask} drops its task, even if still queued.
      */
     @Override
     public void run() {
-        final Capture captured = capturedRef.get();
-        if (captured == null || releaseTtlValueReferenceAfterRun && !capturedRef.compareAndSet(captured, null)) {
+        final Capture captured = this.captured;
+        if (captured == null || releaseTtlValueReferenceAfterRun && !capturedUpdater.compareAndSet(this, captured, null)) {
             throw new IllegalStateException("TTL value reference is released after run!");
         }
 
+        if (runnable instanceof Future && ((Future<?>) runnable).isDone()) {
+            runnable.run();
+            return;
+        }
+
         final Backup backup = replay(captured);
         try {
             runnable.run();
@@ -129,6 +146,53 @@ public final class TtlRunnable implements Runnable, TtlWrapper<Runnable>, TtlEnh
     @Nullable
     @Contract(value = "null, _, _ -> null; !null, _, _ -> !null", pure = true)
     public static TtlRunnable get(@Nullable Runnable runnable, boolean releaseTtlValueReferenceAfterRun, boolean idempotent) {
+        return get(runnable, releaseTtlValueReferenceAfterRun, idempotent, (Capture) null);
+    }
+
+    /**
+     * Factory method, wrap input {@link Runnable} to {@link TtlRunnable},
+     * transmit the values named by the {@link CapturePlan} only.
+     *
+     * @param runnable input {@link Runnable}. if input is {@code null}, return {@code null}.
+     * @param plan     the capture plan
+     * @return Wrapped {@link Runnable}
+     * @throws IllegalStateException when input is {@link TtlRunnable} already.
+     * @see CapturePlan
+     */
+    @Nullable
+    @Contract(value = "null, _ -> null; !null, _ -> !null", pure = true)
+    public static TtlRunnable get(@Nullable Runnable runnable, @NonNull CapturePlan plan) {
+        return get(runnable, false, false, plan);
+    }
+
+    /**
+     * Factory method, wrap input {@link Runnable} to {@link TtlRunnable},
+     * transmit the values named by the {@link CapturePlan} only.
+     *
+     * @param runnable                         input {@link Runnable}. if input is {@code null}, return {@code null}.
+     * @param releaseTtlValueReferenceAfterRun release TTL value reference after run, avoid memory leak even if {@link TtlRunnable} is referred.
+     * @param idempotent                       is idempotent mode or not. if {@code true}, just return input {@link Runnable} when it's {@link TtlRunnable},
+     *                                         otherwise throw {@link IllegalStateException}.
+     *                                         <B><I>Caution</I></B>: {@code true} will cover up bugs! <b>DO NOT</b> set, only when you know why.
+     * @param plan                             the capture plan
+     * @return Wrapped {@link Runnable}
+     * @throws IllegalStateException when input is {@link TtlRunnable} already and not idempotent.
+     * @see CapturePlan
+     */
+    @Nullable
+    @Contract(value = "null, _, _, _ -> null; !null, _, _, _ -> !null", pure = true)
+    public static TtlRunnable get(@Nullable Runnable runnable, boolean releaseTtlValueReferenceAfterRun, boolean idempotent,
+                                  @NonNull CapturePlan plan) {
+        if (runnable == null || runnable instanceof TtlEnhanced) return get(runnable, releaseTtlValueReferenceAfterRun, idempotent);
+        return new TtlRunnable(runnable, releaseTtlValueReferenceAfterRun, capture(plan));
+    }
+
+    /**
+     * @param captured the captured values shared by the wrapped tasks, {@code null} to capture for this task
+     */
+    @Nullable
+    private static TtlRunnable get(@Nullable Runnable runnable, boolean releaseTtlValueReferenceAfterRun, boolean idempotent,
+                                   @Nullable Capture captured) {
         if (runnable == null) return null;
 
         if (runnable instanceof TtlEnhanced) {
@@ -136,7 +200,7 @@ public final class TtlRunnable implements Runnable, TtlWrapper<Runnable>, TtlEnh
             if (idempotent) return (TtlRunnable) runnable;
             else throw new IllegalStateException("Already TtlRunnable!");
         }
-        return new TtlRunnable(runnable, releaseTtlValueReferenceAfterRun);
+        return new TtlRunnable(runnable, releaseTtlValueReferenceAfterRun, captured == null ? capture() : captured);
     }
 
     /**
@@ -166,6 +230,11 @@ public final class TtlRunnable implements Runnable, TtlWrapper<Runnable>, TtlEnh
 
     /**
      * wrap input {@link Runnable} Collection to {@link TtlRunnable} Collection.
+     * <p>
+     * The TTL values are captured only once, and the immutable captured values are shared by all the wrapped tasks
+     * if no transmittee value is a copy, aka. {@link TransmittableThreadLocal#transmitteeValue(Object)} is not overridden
+     * and no copying generator is registered by {@link com.alibaba.ttl3.transmitter.ThreadLocalTransmitRegistry};
+     * otherwise the values are captured for each task.
      *
      * @param tasks                            task to be wrapped. if input is {@code null}, return {@code null}.
      * @param releaseTtlValueReferenceAfterRun release TTL value reference after run, avoid memory leak even if {@link TtlRunnable} is referred.
@@ -179,9 +248,40 @@ public final class TtlRunnable implements Runnable, TtlWrapper<Runnable>, TtlEnh
     public static List<TtlRunnable> gets(@Nullable Collection<? extends Runnable> tasks, boolean releaseTtlValueReferenceAfterRun, boolean idempotent) {
         if (tasks == null) return Collections.emptyList();
 
-        List<TtlRunnable> copy = new ArrayList<>();
+        // the captured values are shared only if no copy is made for each task
+        final Capture captured = TransmittableThreadLocal.isCaptureShareable() ? capture() : null;
+        List<TtlRunnable> copy = new ArrayList<>(tasks.size());
+        for (Runnable task : tasks) {
+            copy.add(TtlRunnable.get(task, releaseTtlValueReferenceAfterRun, idempotent, captured));
+        }
+        return copy;
+    }
+
+    /**
+     * wrap input {@link Runnable} Collection to {@link TtlRunnable} Collection,
+     * transmit the values named by the {@link CapturePlan} only.
+     * <p>
+     * The values are captured only once and shared by all the wrapped tasks on the same condition as {@link #gets(Collection, boolean, boolean)}.
+     *
+     * @param tasks                            task to be wrapped. if input is {@code null}, return {@code null}.
+     * @param releaseTtlValueReferenceAfterRun release TTL value reference after run, avoid memory leak even if {@link TtlRunnable} is referred.
+     * @param idempotent                       is idempotent mode or not. if {@code true}, just return input {@link Runnable} when it's {@link TtlRunnable},
+     *                                         otherwise throw {@link IllegalStateException}.
+     *                                         <B><I>Caution</I></B>: {@code true} will cover up bugs! <b>DO NOT</b> set, only when you know why.
+     * @param plan                             the capture plan
+     * @return wrapped tasks
+     * @throws IllegalStateException when input is {@link TtlRunnable} already and not idempotent.
+     * @see CapturePlan
+     */
+    @NonNull
+    public static List<TtlRunnable> gets(@Nullable Collection<? extends Runnable> tasks, boolean releaseTtlValueReferenceAfterRun, boolean idempotent,
+                                         @NonNull CapturePlan plan) {
+        if (tasks == null) return Collections.emptyList();
+
+        final Capture shared = TransmittableThreadLocal.isCaptureShareable() ? capture(plan) : null;
+        List<TtlRunnable> copy = new ArrayList<>(tasks.size());
         for (Runnable task : tasks) {
-            copy.add(TtlRunnable.get(task, releaseTtlValueReferenceAfterRun, idempotent));
+            copy.add(TtlRunnable.get(task, releaseTtlValueReferenceAfterRun, idempotent, shared != null ? shared : capture(plan)));
         }
         return copy;
     }
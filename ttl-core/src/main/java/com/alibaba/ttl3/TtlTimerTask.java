@@ -9,7 +9,7 @@ import edu.umd.cs.findbugs.annotations.Nullable;
 import org.jetbrains.annotations.Contract;
 
 import java.util.*;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import static com.alibaba.ttl3.transmitter.Transmitter.*;
 
@@ -36,12 +36,15 @@ import static com.alibaba.ttl3.transmitter.Transmitter.*;
  */
 @Deprecated
 public final class TtlTimerTask extends TimerTask implements TtlWrapper<TimerTask>, TtlEnhanced {
-    private final AtomicReference<Capture> capturedRef;
+    private volatile Capture captured;
     private final TimerTask timerTask;
     private final boolean releaseTtlValueReferenceAfterRun;
 
+    private static final AtomicReferenceFieldUpdater<TtlTimerTask, Capture> capturedUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(TtlTimerTask.class, Capture.class, "captured");
+
     private TtlTimerTask(@NonNull TimerTask timerTask, boolean releaseTtlValueReferenceAfterRun) {
-        this.capturedRef = new AtomicReference<>(capture());
+        this.captured = capture();
         this.timerTask = timerTask;
         this.releaseTtlValueReferenceAfterRun = releaseTtlValueReferenceAfterRun;
     }
@@ -51,8 +54,8 @@ public final class TtlTimerTask extends TimerTask implements TtlWrapper<TimerTas
      */
     @Override
     public void run() {
-        final Capture captured = capturedRef.get();
-        if (captured == null || releaseTtlValueReferenceAfterRun && !capturedRef.compareAndSet(captured, null)) {
+        final Capture captured = this.captured;
+        if (captured == null || releaseTtlValueReferenceAfterRun && !capturedUpdater.compareAndSet(this, captured, null)) {
             throw new IllegalStateException("TTL value reference is released after run!");
         }
 
@@ -64,10 +67,16 @@ public final class TtlTimerTask extends TimerTask implements TtlWrapper<TimerTas
         }
     }
 
+    /**
+     * cancel the task, and release the captured values if {@code releaseTtlValueReferenceAfterRun};
+     * the cancelled task may be kept in the queue of {@link Timer} until its scheduled time.
+     */
     @Override
     public boolean cancel() {
         timerTask.cancel();
-        return super.cancel();
+        final boolean cancelled = super.cancel();
+        if (cancelled && releaseTtlValueReferenceAfterRun) this.captured = null;
+        return cancelled;
     }
 
     /**
@@ -2,6 +2,10 @@ package com.alibaba.ttl3.agent;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
 
+import java.lang.reflect.Constructor;
+import java.util.Collections;
+import java.util.List;
+
 import static com.alibaba.ttl3.internal.util.Utils.propagateIfFatal;
 
 final class EmptyTtlAgentStatus implements TtlAgentStatus {
@@ -10,9 +14,39 @@ final class EmptyTtlAgentStatus implements TtlAgentStatus {
         return false;
     }
 
+    @NonNull
+    @Override
+    public TransformStats getTransformStats() {
+        return EmptyTransformStats.INSTANCE;
+    }
+
     private EmptyTtlAgentStatus() {
     }
 
+    private static final class EmptyTransformStats implements TransformStats {
+        static final EmptyTransformStats INSTANCE = new EmptyTransformStats();
+
+        @Override
+        public long getReceivedClassCount() {
+            return 0;
+        }
+
+        @Override
+        public long getTransformedClassCount() {
+            return 0;
+        }
+
+        @Override
+        public long getTotalNanos() {
+            return 0;
+        }
+
+        @NonNull
+        @Override
+        public List<TransformletStats> getTransformletStats() {
+            return Collections.emptyList();
+        }
+    }
 
     ///////////////////////////////////////////////////////////////////////////
     // Singleton maintenance logic
@@ -32,7 +66,10 @@ final class EmptyTtlAgentStatus implements TtlAgentStatus {
 
             TtlAgentStatus ret;
             try {
-                ret = (TtlAgentStatus) Class.forName(TTL_AGENT_CLASS).getDeclaredConstructor().newInstance();
+                // the constructor of TtlAgent is private, only for this method
+                final Constructor<?> constructor = Class.forName(TTL_AGENT_CLASS).getDeclaredConstructor();
+                constructor.setAccessible(true);
+                ret = (TtlAgentStatus) constructor.newInstance();
             } catch (ClassNotFoundException e) {
                 ret = new EmptyTtlAgentStatus();
             } catch (Exception e) {
@@ -2,6 +2,8 @@ package com.alibaba.ttl3.agent;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
 
+import java.util.List;
+
 import static com.alibaba.ttl3.agent.EmptyTtlAgentStatus.getLoadedAgentOrEmpty;
 
 public interface TtlAgentStatus {
@@ -10,8 +12,72 @@ public interface TtlAgentStatus {
      */
     boolean isTtlAgentLoaded();
 
+    /**
+     * The class transform statistics of TTL agent, all counters are zero if TTL agent is not loaded.
+     */
+    @NonNull
+    TransformStats getTransformStats();
+
     @NonNull
     static TtlAgentStatus getInstance() {
         return getLoadedAgentOrEmpty();
     }
+
+    /**
+     * The class transform statistics of TTL agent, accumulated since the TTL agent is loaded.
+     */
+    interface TransformStats {
+        /**
+         * The count of classes received by the TTL agent transformer.
+         */
+        long getReceivedClassCount();
+
+        /**
+         * The count of classes transformed by the TTL agent.
+         */
+        long getTransformedClassCount();
+
+        /**
+         * The cumulative nanoseconds spent in the TTL agent transformer, including the transformlets.
+         */
+        long getTotalNanos();
+
+        /**
+         * The statistics of each transformlet, in the order the transformlets are applied.
+         */
+        @NonNull
+        List<TransformletStats> getTransformletStats();
+    }
+
+    /**
+     * The class transform statistics of one transformlet.
+     */
+    interface TransformletStats {
+        /**
+         * The class name of the transformlet.
+         */
+        @NonNull
+        String getTransformletClassName();
+
+        /**
+         * The count of classes inspected by the transformlet.
+         */
+        long getInspectedClassCount();
+
+        /**
+         * The count of classes transformed by the transformlet.
+         */
+        long getTransformedClassCount();
+
+        /**
+         * The cumulative nanoseconds spent in inspecting and transforming classes by the transformlet,
+         * NOT including the generation of the transformed bytecode.
+         */
+        long getTransformNanos();
+
+        /**
+         * The cumulative nanoseconds spent in generating the bytecode of the classes transformed by the transformlet.
+         */
+        long getToBytecodeNanos();
+    }
 }
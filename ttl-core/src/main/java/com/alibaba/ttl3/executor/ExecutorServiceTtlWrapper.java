@@ -1,10 +1,10 @@
 package com.alibaba.ttl3.executor;
 
 import com.alibaba.ttl3.TransmittableThreadLocal;
-import com.alibaba.ttl3.TtlCallable;
-import com.alibaba.ttl3.TtlRunnable;
 import com.alibaba.ttl3.spi.TtlEnhanced;
+import com.alibaba.ttl3.transmitter.CapturePlan;
 import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 import java.util.Collection;
@@ -22,8 +22,8 @@ import java.util.concurrent.*;
 class ExecutorServiceTtlWrapper extends ExecutorTtlWrapper implements ExecutorService, TtlEnhanced {
     private final ExecutorService executorService;
 
-    ExecutorServiceTtlWrapper(@NonNull ExecutorService executorService, boolean idempotent) {
-        super(executorService, idempotent);
+    ExecutorServiceTtlWrapper(@NonNull ExecutorService executorService, boolean idempotent, @Nullable CapturePlan plan) {
+        super(executorService, idempotent, plan);
         this.executorService = executorService;
     }
 
@@ -56,42 +56,42 @@ class ExecutorServiceTtlWrapper extends ExecutorTtlWrapper implements ExecutorSe
     @NonNull
     @Override
     public <T> Future<T> submit(@NonNull Callable<T> task) {
-        return executorService.submit(TtlCallable.get(task, false, idempotent));
+        return executorService.submit(ttlCallable(task));
     }
 
     @NonNull
     @Override
     public <T> Future<T> submit(@NonNull Runnable task, T result) {
-        return executorService.submit(TtlRunnable.get(task, false, idempotent), result);
+        return executorService.submit(ttlRunnable(task), result);
     }
 
     @NonNull
     @Override
     public Future<?> submit(@NonNull Runnable task) {
-        return executorService.submit(TtlRunnable.get(task, false, idempotent));
+        return executorService.submit(ttlRunnable(task));
     }
 
     @NonNull
     @Override
     public <T> List<Future<T>> invokeAll(@NonNull Collection<? extends Callable<T>> tasks) throws InterruptedException {
-        return executorService.invokeAll(TtlCallable.gets(tasks, false, idempotent));
+        return executorService.invokeAll(ttlCallables(tasks));
     }
 
     @NonNull
     @Override
     public <T> List<Future<T>> invokeAll(@NonNull Collection<? extends Callable<T>> tasks, long timeout, @NonNull TimeUnit unit) throws InterruptedException {
-        return executorService.invokeAll(TtlCallable.gets(tasks, false, idempotent), timeout, unit);
+        return executorService.invokeAll(ttlCallables(tasks), timeout, unit);
     }
 
     @NonNull
     @Override
     public <T> T invokeAny(@NonNull Collection<? extends Callable<T>> tasks) throws InterruptedException, ExecutionException {
-        return executorService.invokeAny(TtlCallable.gets(tasks, false, idempotent));
+        return executorService.invokeAny(ttlCallables(tasks));
     }
 
     @Override
     public <T> T invokeAny(@NonNull Collection<? extends Callable<T>> tasks, long timeout, @NonNull TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
-        return executorService.invokeAny(TtlCallable.gets(tasks, false, idempotent), timeout, unit);
+        return executorService.invokeAny(ttlCallables(tasks), timeout, unit);
     }
 
     @NonNull
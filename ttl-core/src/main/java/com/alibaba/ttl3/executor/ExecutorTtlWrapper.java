@@ -1,11 +1,18 @@
 package com.alibaba.ttl3.executor;
 
 import com.alibaba.ttl3.TransmittableThreadLocal;
+import com.alibaba.ttl3.TtlCallable;
 import com.alibaba.ttl3.TtlRunnable;
 import com.alibaba.ttl3.spi.TtlEnhanced;
 import com.alibaba.ttl3.spi.TtlWrapper;
+import com.alibaba.ttl3.transmitter.CapturePlan;
 import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
 import java.util.concurrent.Executor;
 
 /**
@@ -18,15 +25,33 @@ import java.util.concurrent.Executor;
 class ExecutorTtlWrapper implements Executor, TtlWrapper<Executor>, TtlEnhanced {
     private final Executor executor;
     protected final boolean idempotent;
+    /**
+     * the capture plan of the submitted tasks, {@code null} to capture all.
+     */
+    @Nullable
+    protected final CapturePlan plan;
 
-    ExecutorTtlWrapper(@NonNull Executor executor, boolean idempotent) {
+    ExecutorTtlWrapper(@NonNull Executor executor, boolean idempotent, @Nullable CapturePlan plan) {
         this.executor = executor;
         this.idempotent = idempotent;
+        this.plan = plan;
     }
 
     @Override
     public void execute(@NonNull Runnable command) {
-        executor.execute(TtlRunnable.get(command, false, idempotent));
+        executor.execute(ttlRunnable(command));
+    }
+
+    final TtlRunnable ttlRunnable(Runnable task) {
+        return plan == null ? TtlRunnable.get(task, false, idempotent) : TtlRunnable.get(task, false, idempotent, plan);
+    }
+
+    final <T> TtlCallable<T> ttlCallable(Callable<T> task) {
+        return plan == null ? TtlCallable.get(task, false, idempotent) : TtlCallable.get(task, false, idempotent, plan);
+    }
+
+    final <T> List<TtlCallable<T>> ttlCallables(Collection<? extends Callable<T>> tasks) {
+        return plan == null ? TtlCallable.gets(tasks, false, idempotent) : TtlCallable.gets(tasks, false, idempotent, plan);
     }
 
     @NonNull
@@ -43,6 +68,7 @@ class ExecutorTtlWrapper implements Executor, TtlWrapper<Executor>, TtlEnhanced
         ExecutorTtlWrapper that = (ExecutorTtlWrapper) o;
 
         if (idempotent != that.idempotent) return false;
+        if (!Objects.equals(plan, that.plan)) return false;
         return executor.equals(that.executor);
     }
 
@@ -50,6 +76,7 @@ class ExecutorTtlWrapper implements Executor, TtlWrapper<Executor>, TtlEnhanced
     public int hashCode() {
         int result = executor.hashCode();
         result = 31 * result + (idempotent ? 1 : 0);
+        result = 31 * result + Objects.hashCode(plan);
         return result;
     }
 
@@ -0,0 +1,84 @@
+package com.alibaba.ttl3.executor;
+
+import com.alibaba.ttl3.TransmittableThreadLocal;
+import com.alibaba.ttl3.transmitter.CapturePlan;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+/**
+ * {@link TransmitPolicy} selects the transmittance of the tasks submitted to a thread pool/{@code executor},
+ * accepted by the policy wrap methods of {@link TtlExecutors}:
+ * <ul>
+ * <li>{@link #all()}: transmit all the {@link TransmittableThreadLocal} values and the registered transmittees,
+ *     same as the wrap methods without policy.</li>
+ * <li>{@link #of(CapturePlan)}: transmit the values named by the {@link CapturePlan} only.</li>
+ * <li>{@link #none()}: transmit nothing, e.g. the internal housekeeping thread pool never needing the context.</li>
+ * </ul>
+ * <p>
+ * When ttl agent is loaded, the thread pools of {@code JDK} are enhanced by ttl agent,
+ * the {@link #none()} policy of executor classes is configured by the ttl agent option
+ * {@code ttl.agent.no.transmit.executor.class.names}, see {@code TtlAgent}.
+ *
+ * @see TtlExecutors#getTtlExecutor(java.util.concurrent.Executor, TransmitPolicy)
+ * @see TtlExecutors#getTtlExecutorService(java.util.concurrent.ExecutorService, TransmitPolicy)
+ * @see TtlExecutors#getTtlScheduledExecutorService(java.util.concurrent.ScheduledExecutorService, TransmitPolicy)
+ * @see CapturePlan
+ */
+public final class TransmitPolicy {
+    private static final TransmitPolicy ALL = new TransmitPolicy(true, null);
+    private static final TransmitPolicy NONE = new TransmitPolicy(false, null);
+
+    private final boolean transmit;
+    @Nullable
+    private final CapturePlan plan;
+
+    private TransmitPolicy(boolean transmit, @Nullable CapturePlan plan) {
+        this.transmit = transmit;
+        this.plan = plan;
+    }
+
+    /**
+     * the policy transmitting all the {@link TransmittableThreadLocal} values and the registered transmittees.
+     */
+    @NonNull
+    public static TransmitPolicy all() {
+        return ALL;
+    }
+
+    /**
+     * the policy transmitting nothing.
+     */
+    @NonNull
+    public static TransmitPolicy none() {
+        return NONE;
+    }
+
+    /**
+     * the policy transmitting the values named by the {@link CapturePlan} only.
+     */
+    @NonNull
+    public static TransmitPolicy of(@NonNull CapturePlan plan) {
+        return new TransmitPolicy(true, plan);
+    }
+
+    /**
+     * whether transmit any value, {@code false} for the policy {@link #none()}.
+     */
+    public boolean isTransmit() {
+        return transmit;
+    }
+
+    /**
+     * the capture plan of the policy {@link #of(CapturePlan)}, {@code null} for the policy {@link #all()}/{@link #none()}.
+     */
+    @Nullable
+    public CapturePlan getCapturePlan() {
+        return plan;
+    }
+
+    @Override
+    public String toString() {
+        if (!transmit) return "TransmitPolicy.none";
+        return plan == null ? "TransmitPolicy.all" : "TransmitPolicy.of(" + plan + ")";
+    }
+}
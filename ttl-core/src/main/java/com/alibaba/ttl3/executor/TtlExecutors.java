@@ -4,12 +4,14 @@ import com.alibaba.ttl3.TransmittableThreadLocal;
 import com.alibaba.ttl3.agent.TtlAgentStatus;
 import com.alibaba.ttl3.spi.TtlEnhanced;
 import com.alibaba.ttl3.spi.TtlWrapper;
+import com.alibaba.ttl3.transmitter.CapturePlan;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.Nullable;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.jetbrains.annotations.Contract;
 
 import java.util.Comparator;
+import java.util.Objects;
 import java.util.concurrent.*;
 import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
 
@@ -71,7 +73,7 @@ public final class TtlExecutors {
         if (TtlAgentStatus.getInstance().isTtlAgentLoaded() || executor == null || executor instanceof TtlEnhanced) {
             return executor;
         }
-        return new ExecutorTtlWrapper(executor, true);
+        return new ExecutorTtlWrapper(executor, true, null);
     }
 
     /**
@@ -90,7 +92,7 @@ public final class TtlExecutors {
         if (TtlAgentStatus.getInstance().isTtlAgentLoaded() || executorService == null || executorService instanceof TtlEnhanced) {
             return executorService;
         }
-        return new ExecutorServiceTtlWrapper(executorService, true);
+        return new ExecutorServiceTtlWrapper(executorService, true, null);
     }
 
 
@@ -110,7 +112,175 @@ public final class TtlExecutors {
         if (TtlAgentStatus.getInstance().isTtlAgentLoaded() || scheduledExecutorService == null || scheduledExecutorService instanceof TtlEnhanced) {
             return scheduledExecutorService;
         }
-        return new ScheduledExecutorServiceTtlWrapper(scheduledExecutorService, true);
+        return new ScheduledExecutorServiceTtlWrapper(scheduledExecutorService, true, null);
+    }
+
+    /**
+     * {@link TransmittableThreadLocal} Wrapper of {@link Executor},
+     * transmit the values named by the {@link CapturePlan} only
+     * from the task submit time of {@link Runnable} to the execution time of {@link Runnable}.
+     * <p>
+     * <b><i>Note:</i></b> wrap even when ttl agent is loaded, the tasks wrapped by the plan are skipped by ttl agent.
+     * If the input is already a TTL wrapper of other plan(or of all values), it is unwrapped and wrapped by this plan.
+     *
+     * @param executor input Executor
+     * @param plan     the capture plan
+     * @return wrapped Executor
+     * @throws IllegalArgumentException if the input is TTL enhanced but not a TTL wrapper, so can not be wrapped by the plan
+     * @see com.alibaba.ttl3.TtlRunnable#get(Runnable, boolean, boolean, CapturePlan)
+     * @see CapturePlan
+     */
+    @Nullable
+    @Contract(value = "null, _ -> null; !null, _ -> !null", pure = true)
+    public static Executor getTtlExecutor(@Nullable Executor executor, @NonNull CapturePlan plan) {
+        if (executor == null || isTtlWrapperOfPlan(executor, plan)) return executor;
+
+        return new ExecutorTtlWrapper(unwrapForPlan(executor), true, plan);
+    }
+
+    /**
+     * {@link TransmittableThreadLocal} Wrapper of {@link ExecutorService},
+     * transmit the values named by the {@link CapturePlan} only
+     * from the task submit time of {@link Runnable} or {@link Callable}
+     * to the execution time of {@link Runnable} or {@link Callable}.
+     * <p>
+     * <b><i>Note:</i></b> wrap even when ttl agent is loaded, the tasks wrapped by the plan are skipped by ttl agent.
+     * If the input is already a TTL wrapper of other plan(or of all values), it is unwrapped and wrapped by this plan.
+     *
+     * @param executorService input ExecutorService
+     * @param plan            the capture plan
+     * @return wrapped ExecutorService
+     * @throws IllegalArgumentException if the input is TTL enhanced but not a TTL wrapper, so can not be wrapped by the plan
+     * @see com.alibaba.ttl3.TtlRunnable#get(Runnable, boolean, boolean, CapturePlan)
+     * @see com.alibaba.ttl3.TtlCallable#get(Callable, boolean, boolean, CapturePlan)
+     * @see CapturePlan
+     */
+    @Nullable
+    @Contract(value = "null, _ -> null; !null, _ -> !null", pure = true)
+    public static ExecutorService getTtlExecutorService(@Nullable ExecutorService executorService, @NonNull CapturePlan plan) {
+        if (executorService == null || isTtlWrapperOfPlan(executorService, plan)) return executorService;
+
+        return new ExecutorServiceTtlWrapper(unwrapForPlan(executorService), true, plan);
+    }
+
+    /**
+     * {@link TransmittableThreadLocal} Wrapper of {@link ScheduledExecutorService},
+     * transmit the values named by the {@link CapturePlan} only
+     * from the task submit time of {@link Runnable} or {@link Callable}
+     * to the execution time of {@link Runnable} or {@link Callable}.
+     * <p>
+     * <b><i>Note:</i></b> wrap even when ttl agent is loaded, the tasks wrapped by the plan are skipped by ttl agent.
+     * If the input is already a TTL wrapper of other plan(or of all values), it is unwrapped and wrapped by this plan.
+     *
+     * @param scheduledExecutorService input scheduledExecutorService
+     * @param plan                     the capture plan
+     * @return wrapped scheduledExecutorService
+     * @throws IllegalArgumentException if the input is TTL enhanced but not a TTL wrapper, so can not be wrapped by the plan
+     * @see com.alibaba.ttl3.TtlRunnable#get(Runnable, boolean, boolean, CapturePlan)
+     * @see com.alibaba.ttl3.TtlCallable#get(Callable, boolean, boolean, CapturePlan)
+     * @see CapturePlan
+     */
+    @Nullable
+    @Contract(value = "null, _ -> null; !null, _ -> !null", pure = true)
+    public static ScheduledExecutorService getTtlScheduledExecutorService(@Nullable ScheduledExecutorService scheduledExecutorService,
+                                                                          @NonNull CapturePlan plan) {
+        if (scheduledExecutorService == null || isTtlWrapperOfPlan(scheduledExecutorService, plan)) return scheduledExecutorService;
+
+        return new ScheduledExecutorServiceTtlWrapper(unwrapForPlan(scheduledExecutorService), true, plan);
+    }
+
+    private static boolean isTtlWrapperOfPlan(@Nullable Executor executor, @Nullable CapturePlan plan) {
+        return executor instanceof ExecutorTtlWrapper && Objects.equals(((ExecutorTtlWrapper) executor).plan, plan);
+    }
+
+    /**
+     * unwrap the TTL wrapper of other plan, so the requested plan is never dropped by the already wrapped executor.
+     */
+    @NonNull
+    @SuppressWarnings("unchecked")
+    private static <T extends Executor> T unwrapForPlan(@NonNull T executor) {
+        if (executor instanceof ExecutorTtlWrapper) return (T) ((ExecutorTtlWrapper) executor).unwrap();
+        if (executor instanceof TtlEnhanced) {
+            throw new IllegalArgumentException("the TTL enhanced executor " + executor + " can not be wrapped by the capture plan");
+        }
+        return executor;
+    }
+
+    /**
+     * {@link TransmittableThreadLocal} Wrapper of {@link Executor}, transmit by the {@link TransmitPolicy}:
+     * <ul>
+     * <li>{@link TransmitPolicy#all()}: same as {@link #getTtlExecutor(Executor)}.</li>
+     * <li>{@link TransmitPolicy#of(CapturePlan)}: same as {@link #getTtlExecutor(Executor, CapturePlan)}.</li>
+     * <li>{@link TransmitPolicy#none()}: just return the input executor, no wrap;
+     *     if the input is a TTL wrapper, return the unwrapped one.</li>
+     * </ul>
+     * If the input is already a TTL wrapper of other policy, it is unwrapped and wrapped by this policy.
+     *
+     * @param executor input Executor
+     * @param policy   the transmit policy of the executor
+     * @return wrapped Executor
+     * @see TransmitPolicy
+     */
+    @Nullable
+    @Contract(value = "null, _ -> null; !null, _ -> !null", pure = true)
+    public static Executor getTtlExecutor(@Nullable Executor executor, @NonNull TransmitPolicy policy) {
+        if (!policy.isTransmit()) return unwrapTtlExecutor(executor);
+
+        final CapturePlan plan = policy.getCapturePlan();
+        if (plan != null) return getTtlExecutor(executor, plan);
+        return isTtlWrapperOfPlan(executor, null) ? executor : getTtlExecutor(unwrapTtlExecutor(executor));
+    }
+
+    /**
+     * {@link TransmittableThreadLocal} Wrapper of {@link ExecutorService}, transmit by the {@link TransmitPolicy}:
+     * <ul>
+     * <li>{@link TransmitPolicy#all()}: same as {@link #getTtlExecutorService(ExecutorService)}.</li>
+     * <li>{@link TransmitPolicy#of(CapturePlan)}: same as {@link #getTtlExecutorService(ExecutorService, CapturePlan)}.</li>
+     * <li>{@link TransmitPolicy#none()}: just return the input executorService, no wrap;
+     *     if the input is a TTL wrapper, return the unwrapped one.</li>
+     * </ul>
+     * If the input is already a TTL wrapper of other policy, it is unwrapped and wrapped by this policy.
+     *
+     * @param executorService input ExecutorService
+     * @param policy          the transmit policy of the executorService
+     * @return wrapped ExecutorService
+     * @see TransmitPolicy
+     */
+    @Nullable
+    @Contract(value = "null, _ -> null; !null, _ -> !null", pure = true)
+    public static ExecutorService getTtlExecutorService(@Nullable ExecutorService executorService, @NonNull TransmitPolicy policy) {
+        if (!policy.isTransmit()) return unwrapTtlExecutor(executorService);
+
+        final CapturePlan plan = policy.getCapturePlan();
+        if (plan != null) return getTtlExecutorService(executorService, plan);
+        return isTtlWrapperOfPlan(executorService, null) ? executorService : getTtlExecutorService(unwrapTtlExecutor(executorService));
+    }
+
+    /**
+     * {@link TransmittableThreadLocal} Wrapper of {@link ScheduledExecutorService}, transmit by the {@link TransmitPolicy}:
+     * <ul>
+     * <li>{@link TransmitPolicy#all()}: same as {@link #getTtlScheduledExecutorService(ScheduledExecutorService)}.</li>
+     * <li>{@link TransmitPolicy#of(CapturePlan)}: same as {@link #getTtlScheduledExecutorService(ScheduledExecutorService, CapturePlan)}.</li>
+     * <li>{@link TransmitPolicy#none()}: just return the input scheduledExecutorService, no wrap;
+     *     if the input is a TTL wrapper, return the unwrapped one.</li>
+     * </ul>
+     * If the input is already a TTL wrapper of other policy, it is unwrapped and wrapped by this policy.
+     *
+     * @param scheduledExecutorService input scheduledExecutorService
+     * @param policy                   the transmit policy of the scheduledExecutorService
+     * @return wrapped scheduledExecutorService
+     * @see TransmitPolicy
+     */
+    @Nullable
+    @Contract(value = "null, _ -> null; !null, _ -> !null", pure = true)
+    public static ScheduledExecutorService getTtlScheduledExecutorService(@Nullable ScheduledExecutorService scheduledExecutorService,
+                                                                          @NonNull TransmitPolicy policy) {
+        if (!policy.isTransmit()) return unwrapTtlExecutor(scheduledExecutorService);
+
+        final CapturePlan plan = policy.getCapturePlan();
+        if (plan != null) return getTtlScheduledExecutorService(scheduledExecutorService, plan);
+        return isTtlWrapperOfPlan(scheduledExecutorService, null) ? scheduledExecutorService
+                : getTtlScheduledExecutorService(unwrapTtlExecutor(scheduledExecutorService));
     }
 
     /**
@@ -208,6 +378,60 @@ public final class TtlExecutors {
         return ((DisableInheritableThreadFactoryWrapper) threadFactory).unwrap();
     }
 
+    ///////////////////////////////////////////////////////////////////////////
+    // Virtual thread utils
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * check the current JDK supports virtual thread(JDK 21+) or not.
+     *
+     * @see #getTtlVirtualThreadFactory()
+     * @see #newTtlVirtualThreadPerTaskExecutor()
+     */
+    public static boolean isVirtualThreadSupported() {
+        return TtlVirtualThreadFactory.isSupported();
+    }
+
+    /**
+     * Get the {@link ThreadFactory} of virtual threads, transmits the TTL values once at thread start.
+     * <p>
+     * The created virtual threads do NOT inherit the inheritable thread-local values,
+     * so the thread creation does not pay the copying of inheritable values for every task;
+     * the TTL values of the thread creating the virtual thread are captured at thread creation,
+     * and replayed when the virtual thread starts.
+     * <p>
+     * The transmittance path does not hold any monitor or call any native method,
+     * so it never pins the virtual thread to its carrier thread.
+     *
+     * @throws UnsupportedOperationException if the current JDK does not support virtual thread
+     * @see #isVirtualThreadSupported()
+     * @see #newTtlVirtualThreadPerTaskExecutor()
+     */
+    @NonNull
+    public static ThreadFactory getTtlVirtualThreadFactory() {
+        if (!isVirtualThreadSupported()) {
+            throw new UnsupportedOperationException("virtual thread is not supported by the current JDK(need JDK 21+)");
+        }
+        return TtlVirtualThreadFactory.INSTANCE;
+    }
+
+    /**
+     * Create an {@link ExecutorService} that starts a new virtual thread for each task,
+     * the TTL values of the task submitting thread are transmitted to the task.
+     * <p>
+     * The equivalent of {@code Executors.newThreadPerTaskExecutor(getTtlVirtualThreadFactory())}.
+     * Prefer this method over wrapping {@code Executors.newVirtualThreadPerTaskExecutor()}
+     * by {@link #getTtlExecutorService(ExecutorService)}: the latter transmits the TTL values twice
+     * for each task, by both the task wrapper and the inheritance of virtual thread.
+     *
+     * @throws UnsupportedOperationException if the current JDK does not support virtual thread
+     * @see #getTtlVirtualThreadFactory()
+     */
+    @NonNull
+    public static ExecutorService newTtlVirtualThreadPerTaskExecutor() {
+        return TtlVirtualThreadFactory.newThreadPerTaskExecutor();
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     // ForkJoinPool utils
     ///////////////////////////////////////////////////////////////////////////
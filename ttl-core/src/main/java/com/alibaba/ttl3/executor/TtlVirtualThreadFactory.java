@@ -0,0 +1,84 @@
+package com.alibaba.ttl3.executor;
+
+import com.alibaba.ttl3.TtlRunnable;
+import com.alibaba.ttl3.spi.TtlEnhanced;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The {@link ThreadFactory} of virtual threads(JDK 21+), transmits the TTL values once at thread start.
+ * <p>
+ * The created virtual threads do NOT inherit the inheritable thread-local values
+ * ({@code Thread.Builder#inheritInheritableThreadLocals(false)}),
+ * so the thread creation does not pay the copying of {@code InheritableThreadLocal#childValue};
+ * instead, the TTL values of the thread creating the virtual thread(aka. the task submitting thread
+ * for the thread-per-task executor) are captured, and replayed once when the virtual thread starts.
+ * <p>
+ * The JDK 21 {@code Thread.Builder} API is resolved reflectively once at class initialization,
+ * so this class is loadable(but not usable) on the JDK without virtual thread support.
+ *
+ * @see TtlExecutors#getTtlVirtualThreadFactory()
+ * @see TtlExecutors#newTtlVirtualThreadPerTaskExecutor()
+ */
+final class TtlVirtualThreadFactory implements ThreadFactory, TtlEnhanced {
+    @Nullable
+    private static final ThreadFactory virtualThreadFactory = createVirtualThreadFactory();
+
+    static final TtlVirtualThreadFactory INSTANCE = new TtlVirtualThreadFactory();
+
+    static boolean isSupported() {
+        return virtualThreadFactory != null;
+    }
+
+    @NonNull
+    @SuppressWarnings("ConstantConditions")
+    static ExecutorService newThreadPerTaskExecutor() {
+        checkSupported();
+        try {
+            final Method m = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) m.invoke(null, INSTANCE);
+        } catch (Exception e) {
+            throw new UnsupportedOperationException("fail to create thread-per-task executor, cause: " + e, e);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("ConstantConditions")
+    public Thread newThread(@NonNull Runnable r) {
+        checkSupported();
+        // the TtlRunnable captures the TTL values of the creating thread, replays them when the thread starts
+        return virtualThreadFactory.newThread(TtlRunnable.get(r, false, true));
+    }
+
+    private static void checkSupported() {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("virtual thread is not supported by the current JDK(need JDK 21+)");
+        }
+    }
+
+    @Nullable
+    private static ThreadFactory createVirtualThreadFactory() {
+        try {
+            final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builderClass.getMethod("inheritInheritableThreadLocals", boolean.class).invoke(builder, false);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (Exception e) {
+            // JDK without virtual thread support, or virtual thread is a preview feature(JDK 19/20) not enabled
+            return null;
+        }
+    }
+
+    private TtlVirtualThreadFactory() {
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getName();
+    }
+}
@@ -3,6 +3,7 @@ package com.alibaba.ttl3.internal.util;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -60,6 +61,28 @@ public final class Utils {
         return (int) Math.ceil(expectedSize / (double) DEFAULT_LOAD_FACTOR);
     }
 
+    /**
+     * Returns the index of the first element equal to the input element in the array, or -1 if absent.
+     */
+    public static int indexOf(Object[] array, Object element) {
+        for (int i = 0; i < array.length; i++) {
+            if (element.equals(array[i])) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns a new array with the element at the index removed, or the input empty array if no element left.
+     * Used by the copy-on-write arrays.
+     */
+    public static <T> T[] removeAt(T[] array, int index, T[] emptyArray) {
+        if (array.length == 1) return emptyArray;
+
+        final T[] newArray = Arrays.copyOf(array, array.length - 1);
+        System.arraycopy(array, index + 1, newArray, index, array.length - index - 1);
+        return newArray;
+    }
+
     /**
      * @see <a href="https://scala-lang.org/api/3.1.3/scala/util/control/NonFatal$.html"><code>scala.util.control</code></a>
      * @see <a href="https://github.com/scala/scala/blob/v2.13.9/src/library/scala/util/control/NonFatal.scala#L35-L43">github.com/scala/scala/blob/v2.13.9/src/library/scala/util/control/NonFatal.scala</a>
@@ -0,0 +1,101 @@
+package com.alibaba.ttl3.transmitter;
+
+import com.alibaba.crr.Transmittable;
+import com.alibaba.crr.composite.Capture;
+import com.alibaba.ttl3.TransmittableThreadLocal;
+import com.alibaba.ttl3.TtlCallable;
+import com.alibaba.ttl3.TtlRunnable;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link CapturePlan} names which {@link TransmittableThreadLocal}s and which {@link Transmittee}s to transmit,
+ * instead of all the {@link TransmittableThreadLocal} values and all the registered {@link Transmittee}s
+ * captured by {@link Transmitter#capture()}.
+ * <p>
+ * The plan is immutable and reusable, create the plan once and capture by it repeatedly,
+ * e.g. the hot executor needing only the trace id:
+ * <pre>{@code
+ * // create once
+ * CapturePlan plan = CapturePlan.of(traceIdTtl, spanIdTtl);
+ *
+ * // capture by the plan
+ * Capture captured = Transmitter.capture(plan);
+ * Runnable ttlRunnable = TtlRunnable.get(runnable, plan);
+ * ExecutorService ttlExecutorService = TtlExecutors.getTtlExecutorService(executorService, plan);}</pre>
+ * <p>
+ * When run with the values captured by the plan:
+ * <ul>
+ * <li>if the plan names any {@link TransmittableThreadLocal}, the named values are replayed,
+ *     and the other {@link TransmittableThreadLocal} values of the thread are cleared during the run,
+ *     same as the transmittance of all the {@link TransmittableThreadLocal} values;
+ *     otherwise the {@link TransmittableThreadLocal} values of the thread are not touched.</li>
+ * <li>the {@link Transmittee}s not named by the plan are not touched.</li>
+ * </ul>
+ *
+ * @see Transmitter#capture(CapturePlan)
+ * @see TtlRunnable#get(Runnable, CapturePlan)
+ * @see TtlCallable#get(java.util.concurrent.Callable, CapturePlan)
+ * @see com.alibaba.ttl3.executor.TtlExecutors#getTtlExecutorService(java.util.concurrent.ExecutorService, CapturePlan)
+ */
+public final class CapturePlan {
+    // the immutable array shared by all the captures of this plan,
+    // so the replay in the thread reuses the last backup, same as the capture of all registered transmittees.
+    private final Transmittable<Object, Object>[] transmittables;
+
+    private CapturePlan(Transmittable<Object, Object>[] transmittables) {
+        this.transmittables = transmittables;
+    }
+
+    /**
+     * Create the plan transmitting the values of the given {@link TransmittableThreadLocal}s only.
+     *
+     * @param ttls the {@link TransmittableThreadLocal}s to transmit
+     */
+    @NonNull
+    public static CapturePlan of(@NonNull TransmittableThreadLocal<?>... ttls) {
+        return of(Arrays.asList(ttls), Collections.emptyList());
+    }
+
+    /**
+     * Create the plan transmitting the values of the given {@link TransmittableThreadLocal}s and {@link Transmittee}s.
+     *
+     * @param ttls         the {@link TransmittableThreadLocal}s to transmit
+     * @param transmittees the {@link Transmittee}s to transmit, e.g. the registered transmittees of other {@code ThreadLocal}s
+     * @throws IllegalArgumentException if the transmittees contain {@link TransmittableThreadLocal#getTtlTransmittee()}
+     *                                  while the ttls is not empty; both replay the {@link TransmittableThreadLocal} values
+     *                                  of the thread, so the values replayed by one are cleared by the other
+     */
+    @NonNull
+    @SuppressWarnings("unchecked")
+    public static CapturePlan of(@NonNull Collection<? extends TransmittableThreadLocal<?>> ttls,
+                                 @NonNull Collection<? extends Transmittee<?, ?>> transmittees) {
+        if (!ttls.isEmpty() && transmittees.contains(TransmittableThreadLocal.getTtlTransmittee())) {
+            throw new IllegalArgumentException("the transmittee of all TransmittableThreadLocal values"
+                    + " can not be transmitted together with the TransmittableThreadLocals " + ttls);
+        }
+        final List<Transmittable<Object, Object>> transmittables = new ArrayList<>(transmittees.size() + 1);
+        if (!ttls.isEmpty()) {
+            transmittables.add(TransmittableThreadLocal.getTtlTransmittee(ttls.toArray(new TransmittableThreadLocal<?>[0])));
+        }
+        for (Transmittee<?, ?> transmittee : transmittees) {
+            if (!transmittables.contains(transmittee)) transmittables.add((Transmittable<Object, Object>) transmittee);
+        }
+        return new CapturePlan(transmittables.toArray(new Transmittable[0]));
+    }
+
+    @NonNull
+    Capture capture() {
+        return Transmitter.compositeTransmittable.capture(transmittables);
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getName() + " - " + Arrays.toString(transmittables);
+    }
+}
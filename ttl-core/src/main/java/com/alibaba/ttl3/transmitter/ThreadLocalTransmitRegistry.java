@@ -4,6 +4,7 @@ import com.alibaba.ttl3.TransmittableThreadLocal;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.WeakHashMap;
@@ -57,6 +58,8 @@ public final class ThreadLocalTransmitRegistry {
 
     private static final Object threadLocalHolderUpdateLock = new Object();
 
+    private static volatile boolean copyingGeneratorRegistered = false;
+
     /**
      * Register the {@link ThreadLocal}(including subclass {@link InheritableThreadLocal}) instances
      * to enhance the <b>Transmittable</b> ability for the existed {@link ThreadLocal} instances.
@@ -110,6 +113,7 @@ public final class ThreadLocalTransmitRegistry {
             WeakHashMap<ThreadLocal<Object>, UnaryOperator<Object>> newHolder = new WeakHashMap<>(threadLocalHolder);
             newHolder.put((ThreadLocal<Object>) threadLocal, (UnaryOperator<Object>) generator);
             threadLocalHolder = newHolder;
+            copyingGeneratorRegistered = hasCopyingGenerator(newHolder);
             return true;
         }
     }
@@ -134,17 +138,45 @@ public final class ThreadLocalTransmitRegistry {
             WeakHashMap<ThreadLocal<Object>, UnaryOperator<Object>> newHolder = new WeakHashMap<>(threadLocalHolder);
             newHolder.remove(threadLocal);
             threadLocalHolder = newHolder;
+            copyingGeneratorRegistered = hasCopyingGenerator(newHolder);
             return true;
         }
     }
 
+    /**
+     * Whether a {@link ThreadLocal} instance is registered with a generator other than {@link UnaryOperator#identity()}.
+     * <p>
+     * The values captured by such generators are the copies for one task,
+     * so they can NOT be shared by the tasks wrapped at once, e.g. the tasks of
+     * {@link java.util.concurrent.ExecutorService#invokeAll(java.util.Collection) invokeAll}.
+     *
+     * @return {@code true} if a copying generator is registered, otherwise {@code false}
+     */
+    public static boolean isCopyingGeneratorRegistered() {
+        return copyingGeneratorRegistered;
+    }
+
+    private static boolean hasCopyingGenerator(WeakHashMap<ThreadLocal<Object>, UnaryOperator<Object>> holder) {
+        for (UnaryOperator<Object> generator : holder.values()) {
+            if (generator != UnaryOperator.identity()) return true;
+        }
+        return false;
+    }
 
-    private static class ThreadLocalTransmittee implements Transmittee<HashMap<ThreadLocal<Object>, Object>, HashMap<ThreadLocal<Object>, Object>> {
+    private static class ThreadLocalTransmittee implements Transmittee<Map<ThreadLocal<Object>, Object>, Map<ThreadLocal<Object>, Object>> {
         private static final Object threadLocalClearMark = new Object();
 
+        /**
+         * the shared captured/backup when no {@link ThreadLocal} is registered,
+         * so the capture/replay of the common case allocates nothing. <b>NEVER</b> modified.
+         */
+        private static final Map<ThreadLocal<Object>, Object> EMPTY = Collections.unmodifiableMap(new HashMap<>(0));
+
         @NonNull
         @Override
-        public HashMap<ThreadLocal<Object>, Object> capture() {
+        public Map<ThreadLocal<Object>, Object> capture() {
+            if (threadLocalHolder.isEmpty()) return EMPTY;
+
             final HashMap<ThreadLocal<Object>, Object> threadLocal2Value = newHashMap(threadLocalHolder.size());
             for (Map.Entry<ThreadLocal<Object>, UnaryOperator<Object>> entry : threadLocalHolder.entrySet()) {
                 final ThreadLocal<Object> threadLocal = entry.getKey();
@@ -157,7 +189,9 @@ public final class ThreadLocalTransmitRegistry {
 
         @NonNull
         @Override
-        public HashMap<ThreadLocal<Object>, Object> replay(@NonNull HashMap<ThreadLocal<Object>, Object> captured) {
+        public Map<ThreadLocal<Object>, Object> replay(@NonNull Map<ThreadLocal<Object>, Object> captured) {
+            if (captured.isEmpty()) return EMPTY;
+
             final HashMap<ThreadLocal<Object>, Object> backup = newHashMap(captured.size());
 
             for (Map.Entry<ThreadLocal<Object>, Object> entry : captured.entrySet()) {
@@ -174,7 +208,7 @@ public final class ThreadLocalTransmitRegistry {
 
         @NonNull
         @Override
-        public HashMap<ThreadLocal<Object>, Object> clear() {
+        public Map<ThreadLocal<Object>, Object> clear() {
             final HashMap<ThreadLocal<Object>, Object> threadLocal2Value = newHashMap(threadLocalHolder.size());
 
             for (Map.Entry<ThreadLocal<Object>, UnaryOperator<Object>> entry : threadLocalHolder.entrySet()) {
@@ -186,7 +220,7 @@ public final class ThreadLocalTransmitRegistry {
         }
 
         @Override
-        public void restore(@NonNull HashMap<ThreadLocal<Object>, Object> backup) {
+        public void restore(@NonNull Map<ThreadLocal<Object>, Object> backup) {
             for (Map.Entry<ThreadLocal<Object>, Object> entry : backup.entrySet()) {
                 final ThreadLocal<Object> threadLocal = entry.getKey();
                 threadLocal.set(entry.getValue());
@@ -51,6 +51,16 @@ public final class TransmitteeRegistry {
         return Transmitter.compositeTransmittable.unregisterTransmittable(transmittee);
     }
 
+    /**
+     * Whether the transmittee({@code CRR}) is registered.
+     *
+     * @see #registerTransmittee(Transmittee)
+     * @see #unregisterTransmittee(Transmittee)
+     */
+    public static boolean isRegisteredTransmittee(@NonNull Transmittee<?, ?> transmittee) {
+        return Transmitter.compositeTransmittable.isRegisteredTransmittable(transmittee);
+    }
+
     @SuppressFBWarnings("CT_CONSTRUCTOR_THROW")
     private TransmitteeRegistry() {
         throw new InstantiationError("Must not instantiate this class");
@@ -1,6 +1,7 @@
 package com.alibaba.ttl3.transmitter;
 
 import com.alibaba.crr.TransmitCallback;
+import com.alibaba.crr.TransmitMetrics;
 import com.alibaba.crr.composite.Backup;
 import com.alibaba.crr.composite.Capture;
 import com.alibaba.crr.composite.CompositeTransmittable;
@@ -9,6 +10,7 @@ import com.alibaba.ttl3.TransmittableThreadLocal;
 import com.alibaba.ttl3.TtlCallable;
 import com.alibaba.ttl3.TtlRunnable;
 import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 import java.util.concurrent.Callable;
@@ -123,6 +125,34 @@ public final class Transmitter {
         return compositeTransmittable.capture();
     }
 
+    /**
+     * Capture the values of the captured values again in the current thread,
+     * return the given captured values if the values are not changed, e.g. after replayed and not modified;
+     * so the repeated capture of the unchanged values allocates nothing.
+     *
+     * @param captured the captured values from {@link #capture()} or {@link #capture(CapturePlan)}
+     * @return the captured values, same instance as the given captured values if the values are not changed
+     * @see #capture()
+     */
+    @NonNull
+    public static Capture recapture(@NonNull Capture captured) {
+        return compositeTransmittable.recapture(captured);
+    }
+
+    /**
+     * Capture the {@link TransmittableThreadLocal} and {@link Transmittee} values named by the plan in the current thread.
+     * <p>
+     * The captured values are replayed/restored by {@link #replay(Capture)}/{@link #restore(Backup)} as usual.
+     *
+     * @param plan the capture plan
+     * @return the captured values
+     * @see CapturePlan
+     */
+    @NonNull
+    public static Capture capture(@NonNull CapturePlan plan) {
+        return plan.capture();
+    }
+
     /**
      * Replay the captured {@link TransmittableThreadLocal} and registered {@link ThreadLocal} values from {@link #capture()},
      * and return the backup {@link TransmittableThreadLocal} values in the current thread before replay.
@@ -269,6 +299,30 @@ public final class Transmitter {
         return compositeCallback.unregisterCallback(callback);
     }
 
+    /**
+     * Set the metrics recorder of the {@code CRR} operations of every registered transmittee,
+     * {@code null} to disable metrics(the default).
+     * <p>
+     * Metrics is opt-in, there is no timing overhead when metrics is disabled.
+     * Use {@link com.alibaba.ttl3.transmitter.metrics.JmxTransmitMetrics} to expose the metrics via {@code JMX}.
+     *
+     * @see #getTransmitMetrics()
+     * @see com.alibaba.ttl3.transmitter.metrics.JmxTransmitMetrics
+     */
+    public static void setTransmitMetrics(@Nullable TransmitMetrics metrics) {
+        compositeTransmittable.setMetrics(metrics);
+    }
+
+    /**
+     * Get the metrics recorder, {@code null} if metrics is disabled.
+     *
+     * @see #setTransmitMetrics(TransmitMetrics)
+     */
+    @Nullable
+    public static TransmitMetrics getTransmitMetrics() {
+        return compositeTransmittable.getMetrics();
+    }
+
     @SuppressFBWarnings("CT_CONSTRUCTOR_THROW")
     private Transmitter() {
         throw new InstantiationError("Must not instantiate this class");
@@ -0,0 +1,218 @@
+package com.alibaba.ttl3.transmitter.metrics;
+
+import com.alibaba.crr.TransmitMetrics;
+import com.alibaba.crr.Transmittable;
+import com.alibaba.ttl3.TransmittableThreadLocal;
+import com.alibaba.ttl3.transmitter.Transmittee;
+import com.alibaba.ttl3.transmitter.TransmitteeRegistry;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.alibaba.ttl3.internal.util.Utils.newConcurrentWeakHashMap;
+
+/**
+ * The default {@link TransmitMetrics} implementation, exposes the metrics of every registered transmittee
+ * as a {@link TransmitteeMetricsMXBean} via {@code JMX}.
+ * <p>
+ * The MXBean of a transmittee registered by {@link TransmitteeRegistry} is registered when the first {@code CRR}
+ * operation of the transmittee is recorded, with the object name
+ * {@code com.alibaba.ttl3:type=TransmitteeMetrics,name=<transmittee class name>,id=<unique id>};
+ * and is unregistered when the transmittee is unregistered or collected.
+ * <p>
+ * The transmittees of {@link TransmittableThreadLocal} subsets(e.g. created by
+ * {@link com.alibaba.ttl3.transmitter.CapturePlan CapturePlan}) are recorded together by one MXBean, with the object name
+ * {@code com.alibaba.ttl3:type=TransmitteeMetrics,name=<ttl subset transmittee class name>}.
+ * The other transmittees not registered are not recorded.
+ * <p>
+ * Usage, at the application startup:
+ * <pre>{@code
+ * Transmitter.setTransmitMetrics(new JmxTransmitMetrics());
+ * }</pre>
+ *
+ * @see TransmitteeMetricsMXBean
+ * @see com.alibaba.ttl3.transmitter.Transmitter#setTransmitMetrics(TransmitMetrics)
+ */
+public final class JmxTransmitMetrics implements TransmitMetrics {
+    private static final Logger logger = Logger.getLogger(JmxTransmitMetrics.class.getName());
+
+    /**
+     * the domain of the object name of MXBeans.
+     */
+    public static final String DOMAIN = "com.alibaba.ttl3";
+
+    // the transmittee of TTL subset is created per capture plan, the metrics of them are recorded together
+    private static final Class<?> TTL_SUBSET_TRANSMITTEE_CLASS =
+            TransmittableThreadLocal.getTtlTransmittee(new TransmittableThreadLocal<?>[0]).getClass();
+
+    // the unique id of the object name, the identity hash code of the transmittee is not unique
+    private static final AtomicLong idGenerator = new AtomicLong();
+
+    private final MBeanServer mBeanServer;
+
+    private final ConcurrentMap<Transmittable<?, ?>, Registration> transmittee2Registration = newConcurrentWeakHashMap(16);
+    private final ConcurrentMap<ObjectName, Registration> registeredMBeans = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Transmittable<?, ?>> collectedTransmittees = new ReferenceQueue<>();
+    private final Object registerLock = new Object();
+
+    @Nullable
+    private Registration ttlSubsetRegistration;
+
+    /**
+     * Create a {@link JmxTransmitMetrics} registering MXBeans to the platform {@link MBeanServer}.
+     */
+    public JmxTransmitMetrics() {
+        this(ManagementFactory.getPlatformMBeanServer());
+    }
+
+    public JmxTransmitMetrics(@NonNull MBeanServer mBeanServer) {
+        this.mBeanServer = mBeanServer;
+    }
+
+    @Override
+    public void record(@NonNull Transmittable<?, ?> transmittable, @NonNull Operation operation, long durationNanos, boolean failed) {
+        Registration registration = transmittee2Registration.get(transmittable);
+        if (registration == null) {
+            registration = register(transmittable);
+            if (registration == null) return;
+        }
+
+        registration.metrics.record(operation, durationNanos, failed);
+    }
+
+    @Override
+    public void unregistered(@NonNull Transmittable<?, ?> transmittable) {
+        synchronized (registerLock) {
+            final Registration registration = transmittee2Registration.remove(transmittable);
+            if (registration != null && registration != ttlSubsetRegistration) unregisterMBean(registration);
+        }
+        expungeCollectedTransmittees();
+    }
+
+    @Nullable
+    private Registration register(Transmittable<?, ?> transmittable) {
+        final boolean ttlSubset = transmittable.getClass() == TTL_SUBSET_TRANSMITTEE_CLASS;
+        if (!ttlSubset && !isRegisteredTransmittee(transmittable)) return null;
+
+        expungeCollectedTransmittees();
+        synchronized (registerLock) {
+            Registration registration = transmittee2Registration.get(transmittable);
+            if (registration != null) return registration;
+
+            if (ttlSubset) {
+                if (ttlSubsetRegistration == null) {
+                    final String className = TTL_SUBSET_TRANSMITTEE_CLASS.getName();
+                    ttlSubsetRegistration = newRegistration(null, new TransmitteeMetrics(className, className), className, null);
+                }
+                registration = ttlSubsetRegistration;
+            } else {
+                // check again under the lock, the unregistration notified before is not missed
+                if (!isRegisteredTransmittee(transmittable)) return null;
+
+                final String className = transmittable.getClass().getName();
+                registration = newRegistration(transmittable, new TransmitteeMetrics(String.valueOf(transmittable), className),
+                        className, idGenerator.incrementAndGet());
+            }
+            transmittee2Registration.put(transmittable, registration);
+            return registration;
+        }
+    }
+
+    private static boolean isRegisteredTransmittee(Transmittable<?, ?> transmittable) {
+        return transmittable instanceof Transmittee && TransmitteeRegistry.isRegisteredTransmittee((Transmittee<?, ?>) transmittable);
+    }
+
+    private Registration newRegistration(@Nullable Transmittable<?, ?> transmittable, TransmitteeMetrics metrics,
+                                         String className, @Nullable Long id) {
+        ObjectName name = null;
+        try {
+            name = new ObjectName(DOMAIN + ":type=TransmitteeMetrics,name=" + ObjectName.quote(className) + (id == null ? "" : ",id=" + id));
+            mBeanServer.registerMBean(metrics, name);
+        } catch (Exception e) {
+            name = null;
+            if (logger.isLoggable(Level.WARNING)) {
+                logger.log(Level.WARNING, "fail to register metrics MXBean for transmittee " + metrics.getTransmittee() +
+                        "(class " + className + "), just ignored; cause: " + e, e);
+            }
+        }
+
+        final Registration registration = new Registration(transmittable, collectedTransmittees, metrics, name);
+        if (name != null) registeredMBeans.put(name, registration);
+        return registration;
+    }
+
+    private void expungeCollectedTransmittees() {
+        for (Reference<?> ref; (ref = collectedTransmittees.poll()) != null; ) {
+            unregisterMBean((Registration) ref);
+        }
+    }
+
+    private void unregisterMBean(Registration registration) {
+        // not enqueued after unregistered
+        registration.clear();
+
+        final ObjectName name = registration.name;
+        if (name == null || !registeredMBeans.remove(name, registration)) return;
+        try {
+            mBeanServer.unregisterMBean(name);
+        } catch (Exception e) {
+            if (logger.isLoggable(Level.WARNING)) {
+                logger.log(Level.WARNING, "fail to unregister metrics MXBean " + name +
+                        ", just ignored; cause: " + e, e);
+            }
+        }
+    }
+
+    /**
+     * Returns the object name of the metrics MXBean of the transmittee,
+     * {@code null} if no MXBean is registered for the transmittee.
+     */
+    @Nullable
+    public ObjectName getObjectName(@NonNull Transmittable<?, ?> transmittable) {
+        final Registration registration = transmittee2Registration.get(transmittable);
+        return registration == null ? null : registration.name;
+    }
+
+    /**
+     * Unregister all the metrics MXBeans registered by this instance, e.g. on application shutdown.
+     */
+    public void unregisterMBeans() {
+        synchronized (registerLock) {
+            for (Registration registration : registeredMBeans.values()) {
+                unregisterMBean(registration);
+            }
+            transmittee2Registration.clear();
+            ttlSubsetRegistration = null;
+        }
+        expungeCollectedTransmittees();
+    }
+
+    /**
+     * The metrics of the transmittee and its registered MXBean,
+     * referencing the transmittee weakly so the MXBean is unregistered after the transmittee is collected.
+     */
+    private static final class Registration extends WeakReference<Transmittable<?, ?>> {
+        final TransmitteeMetrics metrics;
+        @Nullable
+        final ObjectName name;
+
+        Registration(@Nullable Transmittable<?, ?> transmittable, ReferenceQueue<Transmittable<?, ?>> queue,
+                     TransmitteeMetrics metrics, @Nullable ObjectName name) {
+            super(transmittable, queue);
+            this.metrics = metrics;
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.alibaba.ttl3.transmitter.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * The immutable snapshot of the metrics of a {@code CRR} operation of a transmittee.
+ * <p>
+ * The latency histogram has {@value #BUCKET_COUNT} buckets of power-of-two boundaries:
+ * the bucket {@code i} counts the durations in the range {@code [2^(i-1), 2^i)} nanoseconds
+ * (the bucket {@code 0} counts the durations of {@code 0} nanosecond);
+ * the percentiles are estimated as the upper bound of the bucket.
+ *
+ * @see TransmitteeMetricsMXBean
+ */
+public final class OperationMetrics {
+    /**
+     * the bucket count of the latency histogram.
+     */
+    public static final int BUCKET_COUNT = 64;
+
+    private final long count;
+    private final long failureCount;
+    private final long totalNanos;
+    private final long maxNanos;
+    private final long[] latencyHistogram;
+
+    @ConstructorProperties({"count", "failureCount", "totalNanos", "maxNanos", "latencyHistogram"})
+    public OperationMetrics(long count, long failureCount, long totalNanos, long maxNanos, long[] latencyHistogram) {
+        this.count = count;
+        this.failureCount = failureCount;
+        this.totalNanos = totalNanos;
+        this.maxNanos = maxNanos;
+        this.latencyHistogram = latencyHistogram.clone();
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getFailureCount() {
+        return failureCount;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    public long getMeanNanos() {
+        return count == 0 ? 0 : totalNanos / count;
+    }
+
+    public long getP50Nanos() {
+        return percentileNanos(0.5);
+    }
+
+    public long getP99Nanos() {
+        return percentileNanos(0.99);
+    }
+
+    public long getP999Nanos() {
+        return percentileNanos(0.999);
+    }
+
+    public long[] getLatencyHistogram() {
+        return latencyHistogram.clone();
+    }
+
+    private long percentileNanos(double percentile) {
+        long total = 0;
+        for (long c : latencyHistogram) total += c;
+        if (total == 0) return 0;
+
+        final long rank = (long) Math.ceil(total * percentile);
+        long accumulated = 0;
+        for (int i = 0; i < latencyHistogram.length; i++) {
+            accumulated += latencyHistogram[i];
+            if (accumulated >= rank) return Math.min(upperBoundNanosOfBucket(i), maxNanos);
+        }
+        return maxNanos;
+    }
+
+    static int bucketOf(long nanos) {
+        return nanos <= 0 ? 0 : Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(nanos));
+    }
+
+    private static long upperBoundNanosOfBucket(int bucket) {
+        return bucket >= 63 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return "OperationMetrics{count=" + count + ", failureCount=" + failureCount +
+                ", meanNanos=" + getMeanNanos() + ", p50Nanos=" + getP50Nanos() + ", p99Nanos=" + getP99Nanos() +
+                ", maxNanos=" + maxNanos + "}";
+    }
+}
@@ -0,0 +1,103 @@
+package com.alibaba.ttl3.transmitter.metrics;
+
+import com.alibaba.crr.TransmitMetrics.Operation;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The transmittance metrics of a transmittee, the implementation of {@link TransmitteeMetricsMXBean}.
+ */
+final class TransmitteeMetrics implements TransmitteeMetricsMXBean {
+    private final String transmittee;
+    private final String transmitteeClass;
+
+    private final OperationRecorder[] recorders = new OperationRecorder[Operation.values().length];
+
+    TransmitteeMetrics(String transmittee, String transmitteeClass) {
+        this.transmittee = transmittee;
+        this.transmitteeClass = transmitteeClass;
+        for (int i = 0; i < recorders.length; i++) {
+            recorders[i] = new OperationRecorder();
+        }
+    }
+
+    void record(Operation operation, long durationNanos, boolean failed) {
+        recorders[operation.ordinal()].record(durationNanos, failed);
+    }
+
+    @Override
+    public String getTransmittee() {
+        return transmittee;
+    }
+
+    @Override
+    public String getTransmitteeClass() {
+        return transmitteeClass;
+    }
+
+    @Override
+    public OperationMetrics getCapture() {
+        return recorders[Operation.CAPTURE.ordinal()].snapshot();
+    }
+
+    @Override
+    public OperationMetrics getReplay() {
+        return recorders[Operation.REPLAY.ordinal()].snapshot();
+    }
+
+    @Override
+    public OperationMetrics getClear() {
+        return recorders[Operation.CLEAR.ordinal()].snapshot();
+    }
+
+    @Override
+    public OperationMetrics getRestore() {
+        return recorders[Operation.RESTORE.ordinal()].snapshot();
+    }
+
+    @Override
+    public void reset() {
+        for (OperationRecorder recorder : recorders) {
+            recorder.reset();
+        }
+    }
+
+    private static final class OperationRecorder {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder failureCount = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLongArray latencyHistogram = new AtomicLongArray(OperationMetrics.BUCKET_COUNT);
+
+        void record(long durationNanos, boolean failed) {
+            count.increment();
+            if (failed) failureCount.increment();
+            totalNanos.add(durationNanos);
+            latencyHistogram.incrementAndGet(OperationMetrics.bucketOf(durationNanos));
+
+            for (long max = maxNanos.get(); durationNanos > max; max = maxNanos.get()) {
+                if (maxNanos.compareAndSet(max, durationNanos)) break;
+            }
+        }
+
+        OperationMetrics snapshot() {
+            final long[] histogram = new long[latencyHistogram.length()];
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] = latencyHistogram.get(i);
+            }
+            return new OperationMetrics(count.sum(), failureCount.sum(), totalNanos.sum(), maxNanos.get(), histogram);
+        }
+
+        void reset() {
+            count.reset();
+            failureCount.reset();
+            totalNanos.reset();
+            maxNanos.set(0);
+            for (int i = 0; i < latencyHistogram.length(); i++) {
+                latencyHistogram.set(i, 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.alibaba.ttl3.transmitter.metrics;
+
+/**
+ * The {@code JMX} MXBean of the transmittance metrics of a transmittee.
+ *
+ * @see JmxTransmitMetrics
+ */
+public interface TransmitteeMetricsMXBean {
+    /**
+     * the string representation of the transmittee.
+     */
+    String getTransmittee();
+
+    /**
+     * the class name of the transmittee.
+     */
+    String getTransmitteeClass();
+
+    OperationMetrics getCapture();
+
+    OperationMetrics getReplay();
+
+    OperationMetrics getClear();
+
+    OperationMetrics getRestore();
+
+    /**
+     * reset all the metrics of the transmittee.
+     */
+    void reset();
+}
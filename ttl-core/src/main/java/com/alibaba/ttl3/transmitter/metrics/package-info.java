@@ -0,0 +1,11 @@
+/**
+ * The metrics of transmittance, records the count, the latency histogram and the failure count
+ * of the {@code CRR} operations of every registered transmittee.
+ * <p>
+ * The metrics is opt-in, enabled by {@link com.alibaba.ttl3.transmitter.Transmitter#setTransmitMetrics(com.alibaba.crr.TransmitMetrics)};
+ * {@link com.alibaba.ttl3.transmitter.metrics.JmxTransmitMetrics} is the default implementation exposing the metrics via {@code JMX}.
+ *
+ * @see com.alibaba.crr.TransmitMetrics
+ * @see com.alibaba.ttl3.transmitter.metrics.JmxTransmitMetrics
+ */
+package com.alibaba.ttl3.transmitter.metrics;
@@ -3,9 +3,14 @@ package com.alibaba.ttl3
 import com.alibaba.expandThreadPool
 import com.alibaba.getForTest
 import com.alibaba.shutdownForTest
+import com.alibaba.ttl3.transmitter.ThreadLocalTransmitRegistry
+import com.alibaba.ttl3.transmitter.Transmittee
+import com.alibaba.ttl3.transmitter.TransmitteeRegistry
+import com.alibaba.ttl3.transmitter.Transmitter
 import com.alibaba.ttlWrapIfNoTtlAgentRun
 import io.kotest.assertions.throwables.shouldThrow
 import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.booleans.shouldBeTrue
 import io.kotest.matchers.collections.shouldBeEmpty
 import io.kotest.matchers.collections.shouldContainInOrder
 import io.kotest.matchers.collections.shouldHaveSize
@@ -15,6 +20,7 @@ import io.kotest.matchers.string.shouldContain
 import io.kotest.matchers.types.shouldBeSameInstanceAs
 import io.kotest.matchers.types.shouldBeTypeOf
 import java.util.concurrent.*
+import java.util.concurrent.atomic.AtomicInteger
 import kotlin.concurrent.thread
 
 /**
@@ -126,6 +132,69 @@ class TtlCallableTest : FunSpec({
         callList[3].shouldBeTypeOf<TtlCallable<*>>()
     }
 
+    test("gets capture only once for all the tasks") {
+        val captureCount = AtomicInteger()
+        val transmittee = object : Transmittee<Int, Int> {
+            override fun capture(): Int = captureCount.incrementAndGet()
+            override fun replay(captured: Int): Int = captured
+            override fun clear(): Int = 0
+            override fun restore(backup: Int) {}
+        }
+
+        // clear the TTL values left by the other tests, e.g. the copying TTLs of ttl flow tests
+        Transmitter.runSupplierWithClear {
+            val ttl = TransmittableThreadLocal<String>()
+            ttl.set("parent")
+            TransmitteeRegistry.registerTransmittee(transmittee).shouldBeTrue()
+            try {
+                val callList = TtlCallable.gets(
+                    listOf(Callable { ttl.get() }, Callable { ttl.get() }, Callable { ttl.get() })
+                )
+                captureCount.get() shouldBe 1
+
+                ttl.set("changed")
+                executorService.invokeAll(callList).map { it.get() } shouldBe listOf("parent", "parent", "parent")
+            } finally {
+                TransmitteeRegistry.unregisterTransmittee(transmittee).shouldBeTrue()
+                ttl.remove()
+            }
+        }
+    }
+
+    test("gets capture for each task if the transmittee value is a copy") {
+        class Box(val value: String)
+
+        val ttl = object : TransmittableThreadLocal<Box>() {
+            override fun transmitteeValue(parentValue: Box?): Box? = parentValue?.let { Box(it.value) }
+        }
+        ttl.set(Box("parent"))
+        try {
+            val callList = TtlCallable.gets(listOf(Callable { ttl.get() }, Callable { ttl.get() }))
+            val boxes = executorService.invokeAll(callList).map { it.get() }
+
+            boxes.map { it.value } shouldBe listOf("parent", "parent")
+            (boxes[0] === boxes[1]) shouldBe false
+        } finally {
+            ttl.remove()
+        }
+    }
+
+    test("gets capture for each task if a copying generator is registered") {
+        val threadLocal = ThreadLocal<StringBuilder>()
+        threadLocal.set(StringBuilder("parent"))
+        ThreadLocalTransmitRegistry.registerThreadLocal(threadLocal) { StringBuilder(it) }.shouldBeTrue()
+        try {
+            val callList = TtlCallable.gets(listOf(Callable { threadLocal.get() }, Callable { threadLocal.get() }))
+            val builders = executorService.invokeAll(callList).map { it.get() }
+
+            builders.map { it.toString() } shouldBe listOf("parent", "parent")
+            (builders[0] === builders[1]) shouldBe false
+        } finally {
+            ThreadLocalTransmitRegistry.unregisterThreadLocal(threadLocal).shouldBeTrue()
+            threadLocal.remove()
+        }
+    }
+
     test("unwrap") {
         TtlCallable.unwrap<String>(null).shouldBeNull()
 
@@ -0,0 +1,108 @@
+package com.alibaba.ttl3
+
+import com.alibaba.getForTest
+import com.alibaba.noTtlAgentRun
+import com.alibaba.shutdownForTest
+import com.alibaba.ttl3.executor.TtlExecutors
+import com.alibaba.ttl3.transmitter.Transmittee
+import com.alibaba.ttl3.transmitter.TransmitteeRegistry
+import com.alibaba.ttl3.transmitter.Transmitter
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.booleans.shouldBeTrue
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeTypeOf
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+
+class TtlCompletableFutureTest : FunSpec({
+    lateinit var executorService: ExecutorService
+
+    beforeSpec {
+        executorService = Executors.newFixedThreadPool(2, TtlExecutors.getDefaultDisableInheritableThreadFactory())
+    }
+
+    afterSpec {
+        executorService.shutdownForTest()
+    }
+
+    test("async stages of the chain run with the values captured at chain creation") {
+        val ttl = TransmittableThreadLocal<String>()
+        ttl.set("parent")
+        try {
+            val future = TtlCompletableFuture.supplyAsync({ ttl.get() }, executorService)
+            ttl.set("changed")
+
+            val last = future
+                .thenApplyAsync { it + "-" + ttl.get() }
+                .thenComposeAsync { v -> CompletableFuture.completedFuture(v + "-" + ttl.get()) }
+                .handleAsync { v, _ -> v + "-" + ttl.get() }
+            last.shouldBeTypeOf<TtlCompletableFuture<*>>()
+            last.getForTest() shouldBe "parent-parent-parent-parent"
+
+            TtlCompletableFuture.runAsync({ ttl.get() shouldBe "changed" }, executorService).getForTest()
+        } finally {
+            ttl.remove()
+        }
+    }
+
+    test("capture only once per stage chain") {
+        if (!noTtlAgentRun()) return@test
+
+        val captureCount = AtomicInteger()
+        val transmittee = object : Transmittee<Int, Int> {
+            override fun capture(): Int = captureCount.incrementAndGet()
+            override fun replay(captured: Int): Int = captured
+            override fun clear(): Int = 0
+            override fun restore(backup: Int) {}
+        }
+
+        // clear the TTL values left by the other tests, the copying TTL values are captured per stage
+        Transmitter.runSupplierWithClear {
+            TransmitteeRegistry.registerTransmittee(transmittee).shouldBeTrue()
+            try {
+                TtlCompletableFuture.supplyAsync({ 1 }, executorService)
+                    .thenApplyAsync { it + 1 }
+                    .thenApplyAsync { it + 1 }
+                    .thenAcceptAsync { it shouldBe 3 }
+                    .getForTest()
+
+                captureCount.get() shouldBe 1
+            } finally {
+                TransmitteeRegistry.unregisterTransmittee(transmittee).shouldBeTrue()
+            }
+        }
+    }
+
+    test("parallel branches of the chain never share the copy of the transmittee value") {
+        class Box(val value: String)
+
+        val ttl = object : TransmittableThreadLocal<Box>() {
+            override fun transmitteeValue(parentValue: Box?): Box? = parentValue?.let { Box(it.value) }
+        }
+        val parentBox = Box("parent")
+        ttl.set(parentBox)
+        try {
+            val future = TtlCompletableFuture.supplyAsync({ ttl.get() }, executorService)
+            val branch1 = future.thenApplyAsync { ttl.get() }
+            val branch2 = future.thenApplyAsync { ttl.get() }
+
+            val boxes = listOf(future.getForTest(), branch1.getForTest(), branch2.getForTest())
+            boxes.map { it.value } shouldBe listOf("parent", "parent", "parent")
+            if (noTtlAgentRun()) {
+                boxes.toSet().size shouldBe 3
+                boxes.none { it === parentBox }.shouldBeTrue()
+            }
+        } finally {
+            ttl.remove()
+        }
+    }
+
+    test("exception of supplier") {
+        val future = TtlCompletableFuture.supplyAsync({ throw IllegalStateException("bang") }, executorService)
+            .handleAsync { _, ex -> ex.cause!!.message }
+
+        future.getForTest() shouldBe "bang"
+    }
+})
@@ -0,0 +1,299 @@
+package com.alibaba.ttl3
+
+import com.alibaba.crr.composite.Capture
+import com.alibaba.getForTest
+import com.alibaba.ttl3.executor.TtlExecutors
+import com.alibaba.ttl3.transmitter.Transmitter
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.booleans.shouldBeFalse
+import io.kotest.matchers.booleans.shouldBeTrue
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import io.kotest.matchers.types.shouldNotBeSameInstanceAs
+import java.lang.ref.WeakReference
+import java.util.concurrent.FutureTask
+import kotlin.concurrent.thread
+
+class TtlHolderTest : FunSpec({
+    test("add/contains/remove") {
+        val ttl1 = TransmittableThreadLocal<String>()
+        val ttl2 = TransmittableThreadLocal<String>()
+        val slot1 = TtlHolder.allocateSlot(ttl1)
+        val slot2 = TtlHolder.allocateSlot(ttl2)
+
+        val holder = TtlHolder()
+        holder.contains(slot1).shouldBeFalse()
+
+        holder.add(slot1)
+        holder.add(slot1)
+        holder.add(slot2)
+        holder.contains(slot1).shouldBeTrue()
+        holder.contains(slot2).shouldBeTrue()
+        holder.size() shouldBe 2
+
+        val child = TtlHolder(holder)
+        holder.remove(slot1)
+        holder.contains(slot1).shouldBeFalse()
+        holder.size() shouldBe 1
+
+        child.contains(slot1).shouldBeTrue()
+        child.size() shouldBe 2
+        child.ttlAt(slot2.index) shouldBe ttl2
+    }
+
+    test("slot of collected TTL is recycled, and the stale entry never matches the new TTL") {
+        val holder = TtlHolder()
+
+        val staleSlot = addSlotOfUnreachableTtl(holder)
+        repeat(100) {
+            if (staleSlot.get() != null) {
+                System.gc()
+                Thread.sleep(10)
+            }
+        }
+        staleSlot.get().shouldBeNull()
+
+        val newTtl = TransmittableThreadLocal<String>()
+        val newSlot = TtlHolder.allocateSlot(newTtl)
+        if (newSlot.index == staleSlot.index) {
+            holder.contains(newSlot).shouldBeFalse()
+        }
+
+        holder.snapshot = arrayOf(staleSlot, "stale")
+        holder.ttlAt(staleSlot.index).shouldBeNull()
+        holder.size() shouldBe 0
+        holder.snapshot.shouldBeNull()
+    }
+
+    test("the cached snapshot does not keep the TTL dropped by user code reachable") {
+        val ttlRef = setValueOfUnreachableTtlAndCapture()
+        repeat(100) {
+            if (ttlRef.get() != null) {
+                System.gc()
+                Thread.sleep(10)
+            }
+        }
+        ttlRef.get().shouldBeNull()
+
+        // the stale entry is expunged by the next capture
+        val ttl = TransmittableThreadLocal<String>()
+        ttl.set("v")
+        val task = FutureTask { ttl.get() }
+        thread { TtlRunnable.get(task)!!.run() }.join()
+        task.getForTest() shouldBe "v"
+        ttl.remove()
+    }
+
+    test("inheritable and transmittable with many TTL instances") {
+        val ttls = (0 until 100).map { TransmittableThreadLocal<String>().apply { set("v$it") } }
+
+        val task = FutureTask { ttls.map { it.get() } }
+        thread { task.run() }.join()
+        task.getForTest() shouldBe ttls.map { it.get() }
+
+        val ttlRunnableValues = arrayOfNulls<String>(ttls.size)
+        val ttlRunnable = TtlRunnable.get { ttls.forEachIndexed { i, t -> ttlRunnableValues[i] = t.get() } }!!
+        ttls.forEach { it.remove() }
+
+        thread { ttlRunnable.run() }.join()
+        ttlRunnableValues.toList() shouldBe (0 until 100).map { "v$it" }
+        ttls.forEach { it.get().shouldBeNull() }
+    }
+
+    test("capture reflects the changes of TTL values between captures") {
+        val ttl1 = TransmittableThreadLocal<String>()
+        val ttl2 = TransmittableThreadLocal<String>()
+        ttl1.set("v1")
+
+        fun captureValues(): List<String?> {
+            val values = arrayOfNulls<String>(2)
+            val task = TtlRunnable.get {
+                values[0] = ttl1.get()
+                values[1] = ttl2.get()
+            }!!
+            thread { task.run() }.join()
+            return values.toList()
+        }
+
+        captureValues() shouldBe listOf("v1", null)
+        captureValues() shouldBe listOf("v1", null)
+
+        ttl2.set("v2")
+        captureValues() shouldBe listOf("v1", "v2")
+
+        ttl1.set("v1-changed")
+        captureValues() shouldBe listOf("v1-changed", "v2")
+
+        ttl1.remove()
+        captureValues() shouldBe listOf(null, "v2")
+
+        ttl2.remove()
+    }
+
+    test("capture does not share the transmittee values of TTL overriding transmitteeValue") {
+        val ttl = object : TransmittableThreadLocal<MutableList<String>>() {
+            override fun transmitteeValue(parentValue: MutableList<String>): MutableList<String> =
+                ArrayList(parentValue)
+        }
+        val supplied = TransmittableThreadLocal.withInitialAndGenerator({ mutableListOf<String>() }) { ArrayList(it) }
+        ttl.isTransmitteeValueIdentity.shouldBeFalse()
+        supplied.isTransmitteeValueIdentity.shouldBeFalse()
+        TransmittableThreadLocal.withInitial { "" }.isTransmitteeValueIdentity.shouldBeTrue()
+
+        ttl.set(mutableListOf("parent"))
+        supplied.get().add("parent")
+
+        val values = List(2) {
+            FutureTask { ttl.get() to supplied.get() }.also { TtlRunnable.get(it)!!.run() }.getForTest()
+        }
+        values[0].first shouldBe listOf("parent")
+        values[0].first.shouldNotBeSameInstanceAs(values[1].first)
+        values[0].first.shouldNotBeSameInstanceAs(ttl.get())
+        values[0].second.shouldNotBeSameInstanceAs(values[1].second)
+
+        ttl.remove()
+        supplied.remove()
+    }
+
+    test("replay/restore the TTL values held by the current thread") {
+        val ttl1 = TransmittableThreadLocal<String>()
+        val ttl2 = TransmittableThreadLocal<String>()
+        ttl1.set("v1")
+        ttl2.set("v2")
+
+        // the thread already holds the captured TTL values, then the task does not change TTL values
+        TtlRunnable.get {
+            ttl1.get() shouldBe "v1"
+            ttl2.get() shouldBe "v2"
+        }!!.run()
+        ttl1.get() shouldBe "v1"
+        ttl2.get() shouldBe "v2"
+
+        // the thread already holds the captured TTL values, then the task changes TTL values
+        val ttl3 = TransmittableThreadLocal<String>()
+        TtlRunnable.get {
+            ttl1.set("v1-changed-in-task")
+            ttl2.remove()
+            ttl3.set("v3")
+        }!!.run()
+        ttl1.get() shouldBe "v1"
+        ttl2.get() shouldBe "v2"
+        ttl3.get().shouldBeNull()
+
+        // nested capture in the task replayed by another thread
+        val nested = FutureTask {
+            TtlCallable.get { ttl1.get() to ttl2.get() }!!.call()
+        }
+        thread { TtlRunnable.get(nested)!!.run() }.join()
+        nested.getForTest() shouldBe ("v1" to "v2")
+
+        ttl1.remove()
+        ttl2.remove()
+    }
+
+    test("the worker thread holding TTL values replays repeatedly with the same backup") {
+        val ttl = TransmittableThreadLocal<String>()
+        ttl.set("parent")
+        val captured = Transmitter.capture()
+
+        val task = FutureTask {
+            ttl.set("worker")
+
+            val backups = List(3) {
+                Transmitter.replay(captured).also {
+                    ttl.get() shouldBe "parent"
+                    Transmitter.restore(it)
+                    ttl.get() shouldBe "worker"
+                }
+            }
+            backups[1] shouldBeSameInstanceAs backups[0]
+            backups[2] shouldBeSameInstanceAs backups[0]
+
+            // the TTL values of the worker thread changed, the backup changes too
+            ttl.set("worker-changed")
+            Transmitter.replay(captured).also {
+                ttl.get() shouldBe "parent"
+                Transmitter.restore(it)
+                ttl.get() shouldBe "worker-changed"
+            }.shouldNotBeSameInstanceAs(backups[0])
+        }
+        // do not inherit the TTL values of the test thread
+        TtlExecutors.getDefaultDisableInheritableThreadFactory().newThread(task).apply { start() }.join()
+        task.getForTest()
+
+        ttl.remove()
+    }
+
+    test("recapture returns the same captured values until the values of the thread change") {
+        val ttl = TransmittableThreadLocal<String>()
+        // not capture the values left in the test thread by other tests
+        val captured = Transmitter.runSupplierWithClear {
+            ttl.set("parent")
+            Transmitter.capture()
+        }
+
+        val task = FutureTask {
+            val backup = Transmitter.replay(captured)
+            try {
+                // the replayed values are not changed
+                Transmitter.recapture(captured) shouldBeSameInstanceAs captured
+                Transmitter.recapture(captured) shouldBeSameInstanceAs captured
+
+                ttl.set("changed")
+                val recaptured = Transmitter.recapture(captured)
+                recaptured shouldNotBeSameInstanceAs captured
+                Transmitter.recapture(recaptured) shouldBeSameInstanceAs recaptured
+
+                Transmitter.runSupplierWithCaptured(captured) { ttl.get() } shouldBe "parent"
+                Transmitter.runSupplierWithCaptured(recaptured) { ttl.get() } shouldBe "changed"
+            } finally {
+                Transmitter.restore(backup)
+            }
+        }
+        // do not inherit the TTL values of the test thread
+        TtlExecutors.getDefaultDisableInheritableThreadFactory().newThread(task).apply { start() }.join()
+        task.getForTest()
+    }
+
+    test("the last backup of the worker thread does not keep the dropped values of the thread reachable") {
+        val ttl = TransmittableThreadLocal<Any>()
+        ttl.set("parent")
+        val captured = Transmitter.capture()
+
+        val task = FutureTask {
+            val valueRef = setValueAndReplayRestore(ttl, captured)
+            ttl.remove()
+            repeat(100) {
+                if (valueRef.get() != null) {
+                    System.gc()
+                    Thread.sleep(10)
+                }
+            }
+            valueRef.get()
+        }
+        TtlExecutors.getDefaultDisableInheritableThreadFactory().newThread(task).apply { start() }.join()
+        task.getForTest().shouldBeNull()
+
+        ttl.remove()
+    }
+})
+
+private fun setValueAndReplayRestore(ttl: TransmittableThreadLocal<Any>, captured: Capture): WeakReference<Any> {
+    val value = Any()
+    ttl.set(value)
+    Transmitter.restore(Transmitter.replay(captured))
+    return WeakReference(value)
+}
+
+private fun setValueOfUnreachableTtlAndCapture(): WeakReference<TransmittableThreadLocal<String>> {
+    val ttl = TransmittableThreadLocal<String>()
+    ttl.set("value of the dropped TTL")
+    // the second capture is served from the cached snapshot of the thread
+    Transmitter.capture()
+    Transmitter.capture()
+    return WeakReference(ttl)
+}
+
+private fun addSlotOfUnreachableTtl(holder: TtlHolder): TtlHolder.Slot =
+    TtlHolder.allocateSlot(TransmittableThreadLocal<String>()).also { holder.add(it) }
@@ -1,22 +1,34 @@
 package com.alibaba.ttl3
 
+import com.alibaba.crr.TransmitCallback
 import com.alibaba.expandThreadPool
 import com.alibaba.getForTest
 import com.alibaba.shutdownForTest
 import com.alibaba.ttlWrapIfNoTtlAgentRun
+import com.alibaba.ttl3.spi.TtlAttachments
+import com.alibaba.ttl3.spi.TtlAttachmentsDelegate
+import com.alibaba.ttl3.transmitter.Transmitter
 import io.kotest.assertions.throwables.shouldThrow
 import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.booleans.shouldBeFalse
+import io.kotest.matchers.booleans.shouldBeTrue
 import io.kotest.matchers.collections.shouldBeEmpty
 import io.kotest.matchers.collections.shouldContainInOrder
 import io.kotest.matchers.collections.shouldHaveSize
 import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.shouldBe
 import io.kotest.matchers.string.shouldContain
 import io.kotest.matchers.types.shouldBeSameInstanceAs
 import io.kotest.matchers.types.shouldBeTypeOf
+import java.lang.ref.WeakReference
 import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CountDownLatch
 import java.util.concurrent.ExecutionException
 import java.util.concurrent.ExecutorService
 import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.FutureTask
+import java.util.concurrent.atomic.AtomicInteger
 import kotlin.concurrent.thread
 
 /**
@@ -82,6 +94,62 @@ class TtlRunnableTest : FunSpec({
         exception.message shouldContain "TTL value reference is released after run!"
     }
 
+    test("skip replay of the task cancelled before run") {
+        val replayCounter = AtomicInteger()
+        val callback = object : TransmitCallback {
+            override fun beforeReplay() {
+                replayCounter.incrementAndGet()
+            }
+        }
+        Transmitter.registerCallback(callback)
+        try {
+            val cancelledTask = FutureTask<Any?>({ }, null)
+            val ttlRunnable = TtlRunnable.get(cancelledTask)!!
+            cancelledTask.cancel(false).shouldBeTrue()
+
+            executorService.submit(ttlRunnable).getForTest().shouldBeNull()
+            replayCounter.get() shouldBe 0
+
+            val task = FutureTask<Any?>({ }, null)
+            executorService.submit(TtlRunnable.get(task)!!).getForTest().shouldBeNull()
+            replayCounter.get() shouldBe 1
+        } finally {
+            Transmitter.unregisterCallback(callback)
+        }
+    }
+
+    test("release ttl value reference after run of the task cancelled before run") {
+        val cancelledTask = FutureTask<Any?>({ }, null)
+        val ttlRunnable = TtlRunnable.get(cancelledTask, true)!!
+        cancelledTask.cancel(false).shouldBeTrue()
+
+        ttlRunnable.run()
+        shouldThrow<IllegalStateException> {
+            ttlRunnable.run()
+        }.message shouldBe "TTL value reference is released after run!"
+    }
+
+    test("the cancelled future releases the captured values, even if still queued") {
+        val executor = Executors.newSingleThreadExecutor()
+        val latch = CountDownLatch(1)
+        try {
+            executor.execute { latch.await() }
+
+            val (future, valueRef) = submitWithUnreachableValue(executor)
+            future.cancel(false).shouldBeTrue()
+            repeat(100) {
+                if (valueRef.get() != null) {
+                    System.gc()
+                    Thread.sleep(10)
+                }
+            }
+            valueRef.get().shouldBeNull()
+        } finally {
+            latch.countDown()
+            executor.shutdown()
+        }
+    }
+
     test("get same") {
         val task = Runnable {}
         val ttlRunnable = TtlRunnable.get(task)!!
@@ -115,6 +183,28 @@ class TtlRunnableTest : FunSpec({
         taskList[3].shouldBeTypeOf<TtlRunnable>()
     }
 
+    test("attachments") {
+        val runnable = Runnable {}
+        val ttlRunnable = TtlRunnable.get(runnable)!!
+
+        ttlRunnable.getTtlAttachment<Any>("key").shouldBeNull()
+        ttlRunnable.setTtlAttachment("key", "value")
+        ttlRunnable.getTtlAttachment<String>("key") shouldBe "value"
+
+        TtlAttachmentsDelegate.isAutoWrapper(ttlRunnable).shouldBeFalse()
+        TtlAttachmentsDelegate.unwrapIfIsAutoWrapper(ttlRunnable) shouldBeSameInstanceAs ttlRunnable
+        TtlAttachmentsDelegate.setAutoWrapperAttachment(ttlRunnable)
+        TtlAttachmentsDelegate.isAutoWrapper(ttlRunnable).shouldBeTrue()
+        ttlRunnable.getTtlAttachment<Boolean>(TtlAttachments.KEY_IS_AUTO_WRAPPER) shouldBe true
+        TtlAttachmentsDelegate.unwrapIfIsAutoWrapper(ttlRunnable) shouldBeSameInstanceAs runnable
+
+        // the stored value of auto wrapper attachment is returned as is
+        ttlRunnable.setTtlAttachment(TtlAttachments.KEY_IS_AUTO_WRAPPER, false)
+        ttlRunnable.getTtlAttachment<Boolean>(TtlAttachments.KEY_IS_AUTO_WRAPPER) shouldBe false
+        TtlAttachmentsDelegate.isAutoWrapper(ttlRunnable).shouldBeFalse()
+        ttlRunnable.getTtlAttachment<String>("key") shouldBe "value"
+    }
+
     test("unwrap") {
         TtlRunnable.unwrap(null).shouldBeNull()
 
@@ -135,3 +225,14 @@ class TtlRunnableTest : FunSpec({
         TtlRunnable.unwraps(null).shouldBeEmpty()
     }
 })
+
+private fun submitWithUnreachableValue(executor: ExecutorService): Pair<Future<*>, WeakReference<Any>> {
+    val ttl = TransmittableThreadLocal<Any>()
+    val value = Any()
+    ttl.set(value)
+    try {
+        return executor.submit(TtlRunnable.get { }!!) to WeakReference(value)
+    } finally {
+        ttl.remove()
+    }
+}
@@ -39,4 +39,22 @@ class TtlTimerTaskTest : AnnotationSpec() {
         TtlTimerTask.unwrap(timerTask) shouldBeSameInstanceAs timerTask
         TtlTimerTask.unwrap(ttlTimerTask) shouldBeSameInstanceAs timerTask
     }
+
+    @Test
+    fun test_cancel_releaseTtlValueReference() {
+        val timer = Timer(true)
+        try {
+            val ttlTimerTask = TtlTimerTask.get(object : TimerTask() {
+                override fun run() {}
+            }, true)!!
+            timer.schedule(ttlTimerTask, 60_000)
+            ttlTimerTask.cancel() shouldBe true
+
+            shouldThrow<IllegalStateException> {
+                ttlTimerTask.run()
+            }.message shouldBe "TTL value reference is released after run!"
+        } finally {
+            timer.cancel()
+        }
+    }
 }
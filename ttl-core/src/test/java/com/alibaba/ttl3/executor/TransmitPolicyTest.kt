@@ -0,0 +1,119 @@
+package com.alibaba.ttl3.executor
+
+import com.alibaba.getForTest
+import com.alibaba.noTtlAgentRun
+import com.alibaba.shutdownForTest
+import com.alibaba.ttl3.TransmittableThreadLocal
+import com.alibaba.ttl3.spi.TtlEnhanced
+import com.alibaba.ttl3.transmitter.CapturePlan
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.booleans.shouldBeFalse
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import java.util.concurrent.Callable
+import java.util.concurrent.Executor
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+
+class TransmitPolicyTest : FunSpec({
+    val tracing = TransmittableThreadLocal<String>()
+    val other = TransmittableThreadLocal<String>()
+    lateinit var executorService: ExecutorService
+    lateinit var scheduledExecutorService: ScheduledExecutorService
+
+    beforeSpec {
+        executorService = Executors.newFixedThreadPool(2, TtlExecutors.getDefaultDisableInheritableThreadFactory())
+        scheduledExecutorService = Executors.newScheduledThreadPool(1, TtlExecutors.getDefaultDisableInheritableThreadFactory())
+    }
+
+    afterSpec {
+        executorService.shutdownForTest()
+        scheduledExecutorService.shutdownForTest()
+    }
+
+    afterTest {
+        tracing.remove()
+        other.remove()
+    }
+
+    test("policy none does not wrap") {
+        TtlExecutors.getTtlExecutor(executorService, TransmitPolicy.none()).shouldBeSameInstanceAs(executorService)
+        TtlExecutors.getTtlExecutorService(executorService, TransmitPolicy.none()).shouldBeSameInstanceAs(executorService)
+        TtlExecutors.getTtlScheduledExecutorService(scheduledExecutorService, TransmitPolicy.none())
+            .shouldBeSameInstanceAs(scheduledExecutorService)
+        TransmitPolicy.none().isTransmit.shouldBeFalse()
+
+        if (noTtlAgentRun()) {
+            tracing.set("tracing")
+            executorService.submit(Callable { tracing.get() }).getForTest().shouldBeNull()
+        }
+    }
+
+    test("policy all is the same as the wrap without policy") {
+        val ttlExecutorService = TtlExecutors.getTtlExecutorService(executorService, TransmitPolicy.all())!!
+        ttlExecutorService shouldBe TtlExecutors.getTtlExecutorService(executorService)
+        TransmitPolicy.all().capturePlan.shouldBeNull()
+
+        tracing.set("tracing")
+        other.set("other")
+        ttlExecutorService.submit(Callable { tracing.get() to other.get() }).getForTest() shouldBe ("tracing" to "other")
+    }
+
+    test("policy of capture plan transmits the planned values only") {
+        val policy = TransmitPolicy.of(CapturePlan.of(tracing))
+        val ttlScheduledExecutorService = TtlExecutors.getTtlScheduledExecutorService(scheduledExecutorService, policy)!!
+        TtlExecutors.isTtlExecutor(ttlScheduledExecutorService) shouldBe true
+
+        tracing.set("tracing")
+        other.set("other")
+        ttlScheduledExecutorService.submit(Callable { tracing.get() to other.get() }).getForTest() shouldBe ("tracing" to null)
+    }
+
+    test("the TTL wrapper of other plan/policy is unwrapped and wrapped by the requested plan/policy") {
+        val planOfTracing = CapturePlan.of(tracing)
+        val planOfOther = CapturePlan.of(other)
+        val wrappedByTracing = TtlExecutors.getTtlExecutorService(executorService, planOfTracing)!!
+        TtlExecutors.getTtlExecutorService(wrappedByTracing, planOfTracing).shouldBeSameInstanceAs(wrappedByTracing)
+        TtlExecutors.getTtlExecutorService(wrappedByTracing, TransmitPolicy.of(planOfTracing))
+            .shouldBeSameInstanceAs(wrappedByTracing)
+
+        val wrappedByOther = TtlExecutors.getTtlExecutorService(wrappedByTracing, planOfOther)!!
+        TtlExecutors.unwrapTtlExecutor(wrappedByOther).shouldBeSameInstanceAs(executorService)
+        TtlExecutors.getTtlExecutorService(wrappedByTracing, TransmitPolicy.of(planOfOther)) shouldBe wrappedByOther
+        TtlExecutors.unwrapTtlExecutor(TtlExecutors.getTtlExecutor(wrappedByTracing, planOfOther))
+            .shouldBeSameInstanceAs(executorService)
+        TtlExecutors.unwrapTtlExecutor(
+            TtlExecutors.getTtlScheduledExecutorService(
+                TtlExecutors.getTtlScheduledExecutorService(scheduledExecutorService, planOfTracing), planOfOther
+            )
+        ).shouldBeSameInstanceAs(scheduledExecutorService)
+
+        tracing.set("tracing")
+        other.set("other")
+        wrappedByOther.submit(Callable { tracing.get() to other.get() }).getForTest() shouldBe (null to "other")
+
+        val wrappedByAll = TtlExecutors.getTtlExecutorService(wrappedByTracing, TransmitPolicy.all())!!
+        wrappedByAll shouldBe TtlExecutors.getTtlExecutorService(executorService)
+        TtlExecutors.getTtlExecutorService(wrappedByAll, TransmitPolicy.all()).shouldBeSameInstanceAs(wrappedByAll)
+        wrappedByAll.submit(Callable { tracing.get() to other.get() }).getForTest() shouldBe ("tracing" to "other")
+
+        TtlExecutors.getTtlExecutorService(wrappedByTracing, TransmitPolicy.none()).shouldBeSameInstanceAs(executorService)
+    }
+
+    test("the TTL enhanced executor which is not a TTL wrapper can not be wrapped by the plan") {
+        val enhanced = TtlEnhancedExecutor()
+        shouldThrow<IllegalArgumentException> {
+            TtlExecutors.getTtlExecutor(enhanced, CapturePlan.of(tracing))
+        }
+        shouldThrow<IllegalArgumentException> {
+            TtlExecutors.getTtlExecutor(enhanced, TransmitPolicy.of(CapturePlan.of(tracing)))
+        }
+    }
+})
+
+private class TtlEnhancedExecutor : Executor, TtlEnhanced {
+    override fun execute(command: Runnable) = command.run()
+}
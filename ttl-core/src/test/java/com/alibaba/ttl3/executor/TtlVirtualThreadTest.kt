@@ -0,0 +1,45 @@
+package com.alibaba.ttl3.executor
+
+import com.alibaba.getForTest
+import com.alibaba.shutdownForTest
+import com.alibaba.ttl3.TransmittableThreadLocal
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.booleans.shouldBeTrue
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.shouldBe
+
+class TtlVirtualThreadTest : FunSpec({
+    val supported = TtlExecutors.isVirtualThreadSupported()
+
+    test("transmit TTL values to virtual thread, without inheritance").config(enabled = supported) {
+        val ttl = TransmittableThreadLocal<String>()
+        val itl = InheritableThreadLocal<String>()
+
+        val executor = TtlExecutors.newTtlVirtualThreadPerTaskExecutor()
+        ttl.set("parent")
+        itl.set("parent")
+
+        val future = executor.submit<Triple<String?, String?, Boolean>> {
+            val isVirtual = Thread::class.java.getMethod("isVirtual").invoke(Thread.currentThread()) as Boolean
+            Triple(ttl.get(), itl.get(), isVirtual)
+        }
+        val (ttlValue, itlValue, isVirtual) = future.getForTest()
+        ttlValue shouldBe "parent"
+        // the virtual thread does not inherit the inheritable thread-local values
+        itlValue.shouldBeNull()
+        isVirtual.shouldBeTrue()
+
+        // the task is not wrapped twice
+        TtlExecutors.isTtlExecutor(executor) shouldBe false
+
+        ttl.remove()
+        itl.remove()
+        executor.shutdownForTest()
+    }
+
+    test("throw UnsupportedOperationException if virtual thread is not supported").config(enabled = !supported) {
+        shouldThrow<UnsupportedOperationException> { TtlExecutors.getTtlVirtualThreadFactory() }
+        shouldThrow<UnsupportedOperationException> { TtlExecutors.newTtlVirtualThreadPerTaskExecutor() }
+    }
+})
@@ -0,0 +1,140 @@
+package com.alibaba.ttl3.transmitter
+
+import com.alibaba.getForTest
+import com.alibaba.shutdownForTest
+import com.alibaba.ttl3.TransmittableThreadLocal
+import com.alibaba.ttl3.TtlCallable
+import com.alibaba.ttl3.TtlRunnable
+import com.alibaba.ttl3.executor.TtlExecutors
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.booleans.shouldBeTrue
+import io.kotest.matchers.collections.shouldContainExactly
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.shouldBe
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+
+class CapturePlanTest : FunSpec({
+    val planned1 = TransmittableThreadLocal<String>()
+    val planned2 = TransmittableThreadLocal<String>()
+    val other = TransmittableThreadLocal<String>()
+    lateinit var executorService: ExecutorService
+
+    beforeSpec {
+        executorService = Executors.newFixedThreadPool(2, TtlExecutors.getDefaultDisableInheritableThreadFactory())
+    }
+
+    afterSpec {
+        executorService.shutdownForTest()
+    }
+
+    afterTest {
+        planned1.remove()
+        planned2.remove()
+        other.remove()
+    }
+
+    test("transmit the planned TTLs only, the other TTLs are cleared during the run and restored after") {
+        val plan = CapturePlan.of(planned2, planned1, planned2)
+        planned1.set("p1")
+        planned2.set("p2")
+        other.set("other")
+
+        val captured = Transmitter.capture(plan)
+        planned1.set("changed")
+        other.set("other-after-capture")
+
+        Transmitter.runSupplierWithCaptured(captured) {
+            planned1.get() shouldBe "p1"
+            planned2.get() shouldBe "p2"
+            other.get().shouldBeNull()
+        }
+        planned1.get() shouldBe "changed"
+        planned2.get() shouldBe "p2"
+        other.get() shouldBe "other-after-capture"
+    }
+
+    test("transmit the planned transmittees only") {
+        val plannedCount = AtomicInteger()
+        val otherCount = AtomicInteger()
+        val planned = CountingTransmittee(plannedCount)
+        val notPlanned = CountingTransmittee(otherCount)
+        TransmitteeRegistry.registerTransmittee(planned).shouldBeTrue()
+        TransmitteeRegistry.registerTransmittee(notPlanned).shouldBeTrue()
+        try {
+            val plan = CapturePlan.of(listOf(planned1), listOf(planned))
+            planned1.set("p1")
+            other.set("other")
+
+            val ttlCallable = TtlCallable.get(Callable { listOf(planned1.get(), other.get()) }, plan)!!
+            plannedCount.get() shouldBe 1
+            otherCount.get() shouldBe 0
+
+            executorService.submit(ttlCallable).getForTest().shouldContainExactly("p1", null)
+        } finally {
+            TransmitteeRegistry.unregisterTransmittee(planned).shouldBeTrue()
+            TransmitteeRegistry.unregisterTransmittee(notPlanned).shouldBeTrue()
+        }
+    }
+
+    test("the plan without TTL does not touch the TTL values") {
+        val count = AtomicInteger()
+        val transmittee = CountingTransmittee(count)
+        val plan = CapturePlan.of(emptyList(), listOf(transmittee))
+        planned1.set("p1")
+
+        val captured = Transmitter.capture(plan)
+        count.get() shouldBe 1
+
+        planned1.set("run")
+        Transmitter.runSupplierWithCaptured(captured) {
+            planned1.get() shouldBe "run"
+        }
+        planned1.get() shouldBe "run"
+    }
+
+    test("the transmittee of all TTL values conflicts with the planned TTLs") {
+        shouldThrow<IllegalArgumentException> {
+            CapturePlan.of(listOf(planned1), listOf(TransmittableThreadLocal.getTtlTransmittee()))
+        }
+
+        // the transmittee of all TTL values without the planned TTLs
+        val plan = CapturePlan.of(emptyList(), listOf(TransmittableThreadLocal.getTtlTransmittee()))
+        planned1.set("p1")
+        other.set("other")
+
+        val captured = Transmitter.capture(plan)
+        planned1.set("changed")
+        Transmitter.runSupplierWithCaptured(captured) {
+            planned1.get() shouldBe "p1"
+            other.get() shouldBe "other"
+        }
+        planned1.get() shouldBe "changed"
+    }
+
+    test("executor wrapper with plan") {
+        val plan = CapturePlan.of(planned1)
+        val ttlExecutorService = TtlExecutors.getTtlExecutorService(executorService, plan)!!
+        TtlExecutors.isTtlExecutor(ttlExecutorService).shouldBeTrue()
+        planned1.set("p1")
+        other.set("other")
+
+        ttlExecutorService.submit(Callable { planned1.get() to other.get() }).getForTest() shouldBe ("p1" to null)
+        ttlExecutorService.invokeAll(listOf(Callable { planned1.get() }, Callable { planned1.get() }))
+            .map { it.getForTest() }.shouldContainExactly("p1", "p1")
+
+        val ttlRunnable = TtlRunnable.get({ planned1.get() shouldBe "p1" }, plan)!!
+        TtlRunnable.get(ttlRunnable, false, true, plan) shouldBe ttlRunnable
+        ttlExecutorService.submit(ttlRunnable).getForTest()
+    }
+})
+
+private class CountingTransmittee(private val captureCount: AtomicInteger) : Transmittee<Int, Int> {
+    override fun capture(): Int = captureCount.incrementAndGet()
+    override fun replay(captured: Int): Int = captured
+    override fun clear(): Int = 0
+    override fun restore(backup: Int) {}
+}
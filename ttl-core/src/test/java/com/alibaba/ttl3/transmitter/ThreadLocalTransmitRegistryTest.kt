@@ -0,0 +1,45 @@
+package com.alibaba.ttl3.transmitter
+
+import com.alibaba.ttl3.TtlCallable
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.booleans.shouldBeTrue
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.shouldBe
+import java.util.concurrent.FutureTask
+import kotlin.concurrent.thread
+
+class ThreadLocalTransmitRegistryTest : FunSpec({
+    val threadLocal = ThreadLocal<String>()
+
+    afterTest {
+        ThreadLocalTransmitRegistry.unregisterThreadLocal(threadLocal)
+        threadLocal.remove()
+    }
+
+    fun runInNewThread(callable: TtlCallable<String?>, workerValue: String?): Pair<String?, String?> {
+        val task = FutureTask {
+            if (workerValue != null) threadLocal.set(workerValue)
+            callable.call() to threadLocal.get()
+        }
+        thread { task.run() }.join()
+        return task.get()
+    }
+
+    test("the ThreadLocal is not transmitted before registered, and transmitted after registered") {
+        threadLocal.set("parent")
+        // captured when no ThreadLocal is registered
+        val notRegistered = TtlCallable.get { threadLocal.get() }!!
+
+        ThreadLocalTransmitRegistry.registerThreadLocal(threadLocal) { "$it-copied" }.shouldBeTrue()
+        val registered = TtlCallable.get { threadLocal.get() }!!
+
+        runInNewThread(notRegistered, "worker") shouldBe ("worker" to "worker")
+        runInNewThread(notRegistered, null) shouldBe (null to null)
+        // the value of worker thread is restored after run
+        runInNewThread(registered, "worker") shouldBe ("parent-copied" to "worker")
+        runInNewThread(registered, null) shouldBe ("parent-copied" to null)
+
+        ThreadLocalTransmitRegistry.unregisterThreadLocal(threadLocal).shouldBeTrue()
+        TtlCallable.get { threadLocal.get() }!!.let { runInNewThread(it, null).first.shouldBeNull() }
+    }
+})
@@ -0,0 +1,177 @@
+package com.alibaba.ttl3.transmitter.metrics
+
+import com.alibaba.crr.TransmitMetrics
+import com.alibaba.ttl3.TransmittableThreadLocal
+import com.alibaba.ttl3.TtlRunnable
+import com.alibaba.ttl3.transmitter.CapturePlan
+import com.alibaba.ttl3.transmitter.Transmittee
+import com.alibaba.ttl3.transmitter.TransmitteeRegistry
+import com.alibaba.ttl3.transmitter.Transmitter
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.booleans.shouldBeFalse
+import io.kotest.matchers.booleans.shouldBeTrue
+import io.kotest.matchers.longs.shouldBeGreaterThanOrEqual
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.nulls.shouldNotBeNull
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.shouldNotBe
+import java.lang.management.ManagementFactory
+import javax.management.ObjectName
+import javax.management.openmbean.CompositeData
+import kotlin.concurrent.thread
+
+class JmxTransmitMetricsTest : FunSpec({
+    val mBeanServer = ManagementFactory.getPlatformMBeanServer()
+
+    test("record CRR operations of transmittee, and expose via JMX") {
+        val transmittee = FailingReplayTransmittee()
+        TransmitteeRegistry.registerTransmittee(transmittee)
+        val metrics = JmxTransmitMetrics()
+        Transmitter.setTransmitMetrics(metrics)
+        try {
+            repeat(3) {
+                val task = TtlRunnable.get {}!!
+                thread { task.run() }.join()
+            }
+
+            val name = metrics.getObjectName(transmittee)!!
+            name.getKeyProperty("id").shouldNotBeNull()
+            val capture = mBeanServer.getAttribute(name, "Capture") as CompositeData
+            capture["count"] shouldBe 3L
+            capture["failureCount"] shouldBe 0L
+            (capture["p99Nanos"] as Long) shouldBeGreaterThanOrEqual 0L
+            (capture["latencyHistogram"] as LongArray).sum() shouldBe 3L
+
+            val replay = mBeanServer.getAttribute(name, "Replay") as CompositeData
+            replay["count"] shouldBe 3L
+            replay["failureCount"] shouldBe 3L
+
+            // the restore is skipped for the failed replay
+            val restore = mBeanServer.getAttribute(name, "Restore") as CompositeData
+            restore["count"] shouldBe 0L
+
+            mBeanServer.getAttribute(name, "TransmitteeClass") shouldBe FailingReplayTransmittee::class.java.name
+            mBeanServer.invoke(name, "reset", null, null)
+            (mBeanServer.getAttribute(name, "Capture") as CompositeData)["count"] shouldBe 0L
+        } finally {
+            Transmitter.setTransmitMetrics(null)
+            TransmitteeRegistry.unregisterTransmittee(transmittee)
+            metrics.unregisterMBeans()
+        }
+        Transmitter.getTransmitMetrics().shouldBeNull()
+        metrics.getObjectName(transmittee).shouldBeNull()
+    }
+
+    test("unregister the MXBean when the transmittee is unregistered") {
+        val transmittee = FailingReplayTransmittee()
+        TransmitteeRegistry.registerTransmittee(transmittee)
+        val metrics = JmxTransmitMetrics()
+        Transmitter.setTransmitMetrics(metrics)
+        try {
+            Transmitter.capture()
+            val name = metrics.getObjectName(transmittee)!!
+            mBeanServer.isRegistered(name).shouldBeTrue()
+
+            TransmitteeRegistry.unregisterTransmittee(transmittee)
+            mBeanServer.isRegistered(name).shouldBeFalse()
+            metrics.getObjectName(transmittee).shouldBeNull()
+
+            // the transmittee not registered is not recorded
+            metrics.record(transmittee, TransmitMetrics.Operation.CAPTURE, 1, false)
+            metrics.getObjectName(transmittee).shouldBeNull()
+        } finally {
+            Transmitter.setTransmitMetrics(null)
+            TransmitteeRegistry.unregisterTransmittee(transmittee)
+            metrics.unregisterMBeans()
+        }
+    }
+
+    test("unregister the MXBean when the transmittee is collected") {
+        val metrics = JmxTransmitMetrics()
+        // the metrics is not notified of the unregistration
+        fun recordCollectableTransmittee(): ObjectName {
+            val transmittee = FailingReplayTransmittee()
+            TransmitteeRegistry.registerTransmittee(transmittee)
+            metrics.record(transmittee, TransmitMetrics.Operation.CAPTURE, 1, false)
+            TransmitteeRegistry.unregisterTransmittee(transmittee)
+            return metrics.getObjectName(transmittee)!!
+        }
+
+        try {
+            val name = recordCollectableTransmittee()
+            mBeanServer.isRegistered(name).shouldBeTrue()
+
+            for (i in 0 until 100) {
+                System.gc()
+                // the collected transmittees are expunged on the registration change
+                metrics.unregistered(FailingReplayTransmittee())
+                if (!mBeanServer.isRegistered(name)) break
+                Thread.sleep(10)
+            }
+            mBeanServer.isRegistered(name).shouldBeFalse()
+        } finally {
+            metrics.unregisterMBeans()
+        }
+    }
+
+    test("the TTL subset transmittees are recorded by one MXBean, the transmittees not registered are not recorded") {
+        val metrics = JmxTransmitMetrics()
+        Transmitter.setTransmitMetrics(metrics)
+        val notRegistered = FailingReplayTransmittee()
+        try {
+            val ttl = TransmittableThreadLocal<String>()
+            val plan = CapturePlan.of(listOf(ttl), listOf(notRegistered))
+            TtlRunnable.get({}, plan)!!
+            val subset = TransmittableThreadLocal.getTtlTransmittee(ttl)
+            metrics.record(subset, TransmitMetrics.Operation.CAPTURE, 1, false)
+
+            val name = metrics.getObjectName(subset)!!
+            name.getKeyProperty("id").shouldBeNull()
+            (mBeanServer.getAttribute(name, "Capture") as CompositeData)["count"] shouldBe 2L
+            metrics.getObjectName(notRegistered).shouldBeNull()
+        } finally {
+            Transmitter.setTransmitMetrics(null)
+            metrics.unregisterMBeans()
+        }
+    }
+
+    test("the object names of the MXBeans are unique") {
+        val transmittee = FailingReplayTransmittee()
+        TransmitteeRegistry.registerTransmittee(transmittee)
+        val metrics = JmxTransmitMetrics()
+        val other = JmxTransmitMetrics()
+        try {
+            metrics.record(transmittee, TransmitMetrics.Operation.CAPTURE, 1, false)
+            other.record(transmittee, TransmitMetrics.Operation.CAPTURE, 1, false)
+
+            metrics.getObjectName(transmittee) shouldNotBe other.getObjectName(transmittee)
+            mBeanServer.isRegistered(metrics.getObjectName(transmittee)).shouldBeTrue()
+            mBeanServer.isRegistered(other.getObjectName(transmittee)).shouldBeTrue()
+        } finally {
+            TransmitteeRegistry.unregisterTransmittee(transmittee)
+            metrics.unregisterMBeans()
+            other.unregisterMBeans()
+        }
+    }
+
+    test("OperationMetrics percentile estimation") {
+        val histogram = LongArray(OperationMetrics.BUCKET_COUNT)
+        histogram[OperationMetrics.bucketOf(100)] = 98
+        histogram[OperationMetrics.bucketOf(5000)] = 2
+        val metrics = OperationMetrics(100, 0, 100 * 98 + 5000 * 2, 5000, histogram)
+
+        metrics.p50Nanos shouldBe 127L
+        metrics.p99Nanos shouldBe 5000L
+        metrics.meanNanos shouldBe 198L
+    }
+})
+
+private class FailingReplayTransmittee : Transmittee<String, String> {
+    override fun capture(): String = "captured"
+
+    override fun replay(captured: String): String = throw IllegalStateException("replay failure for test")
+
+    override fun clear(): String = "cleared"
+
+    override fun restore(backup: String) {}
+}
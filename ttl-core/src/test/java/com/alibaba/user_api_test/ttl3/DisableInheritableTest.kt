@@ -0,0 +1,106 @@
+package com.alibaba.user_api_test.ttl3
+
+import com.alibaba.getForTest
+import com.alibaba.ttl3.TransmittableThreadLocal
+import com.alibaba.ttl3.TtlCallable
+import io.kotest.assertions.withClue
+import io.kotest.core.spec.style.AnnotationSpec
+import io.kotest.matchers.booleans.shouldBeFalse
+import io.kotest.matchers.booleans.shouldBeTrue
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.shouldBe
+import java.io.File
+import java.util.concurrent.FutureTask
+import java.util.concurrent.TimeUnit
+import kotlin.concurrent.thread
+
+/**
+ * Test the "disable inheritable" of [TransmittableThreadLocal] from user code(different package)
+ */
+class DisableInheritableTest : AnnotationSpec() {
+    @Test
+    fun test_TTL_disableInheritable_notInherited_butTransmitted() {
+        val ttl = TransmittableThreadLocal<String>(false, true)
+        ttl.isInheritableDisabled.shouldBeTrue()
+        ttl.set("parent")
+
+        val task = FutureTask { ttl.get() }
+        thread { task.run() }.join()
+        task.getForTest().shouldBeNull()
+
+        val ttlTask = FutureTask(TtlCallable.get { ttl.get() }!!)
+        thread { ttlTask.run() }.join()
+        ttlTask.getForTest() shouldBe "parent"
+
+        ttl.remove()
+    }
+
+    @Test
+    fun test_TTL_disableInheritable_childValueIsInitialValue() {
+        val ttl = object : TransmittableThreadLocal<String>(false, true) {
+            override fun initialValue(): String = "init"
+        }
+        ttl.set("parent")
+
+        val task = FutureTask { ttl.get() }
+        thread { task.run() }.join()
+        task.getForTest() shouldBe "init"
+
+        ttl.remove()
+    }
+
+    @Test
+    fun test_TTL_default_inheritable() {
+        val ttl = TransmittableThreadLocal<String>()
+        ttl.isInheritableDisabled.shouldBeFalse()
+        ttl.set("parent")
+
+        val task = FutureTask { ttl.get() }
+        thread { task.run() }.join()
+        task.getForTest() shouldBe "parent"
+
+        ttl.remove()
+    }
+
+    /**
+     * the global flag is read once on class initialization, so check it in a forked JVM.
+     */
+    @Test
+    fun test_TTL_disableInheritableGlobally_bySystemProperty() {
+        val java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java"
+        val process = ProcessBuilder(
+            java, "-D${TransmittableThreadLocal.DISABLE_INHERITABLE_KEY}=true",
+            "-cp", System.getProperty("java.class.path"),
+            DisableInheritableGloballyMain::class.java.name
+        ).redirectErrorStream(true).start()
+
+        val output = process.inputStream.bufferedReader().readText()
+        process.waitFor(1, TimeUnit.MINUTES).shouldBeTrue()
+        withClue(output) { process.exitValue() shouldBe 0 }
+    }
+}
+
+/**
+ * run in the JVM started with `-Dttl.disable.inheritable=true`, exit with non-zero status if the check fails.
+ */
+object DisableInheritableGloballyMain {
+    @JvmStatic
+    fun main(args: Array<String>) {
+        val ttl = TransmittableThreadLocal<String>()
+        val generated = TransmittableThreadLocal.withInitialAndGenerator({ "init" }) { "$it-child" }
+        check(ttl.isInheritableDisabled)
+        check(generated.isInheritableDisabled)
+        ttl.set("parent")
+        generated.set("parent")
+
+        // not inherited
+        val task = FutureTask { ttl.get() to generated.get() }
+        thread { task.run() }.join()
+        check(task.getForTest() == (null to "init")) { "inherited: ${task.getForTest()}" }
+
+        // but transmitted
+        val ttlTask = FutureTask(TtlCallable.get { ttl.get() to generated.get() }!!)
+        thread { ttlTask.run() }.join()
+        check(ttlTask.getForTest() == ("parent" to "parent-child")) { "not transmitted: ${ttlTask.getForTest()}" }
+    }
+}
@@ -0,0 +1,86 @@
+package com.alibaba.ttl3.integration.reactor;
+
+import com.alibaba.ttl3.TransmittableThreadLocal;
+import com.alibaba.ttl3.TtlRunnable;
+import com.alibaba.ttl3.agent.TtlAgentStatus;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import reactor.core.publisher.Hooks;
+import reactor.core.publisher.Operators;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Install/uninstall the {@code Project Reactor} hooks,
+ * so as to transmit the {@link TransmittableThreadLocal} values across the scheduler boundaries
+ * ({@code publishOn}/{@code subscribeOn}) automatically, without wrapping every operator callback.
+ * <ol>
+ * <li>the schedule hook({@link Schedulers#onScheduleHook}) decorates the tasks submitted to the {@code Scheduler}s
+ *     by {@link TtlRunnable}, so the subscription of {@code subscribeOn} is executed with the values of subscribing thread.
+ *     skipped when ttl agent is loaded, the executors of {@code Scheduler}s are already enhanced by the agent.</li>
+ * <li>the operator hook({@link Hooks#onEachOperator}) decorates the subscriber of every operator,
+ *     the values are captured <b>once</b> per subscription at the subscribing time,
+ *     and replayed around the signals delivered in other threads, e.g. after {@code publishOn}.</li>
+ * </ol>
+ * <p>
+ * <b><i>Note:</i></b>
+ * <ul>
+ * <li>the values are subscription scoped, as the {@code Reactor Context}:
+ *     the inner publishers of {@code flatMap}/{@code defer} share the values captured by the outer subscription.</li>
+ * <li>the decorated subscribers suppress the operator fusion of the fuseable operators.</li>
+ * </ul>
+ *
+ * @see Hooks#onEachOperator(String, java.util.function.Function)
+ * @see Schedulers#onScheduleHook(String, java.util.function.Function)
+ */
+public final class TtlReactorHooks {
+    /**
+     * the key of the installed hooks.
+     */
+    public static final String HOOK_KEY = TtlReactorHooks.class.getName();
+
+    private static volatile boolean installed = false;
+
+    /**
+     * install the TTL hooks of {@code Project Reactor}, idempotent.
+     * <p>
+     * <B><I>Caution:</I></B><br>
+     * {@link Hooks#onEachOperator} decorates the subscriber of <b>every</b> operator assembled after install,
+     * not only the scheduler boundaries; the decorated subscriber is not a {@code Fuseable.QueueSubscription},
+     * so the operator fusion(e.g. the queue fusion of {@code publishOn}, and the fusion of {@code map}/{@code filter})
+     * is disabled for all the {@code Flux}/{@code Mono} of the application, besides a replay check per signal.
+     * The signals delivered by the other threads(e.g. {@code delayElements}, {@code timeout}, or the network threads)
+     * need the decoration too, so the hook is not limited to {@code publishOn}/{@code subscribeOn};
+     * install only when the {@link TransmittableThreadLocal} values must be transmitted across the reactive pipelines.
+     */
+    public static synchronized void install() {
+        if (installed) return;
+
+        if (!TtlAgentStatus.getInstance().isTtlAgentLoaded()) {
+            Schedulers.onScheduleHook(HOOK_KEY, TtlRunnable::get);
+        }
+        Hooks.onEachOperator(HOOK_KEY, Operators.lift((scannable, subscriber) -> TtlSubscriber.get(subscriber)));
+        installed = true;
+    }
+
+    /**
+     * uninstall the TTL hooks of {@code Project Reactor}, idempotent.
+     */
+    public static synchronized void uninstall() {
+        if (!installed) return;
+
+        Schedulers.resetOnScheduleHook(HOOK_KEY);
+        Hooks.resetOnEachOperator(HOOK_KEY);
+        installed = false;
+    }
+
+    /**
+     * whether the TTL hooks of {@code Project Reactor} are installed.
+     */
+    public static boolean isInstalled() {
+        return installed;
+    }
+
+    @SuppressFBWarnings("CT_CONSTRUCTOR_THROW")
+    private TtlReactorHooks() {
+        throw new InstantiationError("Must not instantiate this class");
+    }
+}
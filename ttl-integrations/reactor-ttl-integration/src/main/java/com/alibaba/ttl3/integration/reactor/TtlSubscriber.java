@@ -0,0 +1,147 @@
+package com.alibaba.ttl3.integration.reactor;
+
+import com.alibaba.crr.composite.Backup;
+import com.alibaba.crr.composite.Capture;
+import com.alibaba.ttl3.spi.TtlEnhanced;
+import com.alibaba.ttl3.spi.TtlWrapper;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.Scannable;
+import reactor.util.context.Context;
+
+import static com.alibaba.ttl3.transmitter.Transmitter.*;
+
+/**
+ * {@link TtlSubscriber} decorate {@link CoreSubscriber}, replay the values captured at subscription
+ * around the {@code onNext}/{@code onError}/{@code onComplete} signals.
+ * <p>
+ * The captured values are shared by all the {@link TtlSubscriber}s of a subscription via the subscriber
+ * {@link Context}, so the values are captured only once per subscription; and the replay is skipped when
+ * the signal is delivered inside the signal of the same subscription in the same thread,
+ * e.g. the operators chained after a {@code publishOn}.
+ *
+ * @see TtlReactorHooks
+ */
+final class TtlSubscriber<T> implements CoreSubscriber<T>, Scannable, TtlWrapper<CoreSubscriber<? super T>>, TtlEnhanced {
+    /**
+     * the key of captured values in the subscriber {@link Context}.
+     */
+    private static final Object CAPTURED_KEY = TtlSubscriber.class;
+
+    /**
+     * the captured values being replayed by the {@link TtlSubscriber}s in the current thread.
+     */
+    private static final ThreadLocal<Capture> replaying = new ThreadLocal<>();
+
+    private final CoreSubscriber<? super T> actual;
+    private final Capture captured;
+    private final Context context;
+
+    private TtlSubscriber(@NonNull CoreSubscriber<? super T> actual, @NonNull Capture captured, @NonNull Context context) {
+        this.actual = actual;
+        this.captured = captured;
+        this.context = context;
+    }
+
+    /**
+     * Factory method, decorate the input {@link CoreSubscriber} of the subscription.
+     * <p>
+     * reuse the captured values of the subscription if present in the subscriber {@link Context}, otherwise capture.
+     */
+    @NonNull
+    static <T> CoreSubscriber<? super T> get(@NonNull CoreSubscriber<? super T> actual) {
+        if (actual instanceof TtlEnhanced) return actual;
+
+        final Context context = actual.currentContext();
+        final Capture captured = context.getOrDefault(CAPTURED_KEY, null);
+        if (captured != null) return new TtlSubscriber<>(actual, captured, context);
+
+        final Capture capture = capture();
+        return new TtlSubscriber<>(actual, capture, context.put(CAPTURED_KEY, capture));
+    }
+
+    @Override
+    public void onSubscribe(@NonNull Subscription s) {
+        actual.onSubscribe(s);
+    }
+
+    @Override
+    public void onNext(T t) {
+        signal(ON_NEXT, t, null);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        signal(ON_ERROR, null, t);
+    }
+
+    @Override
+    public void onComplete() {
+        signal(ON_COMPLETE, null, null);
+    }
+
+    private static final int ON_NEXT = 0;
+    private static final int ON_ERROR = 1;
+    private static final int ON_COMPLETE = 2;
+
+    /**
+     * deliver the signal to the actual subscriber with the captured values,
+     * skip the replay if the captured values are being replayed in the current thread.
+     */
+    private void signal(int type, @Nullable T value, @Nullable Throwable error) {
+        final Capture outer = replaying.get();
+        if (outer == captured) {
+            deliver(type, value, error);
+            return;
+        }
+
+        replaying.set(captured);
+        final Backup backup = replay(captured);
+        try {
+            deliver(type, value, error);
+        } finally {
+            restore(backup);
+            replaying.set(outer);
+        }
+    }
+
+    private void deliver(int type, @Nullable T value, @Nullable Throwable error) {
+        switch (type) {
+            case ON_NEXT:
+                actual.onNext(value);
+                break;
+            case ON_ERROR:
+                actual.onError(error);
+                break;
+            default:
+                actual.onComplete();
+        }
+    }
+
+    @NonNull
+    @Override
+    public Context currentContext() {
+        return context;
+    }
+
+    @Nullable
+    @Override
+    public Object scanUnsafe(@NonNull Attr key) {
+        if (key == Attr.ACTUAL) return actual;
+        if (key == Attr.RUN_STYLE) return Attr.RunStyle.SYNC;
+        return null;
+    }
+
+    @NonNull
+    @Override
+    public CoreSubscriber<? super T> unwrap() {
+        return actual;
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getName() + " - " + actual;
+    }
+}
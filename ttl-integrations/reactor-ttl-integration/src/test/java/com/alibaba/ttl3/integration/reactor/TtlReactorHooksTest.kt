@@ -0,0 +1,125 @@
+package com.alibaba.ttl3.integration.reactor
+
+import com.alibaba.ttl3.TransmittableThreadLocal
+import com.alibaba.ttl3.transmitter.Transmittee
+import com.alibaba.ttl3.transmitter.TransmitteeRegistry
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.booleans.shouldBeFalse
+import io.kotest.matchers.booleans.shouldBeTrue
+import io.kotest.matchers.collections.shouldContainExactly
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.shouldNotBe
+import reactor.core.publisher.Flux
+import reactor.core.publisher.Mono
+import reactor.core.scheduler.Schedulers
+import java.time.Duration
+import java.util.concurrent.atomic.AtomicInteger
+
+class TtlReactorHooksTest : FunSpec({
+    val ttl = TransmittableThreadLocal<String>()
+    val timeout = Duration.ofSeconds(3)
+
+    beforeSpec {
+        TtlReactorHooks.install()
+    }
+
+    afterSpec {
+        TtlReactorHooks.uninstall()
+    }
+
+    afterTest {
+        ttl.remove()
+    }
+
+    test("install/uninstall is idempotent") {
+        TtlReactorHooks.isInstalled().shouldBeTrue()
+        TtlReactorHooks.install()
+        TtlReactorHooks.isInstalled().shouldBeTrue()
+
+        TtlReactorHooks.uninstall()
+        TtlReactorHooks.uninstall()
+        TtlReactorHooks.isInstalled().shouldBeFalse()
+
+        TtlReactorHooks.install()
+        TtlReactorHooks.isInstalled().shouldBeTrue()
+    }
+
+    test("transmit across publishOn") {
+        val scheduler = Schedulers.newSingle("ttl-publishOn")
+        try {
+            ttl.set("parent")
+            val mainThread = Thread.currentThread()
+
+            val values = Flux.just(1, 2, 3)
+                .publishOn(scheduler)
+                .map {
+                    Thread.currentThread() shouldNotBe mainThread
+                    "$it-${ttl.get()}"
+                }
+                .filter { ttl.get() == "parent" }
+                .collectList()
+                .block(timeout)!!
+
+            values.shouldContainExactly("1-parent", "2-parent", "3-parent")
+        } finally {
+            scheduler.dispose()
+        }
+    }
+
+    test("transmit across subscribeOn") {
+        val scheduler = Schedulers.newParallel("ttl-subscribeOn", 2)
+        try {
+            ttl.set("parent")
+
+            val value = Mono.fromCallable { ttl.get() }
+                .subscribeOn(scheduler)
+                .map { "$it-${ttl.get()}" }
+                .block(timeout)
+
+            value shouldBe "parent-parent"
+        } finally {
+            scheduler.dispose()
+        }
+    }
+
+    test("the values of the subscribing time are transmitted, not the assembly time") {
+        val scheduler = Schedulers.newSingle("ttl-subscribe-time")
+        try {
+            ttl.set("assembly")
+            val mono = Mono.just(42).publishOn(scheduler).map { ttl.get() }
+
+            ttl.set("subscribe")
+            mono.block(timeout) shouldBe "subscribe"
+        } finally {
+            scheduler.dispose()
+        }
+    }
+
+    test("capture once per subscription, not per signal") {
+        val scheduler = Schedulers.newSingle("ttl-capture-once")
+        val captureCount = AtomicInteger()
+        val transmittee = object : Transmittee<Int, Int> {
+            override fun capture(): Int = captureCount.incrementAndGet()
+            override fun replay(captured: Int): Int = captured
+            override fun clear(): Int = 0
+            override fun restore(backup: Int) {}
+        }
+
+        TransmitteeRegistry.registerTransmittee(transmittee).shouldBeTrue()
+        try {
+            ttl.set("parent")
+            Flux.range(0, 100)
+                .publishOn(scheduler)
+                .map { ttl.get() }
+                .filter { it == "parent" }
+                .count()
+                .block(timeout) shouldBe 100
+
+            // the capture of the subscription, plus the schedule hook captures of the publishOn drain tasks
+            (captureCount.get() < 100).shouldBeTrue()
+        } finally {
+            TransmitteeRegistry.unregisterTransmittee(transmittee).shouldBeTrue()
+            scheduler.dispose()
+        }
+    }
+})
@@ -12,7 +12,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import static com.alibaba.ttl.TransmittableThreadLocal.Transmitter.*;
 
@@ -32,12 +32,16 @@ import static com.alibaba.ttl.TransmittableThreadLocal.Transmitter.*;
  * @see io.netty.channel.nio.NioEventLoop#processSelectedKeys()
  */
 public class TtlVertxHandler<E> implements Handler<E>, TtlWrapper<Handler<E>>, TtlEnhanced, TtlAttachments {
-    private final AtomicReference<Object> capturedRef;
+    private volatile Object captured;
     private final Handler<E> handler;
     private final boolean releaseTtlValueReferenceAfterRun;
 
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<TtlVertxHandler, Object> capturedUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(TtlVertxHandler.class, Object.class, "captured");
+
     private TtlVertxHandler(@NonNull Handler<E> handler, boolean releaseTtlValueReferenceAfterRun) {
-        this.capturedRef = new AtomicReference<>(capture());
+        this.captured = capture();
         this.handler = handler;
         this.releaseTtlValueReferenceAfterRun = releaseTtlValueReferenceAfterRun;
     }
@@ -47,8 +51,8 @@ public class TtlVertxHandler<E> implements Handler<E>, TtlWrapper<Handler<E>>, T
      */
     @Override
     public void handle(E event) {
-        final Object captured = capturedRef.get();
-        if (captured == null || releaseTtlValueReferenceAfterRun && !capturedRef.compareAndSet(captured, null)) {
+        final Object captured = this.captured;
+        if (captured == null || releaseTtlValueReferenceAfterRun && !capturedUpdater.compareAndSet(this, captured, null)) {
             throw new IllegalStateException("TTL value reference is released after run!");
         }
 
@@ -1,6 +1,8 @@
 package com.alibaba.ttl3.kotlin
 
 import com.alibaba.crr.composite.Capture
+import com.alibaba.ttl3.TransmittableThreadLocal
+import com.alibaba.ttl3.transmitter.Transmittee
 import com.alibaba.ttl3.transmitter.Transmitter
 import com.alibaba.ttl3.transmitter.Transmitter.*
 
@@ -38,3 +40,125 @@ inline fun <R> ttlRunWithClear(bizLogic: () -> R): R {
         restore(backup)
     }
 }
+
+
+////////////////////////////////////////
+// transmit only the chosen transmittees
+////////////////////////////////////////
+
+@PublishedApi
+internal val ttlTransmittee: Transmittee<Any, Any> = TransmittableThreadLocal.getTtlTransmittee()
+
+/**
+ * The captured [TransmittableThreadLocal] values only, from [captureTtlOnly].
+ *
+ * The handle is an inline value class, so no wrapper object is allocated.
+ */
+@JvmInline
+value class TtlOnlyCapture @PublishedApi internal constructor(@PublishedApi internal val captured: Any)
+
+/**
+ * Capture the [TransmittableThreadLocal] values only in the current thread,
+ * NOT including the other registered transmittees(e.g. the registered [ThreadLocal]s).
+ *
+ * @see TransmittableThreadLocal.getTtlTransmittee
+ * @see ttlRun
+ */
+fun captureTtlOnly(): TtlOnlyCapture = TtlOnlyCapture(ttlTransmittee.capture())
+
+/**
+ * Util method for replaying and restoring the captured [TransmittableThreadLocal] values only,
+ * bypass the composite dispatch of [Transmitter], aka. the other registered transmittees and the transmit callbacks/metrics.
+ *
+ * @param captured captured values from other thread from [captureTtlOnly]
+ * @param bizLogic biz logic
+ * @param R the return type of biz logic
+ * @see captureTtlOnly
+ */
+inline fun <R> ttlRun(captured: TtlOnlyCapture, bizLogic: () -> R): R {
+    val backup = ttlTransmittee.replay(captured.captured)
+    return try {
+        bizLogic()
+    } finally {
+        ttlTransmittee.restore(backup)
+    }
+}
+
+/**
+ * The chosen subset of transmittees, transmitted by [capture] and [ttlRun]
+ * bypassing the composite dispatch of [Transmitter], aka. the other registered transmittees and the transmit callbacks/metrics.
+ *
+ * The transmittees are replayed in the given order, and restored in the reverse order.
+ *
+ * @see TransmittableThreadLocal.getTtlTransmittee
+ */
+class TransmitteeGroup(vararg transmittees: Transmittee<*, *>) {
+    @PublishedApi
+    @Suppress("UNCHECKED_CAST")
+    internal val transmittees: Array<Transmittee<Any, Any>> =
+        Array(transmittees.size) { transmittees[it] as Transmittee<Any, Any> }
+
+    /**
+     * Capture the values of the transmittees in the current thread.
+     */
+    fun capture(): TransmitteeGroupCapture =
+        TransmitteeGroupCapture(Array(transmittees.size) { transmittees[it].capture() })
+
+    /**
+     * Util method for replaying and restoring the captured values of the transmittees.
+     *
+     * @param captured captured values from other thread from [capture] of this group
+     * @param bizLogic biz logic
+     * @param R the return type of biz logic
+     */
+    inline fun <R> ttlRun(captured: TransmitteeGroupCapture, bizLogic: () -> R): R {
+        val backups = replay(captured.captured)
+        return try {
+            bizLogic()
+        } finally {
+            restore(backups, transmittees.size)
+        }
+    }
+
+    /**
+     * Replay the transmittees in order; if a replay fails,
+     * restore the already replayed transmittees in the reverse order before rethrowing.
+     */
+    @PublishedApi
+    internal fun replay(values: Array<Any>): Array<Any?> {
+        val ts = transmittees
+        val backups = arrayOfNulls<Any>(ts.size)
+        var replayed = 0
+        try {
+            while (replayed < ts.size) {
+                backups[replayed] = ts[replayed].replay(values[replayed])
+                replayed++
+            }
+        } catch (e: Throwable) {
+            restore(backups, replayed)
+            throw e
+        }
+        return backups
+    }
+
+    /**
+     * Restore the first [count] transmittees in the reverse order.
+     */
+    @PublishedApi
+    internal fun restore(backups: Array<Any?>, count: Int) {
+        val ts = transmittees
+        var i = count - 1
+        while (i >= 0) {
+            ts[i].restore(backups[i]!!)
+            i--
+        }
+    }
+}
+
+/**
+ * The captured values of a [TransmitteeGroup], from [TransmitteeGroup.capture].
+ *
+ * The handle is an inline value class, so no wrapper object is allocated.
+ */
+@JvmInline
+value class TransmitteeGroupCapture @PublishedApi internal constructor(@PublishedApi internal val captured: Array<Any>)
@@ -0,0 +1,100 @@
+@file:OptIn(ExperimentalCoroutinesApi::class, DelicateCoroutinesApi::class)
+
+package com.alibaba.ttl3.kotlin
+
+import com.alibaba.crr.composite.Backup
+import com.alibaba.crr.composite.Capture
+import com.alibaba.ttl3.TransmittableThreadLocal
+import com.alibaba.ttl3.transmitter.Transmitter.*
+import kotlinx.coroutines.CopyableThreadContextElement
+import kotlinx.coroutines.DelicateCoroutinesApi
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlin.coroutines.CoroutineContext
+
+/**
+ * Create the [CoroutineContext] element transmitting the [TransmittableThreadLocal] values
+ * captured from the current thread to the coroutine.
+ *
+ * ```kotlin
+ * launch(Dispatchers.Default + ttlContext()) {
+ *     // read the values of the launching thread, even after resumed in other threads
+ * }
+ * ```
+ *
+ * @see TtlContextElement
+ */
+fun ttlContext(): CoroutineContext = TtlContextElement(capture())
+
+/**
+ * The [CoroutineContext] element transmitting the [TransmittableThreadLocal] values to the coroutine,
+ * replay the values on each resume and restore on each suspend of the coroutine.
+ *
+ * The values are coroutine local:
+ *
+ * - the values modified in the coroutine are captured on suspend, and replayed on the next resume.
+ * - the child coroutines copy the values of the parent coroutine at the launch time,
+ *   the element passed to the child coroutines explicitly is copied per child also.
+ *
+ * The capture on suspend is done by [recapture], which keeps the captured values if they are not changed
+ * since the resume, so the suspend of the coroutine not modifying the values allocates nothing;
+ * but the capture of every registered transmittee is still called on each suspend.
+ *
+ * The replay is skipped when the coroutine is resumed in the thread already holding the values of this element,
+ * e.g. the undispatched `withContext` and the child coroutines started undispatched;
+ * and the capture on suspend is skipped also, the values are captured by the outer resume.
+ *
+ * @see ttlContext
+ * @see kotlinx.coroutines.asContextElement
+ */
+class TtlContextElement internal constructor(
+    @Volatile
+    private var captured: Capture
+) : CopyableThreadContextElement<Any> {
+    companion object Key : CoroutineContext.Key<TtlContextElement>
+
+    override val key: CoroutineContext.Key<TtlContextElement> get() = Key
+
+    /**
+     * the replaying element outer this element in the current thread, used to restore [replaying] on suspend.
+     * updated only in the thread running the coroutine of this element.
+     */
+    private var outer: TtlContextElement? = null
+
+    override fun updateThreadContext(context: CoroutineContext): Any {
+        val current = replaying.get()
+        if (current === this) return NO_REPLAY
+
+        outer = current
+        replaying.set(this)
+        return replay(captured)
+    }
+
+    override fun restoreThreadContext(context: CoroutineContext, oldState: Any) {
+        if (oldState === NO_REPLAY) return
+
+        captured = recapture(captured)
+        restore(oldState as Backup)
+        replaying.set(outer)
+        outer = null
+    }
+
+    override fun copyForChild(): CopyableThreadContextElement<Any> =
+        if (replaying.get() === this) TtlContextElement(capture())
+        else TtlContextElement(captured)
+
+    // the explicit element may be passed to the concurrent child coroutines, copy it so the children do not share it
+    override fun mergeForChild(overwritingElement: CoroutineContext.Element): CoroutineContext =
+        (overwritingElement as TtlContextElement).copyForChild()
+
+    override fun toString(): String = "TtlContextElement"
+}
+
+/**
+ * the [TtlContextElement] whose values are replayed in the current thread.
+ */
+private val replaying = ThreadLocal<TtlContextElement?>()
+
+/**
+ * the state of [TtlContextElement.updateThreadContext] when the replay is skipped.
+ */
+private object NO_REPLAY
@@ -0,0 +1,130 @@
+package com.alibaba.ttl3.kotlin
+
+import com.alibaba.ttl3.TransmittableThreadLocal
+import com.alibaba.ttl3.executor.TtlExecutors
+import com.alibaba.ttl3.transmitter.Transmittee
+import com.alibaba.ttl3.transmitter.TransmitteeRegistry
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.booleans.shouldBeTrue
+import io.kotest.matchers.collections.shouldContainExactly
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.shouldBe
+import java.util.concurrent.FutureTask
+import java.util.concurrent.TimeUnit
+
+class TransmitterTests : FunSpec({
+    val ttl = TransmittableThreadLocal<String>()
+
+    afterTest {
+        ttl.remove()
+    }
+
+    /**
+     * run in a new thread without inherited values.
+     */
+    fun <T> runInNewThread(block: () -> T): T {
+        val task = FutureTask(block)
+        TtlExecutors.getDefaultDisableInheritableThreadFactory().newThread(task).start()
+        return task.get(3, TimeUnit.SECONDS)
+    }
+
+    /**
+     * records the CRR operations with the given name.
+     */
+    class RecordTransmittee(private val name: String, private val records: MutableList<String>) : Transmittee<String, String> {
+        override fun capture(): String = name.also { records.add("capture $name") }
+        override fun replay(captured: String): String = captured.also { records.add("replay $name") }
+        override fun clear(): String = name
+        override fun restore(backup: String) {
+            records.add("restore $name")
+        }
+    }
+
+    test("ttlRun with TTL only capture") {
+        val records = mutableListOf<String>()
+        val other = RecordTransmittee("other", records)
+
+        TransmitteeRegistry.registerTransmittee(other).shouldBeTrue()
+        try {
+            ttl.set("parent")
+            val captured = captureTtlOnly()
+            ttl.set("changed")
+
+            runInNewThread {
+                records.clear()
+
+                ttl.get().shouldBeNull()
+                ttlRun(captured) { ttl.get() } shouldBe "parent"
+                ttl.get().shouldBeNull()
+
+                // the other registered transmittee is bypassed
+                records.shouldContainExactly()
+            }
+            ttl.get() shouldBe "changed"
+        } finally {
+            TransmitteeRegistry.unregisterTransmittee(other).shouldBeTrue()
+        }
+    }
+
+    test("ttlRun with TransmitteeGroup") {
+        val records = mutableListOf<String>()
+        val group = TransmitteeGroup(
+            TransmittableThreadLocal.getTtlTransmittee(),
+            RecordTransmittee("a", records),
+            RecordTransmittee("b", records)
+        )
+
+        ttl.set("parent")
+        val captured = group.capture()
+
+        runInNewThread {
+            group.ttlRun(captured) {
+                records.add("bizLogic")
+                ttl.get()
+            } shouldBe "parent"
+            ttl.get().shouldBeNull()
+        }
+
+        records.shouldContainExactly(
+            "capture a", "capture b",
+            "replay a", "replay b",
+            "bizLogic",
+            "restore b", "restore a"
+        )
+    }
+
+    test("ttlRun with TransmitteeGroup restores the replayed transmittees if a replay fails") {
+        val records = mutableListOf<String>()
+        val failing = object : Transmittee<String, String> {
+            override fun capture(): String = "failing"
+            override fun replay(captured: String): String = throw IllegalStateException("replay failed")
+            override fun clear(): String = "failing"
+            override fun restore(backup: String) {
+                records.add("restore failing")
+            }
+        }
+        val group = TransmitteeGroup(
+            TransmittableThreadLocal.getTtlTransmittee(),
+            RecordTransmittee("a", records),
+            failing,
+            RecordTransmittee("b", records)
+        )
+
+        ttl.set("parent")
+        val captured = group.capture()
+
+        runInNewThread {
+            shouldThrow<IllegalStateException> {
+                group.ttlRun(captured) { records.add("bizLogic") }
+            }.message shouldBe "replay failed"
+            ttl.get().shouldBeNull()
+        }
+
+        records.shouldContainExactly(
+            "capture a", "capture b",
+            "replay a",
+            "restore a"
+        )
+    }
+})
@@ -0,0 +1,115 @@
+package com.alibaba.ttl3.kotlin
+
+import com.alibaba.ttl3.TransmittableThreadLocal
+import com.alibaba.ttl3.transmitter.Transmittee
+import com.alibaba.ttl3.transmitter.TransmitteeRegistry
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.booleans.shouldBeTrue
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.shouldNotBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import io.kotest.matchers.types.shouldNotBeSameInstanceAs
+import kotlinx.coroutines.*
+import java.util.concurrent.atomic.AtomicInteger
+
+class TtlCoroutineContextTest : FunSpec({
+    val ttl = TransmittableThreadLocal<String>()
+
+    afterTest {
+        ttl.remove()
+    }
+
+    test("transmit to coroutine, and the values are coroutine local") {
+        ttl.set("parent")
+        val testThread = Thread.currentThread()
+
+        runBlocking {
+            launch(Dispatchers.Default + ttlContext()) {
+                Thread.currentThread() shouldNotBe testThread
+                ttl.get() shouldBe "parent"
+
+                delay(5)
+                ttl.get() shouldBe "parent"
+
+                ttl.set("coroutine")
+                delay(5)
+                ttl.get() shouldBe "coroutine"
+            }.join()
+        }
+
+        ttl.get() shouldBe "parent"
+    }
+
+    test("child coroutine copies the values of parent coroutine at launch time") {
+        ttl.set("parent")
+
+        runBlocking(Dispatchers.Default + ttlContext()) {
+            ttl.set("modified-in-parent")
+            var childElement: TtlContextElement? = null
+            val child = launch {
+                childElement = coroutineContext[TtlContextElement]
+                delay(5)
+                ttl.get() shouldBe "modified-in-parent"
+                ttl.set("child")
+            }
+            ttl.set("modified-after-launch")
+            child.join()
+
+            ttl.get() shouldBe "modified-after-launch"
+            coroutineContext[TtlContextElement].shouldNotBeSameInstanceAs(childElement)
+        }
+
+        ttl.get() shouldBe "parent"
+    }
+
+    test("the explicit element passed to the concurrent child coroutines is copied per child") {
+        ttl.set("parent")
+        val element = ttlContext()
+        ttl.set("modified-after-capture")
+
+        runBlocking(Dispatchers.Default + ttlContext()) {
+            val childElements = List(2) { i ->
+                async(element) {
+                    ttl.get() shouldBe "parent"
+                    ttl.set("child-$i")
+                    delay(5)
+                    ttl.get() shouldBe "child-$i"
+                    coroutineContext[TtlContextElement]
+                }
+            }.awaitAll()
+
+            childElements[0].shouldNotBeSameInstanceAs(element)
+            childElements[1].shouldNotBeSameInstanceAs(element)
+            childElements[0].shouldNotBeSameInstanceAs(childElements[1])
+            ttl.get() shouldBe "modified-after-capture"
+        }
+    }
+
+    test("skip replay when resumed in the thread already holding the values") {
+        val replayCount = AtomicInteger()
+        val transmittee = object : Transmittee<Int, Int> {
+            override fun capture(): Int = 0
+            override fun replay(captured: Int): Int = replayCount.incrementAndGet()
+            override fun clear(): Int = 0
+            override fun restore(backup: Int) {}
+        }
+
+        TransmitteeRegistry.registerTransmittee(transmittee).shouldBeTrue()
+        try {
+            ttl.set("parent")
+
+            runBlocking(Dispatchers.Default + ttlContext()) {
+                val element = coroutineContext[TtlContextElement]
+                val count = replayCount.get()
+
+                withContext(CoroutineName("undispatched")) {
+                    coroutineContext[TtlContextElement].shouldBeSameInstanceAs(element)
+                    ttl.get() shouldBe "parent"
+                }
+                replayCount.get() shouldBe count
+            }
+        } finally {
+            TransmitteeRegistry.unregisterTransmittee(transmittee).shouldBeTrue()
+        }
+    }
+})
@@ -6,9 +6,14 @@ import edu.umd.cs.findbugs.annotations.Nullable;
 
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * {@link TtlAttachments} delegate/implementation.
+ * <p>
+ * Every TTL task holds a delegate, so the delegate is kept small:
+ * the auto wrapper attachment(the only attachment set by ttl agent) is kept in a field,
+ * and the map of the other attachments is allocated on the first set.
  *
  * @author Jerry Lee (oldratlee at gmail dot com)
  * @see com.alibaba.ttl.TtlRunnable
@@ -16,17 +21,36 @@ import java.util.concurrent.ConcurrentMap;
  * @since 2.11.0
  */
 public class TtlAttachmentsDelegate implements TtlAttachments {
-    private final ConcurrentMap<String, Object> attachments = new ConcurrentHashMap<>();
+    private volatile Object autoWrapper;
+    @Nullable
+    private volatile ConcurrentMap<String, Object> attachments;
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<TtlAttachmentsDelegate, ConcurrentMap> attachmentsUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(TtlAttachmentsDelegate.class, ConcurrentMap.class, "attachments");
 
     @Override
     public void setTtlAttachment(@NonNull String key, Object value) {
-        attachments.put(key, value);
+        if (KEY_IS_AUTO_WRAPPER.equals(key)) {
+            autoWrapper = value;
+            return;
+        }
+
+        ConcurrentMap<String, Object> map = attachments;
+        if (map == null) {
+            attachmentsUpdater.compareAndSet(this, null, new ConcurrentHashMap<String, Object>());
+            map = attachments;
+        }
+        map.put(key, value);
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public <T> T getTtlAttachment(@NonNull String key) {
-        return (T) attachments.get(key);
+        if (KEY_IS_AUTO_WRAPPER.equals(key)) return (T) autoWrapper;
+
+        final ConcurrentMap<String, Object> map = attachments;
+        return map == null ? null : (T) map.get(key);
     }
 
     // ======== AutoWrapper Util Methods ========